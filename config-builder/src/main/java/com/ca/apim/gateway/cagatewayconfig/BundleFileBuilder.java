@@ -12,21 +12,28 @@ import com.ca.apim.gateway.cagatewayconfig.beans.GatewayEntity;
 import com.ca.apim.gateway.cagatewayconfig.beans.Policy;
 import com.ca.apim.gateway.cagatewayconfig.beans.Service;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleArtifacts;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleDocumentWriter;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleEntityBuilder;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder;
 import com.ca.apim.gateway.cagatewayconfig.config.loader.EntityLoader;
 import com.ca.apim.gateway.cagatewayconfig.config.loader.EntityLoaderRegistry;
 import com.ca.apim.gateway.cagatewayconfig.config.loader.FolderLoaderUtils;
 import com.ca.apim.gateway.cagatewayconfig.environment.BundleCache;
+import com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentPlan;
+import com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentPlanRecorder;
 import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtilsException;
 import com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
-import org.w3c.dom.Document;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.xml.parsers.DocumentBuilder;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,6 +49,7 @@ public class BundleFileBuilder {
     private final JsonFileUtils jsonFileUtils;
     private final EntityLoaderRegistry entityLoaderRegistry;
     private final BundleEntityBuilder bundleEntityBuilder;
+    private final BundleDocumentWriter bundleDocumentWriter;
     private final BundleCache cache;
     private final DocumentTools documentTools;
 
@@ -53,19 +61,54 @@ public class BundleFileBuilder {
                              final JsonFileUtils jsonFileUtils,
                              final EntityLoaderRegistry entityLoaderRegistry,
                              final BundleEntityBuilder bundleEntityBuilder,
+                             final BundleDocumentWriter bundleDocumentWriter,
                              final BundleCache cache) {
         this.documentFileUtils = documentFileUtils;
         this.jsonFileUtils = jsonFileUtils;
         this.documentTools = documentTools;
         this.entityLoaderRegistry = entityLoaderRegistry;
         this.bundleEntityBuilder = bundleEntityBuilder;
+        this.bundleDocumentWriter = bundleDocumentWriter;
         this.cache = cache;
     }
 
     public void buildBundle(File rootDir, File outputDir, List<DependentBundle> dependencies, ProjectInfo projectInfo) {
-        final DocumentBuilder documentBuilder = documentTools.getDocumentBuilder();
-        final Document document = documentBuilder.newDocument();
+        buildBundle(rootDir, outputDir, dependencies, projectInfo, 1, false);
+    }
 
+    /**
+     * Builds the deployment bundles and writes their artifacts to the output directory. Each annotated bundle is
+     * written as soon as it is built.
+     *
+     * @param rootDir       Source directory of the gateway entities
+     * @param outputDir     Directory where the bundle artifacts are written
+     * @param dependencies  Bundles the project depends on
+     * @param projectInfo   Gradle Project info
+     * @param parallelism   Maximum number of annotated bundles built at the same time
+     * @param streamBundles TRUE to write the install and delete bundles entity by entity, without building the
+     *                      bundle documents in memory first
+     */
+    public void buildBundle(File rootDir, File outputDir, List<DependentBundle> dependencies, ProjectInfo projectInfo,
+                            int parallelism, boolean streamBundles) {
+        buildBundle(rootDir, outputDir, dependencies, projectInfo, parallelism, streamBundles, null);
+    }
+
+    /**
+     * Builds the deployment bundles and writes their artifacts to the output directory. With a cache directory, the
+     * bundles whose inputs didn't change since they were last built there are copied from the cache instead of being
+     * built again.
+     *
+     * @param rootDir       Source directory of the gateway entities
+     * @param outputDir     Directory where the bundle artifacts are written
+     * @param dependencies  Bundles the project depends on
+     * @param projectInfo   Gradle Project info
+     * @param parallelism   Maximum number of annotated bundles built at the same time
+     * @param streamBundles TRUE to write the install and delete bundles entity by entity, without building the
+     *                      bundle documents in memory first
+     * @param cacheDir      Directory of the incremental build cache, null to build every bundle
+     */
+    public void buildBundle(File rootDir, File outputDir, List<DependentBundle> dependencies, ProjectInfo projectInfo,
+                            int parallelism, boolean streamBundles, File cacheDir) {
         final Bundle bundle = new Bundle(projectInfo);
 
         if (rootDir != null) {
@@ -121,17 +164,88 @@ public class BundleFileBuilder {
         }
 
         //Zip
-        final Map<String, BundleArtifacts> bundleElementMap = bundleEntityBuilder.build(bundle,
-                EntityBuilder.BundleType.DEPLOYMENT, document, projectInfo);
-        bundleElementMap.forEach((k, v) -> writeBundleArtifacts(k, v, outputDir));
+        final DocumentBuilder documentBuilder = documentTools.getDocumentBuilder();
+        final IncrementalBuildCache incrementalBuildCache = cacheDir != null ?
+                createIncrementalBuildCache(cacheDir, outputDir, rootDir, dependencies, projectInfo) : null;
+        if (incrementalBuildCache == null) {
+            bundleEntityBuilder.build(bundle, EntityBuilder.BundleType.DEPLOYMENT, documentBuilder::newDocument,
+                    projectInfo, parallelism, streamBundles, (k, v) -> writeBundleArtifacts(k, v, outputDir,
+                            projectInfo.isWriteEnvironmentPlans()));
+            return;
+        }
+        bundleEntityBuilder.build(bundle, EntityBuilder.BundleType.DEPLOYMENT, documentBuilder::newDocument,
+                projectInfo, parallelism, streamBundles, incrementalBuildCache, (k, v) -> incrementalBuildCache.store(k,
+                        v.getFingerprint(), writeBundleArtifacts(k, v, outputDir, projectInfo.isWriteEnvironmentPlans())));
+        incrementalBuildCache.save();
+    }
+
+    private IncrementalBuildCache createIncrementalBuildCache(File cacheDir, File outputDir, File rootDir,
+                                                              List<DependentBundle> dependencies, ProjectInfo projectInfo) {
+        final IncrementalBuildCache incrementalBuildCache = new IncrementalBuildCache(cacheDir, outputDir);
+        try {
+            incrementalBuildCache.fingerprintInputs(rootDir, dependencies, projectInfo);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not hash the inputs of the build, building every bundle: {0}", e.getMessage());
+            return null;
+        }
+        return incrementalBuildCache;
     }
 
-    private void writeBundleArtifacts(final String bundleName, final BundleArtifacts bundleArtifacts, File outputDir) {
-        documentFileUtils.createFile(bundleArtifacts.getInstallBundle().getElement(), new File(outputDir,
-                bundleArtifacts.getInstallBundle().getFilename()).toPath());
-        documentFileUtils.createFile(bundleArtifacts.getDeleteBundle().getElement(), new File(outputDir,
-                bundleArtifacts.getDeleteBundle().getFilename()).toPath());
+    /**
+     * Writes the artifacts of a bundle to the output directory. With environment plans, the plan of the install bundle
+     * is recorded while the bundle is written and written next to it.
+     *
+     * @return the names of the files written
+     */
+    private List<String> writeBundleArtifacts(final String bundleName, final BundleArtifacts bundleArtifacts, File outputDir,
+                                              boolean writeEnvironmentPlans) {
+        final List<String> filenames = new ArrayList<>();
+        final BundleArtifacts.Artifact installBundle = bundleArtifacts.getInstallBundle();
+        final File installBundleFile = new File(outputDir, installBundle.getFilename());
+        // lets the environment creator apply the environment to the install bundle without parsing it
+        final EnvironmentPlan plan = writeEnvironmentPlans ? writeBundleWithPlan(installBundle, installBundleFile) : null;
+        if (!writeEnvironmentPlans) {
+            writeBundle(installBundle, outputDir);
+        }
+        filenames.add(installBundle.getFilename());
+        if (EnvironmentPlan.writePlanFile(installBundleFile, plan)) {
+            filenames.add(EnvironmentPlan.getPlanFile(installBundleFile).getName());
+        }
+        filenames.add(writeBundle(bundleArtifacts.getDeleteBundle(), outputDir));
         jsonFileUtils.createBundleMetadataFile(bundleArtifacts.getBundleMetadata(), bundleName, outputDir);
+        filenames.add(bundleName + JsonFileUtils.METADATA_FILE_NAME_SUFFIX);
+        return filenames;
+    }
+
+    private String writeBundle(final BundleArtifacts.Artifact bundle, File outputDir) {
+        final Path path = new File(outputDir, bundle.getFilename()).toPath();
+        if (bundle.getStreamedBundle() != null) {
+            bundleDocumentWriter.write(bundle.getStreamedBundle(), path);
+        } else {
+            documentFileUtils.createFile(bundle.getElement(), path);
+        }
+        return bundle.getFilename();
+    }
+
+    /**
+     * Writes the bundle through an {@link EnvironmentPlanRecorder}, the same way {@link #writeBundle} does.
+     *
+     * @return the plan of the bundle, null if no plan can be created for it
+     */
+    private EnvironmentPlan writeBundleWithPlan(final BundleArtifacts.Artifact bundle, File bundleFile) {
+        final EnvironmentPlanRecorder recorder;
+        try (OutputStream outputStream = Files.newOutputStream(bundleFile.toPath())) {
+            recorder = new EnvironmentPlanRecorder(bundle.getFilename(), outputStream);
+            if (bundle.getStreamedBundle() != null) {
+                bundleDocumentWriter.write(bundle.getStreamedBundle(), recorder);
+            } else {
+                documentTools.printXML(bundle.getElement(), recorder, false);
+            }
+        } catch (IOException e) {
+            throw new DocumentFileUtilsException("Error writing to file '" + bundleFile + "': " + e.getMessage(), e);
+        }
+        return bundle.getStreamedBundle() != null ?
+                recorder.createPlan(bundle.getStreamedBundle().getEntities()) : recorder.createPlan(bundle.getElement());
     }
 
     protected <E extends GatewayEntity> void logOverriddenEntities(Bundle bundle, Set<Bundle> dependencyBundles, Class<E> entityClass) {
@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
+import com.ca.apim.gateway.cagatewayconfig.beans.DependentBundle;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BuiltPolicy;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleArtifactsCache;
+import com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * Persistent cache of the deployment bundles written by the previous builds, kept in the build directory of the task.
+ * It records the content hash of every input file, so that unchanged files are not hashed again, and a copy of the
+ * artifacts of every bundle with the fingerprint of the inputs it was built from.
+ * <p>
+ * The fingerprint of a bundle combines the fingerprint given when restoring or storing it (the entities of the bundle
+ * and the content of its policies) with the fingerprint of the inputs shared by all the bundles: the configuration
+ * files, the paths of the policies, the dependencies, the project info and the plugin itself. A change to a policy
+ * only rebuilds the bundles containing it, any other change rebuilds all of them. Annotated bundles are only cached
+ * when the ids of the entities are deterministic, otherwise the bundles of one build would not agree on the ids of the
+ * entities they share.
+ * <p>
+ * When a bundle that is not annotated has to be built and the ids of the entities are deterministic, the policy xml
+ * built for each of its policies is cached as well, with the fingerprint of the policy combined with the same shared
+ * inputs, so only the policies that changed are built again.
+ */
+class IncrementalBuildCache implements BundleArtifactsCache {
+
+    private static final Logger LOGGER = Logger.getLogger(IncrementalBuildCache.class.getName());
+    private static final String INDEX_FILE = "incremental-build.json";
+    private static final String BUNDLES_DIR = "bundles";
+    private static final String POLICIES_DIR = "policies";
+    private static final String POLICY_FILE_EXTENSION = ".json";
+    private static final String POLICY_DIR = "policy";
+
+    private final File cacheDir;
+    private final File outputDir;
+    private final Map<String, FileHash> previousFileHashes;
+    private final Map<String, FileHash> fileHashes = new ConcurrentHashMap<>();
+    private final Map<String, CachedBundle> bundles;
+    private final Set<String> builtBundles = ConcurrentHashMap.newKeySet();
+    private final Map<String, CachedPolicy> policies;
+    private final Set<String> builtPolicies = ConcurrentHashMap.newKeySet();
+    private volatile boolean bundleStored;
+    private String inputsFingerprint = "";
+
+    /**
+     * Loads the cache kept in the given directory.
+     *
+     * @param cacheDir  directory of the cache
+     * @param outputDir directory the bundle artifacts are written to and restored into
+     */
+    IncrementalBuildCache(File cacheDir, File outputDir) {
+        this.cacheDir = cacheDir;
+        this.outputDir = outputDir;
+        final CacheIndex index = readIndex(new File(cacheDir, INDEX_FILE));
+        this.previousFileHashes = index.getFileHashes();
+        this.bundles = new ConcurrentHashMap<>(index.getBundles());
+        this.policies = new ConcurrentHashMap<>(index.getPolicies());
+    }
+
+    /**
+     * Computes the fingerprint of the inputs shared by all the bundles of the build.
+     *
+     * @param rootDir      source directory of the gateway entities, can be null
+     * @param dependencies bundles the project depends on
+     * @param projectInfo  Gradle project info
+     * @throws IOException if an input file can't be read
+     */
+    void fingerprintInputs(File rootDir, List<DependentBundle> dependencies, ProjectInfo projectInfo) throws IOException {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, getPluginVersion());
+        putString(hasher, Boolean.toString(Bundle.isEnvironmentEntityUniqueNamingDisabled()));
+        putString(hasher, Boolean.toString(projectInfo.isDeterministicIds()));
+        putString(hasher, Boolean.toString(projectInfo.isWriteEnvironmentPlans()));
+        for (String value : Arrays.asList(projectInfo.getName(), projectInfo.getGroupName(), projectInfo.getVersion(),
+                projectInfo.getConfigName(), projectInfo.getTargetFolderPath())) {
+            putString(hasher, StringUtils.defaultString(value));
+        }
+
+        if (rootDir != null && rootDir.isDirectory()) {
+            final Path rootPath = rootDir.toPath();
+            final Path policyPath = rootPath.resolve(POLICY_DIR);
+            final List<Path> files;
+            try (Stream<Path> paths = Files.walk(rootPath)) {
+                files = paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                putString(hasher, rootPath.relativize(file).toString());
+                // the content of the policies is part of the fingerprint of the bundles containing them
+                if (!file.startsWith(policyPath)) {
+                    putString(hasher, hashFile(file.toFile()));
+                }
+            }
+        }
+
+        for (DependentBundle dependency : dependencies) {
+            for (File file : getDependencyFiles(dependency.getDependencyFile())) {
+                putString(hasher, file.getPath());
+                putString(hasher, hashFile(file));
+            }
+        }
+        inputsFingerprint = hasher.hash().toString();
+    }
+
+    @Override
+    public boolean restore(String bundleName, String fingerprint) {
+        final CachedBundle cachedBundle = bundles.get(bundleName);
+        if (cachedBundle == null || !getCacheKey(fingerprint).equals(cachedBundle.getFingerprint())) {
+            return false;
+        }
+        final File bundleDir = getBundleDir(bundleName);
+        try {
+            // the copies are checked so a damaged cache makes the bundle be built again instead of restored
+            for (Map.Entry<String, String> file : cachedBundle.getFiles().entrySet()) {
+                final File cachedFile = new File(bundleDir, file.getKey());
+                if (!cachedFile.isFile() || !hashContent(cachedFile).equals(file.getValue())) {
+                    LOGGER.log(Level.WARNING, "Cached artifact {0} of bundle {1} is missing or changed, building the bundle again",
+                            new Object[]{file.getKey(), bundleName});
+                    return false;
+                }
+            }
+            for (String filename : cachedBundle.getFiles().keySet()) {
+                Files.copy(new File(bundleDir, filename).toPath(), new File(outputDir, filename).toPath(), REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not restore bundle {0}, building it again: {1}", new Object[]{bundleName, e.getMessage()});
+            return false;
+        }
+        builtBundles.add(bundleName);
+        LOGGER.log(Level.INFO, "Bundle {0} is up to date, reusing the artifacts of the previous build", bundleName);
+        return true;
+    }
+
+    /**
+     * Keeps a copy of the artifacts of a bundle that was just written to the output directory.
+     *
+     * @param bundleName  name of the bundle
+     * @param fingerprint fingerprint of the entities of the bundle, null if the bundle can't be restored
+     * @param filenames   names of the artifact files in the output directory
+     */
+    void store(String bundleName, String fingerprint, Collection<String> filenames) {
+        builtBundles.add(bundleName);
+        bundleStored = true;
+        bundles.remove(bundleName);
+        final File bundleDir = getBundleDir(bundleName);
+        deleteQuietly(bundleDir);
+        if (fingerprint == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(bundleDir.toPath());
+            final Map<String, String> files = new TreeMap<>();
+            for (String filename : filenames) {
+                final File cachedFile = new File(bundleDir, filename);
+                Files.copy(new File(outputDir, filename).toPath(), cachedFile.toPath(), REPLACE_EXISTING);
+                files.put(filename, hashContent(cachedFile));
+            }
+            bundles.put(bundleName, new CachedBundle(getCacheKey(fingerprint), files));
+        } catch (IOException e) {
+            deleteQuietly(bundleDir);
+            LOGGER.log(Level.WARNING, "Could not cache bundle {0}: {1}", new Object[]{bundleName, e.getMessage()});
+        }
+    }
+
+    @Override
+    public BuiltPolicy restorePolicy(String policyPath, String fingerprint) {
+        final CachedPolicy cachedPolicy = policies.get(policyPath);
+        final String cacheKey = getCacheKey(fingerprint);
+        if (cachedPolicy == null || !cacheKey.equals(cachedPolicy.getFingerprint())) {
+            return null;
+        }
+        final File policyFile = getPolicyFile(cacheKey);
+        try {
+            if (!policyFile.isFile() || !hashContent(policyFile).equals(cachedPolicy.getHash())) {
+                LOGGER.log(Level.WARNING, "Cached policy {0} is missing or changed, building the policy again", policyPath);
+                return null;
+            }
+            final BuiltPolicy builtPolicy = JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).readValue(policyFile, BuiltPolicy.class);
+            builtPolicies.add(policyPath);
+            return builtPolicy;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not restore policy {0}, building it again: {1}", new Object[]{policyPath, e.getMessage()});
+            return null;
+        }
+    }
+
+    @Override
+    public void storePolicy(String policyPath, String fingerprint, BuiltPolicy builtPolicy) {
+        builtPolicies.add(policyPath);
+        policies.remove(policyPath);
+        final String cacheKey = getCacheKey(fingerprint);
+        final File policyFile = getPolicyFile(cacheKey);
+        try {
+            Files.createDirectories(policyFile.getParentFile().toPath());
+            JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).writeValue(policyFile, builtPolicy);
+            policies.put(policyPath, new CachedPolicy(cacheKey, hashContent(policyFile)));
+        } catch (IOException e) {
+            deleteQuietly(policyFile);
+            LOGGER.log(Level.WARNING, "Could not cache policy {0}: {1}", new Object[]{policyPath, e.getMessage()});
+        }
+    }
+
+    /**
+     * Saves the cache, dropping the bundles and the policies that were not part of this build.
+     */
+    void save() {
+        bundles.keySet().retainAll(builtBundles);
+        final File[] bundleDirs = new File(cacheDir, BUNDLES_DIR).listFiles();
+        if (bundleDirs != null) {
+            Stream.of(bundleDirs).filter(dir -> !bundles.containsKey(dir.getName())).forEach(dir -> deleteQuietly(dir));
+        }
+        // the policies are only looked up when their bundle is built, they are kept as they are if every bundle was restored
+        if (bundleStored) {
+            policies.keySet().retainAll(builtPolicies);
+        }
+        final Set<String> policyFilenames = policies.values().stream()
+                .map(cachedPolicy -> cachedPolicy.getFingerprint() + POLICY_FILE_EXTENSION).collect(Collectors.toSet());
+        final File[] policyFiles = new File(cacheDir, POLICIES_DIR).listFiles();
+        if (policyFiles != null) {
+            Stream.of(policyFiles).filter(file -> !policyFilenames.contains(file.getName())).forEach(file -> deleteQuietly(file));
+        }
+        final CacheIndex index = new CacheIndex();
+        index.setFileHashes(new TreeMap<>(fileHashes));
+        index.setBundles(new TreeMap<>(bundles));
+        index.setPolicies(new TreeMap<>(policies));
+        try {
+            Files.createDirectories(cacheDir.toPath());
+            JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).writeValue(new File(cacheDir, INDEX_FILE), index);
+        } catch (IOException e) {
+            // the next build will build every bundle again
+            LOGGER.log(Level.WARNING, "Could not save the incremental build cache: {0}", e.getMessage());
+        }
+    }
+
+    private String getCacheKey(String fingerprint) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, inputsFingerprint);
+        putString(hasher, fingerprint);
+        return hasher.hash().toString();
+    }
+
+    private File getBundleDir(String bundleName) {
+        return new File(new File(cacheDir, BUNDLES_DIR), bundleName);
+    }
+
+    private File getPolicyFile(String cacheKey) {
+        return new File(new File(cacheDir, POLICIES_DIR), cacheKey + POLICY_FILE_EXTENSION);
+    }
+
+    /**
+     * Gets the hash of an input file, hashing it again only if its length or modification time changed.
+     */
+    private String hashFile(File file) throws IOException {
+        final String path = file.getAbsolutePath();
+        FileHash fileHash = previousFileHashes.get(path);
+        if (fileHash == null || fileHash.getLength() != file.length() || fileHash.getLastModified() != file.lastModified()) {
+            fileHash = new FileHash(file.length(), file.lastModified(), hashContent(file));
+        }
+        // only the files that are still inputs are kept
+        fileHashes.put(path, fileHash);
+        return fileHash.getHash();
+    }
+
+    private static String hashContent(File file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file).hash(Hashing.sha256()).toString();
+    }
+
+    /**
+     * Gets the files a dependency is loaded from, as in {@link BundleFileBuilder#buildBundle}.
+     */
+    private static List<File> getDependencyFiles(File dependencyFile) {
+        if (dependencyFile.isFile()) {
+            return Collections.singletonList(dependencyFile);
+        }
+        final File[] files = dependencyFile.getParentFile() != null ? dependencyFile.getParentFile().listFiles() : null;
+        if (files == null) {
+            return Collections.emptyList();
+        }
+        return Stream.of(files).filter(file -> file.getName().endsWith(JsonFileUtils.METADATA_FILE_NAME_SUFFIX))
+                .sorted().collect(Collectors.toList());
+    }
+
+    /**
+     * Gets the length and modification time of the jar this class is loaded from, so the bundles are built again
+     * when the plugin changes.
+     */
+    private static String getPluginVersion() {
+        final CodeSource codeSource = IncrementalBuildCache.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return "";
+        }
+        try {
+            final File location = new File(codeSource.getLocation().toURI());
+            return location.isFile() ? location.getName() + ":" + location.length() + ":" + location.lastModified() : "";
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return codeSource.getLocation().toString();
+        }
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length()).putString(value, UTF_8);
+    }
+
+    private static CacheIndex readIndex(File indexFile) {
+        if (indexFile.isFile()) {
+            try {
+                return JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).readValue(indexFile, CacheIndex.class);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not read the incremental build cache, building every bundle: {0}", e.getMessage());
+            }
+        }
+        return new CacheIndex();
+    }
+
+    /**
+     * The persisted state of the cache: the hashes of the input files by path, the cached bundles by name and the
+     * cached policies by path.
+     */
+    public static class CacheIndex {
+        private Map<String, FileHash> fileHashes = new TreeMap<>();
+        private Map<String, CachedBundle> bundles = new TreeMap<>();
+        private Map<String, CachedPolicy> policies = new TreeMap<>();
+
+        public Map<String, FileHash> getFileHashes() {
+            return fileHashes;
+        }
+
+        public void setFileHashes(Map<String, FileHash> fileHashes) {
+            this.fileHashes = fileHashes;
+        }
+
+        public Map<String, CachedBundle> getBundles() {
+            return bundles;
+        }
+
+        public void setBundles(Map<String, CachedBundle> bundles) {
+            this.bundles = bundles;
+        }
+
+        public Map<String, CachedPolicy> getPolicies() {
+            return policies;
+        }
+
+        public void setPolicies(Map<String, CachedPolicy> policies) {
+            this.policies = policies;
+        }
+    }
+
+    /**
+     * The content hash of a file, valid as long as the file keeps the same length and modification time.
+     */
+    public static class FileHash {
+        private long length;
+        private long lastModified;
+        private String hash;
+
+        public FileHash() {
+        }
+
+        FileHash(long length, long lastModified, String hash) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public void setLength(long length) {
+            this.length = length;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * A cached bundle: the key of the inputs it was built from and the hash of each of its artifact files.
+     */
+    public static class CachedBundle {
+        private String fingerprint;
+        private Map<String, String> files = new TreeMap<>();
+
+        public CachedBundle() {
+        }
+
+        CachedBundle(String fingerprint, Map<String, String> files) {
+            this.fingerprint = fingerprint;
+            this.files = files;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public void setFingerprint(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public Map<String, String> getFiles() {
+            return files;
+        }
+
+        public void setFiles(Map<String, String> files) {
+            this.files = files;
+        }
+    }
+
+    /**
+     * A cached policy: the key of the inputs it was built from, which names its file, and the hash of the file.
+     */
+    public static class CachedPolicy {
+        private String fingerprint;
+        private String hash;
+
+        public CachedPolicy() {
+        }
+
+        CachedPolicy(String fingerprint, String hash) {
+            this.fingerprint = fingerprint;
+            this.hash = hash;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public void setFingerprint(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+    }
+}
@@ -16,6 +16,8 @@ public class ProjectInfo {
     private String minorVersion;
     private final String configName;
     private String targetFolderPath;
+    private boolean deterministicIds;
+    private boolean writeEnvironmentPlans;
 
     public ProjectInfo(String name, String groupName, String version) {
         this(name, groupName, version, null);
@@ -72,4 +74,26 @@ public class ProjectInfo {
     public void setTargetFolderPath(String targetFolderPath) {
         this.targetFolderPath = targetFolderPath;
     }
+
+    /**
+     * @return true if the ids of the entities are derived from the project and the entity instead of generated randomly
+     */
+    public boolean isDeterministicIds() {
+        return deterministicIds;
+    }
+
+    public void setDeterministicIds(boolean deterministicIds) {
+        this.deterministicIds = deterministicIds;
+    }
+
+    /**
+     * @return true if an environment plan is written next to each install bundle built
+     */
+    public boolean isWriteEnvironmentPlans() {
+        return writeEnvironmentPlans;
+    }
+
+    public void setWriteEnvironmentPlans(boolean writeEnvironmentPlans) {
+        this.writeEnvironmentPlans = writeEnvironmentPlans;
+    }
 }
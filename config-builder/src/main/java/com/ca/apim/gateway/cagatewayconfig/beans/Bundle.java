@@ -7,16 +7,18 @@
 package com.ca.apim.gateway.cagatewayconfig.beans;
 
 import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleArtifactsCache;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadingOperation;
 import com.ca.apim.gateway.cagatewayconfig.util.file.SupplierWithIO;
+import com.ca.apim.gateway.cagatewayconfig.util.paths.PathUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.InputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 
 public class Bundle {
@@ -35,9 +37,14 @@ public class Bundle {
     private Map<Dependency, List<Dependency>> dependencyMap;
     private BundleLoadingOperation loadingMode;
     private DependentBundle dependentBundleFrom;
-    private List<DependentBundle> dependentBundles = new ArrayList<>();
+    // the policy builders of concurrent bundle builds may add dependent bundles
+    private List<DependentBundle> dependentBundles = new CopyOnWriteArrayList<>();
     private ProjectInfo projectInfo;
+    private BundleArtifactsCache policyCache;
     private static final String UNIQUE_NAME_SEPARATOR = "::";
+    private static final String ID_INDEX = "id";
+    private static final String NAME_INDEX = "name";
+    private static final String PATH_INDEX = "path";
     private static final Pattern VARIABLE_NAME_PATTERN = Pattern.compile("^[a-zA-Z_][a-zA-Z0-9._\\-]*$");
 
     public Bundle(ProjectInfo projectInfo) {
@@ -70,9 +77,21 @@ public class Bundle {
         this.dependentBundleFrom = dependentBundleFrom;
     }
 
+    /**
+     * @return the cache the policies of the bundle are restored from and stored to while it is built, null if the
+     * policies are not cached
+     */
+    public BundleArtifactsCache getPolicyCache() {
+        return policyCache;
+    }
+
+    public void setPolicyCache(BundleArtifactsCache policyCache) {
+        this.policyCache = policyCache;
+    }
+
     @SuppressWarnings("unchecked")
     public <E extends GatewayEntity> Map<String, E> getEntities(Class<E> entityType) {
-        return (Map<String, E>) entities.computeIfAbsent(entityType, (Function<Class, Map<String, E>>) aClass -> new HashMap<>());
+        return (Map<String, E>) entities.computeIfAbsent(entityType, Bundle::createEntityMap);
     }
 
     @SuppressWarnings("unchecked")
@@ -105,6 +124,28 @@ public class Bundle {
         return getEntities(Policy.class);
     }
 
+    /**
+     * Finds the policies with the given id, without going through all the policies of the bundle.
+     *
+     * @param policyId the policy id
+     * @return the policies with that id, more than one if the bundle is invalid
+     */
+    @SuppressWarnings("unchecked")
+    public List<Policy> getPoliciesById(String policyId) {
+        return ((IndexedEntityMap<Policy>) getPolicies()).getIndexed(ID_INDEX, policyId);
+    }
+
+    /**
+     * Finds the policies with the given name, without going through all the policies of the bundle.
+     *
+     * @param policyName the policy name, null to find the policies without a name
+     * @return the policies with that name
+     */
+    @SuppressWarnings("unchecked")
+    public List<Policy> getPoliciesByName(String policyName) {
+        return ((IndexedEntityMap<Policy>) getPolicies()).getIndexed(NAME_INDEX, policyName);
+    }
+
     public synchronized void putAllPolicies(@NotNull Map<String, Policy> policies) {
         // Some loaders will partially load a policy entity
         // and the main loader will fully load,
@@ -127,7 +168,43 @@ public class Bundle {
 
     @SuppressWarnings("unchecked")
     public Map<String, Folder> getFolders() {
-        return (Map<String, Folder>) entities.computeIfAbsent(Folder.class, (Function<Class, Map<String, Folder>>) aClass -> new ConcurrentHashMap<>());
+        return (Map<String, Folder>) entities.computeIfAbsent(Folder.class, Bundle::createEntityMap);
+    }
+
+    private static Map<String, ?> createEntityMap(Class entityType) {
+        // folders and policies are also looked up by some of their properties while loading, so they are kept indexed
+        if (entityType == Folder.class) {
+            return new IndexedEntityMap<Folder>()
+                    .withIndex(ID_INDEX, Folder::getId)
+                    .withIndex(PATH_INDEX, folder -> folder.getPath() == null ? null : PathUtils.unixPath(folder.getPath()));
+        } else if (entityType == Policy.class) {
+            return new IndexedEntityMap<Policy>()
+                    .withIndex(ID_INDEX, Policy::getId)
+                    .withIndex(NAME_INDEX, Policy::getName);
+        }
+        return new HashMap<>();
+    }
+
+    /**
+     * Finds the folders with the given id, without going through all the folders of the bundle.
+     *
+     * @param folderId the folder id
+     * @return the folders with that id, more than one if the bundle is invalid
+     */
+    @SuppressWarnings("unchecked")
+    public List<Folder> getFoldersById(String folderId) {
+        return ((IndexedEntityMap<Folder>) getFolders()).getIndexed(ID_INDEX, folderId);
+    }
+
+    /**
+     * Finds the folders with the given path, without going through all the folders of the bundle.
+     *
+     * @param folderPath the folder path, in unix format
+     * @return the folders with that path
+     */
+    @SuppressWarnings("unchecked")
+    public List<Folder> getFoldersByPath(String folderPath) {
+        return ((IndexedEntityMap<Folder>) getFolders()).getIndexed(PATH_INDEX, folderPath);
     }
 
     public void putAllEncasses(@NotNull Map<String, Encass> encasses) {
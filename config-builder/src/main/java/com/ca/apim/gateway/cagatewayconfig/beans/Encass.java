@@ -6,6 +6,7 @@
 
 package com.ca.apim.gateway.cagatewayconfig.beans;
 
+import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.*;
 import com.ca.apim.gateway.cagatewayconfig.config.spec.BundleGeneration;
 import com.ca.apim.gateway.cagatewayconfig.config.spec.ConfigurationFile;
@@ -154,8 +155,9 @@ public class Encass extends GatewayEntity implements AnnotableEntity {
 
     @Override
     public void postLoad(String entityKey, Bundle bundle, File rootFolder, IdGenerator idGenerator) {
-        setGuid(idGenerator.generateGuid());
-        setId(idGenerator.generate());
+        final ProjectInfo projectInfo = bundle != null ? bundle.getProjectInfo() : null;
+        setGuid(idGenerator.generateGuid(projectInfo, EntityTypes.ENCAPSULATED_ASSERTION_TYPE, entityKey));
+        setId(idGenerator.generate(projectInfo, EntityTypes.ENCAPSULATED_ASSERTION_TYPE, entityKey));
         setName(entityKey);
     }
 
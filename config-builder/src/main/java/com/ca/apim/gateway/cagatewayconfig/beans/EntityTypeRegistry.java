@@ -8,6 +8,7 @@ package com.ca.apim.gateway.cagatewayconfig.beans;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.EntityUtils.GatewayEntityInfo;
 import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
+import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionProviderContext;
 import org.reflections.Reflections;
 
 import javax.inject.Inject;
@@ -45,9 +46,17 @@ public class EntityTypeRegistry {
     private final Map<String, GatewayEntityInfo> entityTypeMap;
 
     @Inject
-    public EntityTypeRegistry(@Named("Reflections_ConfigBuilderInjectionProvider") final Reflections reflections) {
+    public EntityTypeRegistry(@Named("InjectionProviderContext_ConfigBuilderInjectionProvider") final InjectionProviderContext context) {
+        this(context.getSubTypesOf(GatewayEntity.class));
+    }
+
+    public EntityTypeRegistry(final Reflections reflections) {
+        this(reflections.getSubTypesOf(GatewayEntity.class));
+    }
+
+    private EntityTypeRegistry(final Set<Class<? extends GatewayEntity>> entityClasses) {
         Map<String, GatewayEntityInfo> entityTypes = new HashMap<>();
-        reflections.getSubTypesOf(GatewayEntity.class).forEach(e -> {
+        entityClasses.forEach(e -> {
             GatewayEntityInfo info = createEntityInfo(e);
             if (info != null) {
                 entityTypes.put(info.getType(), info);
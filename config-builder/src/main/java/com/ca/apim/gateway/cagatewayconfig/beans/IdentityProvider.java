@@ -173,7 +173,7 @@ public class IdentityProvider extends GatewayEntity implements AnnotableEntity {
 
     @Override
     public void postLoad(String entityKey, Bundle bundle, File rootFolder, IdGenerator idGenerator) {
-        setId(idGenerator.generate());
+        setId(idGenerator.generate(bundle != null ? bundle.getProjectInfo() : null, EntityTypes.ID_PROVIDER_CONFIG_TYPE, entityKey));
     }
 
     @Override
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.beans;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * An entity map of a bundle that also keeps its entities indexed by some of their properties, like the id or the name,
+ * so they can be found without going through all of them. Each index entry is keyed by the map key, so an entity put
+ * in the map under several keys is found several times, like when going through the values of the map.
+ * <p>
+ * Only the values the entities have when put in the map are indexed, a null value included, and a lookup only reads
+ * the entities indexed with the value it looks for. An entity whose indexed property changes afterwards is no longer
+ * found by its old value, and is found by the new one only once it is put in the map again.
+ * <p>
+ * Like a {@link HashMap}, looking up or removing a null key finds nothing instead of throwing, as the entity references
+ * read from the configuration can be missing.
+ *
+ * @param <E> the entity type
+ */
+class IndexedEntityMap<E> extends AbstractMap<String, E> {
+
+    private final Map<String, E> entities = new ConcurrentHashMap<>();
+    private final Map<String, EntityIndex> indexes = new HashMap<>();
+
+    /**
+     * Adds an index to this map, must be done before putting entities in it.
+     *
+     * @param name     the index name
+     * @param indexKey the entity property to index
+     * @return this map
+     */
+    IndexedEntityMap<E> withIndex(String name, Function<E, String> indexKey) {
+        indexes.put(name, new EntityIndex(indexKey));
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return entities.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && entities.containsKey(key);
+    }
+
+    @Override
+    public E get(Object key) {
+        return key != null ? entities.get(key) : null;
+    }
+
+    @Override
+    public synchronized E put(String key, E entity) {
+        final E previous = entities.put(key, entity);
+        unindex(key);
+        indexes.values().forEach(index -> index.add(key, entity));
+        return previous;
+    }
+
+    @Override
+    public synchronized E computeIfAbsent(String key, Function<? super String, ? extends E> mappingFunction) {
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public synchronized E remove(Object key) {
+        if (key == null) {
+            return null;
+        }
+        final E previous = entities.remove(key);
+        unindex(key);
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        entities.clear();
+        indexes.values().forEach(EntityIndex::clear);
+    }
+
+    @Override
+    public Set<Entry<String, E>> entrySet() {
+        return new AbstractSet<Entry<String, E>>() {
+            @Override
+            public Iterator<Entry<String, E>> iterator() {
+                final Iterator<Entry<String, E>> iterator = entities.entrySet().iterator();
+                return new Iterator<Entry<String, E>>() {
+                    private Entry<String, E> current;
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, E> next() {
+                        current = iterator.next();
+                        return new SimpleEntry<String, E>(current) {
+                            @Override
+                            public E setValue(E entity) {
+                                super.setValue(entity);
+                                return put(getKey(), entity);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (current == null) {
+                            throw new IllegalStateException();
+                        }
+                        IndexedEntityMap.this.remove(current.getKey());
+                        current = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entities.size();
+            }
+        };
+    }
+
+    /**
+     * @param name  the index name
+     * @param value the indexed value
+     * @return the entities with the given value, in no particular order
+     */
+    synchronized List<E> getIndexed(String name, String value) {
+        return indexes.get(name).get(value);
+    }
+
+    private void unindex(Object key) {
+        indexes.values().forEach(index -> index.remove(key));
+    }
+
+    /**
+     * Map keys of the entities, grouped by one of their properties.
+     */
+    private class EntityIndex {
+        private final Function<E, String> indexKey;
+        private final Map<String, Set<String>> keys = new HashMap<>();
+        // the value each key is indexed with, as the entity can change after being put
+        private final Map<String, String> indexedValues = new HashMap<>();
+
+        private EntityIndex(Function<E, String> indexKey) {
+            this.indexKey = indexKey;
+        }
+
+        private void add(String key, E entity) {
+            final String value = indexKey.apply(entity);
+            keys.computeIfAbsent(value, k -> new HashSet<>()).add(key);
+            indexedValues.put(key, value);
+        }
+
+        private void remove(Object key) {
+            if (!indexedValues.containsKey(key)) {
+                return;
+            }
+            final String value = indexedValues.remove(key);
+            final Set<String> valueKeys = keys.get(value);
+            if (valueKeys != null && valueKeys.remove(key) && valueKeys.isEmpty()) {
+                keys.remove(value);
+            }
+        }
+
+        private void clear() {
+            keys.clear();
+            indexedValues.clear();
+        }
+
+        private List<E> get(String value) {
+            final Set<String> valueKeys = keys.getOrDefault(value, Collections.emptySet());
+            final List<E> found = new ArrayList<>(valueKeys.size());
+            for (String key : valueKeys) {
+                final E entity = entities.get(key);
+                // skips the entities changed since they were put in the map
+                if (entity != null && Objects.equals(value, indexKey.apply(entity))) {
+                    found.add(entity);
+                }
+            }
+            return found;
+        }
+    }
+}
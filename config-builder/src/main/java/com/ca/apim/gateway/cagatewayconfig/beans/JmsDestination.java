@@ -281,7 +281,7 @@ public class JmsDestination extends GatewayEntity implements AnnotableEntity {
             throw new ConfigLoadException("Cannot specify both an inbound and an outbound details for JMS destination: " + entityKey);
         }
 
-        setId(idGenerator.generate());
+        setId(idGenerator.generate(bundle != null ? bundle.getProjectInfo() : null, EntityTypes.JMS_DESTINATION_TYPE, entityKey));
     }
     
     public enum DestinationType {
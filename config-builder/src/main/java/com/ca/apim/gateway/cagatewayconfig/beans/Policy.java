@@ -13,11 +13,14 @@ import com.ca.apim.gateway.cagatewayconfig.config.loader.ConfigLoadException;
 import com.ca.apim.gateway.cagatewayconfig.util.IdGenerator;
 import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
 import com.ca.apim.gateway.cagatewayconfig.util.paths.PathUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.google.common.annotations.VisibleForTesting;
 import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import javax.inject.Named;
@@ -25,6 +28,7 @@ import java.io.File;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.stringToXMLDocument;
 import static com.fasterxml.jackson.annotation.JsonInclude.Include.NON_EMPTY;
 import static java.util.function.Function.identity;
 import static java.util.stream.Collectors.groupingBy;
@@ -37,10 +41,16 @@ public class Policy extends Folderable implements AnnotableEntity {
 
     @JsonIgnore
     private String policyXML;
+    /* Parsed policyXML, shared with the copies of this policy */
+    @JsonIgnore
+    private ParsedPolicyXML parsedPolicyXML = new ParsedPolicyXML();
     @JsonIgnore
     private String guid;
     @JsonIgnore
     private Element policyDocument;
+    /* Built policy xml restored from a previous build, in place of the policy document */
+    @JsonIgnore
+    private String policyDocumentXML;
     @JsonIgnore
     private Set<Annotation> annotations = new HashSet<>();
     @JsonIgnore
@@ -92,6 +102,35 @@ public class Policy extends Folderable implements AnnotableEntity {
 
     public void setPolicyXML(String policyXML) {
         this.policyXML = policyXML;
+        this.parsedPolicyXML = new ParsedPolicyXML();
+    }
+
+    /**
+     * Returns a new document with the policy XML. While more loads of this policy or of its copies are registered with
+     * {@link #registerPolicyXMLDocumentLoad()}, the XML is parsed once and each load gets a deep clone of the parsed
+     * document. The last registered load, or any load if none is registered, gets the parsed document itself.
+     *
+     * @param documentTools tools used to parse the policy XML
+     * @return a document with the policy XML that can be freely modified by the caller
+     * @throws DocumentParseException if the policy XML can't be parsed
+     */
+    public Document loadPolicyXMLDocument(DocumentTools documentTools) throws DocumentParseException {
+        return parsedPolicyXML.loadDocument(policyXML, documentTools);
+    }
+
+    /**
+     * Registers a coming load of the policy XML document of this policy or of one of its copies, so that the parsed
+     * document is kept for it.
+     */
+    public void registerPolicyXMLDocumentLoad() {
+        parsedPolicyXML.registerLoad();
+    }
+
+    /**
+     * Drops the parsed policy XML document kept for this policy and its copies, along with the loads still registered.
+     */
+    public void releasePolicyXMLDocument() {
+        parsedPolicyXML.release();
     }
 
     public void setGuid(String guid) {
@@ -104,12 +143,31 @@ public class Policy extends Folderable implements AnnotableEntity {
 
     public void setPolicyDocument(Element policyDocument) {
         this.policyDocument = policyDocument;
+        this.policyDocumentXML = null;
     }
 
     public Element getPolicyDocument() {
         return policyDocument;
     }
 
+    /**
+     * Sets the policy xml built for the bundle by a previous build, in place of building the policy document again.
+     *
+     * @param policyDocumentXML the built policy xml
+     */
+    public void setPolicyDocumentXML(String policyDocumentXML) {
+        this.policyDocument = null;
+        this.policyDocumentXML = policyDocumentXML;
+    }
+
+    /**
+     * @param documentTools the document tools used to write the policy document
+     * @return the policy xml built for the bundle, from the policy document or as restored from a previous build
+     */
+    public String getPolicyDocumentXML(DocumentTools documentTools) {
+        return policyDocument != null ? documentTools.elementToString(policyDocument) : policyDocumentXML;
+    }
+
     public Set<Policy> getDependencies() {
         return dependencies;
     }
@@ -164,12 +222,16 @@ public class Policy extends Folderable implements AnnotableEntity {
     }
 
     Policy merge(Policy otherPolicy) {
-        this.policyXML = firstNonNull(otherPolicy.policyXML, this.policyXML);
+        if (otherPolicy.policyXML != null) {
+            this.policyXML = otherPolicy.policyXML;
+            this.parsedPolicyXML = otherPolicy.parsedPolicyXML;
+        }
         this.setPath(firstNonNull(otherPolicy.getPath(), this.getPath()));
         this.setName(firstNonNull(otherPolicy.getName(), this.getName()));
         this.setParentFolder(firstNonNull(otherPolicy.getParentFolder(), this.getParentFolder()));
         this.guid = firstNonNull(otherPolicy.guid, this.guid);
         this.policyDocument = firstNonNull(otherPolicy.policyDocument, this.policyDocument);
+        this.policyDocumentXML = firstNonNull(otherPolicy.policyDocumentXML, this.policyDocumentXML);
         this.dependencies.addAll(firstNonNull(otherPolicy.dependencies, Collections.emptySet()));
         this.setId(firstNonNull(otherPolicy.getId(), this.getId()));
         this.tag = firstNonNull(otherPolicy.tag, this.tag);
@@ -231,6 +293,37 @@ public class Policy extends Folderable implements AnnotableEntity {
         }
     }
 
+    private static class ParsedPolicyXML {
+
+        private Document document;
+        private int registeredLoads;
+
+        private synchronized void registerLoad() {
+            registeredLoads++;
+        }
+
+        // reading a DOM is not thread safe either, so the clone is also done holding the lock
+        private synchronized Document loadDocument(String policyXML, DocumentTools documentTools) throws DocumentParseException {
+            if (registeredLoads > 1) {
+                if (document == null) {
+                    document = stringToXMLDocument(documentTools, policyXML);
+                }
+                registeredLoads--;
+                return (Document) document.cloneNode(true);
+            }
+
+            // no other load is coming, the parsed document is handed over and not kept
+            final Document loadedDocument = document != null ? document : stringToXMLDocument(documentTools, policyXML);
+            release();
+            return loadedDocument;
+        }
+
+        private synchronized void release() {
+            document = null;
+            registeredLoads = 0;
+        }
+    }
+
     static void checkRepeatedTags(Bundle bundle, PolicyType policyType) {
         Set<String> errors = new HashSet<>();
         new HashMap<>(bundle.getPolicies()).values()
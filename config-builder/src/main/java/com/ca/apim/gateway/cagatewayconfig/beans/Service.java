@@ -6,6 +6,7 @@
 
 package com.ca.apim.gateway.cagatewayconfig.beans;
 
+import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.AnnotableEntity;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.AnnotatedEntity;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.AnnotationDeserializer;
@@ -247,8 +248,9 @@ public class Service extends Folderable implements AnnotableEntity {
 
     @Override
     public void postLoad(String entityKey, Bundle bundle, File rootFolder, IdGenerator idGenerator) {
-        setGuid(idGenerator.generateGuid());
-        setId(idGenerator.generate());
+        final ProjectInfo projectInfo = bundle != null ? bundle.getProjectInfo() : null;
+        setGuid(idGenerator.generateGuid(projectInfo, EntityTypes.SERVICE_TYPE, entityKey));
+        setId(idGenerator.generate(projectInfo, EntityTypes.SERVICE_TYPE, entityKey));
         setName(entityKey);
     }
 }
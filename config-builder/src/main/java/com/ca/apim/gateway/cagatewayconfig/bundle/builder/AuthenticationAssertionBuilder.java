@@ -7,6 +7,7 @@ import org.w3c.dom.Element;
 
 import static com.ca.apim.gateway.cagatewayconfig.beans.IdentityProvider.INTERNAL_IDP_ID;
 import static com.ca.apim.gateway.cagatewayconfig.beans.IdentityProvider.INTERNAL_IDP_NAME;
+import static com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes.ID_PROVIDER_CONFIG_TYPE;
 import static com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements.*;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.createElementWithAttribute;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElement;
@@ -33,7 +34,7 @@ public class AuthenticationAssertionBuilder implements PolicyAssertionBuilder {
                         id = identityProvider.getId();
                     }
                 } else {
-                    id = idGenerator.generate();
+                    id = idGenerator.generate(bundle.getProjectInfo(), ID_PROVIDER_CONFIG_TYPE, idProviderName);
                 }
             }
 
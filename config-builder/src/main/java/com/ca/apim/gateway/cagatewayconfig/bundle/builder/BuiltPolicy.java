@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The policy xml built for a policy of a bundle, with the paths of the policies of the bundle it includes, so that it
+ * can be reused by the next builds through the {@link BundleArtifactsCache}.
+ */
+public class BuiltPolicy {
+
+    private String policyXML;
+    private List<String> includedPolicies = new ArrayList<>();
+
+    public BuiltPolicy() {
+    }
+
+    public BuiltPolicy(String policyXML, List<String> includedPolicies) {
+        this.policyXML = policyXML;
+        this.includedPolicies = includedPolicies;
+    }
+
+    public String getPolicyXML() {
+        return policyXML;
+    }
+
+    public void setPolicyXML(String policyXML) {
+        this.policyXML = policyXML;
+    }
+
+    public List<String> getIncludedPolicies() {
+        return includedPolicies;
+    }
+
+    public void setIncludedPolicies(List<String> includedPolicies) {
+        this.includedPolicies = includedPolicies;
+    }
+}
@@ -17,14 +17,19 @@ public class BundleArtifacts {
     private final Artifact installBundle;
     private final Artifact deleteBundle;
     private final BundleMetadata bundleMetadata;
+    private String fingerprint;
 
     // Private Key Import Context XMLs
     private final Set<Artifact> privateKeyContexts = new HashSet<>();
 
     public BundleArtifacts(Element bundle, Element deleteBundle, BundleMetadata bundleMetadata, String bundleFileName
             , String deleteBundleFileName) {
-        this.installBundle = new Artifact(bundle, bundleFileName);
-        this.deleteBundle = new Artifact(deleteBundle, deleteBundleFileName);
+        this(new Artifact(bundle, bundleFileName), new Artifact(deleteBundle, deleteBundleFileName), bundleMetadata);
+    }
+
+    public BundleArtifacts(Artifact installBundle, Artifact deleteBundle, BundleMetadata bundleMetadata) {
+        this.installBundle = installBundle;
+        this.deleteBundle = deleteBundle;
         this.bundleMetadata = bundleMetadata;
     }
 
@@ -40,6 +45,18 @@ public class BundleArtifacts {
         return bundleMetadata;
     }
 
+    /**
+     * @return the fingerprint of the entities the bundle was built from, null if it was built without a
+     * {@link BundleArtifactsCache} or can't be restored from one
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     public void addPrivateKeyContext(Element contextXml, String filename) {
         privateKeyContexts.add(new Artifact(contextXml, filename));
     }
@@ -50,17 +67,32 @@ public class BundleArtifacts {
 
     public static class Artifact {
         private final Element element;
+        private final StreamedBundle streamedBundle;
         private final String filename;
 
         public Artifact(Element element, String filename) {
             this.element = element;
+            this.streamedBundle = null;
             this.filename = filename;
         }
 
+        public Artifact(StreamedBundle streamedBundle, String filename) {
+            this.element = null;
+            this.streamedBundle = streamedBundle;
+            this.filename = filename;
+        }
+
+        /**
+         * @return the element of the artifact, null if it is a bundle that is written by the {@link BundleDocumentWriter}
+         */
         public Element getElement() {
             return element;
         }
 
+        public StreamedBundle getStreamedBundle() {
+            return streamedBundle;
+        }
+
         public String getFilename() {
             return filename;
         }
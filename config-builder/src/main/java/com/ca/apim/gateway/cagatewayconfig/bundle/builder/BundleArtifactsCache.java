@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+/**
+ * Cache of the artifacts of the bundles written by a previous build. Before building a bundle, the
+ * {@link BundleEntityBuilder} asks the cache to restore it with the fingerprint of the bundle's inputs, and only builds
+ * it if the cache has no artifacts for that fingerprint. The bundles that are built carry their fingerprint in
+ * {@link BundleArtifacts#getFingerprint()}, so they can be cached once written.
+ * <p>
+ * When the ids of the entities are deterministic, the policies of a bundle that is not annotated are also cached one
+ * by one, so the policies that didn't change are not built again when the bundle has to be.
+ */
+public interface BundleArtifactsCache {
+
+    /**
+     * Restores the artifacts of a bundle built before from the same inputs.
+     *
+     * @param bundleName  name of the bundle
+     * @param fingerprint fingerprint of the entities of the bundle
+     * @return true if the artifacts were restored and the bundle doesn't need to be built
+     */
+    boolean restore(String bundleName, String fingerprint);
+
+    /**
+     * Restores the policy xml built for a policy by a previous build from the same inputs.
+     *
+     * @param policyPath  path of the policy
+     * @param fingerprint fingerprint of the policy
+     * @return the built policy, null if it has to be built
+     */
+    default BuiltPolicy restorePolicy(String policyPath, String fingerprint) {
+        return null;
+    }
+
+    /**
+     * Keeps the policy xml built for a policy, to be restored by the next builds.
+     *
+     * @param policyPath  path of the policy
+     * @param fingerprint fingerprint of the policy
+     * @param builtPolicy the built policy
+     */
+    default void storePolicy(String policyPath, String fingerprint, BuiltPolicy builtPolicy) {
+    }
+}
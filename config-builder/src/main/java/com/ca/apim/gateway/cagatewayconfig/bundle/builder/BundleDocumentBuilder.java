@@ -35,18 +35,23 @@ public class BundleDocumentBuilder {
     }
 
     private void addEntity(final Element references, final Element mappings, final Entity entity, final Document document) {
-        if (entity.getXml() != null) {
-            final Element entityItem = buildEntityItem(entity, document);
+        final Element entityXml = entity.getXml();
+        if (entityXml != null) {
+            final Element entityItem = buildEntityItem(entity, entityXml, document);
             references.appendChild(entityItem);
         }
-        final Element entityMapping = buildEntityMapping(entity, document);
+        final Element entityMapping = buildEntityMapping(entity, getMappingAction(entity), document);
         mappings.appendChild(entityMapping);
     }
 
-    private Element buildEntityMapping(final Entity entity, final Document document) {
+    static String getMappingAction(final Entity entity) {
+        return entity.getMappingAction() == null ? EntityBuilderHelper.getDefaultEntityMappingAction() : entity.getMappingAction();
+    }
+
+    Element buildEntityMapping(final Entity entity, final String mappingAction, final Document document) {
         final Element mapping = createElementWithAttributes(document, MAPPING, ImmutableMap.of(
                 ATTRIBUTE_ACTION,
-                entity.getMappingAction() == null ? EntityBuilderHelper.getDefaultEntityMappingAction() : entity.getMappingAction(),
+                mappingAction,
                 ATTRIBUTE_SRCID,
                 entity.getId(),
                 ATTRIBUTE_TYPE,
@@ -56,14 +61,14 @@ public class BundleDocumentBuilder {
         return mapping;
     }
 
-    private Element buildEntityItem(final Entity entity, final Document document) {
+    Element buildEntityItem(final Entity entity, final Element entityXml, final Document document) {
         return createElementWithChildren(
                 document,
                 ITEM,
                 createElementWithTextContent(document, NAME, entity.getName()),
                 createElementWithTextContent(document, ID, entity.getId()),
                 createElementWithTextContent(document, TYPE, entity.getType()),
-                createElementWithChildren(document, RESOURCE, entity.getXml())
+                createElementWithChildren(document, RESOURCE, entityXml)
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtilsException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleDocumentBuilder.GATEWAY_MANAGEMENT;
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BuilderUtils.getPropertyValueElementName;
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BuilderUtils.getPropertyValueText;
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BundleElementNames.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes a bundle straight to a stream, one entity at a time, instead of building the whole bundle element first.
+ * The items and mappings are sent as SAX events made from the entities, only the element of each entity is visited,
+ * to the same serializer used by {@link DocumentTools#printXML}. The events follow the order the transformer visits
+ * the element built by {@link BundleDocumentBuilder}, so both produce the same bytes.
+ */
+@Singleton
+public class BundleDocumentWriter {
+
+    private static final String XMLNS = "xmlns";
+    private static final String CDATA = "CDATA";
+
+    private final DocumentTools documentTools;
+
+    @Inject
+    BundleDocumentWriter(final DocumentTools documentTools) {
+        this.documentTools = documentTools;
+    }
+
+    public void write(final StreamedBundle bundle, final Path path) {
+        // the handler is created first so the file is only opened once it can be written
+        final TransformerHandler handler = documentTools.getTransformerHandler();
+        try (OutputStream outputStream = Files.newOutputStream(path)) {
+            write(bundle, handler, outputStream);
+        } catch (IOException e) {
+            throw new DocumentFileUtilsException("Error writing to file '" + path + "': " + e.getMessage(), e);
+        }
+    }
+
+    public void write(final StreamedBundle bundle, final OutputStream outputStream) {
+        write(bundle, documentTools.getTransformerHandler(), outputStream);
+    }
+
+    private static void write(final StreamedBundle bundle, final TransformerHandler handler,
+                              final OutputStream outputStream) {
+        try (Writer writer = new OutputStreamWriter(outputStream, UTF_8)) {
+            handler.setResult(new StreamResult(writer));
+            handler.startDocument();
+            handler.startPrefixMapping(BundleDocumentBuilder.L7.substring(XMLNS.length() + 1), GATEWAY_MANAGEMENT);
+            startElement(handler, BUNDLE, new AttributesImpl());
+
+            final List<Entity> entities = bundle.getEntities();
+            startElement(handler, REFERENCES, new AttributesImpl());
+            for (Entity entity : entities) {
+                final Element entityXml = entity.getXmlWithoutCopy();
+                if (entityXml != null) {
+                    writeEntityItem(handler, entity, entityXml);
+                }
+            }
+            endElement(handler, REFERENCES);
+
+            startElement(handler, MAPPINGS, new AttributesImpl());
+            for (int i = 0; i < entities.size(); i++) {
+                writeEntityMapping(handler, entities.get(i), bundle.getMappingAction(i));
+            }
+            endElement(handler, MAPPINGS);
+
+            endElement(handler, BUNDLE);
+            handler.endDocument();
+        } catch (SAXException | IOException e) {
+            throw new DocumentFileUtilsException("Exception writing bundle to stream.", e);
+        }
+    }
+
+    /**
+     * Sends the item {@link BundleDocumentBuilder#buildEntityItem} would build for the entity.
+     */
+    private static void writeEntityItem(final TransformerHandler handler, final Entity entity,
+                                        final Element entityXml) throws SAXException {
+        startElement(handler, ITEM, new AttributesImpl());
+        writeTextElement(handler, NAME, entity.getName());
+        writeTextElement(handler, ID, entity.getId());
+        writeTextElement(handler, TYPE, entity.getType());
+        startElement(handler, RESOURCE, new AttributesImpl());
+        writeNode(handler, entityXml);
+        endElement(handler, RESOURCE);
+        endElement(handler, ITEM);
+    }
+
+    /**
+     * Sends the mapping {@link BundleDocumentBuilder#buildEntityMapping} would build for the entity. The attributes
+     * are sent sorted by name, as the transformer reads them from the element.
+     */
+    private static void writeEntityMapping(final TransformerHandler handler, final Entity entity,
+                                           final String mappingAction) throws SAXException {
+        final AttributesImpl attributes = new AttributesImpl();
+        attributes.addAttribute("", "", ATTRIBUTE_ACTION, CDATA, mappingAction);
+        attributes.addAttribute("", "", ATTRIBUTE_SRCID, CDATA, entity.getId());
+        attributes.addAttribute("", "", ATTRIBUTE_TYPE, CDATA, entity.getType());
+        startElement(handler, MAPPING, attributes);
+
+        final Map<String, Object> mappingProperties = entity.getMappingProperties();
+        if (!mappingProperties.isEmpty()) {
+            startElement(handler, PROPERTIES, new AttributesImpl());
+            for (Map.Entry<String, Object> property : mappingProperties.entrySet()) {
+                // skip property if null value
+                if (property.getValue() == null) {
+                    continue;
+                }
+                final AttributesImpl propertyAttributes = new AttributesImpl();
+                propertyAttributes.addAttribute("", "", ATTRIBUTE_KEY, CDATA, property.getKey());
+                startElement(handler, PROPERTY, propertyAttributes);
+                writeTextElement(handler, getPropertyValueElementName(property.getKey(), property.getValue()),
+                        getPropertyValueText(property.getValue()));
+                endElement(handler, PROPERTY);
+            }
+            endElement(handler, PROPERTIES);
+        }
+        endElement(handler, MAPPING);
+    }
+
+    private static void writeTextElement(final TransformerHandler handler, final String name,
+                                         final Object textContent) throws SAXException {
+        startElement(handler, name, new AttributesImpl());
+        // an element with an empty text content has no text node
+        if (textContent != null && !textContent.toString().isEmpty()) {
+            characters(handler, textContent.toString());
+        }
+        endElement(handler, name);
+    }
+
+    /**
+     * Sends the node to the handler the same way the transformer does for a DOM source: namespace declarations first,
+     * then the other attributes in document order, and the children of the elements.
+     */
+    private static void writeNode(final TransformerHandler handler, final Node node) throws SAXException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                writeElement(handler, (Element) node);
+                break;
+            case Node.TEXT_NODE:
+                characters(handler, node.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                handler.startCDATA();
+                characters(handler, node.getNodeValue());
+                handler.endCDATA();
+                break;
+            case Node.COMMENT_NODE:
+                final char[] comment = node.getNodeValue().toCharArray();
+                handler.comment(comment, 0, comment.length);
+                break;
+            case Node.PROCESSING_INSTRUCTION_NODE:
+                handler.processingInstruction(node.getNodeName(), node.getNodeValue());
+                break;
+            default:
+                // other node types are not serialized by the transformer either
+        }
+    }
+
+    private static void writeElement(final TransformerHandler handler, final Element element) throws SAXException {
+        final NamedNodeMap attributeMap = element.getAttributes();
+        for (int i = 0; i < attributeMap.getLength(); i++) {
+            final Node attribute = attributeMap.item(i);
+            final String name = attribute.getNodeName();
+            if (name.startsWith(XMLNS)) {
+                final int colon = name.lastIndexOf(':');
+                handler.startPrefixMapping(colon > 0 ? name.substring(colon + 1) : "", attribute.getNodeValue());
+            }
+        }
+
+        final AttributesImpl attributes = new AttributesImpl();
+        for (int i = 0; i < attributeMap.getLength(); i++) {
+            final Node attribute = attributeMap.item(i);
+            final String name = attribute.getNodeName();
+            if (!name.startsWith(XMLNS)) {
+                attributes.addAttribute("", "", name, CDATA, attribute.getNodeValue());
+            }
+        }
+
+        startElement(handler, element.getNodeName(), attributes);
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            writeNode(handler, child);
+        }
+        endElement(handler, element.getNodeName());
+    }
+
+    private static void startElement(final TransformerHandler handler, final String name,
+                                     final AttributesImpl attributes) throws SAXException {
+        handler.startElement("", "", name, attributes);
+    }
+
+    private static void endElement(final TransformerHandler handler, final String name) throws SAXException {
+        handler.endElement("", "", name);
+    }
+
+    private static void characters(final TransformerHandler handler, final String text) throws SAXException {
+        final char[] characters = text.toCharArray();
+        handler.characters(characters, 0, characters.length);
+    }
+}
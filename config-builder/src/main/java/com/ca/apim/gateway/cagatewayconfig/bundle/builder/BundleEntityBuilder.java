@@ -9,18 +9,26 @@ package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
 import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
 import com.ca.apim.gateway.cagatewayconfig.beans.*;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder.BundleType;
-import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
+import com.ca.apim.gateway.cagatewayconfig.util.file.SupplierWithIO;
 import com.ca.apim.gateway.cagatewayconfig.util.gateway.MappingActions;
-import com.ca.apim.gateway.cagatewayconfig.util.paths.PathUtils;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang3.StringUtils;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -30,6 +38,7 @@ import static com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder.B
 import static com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes.FOLDER_TYPE;
 import static com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils.DELETE_BUNDLE_EXTENSION;
 import static com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils.INSTALL_BUNDLE_EXTENSION;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.unmodifiableSet;
 
 @Singleton
@@ -61,129 +70,356 @@ public class BundleEntityBuilder {
 
     public Map<String, BundleArtifacts> build(Bundle bundle, BundleType bundleType,
                                               Document document, ProjectInfo projectInfo, boolean generateMetadata) {
+        final Map<String, BundleArtifacts> artifacts = new LinkedHashMap<>();
+        final PolicyDependencyGraph dependencyGraph = createDependencyGraph(bundle);
+        final List<AnnotatedEntity<GatewayEntity>> annotatedEntities = getAnnotatedEntities(bundle);
+        if (annotatedEntities.isEmpty()) {
+            buildFullBundle(bundleType, dependencyGraph, () -> document, projectInfo, generateMetadata, false, null,
+                    artifacts::put);
+        } else {
+            prepareSharedEntities(bundle, bundleType);
+            registerPolicyXMLDocumentLoads(annotatedEntities, dependencyGraph);
+            try {
+                annotatedEntities.forEach(annotatedEntity -> buildAnnotatedBundle(annotatedEntity, bundleType,
+                        dependencyGraph, document, projectInfo, false, null, artifacts::put));
+            } finally {
+                releasePolicyXMLDocuments(bundle);
+            }
+        }
+        return artifacts;
+    }
+
+    /**
+     * Builds the bundle artifacts and hands each one to the consumer as soon as it is built, so they don't have to be
+     * kept in memory until the whole project is built. With a parallelism greater than one, the annotated bundles are
+     * built concurrently, each one into its own {@link Document}, and the consumer is called from the worker threads.
+     * With streamBundles, the install and delete bundles are not built as elements, the artifacts hold a
+     * {@link StreamedBundle} that has to be written with the {@link BundleDocumentWriter}.
+     *
+     * @param bundle            Bundle containing all the Gateway entities
+     * @param bundleType        Type of the bundle being built
+     * @param documentSupplier  Supplier of a new document for each bundle being built
+     * @param projectInfo       Gradle Project info
+     * @param parallelism       Maximum number of annotated bundles built at the same time
+     * @param streamBundles     TRUE to create the install and delete bundles as {@link StreamedBundle}s
+     * @param artifactsConsumer Consumer of the bundle artifacts, by bundle name
+     */
+    public void build(Bundle bundle, BundleType bundleType, Supplier<Document> documentSupplier,
+                      ProjectInfo projectInfo, int parallelism, boolean streamBundles,
+                      BiConsumer<String, BundleArtifacts> artifactsConsumer) {
+        build(bundle, bundleType, documentSupplier, projectInfo, parallelism, streamBundles, null, artifactsConsumer);
+    }
+
+    /**
+     * Builds the bundle artifacts like {@link #build(Bundle, BundleType, Supplier, ProjectInfo, int, boolean, BiConsumer)},
+     * skipping the bundles the cache can restore. The consumer is only called for the bundles that are built, with the
+     * fingerprint of their entities set in the artifacts. Annotated bundles are only restored, and only have a
+     * fingerprint, if the project is built with deterministic ids.
+     *
+     * @param bundle            Bundle containing all the Gateway entities
+     * @param bundleType        Type of the bundle being built
+     * @param documentSupplier  Supplier of a new document for each bundle being built
+     * @param projectInfo       Gradle Project info
+     * @param parallelism       Maximum number of annotated bundles built at the same time
+     * @param streamBundles     TRUE to create the install and delete bundles as {@link StreamedBundle}s
+     * @param cache             Cache of the bundles built before, null to build every bundle
+     * @param artifactsConsumer Consumer of the bundle artifacts, by bundle name
+     */
+    public void build(Bundle bundle, BundleType bundleType, Supplier<Document> documentSupplier,
+                      ProjectInfo projectInfo, int parallelism, boolean streamBundles, BundleArtifactsCache cache,
+                      BiConsumer<String, BundleArtifacts> artifactsConsumer) {
+        final PolicyDependencyGraph dependencyGraph = createDependencyGraph(bundle);
+        final List<AnnotatedEntity<GatewayEntity>> annotatedEntities = getAnnotatedEntities(bundle);
+        if (annotatedEntities.isEmpty()) {
+            buildFullBundle(bundleType, dependencyGraph, documentSupplier, projectInfo, false, streamBundles, cache,
+                    artifactsConsumer);
+            return;
+        }
+        prepareSharedEntities(bundle, bundleType);
+        // with random ids the shared entities get new ids on every build, a restored bundle would not agree on them
+        // with the bundles built again, so the annotated bundles are only restored if the ids are deterministic
+        final BundleArtifactsCache annotatedBundlesCache = projectInfo.isDeterministicIds() ? cache : null;
+        registerPolicyXMLDocumentLoads(annotatedEntities, dependencyGraph);
+        try {
+            if (parallelism <= 1 || annotatedEntities.size() == 1) {
+                final Document document = documentSupplier.get();
+                annotatedEntities.forEach(annotatedEntity -> buildAnnotatedBundle(annotatedEntity, bundleType,
+                        dependencyGraph, document, projectInfo, streamBundles, annotatedBundlesCache,
+                        artifactsConsumer));
+            } else {
+                final ExecutorService executor =
+                        Executors.newFixedThreadPool(Math.min(parallelism, annotatedEntities.size()));
+                try {
+                    final List<Future<?>> futures = new ArrayList<>();
+                    for (AnnotatedEntity<GatewayEntity> annotatedEntity : annotatedEntities) {
+                        // documents are created here as the document builder can't be shared across threads
+                        final Document document = documentSupplier.get();
+                        futures.add(executor.submit(() -> buildAnnotatedBundle(annotatedEntity, bundleType,
+                                dependencyGraph, document, projectInfo, streamBundles, annotatedBundlesCache,
+                                artifactsConsumer)));
+                    }
+                    for (Future<?> future : futures) {
+                        waitForBundle(future);
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+        } finally {
+            releasePolicyXMLDocuments(bundle);
+        }
+    }
+
+    /**
+     * Lets every builder set the values it stores in the entities shared by the annotated bundles, so that building
+     * the annotated bundles, sequentially or not, doesn't change them.
+     */
+    private void prepareSharedEntities(Bundle bundle, BundleType bundleType) {
+        entityBuilders.forEach(builder -> builder.prepareSharedEntities(bundle, bundleType));
+    }
+
+    /**
+     * Registers a load of the policy XML document of every policy included by each annotated bundle, so that a policy
+     * included by several bundles is only parsed once and its parsed document is dropped once the last one loads it.
+     */
+    private static void registerPolicyXMLDocumentLoads(List<AnnotatedEntity<GatewayEntity>> annotatedEntities,
+                                                       PolicyDependencyGraph dependencyGraph) {
+        annotatedEntities.forEach(annotatedEntity -> dependencyGraph.forEachPolicyDependency(
+                annotatedEntity.getPolicyName(), Policy::registerPolicyXMLDocumentLoad));
+    }
+
+    // restored bundles don't load the documents registered for them, those are dropped once every bundle is built
+    private static void releasePolicyXMLDocuments(Bundle bundle) {
+        bundle.getPolicies().values().forEach(Policy::releasePolicyXMLDocument);
+    }
+
+    private static void waitForBundle(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EntityBuilderException("Interrupted while building the annotated bundles", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new EntityBuilderException("Error building the annotated bundles", e.getCause());
+        }
+    }
+
+    private PolicyDependencyGraph createDependencyGraph(Bundle bundle) {
         if (Bundle.isEnvironmentEntityUniqueNamingDisabled()) {
             LOGGER.log(Level.WARNING, "Environment entity unique-naming is disabled");
         }
+        return new PolicyDependencyGraph(new BundleEntityIndex(bundle), entityTypeRegistry);
+    }
 
-        Map<String, BundleArtifacts> artifacts = buildAnnotatedEntities(bundleType, bundle, document, projectInfo);
-        if (artifacts.isEmpty()) {
-            List<Entity> entities = new ArrayList<>();
-            entityBuilders.forEach(builder -> entities.addAll(builder.build(bundle, bundleType, document)));
-            final Element fullBundle = bundleDocumentBuilder.build(document, entities);
-            BundleMetadata bundleMetadata = null;
-            Element deleteBundleElement = null;
-
-            final String bundleNamePrefix = StringUtils.isBlank(projectInfo.getVersion()) ? projectInfo.getName() :
-                    projectInfo.getName() + "-" + projectInfo.getVersion();
-            String bundleFileName = "";
-            String deleteBundleFileName = "";
-            if (bundleType == DEPLOYMENT) {
-                // Create bundle metadata for un-annotated entities
-                bundleMetadata = bundleMetadataBuilder.build(null, bundle, entities, projectInfo);
-
-                // Create DELETE bundle - ALWAYS skip environment entities
-                deleteBundleElement = createDeleteBundle(document, entities, bundle, null, projectInfo);
-
-                // Generate bundle filenames
-
-                bundleFileName = generateBundleFileName(false, bundleNamePrefix);
-                deleteBundleFileName = generateBundleFileName(true, bundleNamePrefix);
-            } else if (bundleType == ENVIRONMENT) {
-                // Create bundle metadata for environment entities
-                if (generateMetadata) {
-                    bundleMetadata = bundleMetadataBuilder.buildEnvironmentMetadata(entities, projectInfo);
-                }
+    private void buildFullBundle(BundleType bundleType, PolicyDependencyGraph dependencyGraph,
+                                 Supplier<Document> documentSupplier, ProjectInfo projectInfo, boolean generateMetadata,
+                                 boolean streamBundles, BundleArtifactsCache cache,
+                                 BiConsumer<String, BundleArtifacts> artifactsConsumer) {
+        final Bundle bundle = dependencyGraph.getRawBundleIndex().getBundle();
+        final String bundleNamePrefix = StringUtils.isBlank(projectInfo.getVersion()) ? projectInfo.getName() :
+                projectInfo.getName() + "-" + projectInfo.getVersion();
+        String fingerprint = null;
+        if (cache != null) {
+            fingerprint = getFingerprint(bundleNamePrefix, bundleType, bundle);
+            if (cache.restore(bundleNamePrefix, fingerprint)) {
+                return;
+            }
+        }
 
-                // Create DELETE Environment bundle
-                deleteBundleElement = createDeleteEnvBundle(document, entities);
+        final Document document = documentSupplier.get();
+        List<Entity> entities = new ArrayList<>();
+        // the built policies hold the ids of the entities they reference, they can only be reused if the ids don't change
+        bundle.setPolicyCache(cache != null && projectInfo.isDeterministicIds() ? cache : null);
+        try {
+            entityBuilders.forEach(builder -> entities.addAll(builder.build(bundle, bundleType, document)));
+        } finally {
+            bundle.setPolicyCache(null);
+        }
+        BundleMetadata bundleMetadata = null;
+
+        String bundleFileName = "";
+        String deleteBundleFileName = "";
+        if (bundleType == DEPLOYMENT) {
+            // Generate bundle filenames
+            bundleFileName = generateBundleFileName(false, bundleNamePrefix);
+            deleteBundleFileName = generateBundleFileName(true, bundleNamePrefix);
+        }
+        final BundleArtifacts.Artifact fullBundle = createBundleArtifact(document, entities, bundleFileName, streamBundles);
+        BundleArtifacts.Artifact deleteBundle = new BundleArtifacts.Artifact((Element) null, deleteBundleFileName);
+
+        if (bundleType == DEPLOYMENT) {
+            // Create bundle metadata for un-annotated entities
+            bundleMetadata = bundleMetadataBuilder.build(null, bundle, entities, projectInfo);
+
+            // Create DELETE bundle - ALWAYS skip environment entities
+            deleteBundle = createBundleArtifact(document,
+                    getDeleteBundleEntities(entities, dependencyGraph, null, projectInfo), deleteBundleFileName,
+                    streamBundles);
+        } else if (bundleType == ENVIRONMENT) {
+            // Create bundle metadata for environment entities
+            if (generateMetadata) {
+                bundleMetadata = bundleMetadataBuilder.buildEnvironmentMetadata(entities, projectInfo);
             }
-            BundleArtifacts bundleArtifacts = new BundleArtifacts(fullBundle, deleteBundleElement, bundleMetadata,
-                    bundleFileName, deleteBundleFileName);
-            addPrivateKeyContexts(bundle, projectInfo, bundleArtifacts, document);
-            artifacts.put(bundleNamePrefix, bundleArtifacts);
+
+            // Create DELETE Environment bundle
+            deleteBundle = createBundleArtifact(document, getDeleteEnvBundleEntities(entities), deleteBundleFileName,
+                    streamBundles);
         }
-        return artifacts;
+        BundleArtifacts bundleArtifacts = new BundleArtifacts(fullBundle, deleteBundle, bundleMetadata);
+        bundleArtifacts.setFingerprint(fingerprint);
+        addPrivateKeyContexts(bundle, projectInfo, bundleArtifacts, document);
+        artifactsConsumer.accept(bundleNamePrefix, bundleArtifacts);
     }
 
-    private Map<String, BundleArtifacts> buildAnnotatedEntities(BundleType bundleType, Bundle bundle,
-                                                                Document document, ProjectInfo projectInfo) {
-        final Map<String, BundleArtifacts> annotatedElements = new LinkedHashMap<>();
+    private List<AnnotatedEntity<GatewayEntity>> getAnnotatedEntities(Bundle bundle) {
+        final List<AnnotatedEntity<GatewayEntity>> annotatedEntities = new ArrayList<>();
         Map<String, EntityUtils.GatewayEntityInfo> entityTypeMap = entityTypeRegistry.getEntityTypeMap();
         // Filter the bundle to export only annotated entities
         entityTypeMap.values().stream().filter(EntityUtils.GatewayEntityInfo::isBundleGenerationSupported).forEach(entityInfo ->
                 bundle.getEntities(entityInfo.getEntityClass()).values().stream()
                         .filter(entity -> entity instanceof AnnotableEntity && ((AnnotableEntity) entity).isBundle())
                         .forEach(gatewayEntity -> {
-                            AnnotatedEntity<GatewayEntity> annotatedEntity;
                             if (gatewayEntity instanceof Encass) { // encass bundle - make copy and get AnnotatedEntity
-                                annotatedEntity = new Encass((Encass) gatewayEntity).getAnnotatedEntity();
+                                annotatedEntities.add(new Encass((Encass) gatewayEntity).getAnnotatedEntity());
                             } else { // Service bundle - no need for copy
-                                annotatedEntity = ((AnnotableEntity) gatewayEntity).getAnnotatedEntity();
-                            }
-                            List<Entity> entities = new ArrayList<>();
-                            AnnotatedBundle annotatedBundle = new AnnotatedBundle(bundle, annotatedEntity, projectInfo);
-                            Map bundleEntities = annotatedBundle.getEntities(annotatedEntity.getEntity().getClass());
-                            bundleEntities.put(annotatedEntity.getEntityName(), annotatedEntity.getEntity());
-                            loadPolicyDependenciesByPolicyName(annotatedEntity.getPolicyName(), annotatedBundle,
-                                    bundle, false, false);
-                            entityBuilders.forEach(builder -> entities.addAll(builder.build(annotatedBundle, bundleType, document)));
-
-                            // Create deployment bundle
-                            final Element bundleElement = bundleDocumentBuilder.build(document, entities);
-
-                            String bundleFilename = "";
-                            String deleteBundleFilename = "";
-
-                            Element deleteBundleElement = null;
-                            if (EntityBuilder.BundleType.DEPLOYMENT.equals(bundleType)) {
-                                // Create DELETE bundle - ALWAYS skip environment entities for DEPLOYMENT bundle
-                                deleteBundleElement = createDeleteBundle(document, entities, bundle,
-                                        annotatedEntity, projectInfo);
-
-                                // Generate bundle filenames
-                                bundleFilename = generateBundleFileName(false, annotatedBundle.getBundleName());
-                                deleteBundleFilename = generateBundleFileName(true, annotatedBundle.getBundleName());
+                                annotatedEntities.add(((AnnotableEntity) gatewayEntity).getAnnotatedEntity());
                             }
+                        })
+        );
+        return annotatedEntities;
+    }
 
-                            // Create bundle metadata
-                            BundleMetadata bundleMetadata = null;
-                            if (bundleType == DEPLOYMENT) {
-                                bundleMetadata = bundleMetadataBuilder.build(annotatedBundle, bundle, entities,
-                                        projectInfo);
-                            }
+    private void buildAnnotatedBundle(AnnotatedEntity<GatewayEntity> annotatedEntity, BundleType bundleType,
+                                      PolicyDependencyGraph dependencyGraph, Document document, ProjectInfo projectInfo,
+                                      boolean streamBundles, BundleArtifactsCache cache,
+                                      BiConsumer<String, BundleArtifacts> artifactsConsumer) {
+        final Bundle bundle = dependencyGraph.getRawBundleIndex().getBundle();
+        List<Entity> entities = new ArrayList<>();
+        AnnotatedBundle annotatedBundle = new AnnotatedBundle(bundle, annotatedEntity, projectInfo);
+        Map bundleEntities = annotatedBundle.getEntities(annotatedEntity.getEntity().getClass());
+        bundleEntities.put(annotatedEntity.getEntityName(), annotatedEntity.getEntity());
+        dependencyGraph.loadPolicyDependencies(annotatedEntity.getPolicyName(),
+                new BundleEntityIndex(annotatedBundle), false, true);
+        String fingerprint = null;
+        if (cache != null) {
+            fingerprint = getFingerprint(annotatedBundle.getBundleName(), bundleType, annotatedBundle);
+            if (cache.restore(annotatedBundle.getBundleName(), fingerprint)) {
+                return;
+            }
+        }
+        entityBuilders.forEach(builder -> entities.addAll(builder.build(annotatedBundle, bundleType, document)));
+
+        String bundleFilename = "";
+        String deleteBundleFilename = "";
+        if (EntityBuilder.BundleType.DEPLOYMENT.equals(bundleType)) {
+            // Generate bundle filenames
+            bundleFilename = generateBundleFileName(false, annotatedBundle.getBundleName());
+            deleteBundleFilename = generateBundleFileName(true, annotatedBundle.getBundleName());
+        }
 
-                            BundleArtifacts artifacts = new BundleArtifacts(bundleElement, deleteBundleElement,
-                                    bundleMetadata, bundleFilename, deleteBundleFilename);
-                            addPrivateKeyContexts(annotatedBundle, projectInfo, artifacts, document);
-                            annotatedElements.put(annotatedBundle.getBundleName(), artifacts);
+        // Create deployment bundle
+        final BundleArtifacts.Artifact installBundle = createBundleArtifact(document, entities, bundleFilename,
+                streamBundles);
 
-                        })
-        );
+        BundleArtifacts.Artifact deleteBundle = new BundleArtifacts.Artifact((Element) null, deleteBundleFilename);
+        if (EntityBuilder.BundleType.DEPLOYMENT.equals(bundleType)) {
+            // Create DELETE bundle - ALWAYS skip environment entities for DEPLOYMENT bundle
+            deleteBundle = createBundleArtifact(document, getDeleteBundleEntities(entities, dependencyGraph,
+                    annotatedEntity, projectInfo), deleteBundleFilename, streamBundles);
+        }
+
+        // Create bundle metadata
+        BundleMetadata bundleMetadata = null;
+        if (bundleType == DEPLOYMENT) {
+            bundleMetadata = bundleMetadataBuilder.build(annotatedBundle, bundle, entities,
+                    projectInfo);
+        }
+
+        BundleArtifacts artifacts = new BundleArtifacts(installBundle, deleteBundle, bundleMetadata);
+        artifacts.setFingerprint(fingerprint);
+        addPrivateKeyContexts(annotatedBundle, projectInfo, artifacts, document);
+        artifactsConsumer.accept(annotatedBundle.getBundleName(), artifacts);
+    }
+
+    /**
+     * Gets the fingerprint of the entities of a bundle: the name of every entity it contains and the content of its
+     * policies. The configuration of the entities is loaded from files shared by all the bundles, so it is up to the
+     * {@link BundleArtifactsCache} to account for it.
+     *
+     * @param bundleName Name of the bundle
+     * @param bundleType Type of the bundle being built
+     * @param bundle     Bundle with the entities packaged in the bundle
+     * @return SHA-256 of the entities of the bundle
+     */
+    private String getFingerprint(String bundleName, BundleType bundleType, Bundle bundle) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        putString(hasher, bundleType.name());
+        putString(hasher, bundleName);
+        new TreeMap<>(entityTypeRegistry.getEntityTypeMap()).forEach((type, entityInfo) -> {
+            final Set<String> names = new TreeSet<>(bundle.getEntities(entityInfo.getEntityClass()).keySet());
+            putString(hasher, type);
+            hasher.putInt(names.size());
+            names.forEach(name -> putString(hasher, name));
+        });
+        new TreeMap<>(bundle.getPolicies()).forEach((path, policy) -> {
+            putString(hasher, path);
+            putString(hasher, StringUtils.defaultString(policy.getPolicyXML()));
+        });
+        return hasher.hash().toString();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        // the length keeps consecutive strings from being read differently
+        hasher.putInt(value.length()).putString(value, UTF_8);
+    }
 
-        return annotatedElements;
+    /**
+     * Creates the artifact of an install or delete bundle. The mapping actions of the entities are read right away
+     * either way, as building the DELETE bundle changes them.
+     *
+     * @param document      Document
+     * @param entities      Entities packaged in the bundle
+     * @param filename      Filename of the bundle
+     * @param streamBundles TRUE to create a {@link StreamedBundle} instead of building the bundle element
+     * @return Artifact of the bundle
+     */
+    private BundleArtifacts.Artifact createBundleArtifact(final Document document, final List<Entity> entities,
+                                                          final String filename, final boolean streamBundles) {
+        if (streamBundles) {
+            return new BundleArtifacts.Artifact(new StreamedBundle(entities), filename);
+        }
+        return new BundleArtifacts.Artifact(bundleDocumentBuilder.build(document, entities), filename);
     }
 
     /**
-     * Creates the DELETE bundle element.
+     * Gets the entities of the DELETE bundle, with their mapping action set to DELETE.
      *
-     * @param document        Document
      * @param entities        Entities packaged in the deployment bundle
-     * @param bundle          Bundle containing all the Gateway entities
+     * @param dependencyGraph Dependencies of the entities of the Bundle containing all the Gateway entities
      * @param annotatedEntity Annotated Bundle for which bundle is being created.
-     * @return Delete bundle Element for the Annotated Bundle
+     * @return Entities of the Delete bundle for the Annotated Bundle
      */
-    private Element createDeleteBundle(final Document document, List<Entity> entities, final Bundle bundle,
-                                       final AnnotatedEntity<GatewayEntity> annotatedEntity, ProjectInfo projectInfo) {
+    private List<Entity> getDeleteBundleEntities(List<Entity> entities, final PolicyDependencyGraph dependencyGraph,
+                                                 final AnnotatedEntity<GatewayEntity> annotatedEntity,
+                                                 ProjectInfo projectInfo) {
         List<Entity> deleteBundleEntities = copyFilteredEntitiesForDeleteBundle(entities, FILTER_NON_ENV_ENTITIES);
 
         // If @redeployable annotation is added, we can blindly include all the dependencies in the DELETE bundle.
         // Else, we have to include only non-shared entities
         if (annotatedEntity != null && !annotatedEntity.isRedeployable()) {
-            // Include only non-shared entities
-            AnnotatedBundle annotatedBundle = new AnnotatedBundle(bundle, annotatedEntity, projectInfo);
+            // Include only non-shared entities, the annotated bundle is never built so no copies are needed
+            AnnotatedBundle annotatedBundle = new AnnotatedBundle(dependencyGraph.getRawBundleIndex().getBundle(),
+                    annotatedEntity, projectInfo);
             Map bundleEntities = annotatedBundle.getEntities(annotatedEntity.getEntity().getClass());
             bundleEntities.put(annotatedEntity.getEntityName(), annotatedEntity.getEntity());
-            loadPolicyDependenciesByPolicyName(annotatedEntity.getPolicyName(), annotatedBundle, bundle, true, false);
+            dependencyGraph.loadPolicyDependencies(annotatedEntity.getPolicyName(),
+                    new BundleEntityIndex(annotatedBundle), true, false);
 
             Iterator<Entity> it = deleteBundleEntities.iterator();
             while (it.hasNext()) {
@@ -197,21 +433,20 @@ public class BundleEntityBuilder {
         }
 
         deleteBundleEntities.forEach(e -> e.setMappingAction(MappingActions.DELETE)); // Set Mapping Action to DELETE
-        return bundleDocumentBuilder.build(document, deleteBundleEntities);
+        return deleteBundleEntities;
     }
 
     /**
-     * Creates the DELETE environment bundle element.
+     * Gets the entities of the DELETE environment bundle, with their mapping action set to DELETE.
      *
-     * @param document Document
      * @param entities Entities packaged in the deployment bundle
-     * @return Delete bundle Element for the Annotated Bundle
+     * @return Entities of the Delete environment bundle
      */
-    private Element createDeleteEnvBundle(final Document document, List<Entity> entities) {
+    private List<Entity> getDeleteEnvBundleEntities(List<Entity> entities) {
         List<Entity> filteredEntities = copyFilteredEntitiesForDeleteBundle(entities,
                 FILTER_ENV_ENTITIES.and(FILTER_OUT_DEFAULT_LISTEN_PORTS).and(FILTER_OUT_PRIVATE_KEYS));
         filteredEntities.forEach(e -> e.setMappingAction(MappingActions.DELETE));
-        return bundleDocumentBuilder.build(document, filteredEntities);
+        return filteredEntities;
     }
 
     /**
@@ -235,190 +470,6 @@ public class BundleEntityBuilder {
         return deleteBundleEntities;
     }
 
-    /**
-     * Loads all the gateway entities used in the policy including the environment or global dependencies.
-     *
-     * @param policyNameWithPath Name of the policy for which gateway dependencies needs to be found.
-     * @param annotatedBundle    Annotated Bundle for which bundle is being created.
-     * @param rawBundle          Bundle containing all the entities of the gateway.
-     * @param excludeShared      Exclude loading Shared entities as the dependencies of the policy
-     * @param isParentShared  TRUE if any Parent (Policy or Encass) in the hierarchy was is annotated with @shared
-     */
-    private void loadPolicyDependenciesByPolicyName(String policyNameWithPath, AnnotatedBundle annotatedBundle,
-                                                    Bundle rawBundle, boolean excludeShared, boolean isParentShared) {
-        final Policy policy = findPolicyByNameOrPath(policyNameWithPath, rawBundle);
-        loadPolicyDependencies(policy, annotatedBundle, rawBundle, excludeShared, isParentShared);
-    }
-
-    /**
-     * Loads the Policy and its dependencies
-     *
-     * @param policy          Policy for which gateway dependencies needs to be loaded.
-     * @param annotatedBundle Annotated Bundle for which bundle is being created.
-     * @param rawBundle       Bundle containing all the entities of the gateway.
-     * @param excludeShared   Exclude loading Shared entities as the dependencies of the policy
-     * @param isParentShared  TRUE if any Parent (Policy or Encass) in the hierarchy was is annotated with @shared
-     */
-    private void loadPolicyDependencies(Policy policy, AnnotatedBundle annotatedBundle, Bundle rawBundle,
-                                        boolean excludeShared, boolean isParentShared) {
-        if (policy == null || excludeGatewayEntity(Policy.class, policy, annotatedBundle, excludeShared)) {
-            return;
-        }
-
-        Policy policyCopy = new Policy(policy);
-        loadFolderDependencies(annotatedBundle, policyCopy);
-
-        isParentShared = isParentShared || policyCopy.isShared();
-        policyCopy.setParentEntityShared(isParentShared);
-
-        Map<String, Policy> annotatedPolicyMap = annotatedBundle.getEntities(Policy.class);
-        annotatedPolicyMap.put(policyCopy.getPath(), policyCopy);
-
-        Set<Dependency> dependencies = policyCopy.getUsedEntities();
-        if (dependencies != null) {
-            for (Dependency dependency : dependencies) {
-                switch (dependency.getType()) {
-                    case EntityTypes.POLICY_TYPE:
-                        Policy dependentPolicy = findPolicyByNameOrPath(dependency.getName(), rawBundle);
-                        loadPolicyDependencies(dependentPolicy, annotatedBundle, rawBundle, excludeShared, isParentShared);
-                        break;
-                    case EntityTypes.ENCAPSULATED_ASSERTION_TYPE:
-                        Encass encass = rawBundle.getEncasses().get(dependency.getName());
-                        loadEncassDependencies(encass, annotatedBundle, rawBundle, excludeShared, isParentShared);
-                        break;
-                    default:
-                        loadGatewayEntity(dependency, annotatedBundle, rawBundle);
-                }
-            }
-        }
-    }
-
-    /**
-     * Loads the Encass and its dependencies
-     *
-     * @param encass          Encass policy for which gateway dependencies needs to be loaded.
-     * @param annotatedBundle Annotated Bundle for which bundle is being created.
-     * @param rawBundle       Bundle containing all the entities of the gateway.
-     * @param excludeShared   Exclude loading Shared entities as the dependencies of the policy
-     * @param isParentShared  TRUE if any Parent (Policy or Encass) in the hierarchy was is annotated with @shared
-     */
-    private void loadEncassDependencies(Encass encass, AnnotatedBundle annotatedBundle, Bundle rawBundle,
-                                        boolean excludeShared, boolean isParentShared) {
-        if (encass != null && !excludeGatewayEntity(Encass.class, encass, annotatedBundle, excludeShared)) {
-            Encass encassCopy = new Encass(encass);
-            isParentShared = isParentShared || encass.isShared();
-            encassCopy.setParentEntityShared(isParentShared);
-
-            annotatedBundle.getEncasses().put(encass.getName(), encassCopy);
-            loadPolicyDependenciesByPolicyName(encassCopy.getPolicy(), annotatedBundle, rawBundle, excludeShared, isParentShared);
-        }
-    }
-
-    /**
-     * Loads the Folders.
-     *
-     * @param annotatedBundle Annotated Bundle for which bundle is being created.
-     * @param policyEntity    Policy for which folder dependencies needs to be loaded.
-     */
-    private void loadFolderDependencies(AnnotatedBundle annotatedBundle, GatewayEntity policyEntity) {
-        if (policyEntity instanceof Folderable) {
-            Folder folder = ((Folderable) policyEntity).getParentFolder();
-            Map<String, Folder> folderMap = annotatedBundle.getEntities(Folder.class);
-            while (folder != null) {
-                folderMap.putIfAbsent(folder.getPath(), folder);
-                folder = folder.getParentFolder();
-            }
-        }
-    }
-
-    /**
-     * Loads the Gateway entities other than Policy and Encass.
-     *
-     * @param dependency      Dependency to be loaded
-     * @param annotatedBundle Annotated Bundle for which bundle is being created.
-     * @param rawBundle       Bundle containing all the entities of the gateway.
-     */
-    private void loadGatewayEntity(Dependency dependency, AnnotatedBundle annotatedBundle, Bundle rawBundle) {
-        Class<? extends GatewayEntity> entityClass = entityTypeRegistry.getEntityClass(dependency.getType());
-        if(entityClass != null){
-            Map<String, ? extends GatewayEntity> allEntitiesOfType = rawBundle.getEntities(entityClass);
-            Optional<? extends Map.Entry<String, ? extends GatewayEntity>> optionalGatewayEntity =
-                    allEntitiesOfType.entrySet().stream()
-                            .filter(e -> {
-                                GatewayEntity gatewayEntity = e.getValue();
-                                if (gatewayEntity.getName() != null) {
-                                    return dependency.getName().equals(gatewayEntity.getName());
-                                } else {
-                                    return dependency.getName().equals(PathUtils.extractName(e.getKey()));
-                                }
-                            }).findFirst();
-            Map entityMap = annotatedBundle.getEntities(entityClass);
-            optionalGatewayEntity.ifPresent(e -> entityMap.put(e.getKey(), e.getValue()));
-        } else {
-            //if entity type is not present, add corresponding unsupported entity
-            Map<String, UnsupportedGatewayEntity> unsupportedEntities = rawBundle.getUnsupportedEntities();
-            Optional<? extends Map.Entry<String, UnsupportedGatewayEntity>> optionalGatewayEntity =
-                    unsupportedEntities.entrySet().stream()
-                            .filter(e -> {
-                                UnsupportedGatewayEntity gatewayEntity = e.getValue();
-                                return dependency.getName().equals(PathUtils.extractName(e.getKey())) && dependency.getType().equals(gatewayEntity.getType());
-                            }).findFirst();
-            Map entityMap = annotatedBundle.getUnsupportedEntities();
-            optionalGatewayEntity.ifPresent(e -> entityMap.put(e.getValue().getMappingValue(), e.getValue()));
-        }
-    }
-
-    /**
-     * Return TRUE is the Gateway entity needs to be excluded from being loaded.
-     *
-     * @param entityType      Type of entity class
-     * @param gatewayEntity   Gateway entity to be checked
-     * @param annotatedBundle Annotated Bundle for which bundle is being created.
-     * @param excludeShared   Exclude loading Shared entities as the dependency
-     * @return TRUE if the Gateway entity needs to be excluded
-     */
-    private boolean excludeGatewayEntity(Class<? extends GatewayEntity> entityType, GatewayEntity gatewayEntity,
-                                         AnnotatedBundle annotatedBundle, boolean excludeShared) {
-        return annotatedBundle.getEntities(entityType).containsKey(gatewayEntity.getName())
-                || excludeSharedOrPolicyEntity(gatewayEntity, annotatedBundle, excludeShared);
-    }
-
-    /**
-     * Returns TRUE if the Gateway entity is annotated as @shared and the shared entity needs to excluded or the
-     * gateway entity is a policy entity and the annotated bundle already contains that policy.
-     *
-     * @param gatewayEntity   Gateway entity to be checked
-     * @param annotatedBundle Annotated Bundle for which bundle is being created.
-     * @param excludeShared   Exclude loading Shared entities as the dependency
-     * @return TRUE if the Gateway entity is @shared and needs to be excluded or entity is Policy and annotated
-     * bundle already contains the policy
-     */
-    private boolean excludeSharedOrPolicyEntity(GatewayEntity gatewayEntity, AnnotatedBundle annotatedBundle,
-                                                  boolean excludeShared) {
-        if (gatewayEntity instanceof AnnotableEntity && ((AnnotableEntity) gatewayEntity).isShared() && excludeShared) {
-            return true;
-        }
-        // Special case for policy because policies are stored by Path in the entities map and
-        // GatewayEntity.getName() only gives Policy name.
-        return gatewayEntity instanceof Policy && findPolicyByNameOrPath(gatewayEntity.getName(), annotatedBundle) != null;
-    }
-
-    /**
-     * Finds policy in the Raw bundle by just Policy name or Policy path.
-     *
-     * @param policyNameOrPath Policy name or path
-     * @param rawBundle        Bundle containing all the entities of the gateway.
-     * @return Found Policy is exists, returns NULL if not found
-     */
-    private Policy findPolicyByNameOrPath(String policyNameOrPath, Bundle rawBundle) {
-        for (String policyKey : rawBundle.getPolicies().keySet()) {
-            if (StringUtils.equalsAny(policyNameOrPath, PathUtils.extractName(policyKey), policyKey)) {
-                return rawBundle.getPolicies().get(policyKey);
-            }
-        }
-        return null;
-    }
-
     /**
      * Generates the filename for the install bundle and delete bundle files/
      *
@@ -435,11 +486,11 @@ public class BundleEntityBuilder {
                                       Document document) {
         if (!bundle.getPrivateKeys().isEmpty()) {
             bundle.getPrivateKeys().forEach((alias, privateKey) -> {
-                if (privateKey.getPrivateKeyFile() == null) {
-                    privateKey.setPrivateKeyFile(bundle.getPrivateKeyFiles().get(privateKey.getAlias()));
-                }
-                if (privateKey.getPrivateKeyFile() != null) {
-                    Element element = privateKeyImportContextBuilder.build(privateKey, document);
+                // the private key is shared by the annotated bundles, so its file is looked up without changing it
+                final SupplierWithIO<InputStream> privateKeyFile = privateKey.getPrivateKeyFile() != null ?
+                        privateKey.getPrivateKeyFile() : bundle.getPrivateKeyFiles().get(privateKey.getAlias());
+                if (privateKeyFile != null) {
+                    Element element = privateKeyImportContextBuilder.build(privateKey, privateKeyFile, document);
                     String filename = generatePrivateKeyFileName(privateKey, projectInfo);
                     bundleArtifacts.addPrivateKeyContext(element, filename);
                 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
+import com.ca.apim.gateway.cagatewayconfig.beans.GatewayEntity;
+import com.ca.apim.gateway.cagatewayconfig.beans.Policy;
+import com.ca.apim.gateway.cagatewayconfig.util.paths.PathUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Name and path index over the entities of a {@link Bundle}, used to resolve policy dependencies without scanning
+ * the entity maps on every lookup. The index keeps the first match in the iteration order of the indexed maps, which
+ * is the same entity the former linear scans would return.
+ *
+ * The index must be created after the bundle is fully loaded. Policies added afterwards have to go through
+ * {@link #putPolicy(Policy)} to be visible to {@link #findPolicyByNameOrPath(String)}.
+ */
+class BundleEntityIndex {
+
+    private final Bundle bundle;
+    private final Map<String, Policy> policiesByName = new ConcurrentHashMap<>();
+    private final Map<Class, Map<String, String>> entityKeysByName = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> unsupportedEntityKeysByTypeAndName = new ConcurrentHashMap<>();
+
+    BundleEntityIndex(Bundle bundle) {
+        this.bundle = bundle;
+        bundle.getPolicies().forEach(this::indexPolicy);
+        bundle.getUnsupportedEntities().forEach((key, entity) -> {
+            if (entity.getType() != null) {
+                unsupportedEntityKeysByTypeAndName
+                        .computeIfAbsent(entity.getType(), t -> new ConcurrentHashMap<>())
+                        .putIfAbsent(PathUtils.extractName(key), key);
+            }
+        });
+    }
+
+    Bundle getBundle() {
+        return bundle;
+    }
+
+    /**
+     * Adds the policy to the indexed bundle, keyed by its path, and indexes its name.
+     *
+     * @param policy policy to add
+     */
+    void putPolicy(Policy policy) {
+        bundle.getPolicies().put(policy.getPath(), policy);
+        indexPolicy(policy.getPath(), policy);
+    }
+
+    /**
+     * Finds a policy by just the policy name or by the full policy path.
+     *
+     * @param policyNameOrPath Policy name or path
+     * @return Found Policy is exists, returns NULL if not found
+     */
+    Policy findPolicyByNameOrPath(String policyNameOrPath) {
+        if (policyNameOrPath == null) {
+            return null;
+        }
+        Policy policy = policiesByName.get(policyNameOrPath);
+        return policy != null ? policy : bundle.getPolicies().get(policyNameOrPath);
+    }
+
+    /**
+     * Finds the key of the entity of the given type by its name. Entities without a name are matched by the name
+     * part of their key.
+     *
+     * @param entityClass type of the entity
+     * @param name        name of the entity
+     * @return the key of the entity in the bundle map, or NULL if not found
+     */
+    String findEntityKey(Class<? extends GatewayEntity> entityClass, String name) {
+        return entityKeysByName.computeIfAbsent(entityClass, c -> indexEntities(entityClass)).get(name);
+    }
+
+    /**
+     * Finds the key of the unsupported entity of the given type by the name part of its key.
+     *
+     * @param type type of the unsupported entity
+     * @param name name of the entity
+     * @return the key of the entity in the unsupported entities map, or NULL if not found
+     */
+    String findUnsupportedEntityKey(String type, String name) {
+        Map<String, String> keysByName = unsupportedEntityKeysByTypeAndName.get(type);
+        return keysByName != null ? keysByName.get(name) : null;
+    }
+
+    private void indexPolicy(String path, Policy policy) {
+        policiesByName.putIfAbsent(PathUtils.extractName(path), policy);
+    }
+
+    private Map<String, String> indexEntities(Class<? extends GatewayEntity> entityClass) {
+        Map<String, String> keysByName = new ConcurrentHashMap<>();
+        bundle.getEntities(entityClass).forEach((key, entity) -> {
+            String name = entity.getName() != null ? entity.getName() : PathUtils.extractName(key);
+            keysByName.putIfAbsent(name, key);
+        });
+        return keysByName;
+    }
+}
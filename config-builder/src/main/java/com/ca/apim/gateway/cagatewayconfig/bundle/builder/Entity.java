@@ -53,6 +53,14 @@ public class Entity {
         return xml;
     }
 
+    /**
+     * @return the element of the entity without copying it, it must not be changed as it is shared by every bundle
+     * the entity is in
+     */
+    Element getXmlWithoutCopy() {
+        return xml;
+    }
+
     public Map<String, Object> getProperties() {
         return properties;
     }
@@ -24,6 +24,17 @@ public interface EntityBuilder extends Comparable<EntityBuilder> {
 
     List<Entity> build(Bundle bundle, BundleType bundleType, Document document);
 
+    /**
+     * Sets the values this builder stores in the entities of the bundle, like the ids other builders link to. It is
+     * called once on the bundle containing all the Gateway entities before its annotated bundles are built, so building
+     * them, possibly concurrently, only reads the entities they share.
+     *
+     * @param bundle     Bundle containing all the Gateway entities
+     * @param bundleType Type of the bundles being built
+     */
+    default void prepareSharedEntities(Bundle bundle, BundleType bundleType) {
+    }
+
     /**
      * Types of bundles.
      */
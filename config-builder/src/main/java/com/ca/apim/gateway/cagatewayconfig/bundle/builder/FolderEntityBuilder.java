@@ -6,6 +6,7 @@
 
 package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
 
+import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.beans.Folder;
 import com.ca.apim.gateway.cagatewayconfig.util.IdGenerator;
@@ -64,7 +65,7 @@ public class FolderEntityBuilder implements EntityBuilder {
         return entity;
     }
 
-    private List<Entity> buildEntities(Map<String, Folder> entities, BundleType bundleType, Document document, String targetFolderPath) {
+    private List<Entity> buildEntities(Map<String, Folder> entities, BundleType bundleType, Document document, String targetFolderPath, ProjectInfo projectInfo) {
         // no folder has to be added to environment bundle
         if ((entities.isEmpty() && StringUtils.isBlank(targetFolderPath)) || bundleType == ENVIRONMENT) {
             return Collections.emptyList();
@@ -77,10 +78,15 @@ public class FolderEntityBuilder implements EntityBuilder {
 
         if (StringUtils.isNotBlank(targetFolderPath) && rootFolder != Folder.ROOT_FOLDER) {
             Folder bundleTargetFolder = rootFolder;
-            bundleTargetFolder.setId(idGenerator.generate());
-            bundleTargetFolder.setName(targetFolderPath);
-            bundleTargetFolder.setParentFolder(Folder.ROOT_FOLDER);
-            bundleTargetFolder.setPath(targetFolderPath + "/");
+            // the root folder is shared by all the annotated bundles, which might be built concurrently
+            synchronized (bundleTargetFolder) {
+                if (bundleTargetFolder.getParentFolder() != Folder.ROOT_FOLDER) {
+                    bundleTargetFolder.setId(idGenerator.generate(projectInfo, FOLDER_TYPE, targetFolderPath + "/"));
+                    bundleTargetFolder.setName(targetFolderPath);
+                    bundleTargetFolder.setParentFolder(Folder.ROOT_FOLDER);
+                    bundleTargetFolder.setPath(targetFolderPath + "/");
+                }
+            }
             entities.put(bundleTargetFolder.getPath() , bundleTargetFolder);
             rootFolder = Folder.ROOT_FOLDER;
             entities.put("", rootFolder);
@@ -94,18 +100,15 @@ public class FolderEntityBuilder implements EntityBuilder {
         Stream<Folder> folderStream = Stream.of(rootFolder).flatMap(f -> expand(f, folderChildrenMap));
 
         return folderStream.map(f -> {
-            if (f.getId() == null) {
-                f.setId(idGenerator.generate());
-            }
             String parentFolderId = f.getParentFolder() != null ? f.getParentFolder().getId() : null;
-            return buildFolderEntity(f, f.getId(), parentFolderId, document);
+            return buildFolderEntity(f, getOrGenerateId(f, projectInfo), parentFolderId, document);
         })
                 .collect(Collectors.toList());
     }
 
     public List<Entity> build(Bundle bundle, BundleType bundleType, Document document) {
         Map<String, Folder> folderMap = Optional.ofNullable(bundle.getFolders()).orElse(Collections.emptyMap());
-        return buildEntities(folderMap, bundleType, document, bundle.getTargetFolderPath());
+        return buildEntities(folderMap, bundleType, document, bundle.getTargetFolderPath(), bundle.getProjectInfo());
     }
 
     @Override
@@ -113,6 +116,19 @@ public class FolderEntityBuilder implements EntityBuilder {
         return ORDER;
     }
 
+    /**
+     * Folders are shared by all the annotated bundles, so the id is generated only once and then reused by every
+     * bundle the folder is part of.
+     */
+    private String getOrGenerateId(Folder folder, ProjectInfo projectInfo) {
+        synchronized (folder) {
+            if (folder.getId() == null) {
+                folder.setId(idGenerator.generate(projectInfo, FOLDER_TYPE, folder.getPath()));
+            }
+            return folder.getId();
+        }
+    }
+
     private Stream<Folder> expand(final Folder folder, Map<Folder, Collection<Folder>> folderChildrenMap) {
         return Stream.of(folder).flatMap(f -> Stream.concat(Stream.of(f), folderChildrenMap.getOrDefault(f, Collections.emptySet()).stream().flatMap(f2 -> expand(f2, folderChildrenMap))));
     }
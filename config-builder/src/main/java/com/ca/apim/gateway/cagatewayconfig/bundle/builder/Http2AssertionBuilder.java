@@ -6,6 +6,7 @@ import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
 import org.w3c.dom.Element;
 
 import static com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder.BundleType.ENVIRONMENT;
+import static com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes.GENERIC_TYPE;
 import static com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements.*;
 import static com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements.GOID_VALUE;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.createElementWithAttribute;
@@ -21,7 +22,7 @@ public class Http2AssertionBuilder implements PolicyAssertionBuilder {
                     http2ClientNameEle.getAttributes().getNamedItem(STRING_VALUE).getTextContent();
             http2ClientNameEle.setAttribute(STRING_VALUE, bundle.applyUniqueName(http2ClientName, ENVIRONMENT));
             final GenericEntity http2Client = bundle.getGenericEntities().get(http2ClientName);
-            final String id = getIdFromAnnotableEntity(http2Client, policyBuilderContext.getIdGenerator());
+            final String id = getIdFromAnnotableEntity(http2Client, policyBuilderContext, GENERIC_TYPE, bundle.applyUniqueName(http2ClientName, ENVIRONMENT));
             Element http2ClientGoidElement = createElementWithAttribute(
                     policyBuilderContext.getPolicyDocument(),
                     HTTP2_CLIENT_CONFIG_GOID,
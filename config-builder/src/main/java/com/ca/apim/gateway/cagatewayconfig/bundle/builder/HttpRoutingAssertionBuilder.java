@@ -6,6 +6,7 @@ import com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import static com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes.TRUSTED_CERT_TYPE;
 import static com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements.*;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.createElementWithAttribute;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElement;
@@ -28,7 +29,7 @@ public class HttpRoutingAssertionBuilder implements PolicyAssertionBuilder {
             for (int i = 0; i < trustedCertNamesList.getLength(); i++) {
                 final String trustedCertName = trustedCertNamesList.item(i).getAttributes().getNamedItem(STRING_VALUE).getTextContent();
                 final TrustedCert trustedCert = bundle.getTrustedCerts().get(trustedCertName);
-                final String trustedCertId = getIdFromAnnotableEntity(trustedCert, policyBuilderContext.getIdGenerator());
+                final String trustedCertId = getIdFromAnnotableEntity(trustedCert, policyBuilderContext, TRUSTED_CERT_TYPE, trustedCertName);
 
                 Element trustedCertGoidItem = createElementWithAttribute(
                         policyBuilderContext.getPolicyDocument(),
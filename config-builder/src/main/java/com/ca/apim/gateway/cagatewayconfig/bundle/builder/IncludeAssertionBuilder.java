@@ -54,11 +54,7 @@ public class IncludeAssertionBuilder implements PolicyAssertionBuilder {
                     //add dependent bundle if bundle type is not null
                     DependentBundle dependentBundle = b.getDependentBundleFrom();
                     if (dependentBundle != null && dependentBundle.getType() != null) {
-                        if (annotatedBundle != null) {
-                            annotatedBundle.addDependentBundle(dependentBundle);
-                        } else {
-                            bundle.addDependentBundle(dependentBundle);
-                        }
+                        policyBuilderContext.addDependentBundle(dependentBundle);
                     }
                 }
             });
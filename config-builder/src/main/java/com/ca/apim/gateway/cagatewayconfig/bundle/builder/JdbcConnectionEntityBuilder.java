@@ -50,11 +50,14 @@ public class JdbcConnectionEntityBuilder implements EntityBuilder {
         switch (bundleType) {
             case DEPLOYMENT:
                 return entities.entrySet().stream()
-                        .map(e -> EntityBuilderHelper.getEntityWithOnlyMapping(EntityTypes.JDBC_CONNECTION, bundle.applyUniqueName(e.getKey(), BundleType.ENVIRONMENT), generateId((JdbcConnection)e.getValue())))
+                        .map(e -> {
+                            final String name = bundle.applyUniqueName(e.getKey(), BundleType.ENVIRONMENT);
+                            return EntityBuilderHelper.getEntityWithOnlyMapping(EntityTypes.JDBC_CONNECTION, name, generateId(bundle, name, (JdbcConnection)e.getValue()));
+                        })
                         .collect(Collectors.toList());
             case ENVIRONMENT:
                 return entities.entrySet().stream().map(e ->
-                        buildEntity(bundle.applyUniqueName(e.getKey(), bundleType), (JdbcConnection)e.getValue(), document)
+                        buildEntity(bundle, bundle.applyUniqueName(e.getKey(), bundleType), (JdbcConnection)e.getValue(), document)
                 ).collect(Collectors.toList());
             default:
                 throw new EntityBuilderException("Unknown bundle type: " + bundleType);
@@ -62,8 +65,8 @@ public class JdbcConnectionEntityBuilder implements EntityBuilder {
     }
 
     @VisibleForTesting
-    Entity buildEntity(String name, JdbcConnection jdbc, Document document) {
-        String id = generateId(jdbc);
+    Entity buildEntity(Bundle bundle, String name, JdbcConnection jdbc, Document document) {
+        String id = generateId(bundle, name, jdbc);
         Element jdbcElement = createElementWithAttributesAndChildren(
                 document,
                 JDBC_CONNECTION,
@@ -96,12 +99,12 @@ public class JdbcConnectionEntityBuilder implements EntityBuilder {
         return EntityBuilderHelper.getEntityWithNameMapping(EntityTypes.JDBC_CONNECTION, name, id, jdbcElement);
     }
 
-    private String generateId(JdbcConnection jdbcConnection) {
+    private String generateId(Bundle bundle, String name, JdbcConnection jdbcConnection) {
         if (jdbcConnection != null && jdbcConnection.getAnnotatedEntity() != null
                 && StringUtils.isNotBlank(jdbcConnection.getAnnotatedEntity().getId())) {
             return jdbcConnection.getAnnotatedEntity().getId();
         }
-        return idGenerator.generate();
+        return idGenerator.generate(bundle.getProjectInfo(), EntityTypes.JDBC_CONNECTION, name);
     }
 
     @Override
@@ -6,6 +6,7 @@ import com.ca.apim.gateway.cagatewayconfig.util.IdGenerator;
 import org.w3c.dom.Element;
 
 import static com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder.BundleType.ENVIRONMENT;
+import static com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes.JMS_DESTINATION_TYPE;
 import static com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements.*;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.createElementWithAttribute;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElement;
@@ -29,7 +30,7 @@ public class JmsAssertionBuilder implements PolicyAssertionBuilder {
                     id = jmsDestination.getId();
                 }
             } else {
-                id = idGenerator.generate();
+                id = idGenerator.generate(bundle.getProjectInfo(), JMS_DESTINATION_TYPE, bundle.applyUniqueName(connectionName, ENVIRONMENT));
             }
 
             Element jmdDestinationGoidElement = createElementWithAttribute(
@@ -2,7 +2,6 @@ package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.beans.GatewayEntity;
-import com.ca.apim.gateway.cagatewayconfig.util.IdGenerator;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
 import org.apache.commons.text.StringEscapeUtils;
 import org.w3c.dom.*;
@@ -34,18 +33,20 @@ public interface PolicyAssertionBuilder {
     /**
      * Default method that reads given annotated entity id
      *
-     * @param gatewayEntity GatewayEntity
-     * @param idGenerator   IdGenerator
+     * @param gatewayEntity        GatewayEntity
+     * @param policyBuilderContext Policy builder context
+     * @param entityType           type of the entity, used to generate the id if the entity has none
+     * @param entityName           name of the entity, used to generate the id if the entity has none
      * @return String
      */
-    default String getIdFromAnnotableEntity(GatewayEntity gatewayEntity, IdGenerator idGenerator) {
+    default String getIdFromAnnotableEntity(GatewayEntity gatewayEntity, PolicyBuilderContext policyBuilderContext, String entityType, String entityName) {
         if (gatewayEntity instanceof AnnotableEntity) {
             AnnotatedEntity annotatedEntity = ((AnnotableEntity) gatewayEntity).getAnnotatedEntity();
             if (annotatedEntity != null && annotatedEntity.getId() != null) {
                 return annotatedEntity.getId();
             }
         }
-        return idGenerator.generate();
+        return policyBuilderContext.getIdGenerator().generate(policyBuilderContext.getBundle().getProjectInfo(), entityType, entityName);
     }
 
      static void prepareBase64Element(Document policyDocument, Element assertionElement, String elementName, String base64ElementName) {
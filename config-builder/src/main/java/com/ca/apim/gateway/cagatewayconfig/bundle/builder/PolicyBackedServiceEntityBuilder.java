@@ -63,7 +63,7 @@ public class PolicyBackedServiceEntityBuilder implements EntityBuilder {
     }
 
     private Entity buildPBSEntity(Bundle bundle, String name, PolicyBackedService policyBackedService, Document document) {
-        String id = idGenerator.generate();
+        String id = idGenerator.generate(bundle.getProjectInfo(), POLICY_BACKED_SERVICE_TYPE, name);
         Element policyBackedServiceElement = createElementWithAttributesAndChildren(
                 document,
                 POLICY_BACKED_SERVICE,
@@ -1,6 +1,7 @@
 package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
+import com.ca.apim.gateway.cagatewayconfig.beans.DependentBundle;
 import com.ca.apim.gateway.cagatewayconfig.beans.Policy;
 import com.ca.apim.gateway.cagatewayconfig.util.IdGenerator;
 import org.w3c.dom.Document;
@@ -13,6 +14,8 @@ public class PolicyBuilderContext {
     private IdGenerator idGenerator;
     private AnnotatedBundle annotatedBundle;
     private Policy policy;
+    private int visitedNodeCount;
+    private boolean dependentBundleAdded;
 
     PolicyBuilderContext(String policyName, Document policyDocument, Bundle bundle, IdGenerator idGenerator) {
         this.policyName = policyName;
@@ -55,4 +58,37 @@ public class PolicyBuilderContext {
     public Policy getPolicy() {
         return policy;
     }
+
+    /**
+     * @return the number of policy document nodes visited while building the policy xml
+     */
+    public int getVisitedNodeCount() {
+        return visitedNodeCount;
+    }
+
+    void setVisitedNodeCount(int visitedNodeCount) {
+        this.visitedNodeCount = visitedNodeCount;
+    }
+
+    /**
+     * Adds a bundle the policy references entities from to the dependent bundles of the annotated bundle being built,
+     * or of the bundle if it is not annotated.
+     *
+     * @param dependentBundle the bundle the policy depends on
+     */
+    void addDependentBundle(DependentBundle dependentBundle) {
+        if (annotatedBundle != null) {
+            annotatedBundle.addDependentBundle(dependentBundle);
+        } else {
+            bundle.addDependentBundle(dependentBundle);
+        }
+        dependentBundleAdded = true;
+    }
+
+    /**
+     * @return true if building the policy xml added a dependent bundle, which reusing the built policy xml would miss
+     */
+    boolean isDependentBundleAdded() {
+        return dependentBundleAdded;
+    }
 }
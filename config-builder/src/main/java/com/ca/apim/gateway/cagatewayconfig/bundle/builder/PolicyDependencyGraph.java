@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.*;
+import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
+import com.ca.apim.gateway.cagatewayconfig.util.paths.PathUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Transitive dependencies of the policies and encapsulated assertions of a raw {@link Bundle}. The closure of each
+ * policy or encass is computed once per build, with and without the @shared entities, and reused by every annotated
+ * bundle that depends on it.
+ *
+ * Closures reference the raw entities. Policies and encasses are only copied when a closure is loaded into an
+ * annotated bundle that is going to be built, since the entity builders modify them.
+ */
+class PolicyDependencyGraph {
+
+    private final BundleEntityIndex rawBundleIndex;
+    private final EntityTypeRegistry entityTypeRegistry;
+    private final Map<GatewayEntity, DependencyClosure> closures = new ConcurrentHashMap<>();
+    private final Map<GatewayEntity, DependencyClosure> nonSharedClosures = new ConcurrentHashMap<>();
+
+    PolicyDependencyGraph(BundleEntityIndex rawBundleIndex, EntityTypeRegistry entityTypeRegistry) {
+        this.rawBundleIndex = rawBundleIndex;
+        this.entityTypeRegistry = entityTypeRegistry;
+    }
+
+    BundleEntityIndex getRawBundleIndex() {
+        return rawBundleIndex;
+    }
+
+    /**
+     * Loads the policy and all the gateway entities it depends on into the annotated bundle, including the
+     * environment or global dependencies.
+     *
+     * @param policyNameOrPath     Name or path of the policy for which gateway dependencies needs to be loaded.
+     * @param annotatedBundleIndex Index of the Annotated Bundle for which bundle is being created.
+     * @param excludeShared        Exclude loading Shared entities as the dependencies of the policy
+     * @param copyEntities         TRUE to load copies of the policies and encasses, which is required if the annotated
+     *                             bundle is going to be built
+     */
+    void loadPolicyDependencies(String policyNameOrPath, BundleEntityIndex annotatedBundleIndex,
+                                boolean excludeShared, boolean copyEntities) {
+        final Policy policy = rawBundleIndex.findPolicyByNameOrPath(policyNameOrPath);
+        if (policy != null) {
+            getClosure(policy, excludeShared, new HashSet<>()).loadInto(annotatedBundleIndex, copyEntities);
+        }
+    }
+
+    /**
+     * Calls the consumer with the policy and every policy it depends on, the policies of the raw bundle that
+     * {@link #loadPolicyDependencies(String, BundleEntityIndex, boolean, boolean)} loads when shared entities are not
+     * excluded.
+     *
+     * @param policyNameOrPath Name or path of the policy
+     * @param consumer         Consumer of the raw policies
+     */
+    void forEachPolicyDependency(String policyNameOrPath, Consumer<Policy> consumer) {
+        final Policy policy = rawBundleIndex.findPolicyByNameOrPath(policyNameOrPath);
+        if (policy != null) {
+            getClosure(policy, false, new HashSet<>()).policies.values().forEach(consumer);
+        }
+    }
+
+    private DependencyClosure getClosure(GatewayEntity entity, boolean excludeShared, Set<GatewayEntity> pending) {
+        final Map<GatewayEntity, DependencyClosure> cache = excludeShared ? nonSharedClosures : closures;
+        DependencyClosure closure = cache.get(entity);
+        if (closure == null) {
+            closure = computeClosure(entity, excludeShared, pending);
+            // closures computed while walking a dependency cycle miss the entities of the cycle, so they can't be reused
+            if (closure.unresolved.isEmpty()) {
+                cache.putIfAbsent(entity, closure);
+            }
+        }
+        return closure;
+    }
+
+    private DependencyClosure computeClosure(GatewayEntity entity, boolean excludeShared, Set<GatewayEntity> pending) {
+        final DependencyClosure closure = new DependencyClosure();
+        final boolean shared = ((AnnotableEntity) entity).isShared();
+        if (shared && excludeShared) {
+            return closure;
+        }
+
+        pending.add(entity);
+        if (entity instanceof Encass) {
+            final Encass encass = (Encass) entity;
+            closure.addEncass(encass, shared);
+            mergeDependency(closure, rawBundleIndex.findPolicyByNameOrPath(encass.getPolicy()), shared, excludeShared, pending);
+        } else {
+            final Policy policy = (Policy) entity;
+            closure.addPolicy(policy, shared);
+            for (Dependency dependency : Optional.ofNullable(policy.getUsedEntities()).orElse(Collections.emptySet())) {
+                switch (dependency.getType()) {
+                    case EntityTypes.POLICY_TYPE:
+                        mergeDependency(closure, rawBundleIndex.findPolicyByNameOrPath(dependency.getName()), shared,
+                                excludeShared, pending);
+                        break;
+                    case EntityTypes.ENCAPSULATED_ASSERTION_TYPE:
+                        mergeDependency(closure, rawBundleIndex.getBundle().getEncasses().get(dependency.getName()),
+                                shared, excludeShared, pending);
+                        break;
+                    default:
+                        addGatewayEntity(closure, dependency);
+                }
+            }
+        }
+        pending.remove(entity);
+        closure.unresolved.remove(entity);
+        return closure;
+    }
+
+    private void mergeDependency(DependencyClosure closure, GatewayEntity dependency, boolean parentShared,
+                                 boolean excludeShared, Set<GatewayEntity> pending) {
+        // a closure contains the closures of all its entities, so an entity already present brings nothing new
+        if (dependency == null || closure.contains(dependency)) {
+            return;
+        }
+        if (pending.contains(dependency)) {
+            closure.unresolved.add(dependency);
+            return;
+        }
+        closure.merge(getClosure(dependency, excludeShared, pending), parentShared);
+    }
+
+    /**
+     * Adds the Gateway entities other than Policy and Encass.
+     *
+     * @param closure    Closure being computed
+     * @param dependency Dependency to be added
+     */
+    private void addGatewayEntity(DependencyClosure closure, Dependency dependency) {
+        final Class<? extends GatewayEntity> entityClass = entityTypeRegistry.getEntityClass(dependency.getType());
+        if (entityClass != null) {
+            final String entityKey = rawBundleIndex.findEntityKey(entityClass, dependency.getName());
+            if (entityKey != null) {
+                closure.entities.computeIfAbsent(entityClass, c -> new LinkedHashMap<>())
+                        .put(entityKey, rawBundleIndex.getBundle().getEntities(entityClass).get(entityKey));
+            }
+        } else {
+            //if entity type is not present, add corresponding unsupported entity
+            final String entityKey = rawBundleIndex.findUnsupportedEntityKey(dependency.getType(), dependency.getName());
+            if (entityKey != null) {
+                final UnsupportedGatewayEntity entity = rawBundleIndex.getBundle().getUnsupportedEntities().get(entityKey);
+                closure.unsupportedEntities.put(entity.getMappingValue(), entity);
+            }
+        }
+    }
+
+    /**
+     * Transitive dependencies of a single policy or encass. Policies and encasses are recorded together with their
+     * parent-shared flag, relative to a parent hierarchy that is not shared.
+     */
+    private static class DependencyClosure {
+
+        private final Map<String, Policy> policies = new LinkedHashMap<>();
+        private final Set<String> policyNamesAndPaths = new HashSet<>();
+        private final Map<String, Encass> encasses = new LinkedHashMap<>();
+        private final Set<GatewayEntity> parentShared = new HashSet<>();
+        private final Map<Class<? extends GatewayEntity>, Map<String, GatewayEntity>> entities = new LinkedHashMap<>();
+        private final Map<String, UnsupportedGatewayEntity> unsupportedEntities = new LinkedHashMap<>();
+        private final Set<GatewayEntity> unresolved = new HashSet<>();
+
+        private boolean contains(GatewayEntity entity) {
+            if (entity instanceof Encass) {
+                return encasses.containsKey(entity.getName());
+            }
+            // policies are matched by name or path, same as when they are loaded into an annotated bundle
+            return entity.getName() != null && policyNamesAndPaths.contains(entity.getName());
+        }
+
+        private void addPolicy(Policy policy, boolean isParentShared) {
+            policies.put(policy.getPath(), policy);
+            policyNamesAndPaths.add(policy.getPath());
+            policyNamesAndPaths.add(PathUtils.extractName(policy.getPath()));
+            if (isParentShared) {
+                parentShared.add(policy);
+            }
+        }
+
+        private void addEncass(Encass encass, boolean isParentShared) {
+            encasses.put(encass.getName(), encass);
+            if (isParentShared) {
+                parentShared.add(encass);
+            }
+        }
+
+        private void merge(DependencyClosure other, boolean isParentShared) {
+            other.policies.values().forEach(policy -> {
+                if (!contains(policy)) {
+                    addPolicy(policy, isParentShared || other.parentShared.contains(policy));
+                }
+            });
+            other.encasses.values().forEach(encass -> {
+                if (!contains(encass)) {
+                    addEncass(encass, isParentShared || other.parentShared.contains(encass));
+                }
+            });
+            other.entities.forEach((entityClass, entitiesOfType) ->
+                    entities.computeIfAbsent(entityClass, c -> new LinkedHashMap<>()).putAll(entitiesOfType));
+            unsupportedEntities.putAll(other.unsupportedEntities);
+            unresolved.addAll(other.unresolved);
+        }
+
+        /**
+         * Loads the entities of this closure that are not yet present in the annotated bundle, along with the folders
+         * of the loaded policies.
+         */
+        @SuppressWarnings("unchecked")
+        private void loadInto(BundleEntityIndex annotatedBundleIndex, boolean copyEntities) {
+            final Bundle annotatedBundle = annotatedBundleIndex.getBundle();
+            policies.values().forEach(policy -> {
+                if (annotatedBundleIndex.findPolicyByNameOrPath(policy.getName()) == null) {
+                    Policy policyToLoad = policy;
+                    if (copyEntities) {
+                        policyToLoad = new Policy(policy);
+                        policyToLoad.setParentEntityShared(parentShared.contains(policy));
+                    }
+                    loadFolders(annotatedBundle, policyToLoad);
+                    annotatedBundleIndex.putPolicy(policyToLoad);
+                }
+            });
+            encasses.values().forEach(encass -> {
+                if (!annotatedBundle.getEncasses().containsKey(encass.getName())) {
+                    Encass encassToLoad = encass;
+                    if (copyEntities) {
+                        encassToLoad = new Encass(encass);
+                        encassToLoad.setParentEntityShared(parentShared.contains(encass));
+                    }
+                    annotatedBundle.getEncasses().put(encass.getName(), encassToLoad);
+                }
+            });
+            entities.forEach((entityClass, entitiesOfType) -> {
+                Map entityMap = annotatedBundle.getEntities(entityClass);
+                entityMap.putAll(entitiesOfType);
+            });
+            annotatedBundle.getUnsupportedEntities().putAll(unsupportedEntities);
+        }
+
+        private static void loadFolders(Bundle annotatedBundle, Policy policy) {
+            Folder folder = policy.getParentFolder();
+            Map<String, Folder> folderMap = annotatedBundle.getEntities(Folder.class);
+            while (folder != null) {
+                folderMap.putIfAbsent(folder.getPath(), folder);
+                folder = folder.getParentFolder();
+            }
+        }
+    }
+}
@@ -20,6 +20,8 @@ import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMap.Builder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.jetbrains.annotations.NotNull;
@@ -42,9 +44,11 @@ import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BundleElementName
 import static com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements.*;
 import static com.ca.apim.gateway.cagatewayconfig.util.properties.PropertyConstants.*;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 import static org.apache.commons.collections4.IterableUtils.first;
+import static org.apache.commons.lang3.StringUtils.defaultString;
 import static org.apache.commons.lang3.StringUtils.isNotEmpty;
 
 @Singleton
@@ -95,8 +99,10 @@ public class PolicyEntityBuilder implements EntityBuilder {
                         }
                     }
                 } else {
-                    policyEntity.setId(idGenerator.generate());
-                    policyEntity.setGuid(idGenerator.generateGuid());
+                    // not shared policies are copied into every annotated bundle, each copy with its own ids
+                    final String idName = annotatedBundle.getBundleName() + "/" + policyEntity.getPath();
+                    policyEntity.setId(idGenerator.generate(annotatedBundle.getProjectInfo(), EntityTypes.POLICY_TYPE, idName));
+                    policyEntity.setGuid(idGenerator.generateGuid(annotatedBundle.getProjectInfo(), EntityTypes.POLICY_TYPE, idName));
                 }
             }
         });
@@ -140,6 +146,13 @@ public class PolicyEntityBuilder implements EntityBuilder {
     }
 
     private void preparePolicy(Policy policy, Bundle bundle, AnnotatedBundle annotatedBundle) {
+        // the policies of annotated bundles are named after the bundle, only those of the full bundle are cached
+        final BundleArtifactsCache policyCache = annotatedBundle == null ? bundle.getPolicyCache() : null;
+        final String fingerprint = policyCache != null ? getFingerprint(policy) : null;
+        if (policyCache != null && restorePolicy(policy, bundle, policyCache.restorePolicy(policy.getPath(), fingerprint))) {
+            return;
+        }
+
         Document policyDocument = loadPolicyDocument(policy);
         String policyName = policy.getName();
         AnnotatedEntity annotatedEntity = annotatedBundle != null ? annotatedBundle.getAnnotatedEntity() : null;
@@ -150,13 +163,58 @@ public class PolicyEntityBuilder implements EntityBuilder {
         PolicyBuilderContext policyBuilderContext = new PolicyBuilderContext(policyName, policyDocument, bundle, idGenerator);
         policyBuilderContext.withPolicy(policy).withAnnotatedBundle(annotatedBundle);
         policyXMLBuilder.buildPolicyXML(policyBuilderContext);
+        LOGGER.log(Level.FINE, "Visited {0} nodes building policy {1}",
+                new Object[]{policyBuilderContext.getVisitedNodeCount(), policy.getPath()});
         policy.setPolicyDocument(policyDocument.getDocumentElement());
+        if (policyCache != null && !policyBuilderContext.isDependentBundleAdded()) {
+            final List<String> includedPolicies = policy.getDependencies().stream().map(Policy::getPath).sorted().collect(toList());
+            policyCache.storePolicy(policy.getPath(), fingerprint,
+                    new BuiltPolicy(documentTools.elementToString(policyDocument.getDocumentElement()), includedPolicies));
+        }
+    }
+
+    /**
+     * Restores the policy xml built by a previous build and the policies it includes, which order the policies of the
+     * bundle.
+     *
+     * @return false if there is no built policy to restore
+     */
+    private static boolean restorePolicy(Policy policy, Bundle bundle, BuiltPolicy builtPolicy) {
+        if (builtPolicy == null) {
+            return false;
+        }
+        final List<Policy> includedPolicies = new ArrayList<>();
+        for (String includedPolicyPath : builtPolicy.getIncludedPolicies()) {
+            final Policy includedPolicy = bundle.getPolicies().get(includedPolicyPath);
+            if (includedPolicy == null) {
+                return false;
+            }
+            includedPolicies.add(includedPolicy);
+        }
+        policy.getDependencies().addAll(includedPolicies);
+        policy.setPolicyDocumentXML(builtPolicy.getPolicyXML());
+        LOGGER.log(Level.FINE, "Policy {0} is up to date, reusing the policy xml of the previous build", policy.getPath());
+        return true;
+    }
+
+    /**
+     * Computes the fingerprint of the inputs of the policy xml that are specific to the policy, the cache combines it
+     * with the inputs shared by the whole bundle.
+     */
+    private static String getFingerprint(Policy policy) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        for (String value : Arrays.asList(policy.getPath(), policy.getName(), policy.getId(), policy.getGuid(), policy.getPolicyXML())) {
+            // the length keeps consecutive values from being read differently
+            final String string = defaultString(value);
+            hasher.putInt(string.length()).putString(string, UTF_8);
+        }
+        return hasher.hash().toString();
     }
 
     private Document loadPolicyDocument(Policy policy) {
         Document policyDocument;
         try {
-            policyDocument = stringToXMLDocument(documentTools, policy.getPolicyXML());
+            policyDocument = policy.loadPolicyXMLDocument(documentTools);
         } catch (DocumentParseException e) {
             throw new EntityBuilderException("Could not load policy: " + e.getMessage(), e);
         }
@@ -236,7 +294,7 @@ public class PolicyEntityBuilder implements EntityBuilder {
         Element resourcesElement = document.createElement(RESOURCES);
         Element resourceSetElement = createElementWithAttribute(document, RESOURCE_SET, PROPERTY_TAG, POLICY);
         Element resourceElement = createElementWithAttribute(document, RESOURCE, TYPE, POLICY);
-        resourceElement.setTextContent(documentTools.elementToString(policy.getPolicyDocument()));
+        resourceElement.setTextContent(policy.getPolicyDocumentXML(documentTools));
 
         resourceSetElement.appendChild(resourceElement);
         resourcesElement.appendChild(resourceSetElement);
@@ -3,10 +3,8 @@ package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadException;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -29,24 +27,52 @@ public class PolicyXMLBuilder {
         buildersByTag = unmodifiableMap(buildersByTag);
     }
 
+    /**
+     * Walks the policy document once, in document order, and hands each assertion element to the builder registered
+     * for its tag. The number of nodes visited is recorded in the context.
+     *
+     * @param policyBuilderContext Policy builder context
+     */
     public void buildPolicyXML(PolicyBuilderContext policyBuilderContext) {
-        buildersByTag.forEach((tag, builder) -> findAndBuildAssertion(tag, builder, policyBuilderContext));
+        final Element policyElement = policyBuilderContext.getPolicyDocument().getDocumentElement();
+        int visitedNodes = 0;
+        Node node = policyElement;
+        while (node != null) {
+            visitedNodes++;
+            if (node instanceof Element) {
+                final PolicyAssertionBuilder policyAssertionBuilder = buildersByTag.get(node.getNodeName());
+                if (policyAssertionBuilder != null) {
+                    // builders only change the children of the assertion element, which are walked afterwards
+                    buildAssertion((Element) node, policyAssertionBuilder, policyBuilderContext);
+                }
+            }
+            node = nextNode(node, policyElement);
+        }
+        policyBuilderContext.setVisitedNodeCount(visitedNodes);
     }
 
-    private static void findAndBuildAssertion(String assertionTag, PolicyAssertionBuilder policyAssertionBuilder, PolicyBuilderContext policyBuilderContext) {
-        final Document policyDocument = policyBuilderContext.getPolicyDocument();
-        Element policyElement = policyDocument.getDocumentElement();
-        NodeList includeReferences = policyElement.getElementsByTagName(assertionTag);
-        for (int i = 0; i < includeReferences.getLength(); i++) {
-            Node includeElement = includeReferences.item(i);
-            if (!(includeElement instanceof Element)) {
-                throw new EntityBuilderException("Unexpected Assertion node type: " + includeElement.getNodeType());
-            }
-            try {
-                policyAssertionBuilder.buildAssertionElement((Element) includeElement, policyBuilderContext);
-            } catch (DocumentParseException e) {
-                throw new EntityBuilderException(e.getMessage(), e);
+    /**
+     * Returns the node following the given one in document order, without leaving the subtree of the root element.
+     */
+    private static Node nextNode(Node node, Element root) {
+        if (node.getFirstChild() != null) {
+            return node.getFirstChild();
+        }
+        Node current = node;
+        while (current != root) {
+            if (current.getNextSibling() != null) {
+                return current.getNextSibling();
             }
+            current = current.getParentNode();
+        }
+        return null;
+    }
+
+    private static void buildAssertion(Element assertionElement, PolicyAssertionBuilder policyAssertionBuilder, PolicyBuilderContext policyBuilderContext) {
+        try {
+            policyAssertionBuilder.buildAssertionElement(assertionElement, policyBuilderContext);
+        } catch (DocumentParseException e) {
+            throw new EntityBuilderException(e.getMessage(), e);
         }
     }
 
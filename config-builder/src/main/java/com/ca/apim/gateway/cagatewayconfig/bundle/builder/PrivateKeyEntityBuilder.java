@@ -77,11 +77,34 @@ public class PrivateKeyEntityBuilder implements EntityBuilder {
         }
     }
 
-    private Entity buildPrivateKeyEntity(Bundle bundle, String alias, PrivateKey privateKey, Document document) {
-        privateKey.setId(generatePrivateKeyId(privateKey));
-        if (privateKey.getPrivateKeyFile() == null) {
+    @Override
+    public void prepareSharedEntities(Bundle bundle, BundleType bundleType) {
+        if (bundleType == BundleType.ENVIRONMENT) {
+            bundle.getPrivateKeys().forEach((alias, privateKey) -> preparePrivateKey(bundle, alias, privateKey));
+        }
+    }
+
+    /**
+     * Sets the id and the key file of the private key. Private keys are shared by the annotated bundles, so each value is
+     * only set when it's not set yet by {@link #prepareSharedEntities(Bundle, BundleType)}.
+     */
+    private void preparePrivateKey(Bundle bundle, String alias, PrivateKey privateKey) {
+        final String id = generatePrivateKeyId(privateKey);
+        if (!id.equals(privateKey.getId())) {
+            privateKey.setId(id);
+        }
+        if (privateKey.getPrivateKeyFile() == null && bundle.getPrivateKeyFiles().get(alias) != null) {
             privateKey.setPrivateKeyFile(bundle.getPrivateKeyFiles().get(alias));
         }
+        if (privateKey.getPrivateKeyFile() != null && StringUtils.isBlank(privateKey.getKeyPassword())
+                && !"".equals(privateKey.getKeyPassword())) {
+            LOGGER.log(Level.WARNING, "PrivateKey password not provided, attempting with blank password.");
+            privateKey.setKeyPassword("");
+        }
+    }
+
+    private Entity buildPrivateKeyEntity(Bundle bundle, String alias, PrivateKey privateKey, Document document) {
+        preparePrivateKey(bundle, alias, privateKey);
         final Element privateKeyElem = createElementWithAttributes(
                 document,
                 PRIVATE_KEY,
@@ -101,10 +124,6 @@ public class PrivateKeyEntityBuilder implements EntityBuilder {
 
     private void buildAndAppendCertificateChainElement(PrivateKey privateKey, Element privateKeyElem, Document document) {
         if (privateKey.getPrivateKeyFile() != null) {
-            if (StringUtils.isBlank(privateKey.getKeyPassword())) {
-                LOGGER.log(Level.WARNING, "PrivateKey password not provided, attempting with blank password.");
-                privateKey.setKeyPassword("");
-            }
             final KeyStore keyStore = keystoreHelper.loadKeyStore(privateKey);
             final Certificate[] certificates = keystoreHelper.loadCertificatesForPrivateKey(privateKey, keyStore);
             final Element[] certificatesElements = Stream.of(certificates)
@@ -1,6 +1,7 @@
 package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.PrivateKey;
+import com.ca.apim.gateway.cagatewayconfig.util.file.SupplierWithIO;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
 import org.w3c.dom.Document;
@@ -8,6 +9,7 @@ import org.w3c.dom.Element;
 
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.io.InputStream;
 
 import static com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleDocumentBuilder.GATEWAY_MANAGEMENT;
 import static com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleDocumentBuilder.L7;
@@ -19,10 +21,14 @@ import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.createE
 public class PrivateKeyImportContextBuilder {
 
     public Element build(PrivateKey privateKey, Document document) {
-        if (privateKey != null && privateKey.getPrivateKeyFile() != null) {
+        return build(privateKey, privateKey != null ? privateKey.getPrivateKeyFile() : null, document);
+    }
+
+    public Element build(PrivateKey privateKey, SupplierWithIO<InputStream> privateKeyFile, Document document) {
+        if (privateKey != null && privateKeyFile != null) {
             try {
                 String pkcs12Data =
-                        Base64.encodeBase64String(IOUtils.toByteArray(privateKey.getPrivateKeyFile().getWithIO()));
+                        Base64.encodeBase64String(IOUtils.toByteArray(privateKeyFile.getWithIO()));
                 Element privateKeyImportContext = createElementWithChildren(
                         document,
                         PRIVATE_KEY_IMPORT_CONTEXT,
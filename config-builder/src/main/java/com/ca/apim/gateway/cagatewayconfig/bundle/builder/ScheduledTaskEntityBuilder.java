@@ -67,7 +67,7 @@ public class ScheduledTaskEntityBuilder implements EntityBuilder {
         if (policy == null) {
             throw new EntityBuilderException("Could not find policy for encass. Policy Path: " + scheduledTask.getPolicy());
         }
-        final String id = idGenerator.generate();
+        final String id = idGenerator.generate(bundle.getProjectInfo(), SCHEDULED_TASK_TYPE, name);
         Element schedTaskElement = createElementWithAttributesAndChildren(
                 document,
                 SCHEDULED_TASK,
@@ -106,7 +106,7 @@ public class ServiceEntityBuilder implements EntityBuilder {
         }
 
         if (service.getId() == null) {
-            service.setId(idGenerator.generate());
+            service.setId(idGenerator.generate(bundle.getProjectInfo(), SERVICE_TYPE, service.getName()));
         }
         String id = service.getId();
 
@@ -145,7 +145,7 @@ public class ServiceEntityBuilder implements EntityBuilder {
         Element resourcesElement = document.createElement(RESOURCES);
         Element policyResourceSetElement = createElementWithAttribute(document, RESOURCE_SET, ATTRIBUTE_TAG, TAG_VALUE_POLICY);
         Element policyResourceElement = createElementWithAttribute(document, RESOURCE, ATTRIBUTE_TYPE, TAG_VALUE_POLICY);
-        policyResourceElement.setTextContent(documentTools.elementToString(policy.getPolicyDocument()));
+        policyResourceElement.setTextContent(policy.getPolicyDocumentXML(documentTools));
         policyResourceSetElement.appendChild(policyResourceElement);
         resourcesElement.appendChild(policyResourceSetElement);
 
@@ -9,6 +9,7 @@ import org.w3c.dom.Element;
 
 import javax.inject.Inject;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -48,8 +49,10 @@ public class SsgActiveConnectorEntityBuilder implements EntityBuilder {
 
         switch (bundleType) {
             case DEPLOYMENT:
-                final Stream<Entity> activeConnectorOnlyMappings = entities.entrySet().stream().map(ssgActiveConnectorEntry ->
-                        EntityBuilderHelper.getEntityWithOnlyMapping(EntityTypes.SSG_ACTIVE_CONNECTOR, bundle.applyUniqueName(ssgActiveConnectorEntry.getKey(), BundleType.ENVIRONMENT), generateId(ssgActiveConnectorEntry.getValue())));
+                final Stream<Entity> activeConnectorOnlyMappings = entities.entrySet().stream().map(ssgActiveConnectorEntry -> {
+                    final String name = bundle.applyUniqueName(ssgActiveConnectorEntry.getKey(), BundleType.ENVIRONMENT);
+                    return EntityBuilderHelper.getEntityWithOnlyMapping(EntityTypes.SSG_ACTIVE_CONNECTOR, name, generateId(bundle, name, ssgActiveConnectorEntry.getValue()));
+                });
                 return activeConnectorOnlyMappings.collect(toList());
             case ENVIRONMENT:
                 final Stream<Entity> activeConnectors = entities.entrySet().stream().map(ssgActiveConnectorEntry ->
@@ -64,7 +67,7 @@ public class SsgActiveConnectorEntityBuilder implements EntityBuilder {
     Entity buildActiveConnectorEntity(Bundle bundle, String name, SsgActiveConnector ssgActiveConnector, Document document) {
         Element activeConnectorElement = document.createElement(ACTIVE_CONNECTOR);
 
-        String id = generateId(ssgActiveConnector);
+        String id = generateId(bundle, name, ssgActiveConnector);
         activeConnectorElement.setAttribute(ATTRIBUTE_ID, id);
         activeConnectorElement.appendChild(createElementWithTextContent(document, NAME, name));
         activeConnectorElement.appendChild(createElementWithTextContent(document, ENABLED, TRUE.toString()));
@@ -74,22 +77,24 @@ public class SsgActiveConnectorEntityBuilder implements EntityBuilder {
         if (ssgActiveConnector.getTargetServiceReference() != null) {
             activeConnectorElement.appendChild(createServiceElement(bundle, name, ssgActiveConnector, document));
         }
-        updatePasswordRef(bundle, ssgActiveConnector);
-        updatePrivateKeyRef(bundle, ssgActiveConnector);
-        buildAndAppendPropertiesElement(ssgActiveConnector.getProperties(), document, activeConnectorElement);
+        // the connector is shared by the annotated bundles, so the references are resolved into a copy of its properties
+        final Map<String, Object> properties = new LinkedHashMap<>(ssgActiveConnector.getProperties());
+        updatePasswordRef(bundle, ssgActiveConnector, properties);
+        updatePrivateKeyRef(bundle, ssgActiveConnector, properties);
+        buildAndAppendPropertiesElement(properties, document, activeConnectorElement);
 
         return EntityBuilderHelper.getEntityWithNameMapping(SSG_ACTIVE_CONNECTOR, name, id, activeConnectorElement);
     }
 
-    private String generateId(SsgActiveConnector ssgActiveConnector) {
+    private String generateId(Bundle bundle, String name, SsgActiveConnector ssgActiveConnector) {
         if (ssgActiveConnector != null && ssgActiveConnector.getAnnotatedEntity() != null && ssgActiveConnector.getAnnotatedEntity().getId() != null) {
             return ssgActiveConnector.getAnnotatedEntity().getId();
         }
-        return idGenerator.generate();
+        return idGenerator.generate(bundle.getProjectInfo(), EntityTypes.SSG_ACTIVE_CONNECTOR, name);
     }
 
-    private void updatePasswordRef(Bundle bundle, SsgActiveConnector entity) {
-        entity.getProperties().entrySet().stream().forEach(entry -> {
+    private void updatePasswordRef(Bundle bundle, SsgActiveConnector entity, Map<String, Object> properties) {
+        properties.entrySet().stream().forEach(entry -> {
             if (entry.getKey().endsWith("SecurePasswordOid")) {
                 String value = (String) entry.getValue();
                 if (value == null || value.isEmpty()) {
@@ -104,10 +109,10 @@ public class SsgActiveConnectorEntityBuilder implements EntityBuilder {
         });
     }
 
-    private void updatePrivateKeyRef(Bundle bundle, SsgActiveConnector entity) {
+    private void updatePrivateKeyRef(Bundle bundle, SsgActiveConnector entity, Map<String, Object> properties) {
         final AtomicReference<String> privateKeyRef = new AtomicReference<>();
         final AtomicReference<String> key = new AtomicReference<>();
-        entity.getProperties().entrySet().stream().forEach(entry -> {
+        properties.entrySet().stream().forEach(entry -> {
             if (entry.getKey().endsWith("SslKeystoreAlias")) {
                 String value = (String) entry.getValue();
                 if (value == null || value.isEmpty()) {
@@ -122,7 +127,7 @@ public class SsgActiveConnectorEntityBuilder implements EntityBuilder {
                 key.set(entry.getKey().replace("SslKeystoreAlias", "SslKeystoreId"));
             }
         });
-        entity.getProperties().put(key.get(), privateKeyRef.get());
+        properties.put(key.get(), privateKeyRef.get());
     }
 
     private Element createServiceElement(Bundle bundle, String name, SsgActiveConnector ssgActiveConnector, Document document) {
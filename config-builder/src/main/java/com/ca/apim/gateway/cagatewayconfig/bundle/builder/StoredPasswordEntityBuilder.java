@@ -50,22 +50,28 @@ public class StoredPasswordEntityBuilder implements EntityBuilder {
         }
     }
 
+    @Override
+    public void prepareSharedEntities(Bundle bundle, BundleType bundleType) {
+        if (bundleType == BundleType.ENVIRONMENT) {
+            bundle.getStoredPasswords().forEach((name, storedPassword) -> assignId(bundle, name, storedPassword));
+        }
+    }
+
     private List<Entity> buildEntities(Map<String, ?> entities, Bundle bundle, BundleType bundleType, Document document) {
         switch (bundleType) {
             case DEPLOYMENT:
                 return entities.keySet().stream()
-                        .map(o -> EntityBuilderHelper.getEntityWithOnlyMapping(STORED_PASSWORD_TYPE, o, idGenerator.generate()))
+                        .map(o -> EntityBuilderHelper.getEntityWithOnlyMapping(STORED_PASSWORD_TYPE, o, idGenerator.generate(bundle.getProjectInfo(), STORED_PASSWORD_TYPE, o)))
                         .collect(Collectors.toList());
             case ENVIRONMENT:
-                return entities.entrySet().stream().map(e -> buildStoredPasswordEntity(e.getKey(), (StoredPassword) e.getValue(), document)).collect(toList());
+                return entities.entrySet().stream().map(e -> buildStoredPasswordEntity(bundle, e.getKey(), (StoredPassword) e.getValue(), document)).collect(toList());
             default:
                 throw new EntityBuilderException("Unknown bundle type: " + bundleType);
         }
     }
 
-    private Entity buildStoredPasswordEntity(String name, StoredPassword storedPassword, Document document) {
-        String id = idGenerator.generate();
-        storedPassword.setId(id);
+    private Entity buildStoredPasswordEntity(Bundle bundle, String name, StoredPassword storedPassword, Document document) {
+        String id = assignId(bundle, name, storedPassword);
 
         Element storedPasswordElement = createElementWithAttribute(document, STORED_PASSWD, ATTRIBUTE_ID, id);
         storedPasswordElement.appendChild(createElementWithTextContent(document, NAME, name));
@@ -76,6 +82,18 @@ public class StoredPasswordEntityBuilder implements EntityBuilder {
         return EntityBuilderHelper.getEntityWithNameMapping(STORED_PASSWORD_TYPE, name, id, storedPasswordElement);
     }
 
+    /**
+     * Sets the id of the password for other entities to be able to link to it. Passwords are shared by the annotated
+     * bundles, so the id is only set when it's not set yet by {@link #prepareSharedEntities(Bundle, BundleType)}.
+     */
+    private String assignId(Bundle bundle, String name, StoredPassword storedPassword) {
+        final String id = idGenerator.generate(bundle.getProjectInfo(), STORED_PASSWORD_TYPE, name);
+        if (!id.equals(storedPassword.getId())) {
+            storedPassword.setId(id);
+        }
+        return id;
+    }
+
     @Override
     public @NotNull Integer getOrder() {
         return ORDER;
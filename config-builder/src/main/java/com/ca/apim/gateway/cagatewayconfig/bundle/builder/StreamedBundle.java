@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Entities of a bundle that is written by the {@link BundleDocumentWriter} instead of being built as an element. Only
+ * the entities are kept, each with the element built by its entity builder: the items, mappings and bundle elements
+ * wrapping them are never built.
+ * The mapping actions are captured when the bundle is created, as the entities are shared with the DELETE bundle which
+ * changes them afterwards.
+ */
+public class StreamedBundle {
+
+    private final List<Entity> entities;
+    private final List<String> mappingActions;
+
+    StreamedBundle(List<Entity> entities) {
+        this.entities = unmodifiableList(new ArrayList<>(entities));
+        this.mappingActions = new ArrayList<>(entities.size());
+        entities.forEach(entity -> mappingActions.add(BundleDocumentBuilder.getMappingAction(entity)));
+    }
+
+    public List<Entity> getEntities() {
+        return entities;
+    }
+
+    String getMappingAction(int index) {
+        return mappingActions.get(index);
+    }
+}
@@ -67,25 +67,31 @@ public class TrustedCertEntityBuilder implements EntityBuilder {
         }
     }
 
+    @Override
+    public void prepareSharedEntities(Bundle bundle, BundleType bundleType) {
+        if (bundleType == BundleType.ENVIRONMENT) {
+            bundle.getTrustedCerts().forEach((name, trustedCert) -> assignId(bundle, name, trustedCert));
+        }
+    }
+
     private List<Entity> buildEntities(Map<String, ?> entities, Bundle bundle, BundleType bundleType, Document document) {
         switch (bundleType) {
             case DEPLOYMENT:
                 return entities.entrySet().stream()
                         .map(
-                                trustedCertEntry -> EntityBuilderHelper.getEntityWithOnlyMapping(TRUSTED_CERT_TYPE, trustedCertEntry.getKey(), generateCertificateId((TrustedCert)trustedCertEntry.getValue()))
+                                trustedCertEntry -> EntityBuilderHelper.getEntityWithOnlyMapping(TRUSTED_CERT_TYPE, trustedCertEntry.getKey(), generateCertificateId(bundle, trustedCertEntry.getKey(), (TrustedCert)trustedCertEntry.getValue()))
                         ).collect(Collectors.toList());
             case ENVIRONMENT:
                 return entities.entrySet().stream().map(trustedCertEntry ->
-                        buildTrustedCertEntity(trustedCertEntry.getKey(), (TrustedCert) trustedCertEntry.getValue(), bundle.getCertificateFiles(), document)
+                        buildTrustedCertEntity(bundle, trustedCertEntry.getKey(), (TrustedCert) trustedCertEntry.getValue(), bundle.getCertificateFiles(), document)
                 ).collect(Collectors.toList());
             default:
                 throw new EntityBuilderException("Unknown bundle type: " + bundleType);
         }
     }
 
-    private Entity buildTrustedCertEntity(String name, TrustedCert trustedCert, Map<String, SupplierWithIO<InputStream>> certificateFiles, Document document) {
-        final String id = generateCertificateId(trustedCert);
-        trustedCert.setId(id);
+    private Entity buildTrustedCertEntity(Bundle bundle, String name, TrustedCert trustedCert, Map<String, SupplierWithIO<InputStream>> certificateFiles, Document document) {
+        final String id = assignId(bundle, name, trustedCert);
         final Element trustedCertElem = createElementWithAttributesAndChildren(
                 document,
                 TRUSTED_CERT,
@@ -98,11 +104,23 @@ public class TrustedCertEntityBuilder implements EntityBuilder {
         return EntityBuilderHelper.getEntityWithNameMapping(TRUSTED_CERT_TYPE, name, id, trustedCertElem);
     }
 
-    private String generateCertificateId(TrustedCert trustedCert) {
+    /**
+     * Sets the id of the certificate for other entities to be able to link to it. Certificates are shared by the
+     * annotated bundles, so the id is only set when it's not set yet by {@link #prepareSharedEntities(Bundle, BundleType)}.
+     */
+    private String assignId(Bundle bundle, String name, TrustedCert trustedCert) {
+        final String id = generateCertificateId(bundle, name, trustedCert);
+        if (!id.equals(trustedCert.getId())) {
+            trustedCert.setId(id);
+        }
+        return id;
+    }
+
+    private String generateCertificateId(Bundle bundle, String name, TrustedCert trustedCert) {
         if (trustedCert != null && trustedCert.getAnnotatedEntity() != null && trustedCert.getAnnotatedEntity().getId() != null) {
             return trustedCert.getAnnotatedEntity().getId();
         }
-        return idGenerator.generate();
+        return idGenerator.generate(bundle.getProjectInfo(), TRUSTED_CERT_TYPE, name);
     }
 
     private Element buildCertData(String name, TrustedCert trustedCert, Map<String, SupplierWithIO<InputStream>> certificateFiles, Document document) {
@@ -17,7 +17,6 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadingOperation.VALIDATE;
 import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BuilderUtils.*;
@@ -54,7 +53,7 @@ public class EncassLoader implements BundleEntityLoader {
     }
 
     private String getPath(Bundle bundle, String policyId) {
-        List<Policy> policyList = bundle.getPolicies().values().stream().filter(p -> policyId.equals(p.getId())).collect(Collectors.toList());
+        List<Policy> policyList = bundle.getPoliciesById(policyId);
         if ((policyList.isEmpty() || policyList.size() > 1) && bundle.getLoadingMode() == VALIDATE) {
             return null;
         }
@@ -16,7 +16,6 @@ import org.w3c.dom.Element;
 import javax.inject.Singleton;
 import java.util.Arrays;
 import java.util.Map;
-import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -90,7 +89,7 @@ public class PolicyLoader implements BundleEntityLoader {
         Map<String, Policy> bundlePolicies = bundle.getPolicies();
 
         if (bundle.getLoadingMode() == VALIDATE) {
-            Policy policyWithSameName = bundle.getPolicies().values().stream().filter(p -> Objects.equals(policy.getName(), p.getName())).findAny().orElse(null);
+            Policy policyWithSameName = bundle.getPoliciesByName(policy.getName()).stream().findAny().orElse(null);
             if (policyWithSameName != null) {
                 throw new BundleLoadException("Duplicate policies found with name '" + policyWithSameName.getName() + "': " + Joiner.on(", ").join(Arrays.asList(policyWithSameName.getPath(), policy.getPath())));
             }
@@ -8,7 +8,6 @@ import com.ca.apim.gateway.cagatewayconfig.util.paths.PathUtils;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ServiceAndPolicyLoaderUtil {
 
@@ -33,7 +32,7 @@ public class ServiceAndPolicyLoaderUtil {
      * @return folder object from bundle
      */
     public static Folder getFolder(Bundle bundle, String folderId) {
-        List<Folder> folderList = bundle.getFolders().values().stream().filter(f -> folderId.equals(f.getId())).collect(Collectors.toList());
+        List<Folder> folderList = bundle.getFoldersById(folderId);
         if (folderList.isEmpty()) {
             throw new BundleLoadException("Invalid dependency bundle. Could not find folder with id: " + folderId);
         } else if (folderList.size() > 1) {
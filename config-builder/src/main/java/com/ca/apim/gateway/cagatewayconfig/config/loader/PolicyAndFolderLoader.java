@@ -113,8 +113,8 @@ public class PolicyAndFolderLoader implements EntityLoader {
         policy.setPath(policyConverter.removeExtension(getPath(policyFile, rootDir)));
         policy.setName(policyConverter.removeExtension(policyFile.getName()));
         policy.setParentFolder(parentFolder);
-        policy.setGuid(idGenerator.generateGuid());
-        policy.setId(idGenerator.generate());
+        policy.setGuid(idGenerator.generateGuid(bundle.getProjectInfo(), EntityTypes.POLICY_TYPE, policy.getPath()));
+        policy.setId(idGenerator.generate(bundle.getProjectInfo(), EntityTypes.POLICY_TYPE, policy.getPath()));
 
         policy.setPolicyXML(policyConverter.getPolicyXML(policy, fileUtils.getFileAsString(policyFile)));
         policy.postLoad(policy.getPath(), bundle, rootDir, this.idGenerator);
@@ -7,9 +7,12 @@
 package com.ca.apim.gateway.cagatewayconfig.config.loader.policy;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.Policy;
+import org.apache.commons.io.IOUtils;
 import org.w3c.dom.Element;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 /**
  * Policy converters enable representing policy in multiple formats.
@@ -57,4 +60,19 @@ public interface PolicyConverter {
      * @return The resulting conversion in an inputstream
      */
     InputStream convertFromPolicyElement(Element policy);
+
+    /**
+     * Converts the given policy and writes the conversion result to the output stream, on the calling thread.
+     * The output stream is not closed.
+     *
+     * @param policy       The policy to convert
+     * @param outputStream The stream to write the conversion result to
+     */
+    default void writeFromPolicyElement(Element policy, OutputStream outputStream) {
+        try (InputStream policyStream = convertFromPolicyElement(policy)) {
+            IOUtils.copy(policyStream, outputStream);
+        } catch (IOException e) {
+            throw new PolicyConverterException("Unable to write converted policy.", e);
+        }
+    }
 }
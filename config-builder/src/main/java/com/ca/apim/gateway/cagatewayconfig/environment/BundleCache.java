@@ -11,13 +11,19 @@ import com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils.INSTALL_BUNDLE_EXTENSION;
+import static com.ca.apim.gateway.cagatewayconfig.util.file.FileUtils.collectFiles;
+import static java.util.stream.Collectors.toList;
+
 @Singleton
 public class BundleCache {
     private final Map<String, Bundle> cache = new ConcurrentHashMap<>();
     private final Map<String, BundleDefinedEntities> metaDataCache = new ConcurrentHashMap<>();
+    private final Map<String, DeploymentBundle> deploymentBundleCache = new ConcurrentHashMap<>();
     private final EntityBundleLoader entityBundleLoader;
     private final JsonFileUtils jsonFileUtils = JsonFileUtils.INSTANCE;
 
@@ -39,6 +45,28 @@ public class BundleCache {
         cache.put(bundlePath, bundle);
     }
 
+    /**
+     * Loads all deployment bundles in the folder into a single bundle. The loaded bundle is kept until a deployment
+     * bundle file in the folder is added, removed or modified, and concurrent callers for the same folder wait for a
+     * single load instead of loading the files each.
+     *
+     * @param folderPath the folder containing the deployment bundles
+     * @return the bundle with the entities of all deployment bundles in the folder
+     */
+    public Bundle getDeploymentBundle(String folderPath) {
+        final List<File> deploymentBundleFiles = collectFiles(folderPath, INSTALL_BUNDLE_EXTENSION);
+        final List<String> filesState = deploymentBundleFiles.stream()
+                .sorted()
+                .map(file -> file.getName() + ":" + file.lastModified() + ":" + file.length())
+                .collect(toList());
+        return deploymentBundleCache.compute(folderPath, (path, cached) -> {
+            if (cached != null && cached.filesState.equals(filesState)) {
+                return cached;
+            }
+            return new DeploymentBundle(filesState, entityBundleLoader.load(deploymentBundleFiles, BundleLoadingOperation.EXPORT));
+        }).bundle;
+    }
+
     public Bundle getBundleFromFile(File file) {
         if (!cache.containsKey(file.getPath())) {
             cache.put(file.getPath(), entityBundleLoader.load(file, BundleLoadingOperation.EXPORT));
@@ -55,4 +83,14 @@ public class BundleCache {
         }
         return cache.get(file.getPath());
     }
-}
\ No newline at end of file
+
+    private static class DeploymentBundle {
+        private final List<String> filesState;
+        private final Bundle bundle;
+
+        private DeploymentBundle(List<String> filesState, Bundle bundle) {
+            this.filesState = filesState;
+            this.bundle = bundle;
+        }
+    }
+}
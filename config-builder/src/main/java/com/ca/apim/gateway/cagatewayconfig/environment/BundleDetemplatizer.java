@@ -7,23 +7,32 @@
 package com.ca.apim.gateway.cagatewayconfig.environment;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
+import com.ca.apim.gateway.cagatewayconfig.beans.EnvironmentProperty;
 import com.ca.apim.gateway.cagatewayconfig.util.environment.EnvironmentConfigurationUtils;
+import org.apache.commons.io.output.StringBuilderWriter;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.function.BinaryOperator;
-import java.util.function.UnaryOperator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import static com.ca.apim.gateway.cagatewayconfig.beans.IdentityProvider.INTERNAL_IDP_ID;
-import static com.ca.apim.gateway.cagatewayconfig.beans.IdentityProvider.INTERNAL_IDP_NAME;
-import static com.ca.apim.gateway.cagatewayconfig.util.policy.PolicyXMLElements.*;
-import static java.util.stream.Collectors.toMap;
-
 class BundleDetemplatizer {
 
+    // a placeholder is its prefix, followed by the name of the environment property and ended by its terminator
+    static final String CONTEXT_VARIABLE_PLACEHOLDER_PREFIX = "L7p:Base64Expression ENV_PARAM_NAME=\"ENV.";
+    static final char CONTEXT_VARIABLE_PLACEHOLDER_TERMINATOR = '"';
+    static final String SERVICE_PROPERTY_PLACEHOLDER_PREFIX = "l7:StringValue>SERVICE_PROPERTY_ENV.";
+    static final char SERVICE_PROPERTY_PLACEHOLDER_TERMINATOR = '<';
+
+    // group 1 is the name of a context variable environment property, group 2 the name of a service environment property
+    private static final Pattern ENVIRONMENT_VARIABLE_PATTERN = Pattern.compile(
+            Pattern.quote(CONTEXT_VARIABLE_PLACEHOLDER_PREFIX) + "(.+?)" + CONTEXT_VARIABLE_PLACEHOLDER_TERMINATOR +
+                    "|" + Pattern.quote(SERVICE_PROPERTY_PLACEHOLDER_PREFIX) + "(.+?)" + SERVICE_PROPERTY_PLACEHOLDER_TERMINATOR);
+
     private final Bundle bundle;
 
     BundleDetemplatizer(Bundle bundle) {
@@ -31,43 +40,98 @@ class BundleDetemplatizer {
     }
 
     CharSequence detemplatizeBundleString(CharSequence bundleString) {
+        final StringBuilderWriter writer = new StringBuilderWriter(bundleString.length());
+        try {
+            detemplatizeBundleString(bundleString, writer);
+        } catch (IOException e) {
+            throw new BundleDetemplatizeException("Could not detemplatize bundle", e);
+        }
+        return writer.getBuilder();
+    }
+
+    /**
+     * Replaces the environment placeholders of the bundle and writes the result to the writer, in a single pass over
+     * the bundle string.
+     *
+     * @param bundleString the templatized bundle
+     * @param writer       the writer to write the detemplatized bundle to
+     * @throws IOException if the writer fails
+     */
+    void detemplatizeBundleString(CharSequence bundleString, Writer writer) throws IOException {
         //prefer to use string replacement instead of loading and parsing the bundle. This should perform faster and we are only replacing a limited amount of the bundle so it should be OK to do so.
-        Map<String, String> contextVariableEnvironmentVariables = bundle.getContextVariableEnvironmentProperties().entrySet().stream().collect(toMap(Entry::getKey, e -> e.getValue().getValue()));
-        Map<String, String> serviceEnvironmentVariables = bundle.getServiceEnvironmentProperties().entrySet().stream().collect(toMap(Entry::getKey, e -> e.getValue().getValue()));
+        final Matcher matcher = ENVIRONMENT_VARIABLE_PATTERN.matcher(bundleString);
+        int position = 0;
+        while (matcher.find()) {
+            writer.append(bundleString, position, matcher.start());
+            if (matcher.start(1) != -1) {
+                //Replaces variables in set context variable assertions
+                writeContextVariableValue(matcher.group(1), writer);
+            } else {
+                //Replaces service property variables
+                writeServicePropertyValue(matcher.group(2), writer);
+            }
+            position = matcher.end();
+        }
+        writer.append(bundleString, position, bundleString.length());
+    }
 
-        //Replaces variables in set context variable assertions
-        bundleString = replaceVariableInBundle(bundleString, contextVariableEnvironmentVariables,
-                "L7p:Base64Expression ENV_PARAM_NAME=\\\"ENV\\.(.+?)\\\"",
-                v -> "L7p:Base64Expression stringValue=\"" + Base64.getEncoder().encodeToString(v.getBytes()) + "\"");
+    /**
+     * Replaces the environment placeholders found in the bundle when its plan was created and writes the result to the
+     * writer, without searching the bundle string for them.
+     *
+     * @param bundleString the templatized bundle the plan was created for
+     * @param plan         the environment plan of the bundle
+     * @param writer       the writer to write the detemplatized bundle to
+     * @throws IOException if the writer fails
+     */
+    void detemplatizeBundleString(CharSequence bundleString, EnvironmentPlan plan, Writer writer) throws IOException {
+        int position = 0;
+        for (EnvironmentPlan.Placeholder placeholder : plan.getPlaceholders()) {
+            writer.append(bundleString, position, placeholder.getStart());
+            if (placeholder.getType() == EnvironmentPlan.PlaceholderType.CONTEXT_VARIABLE) {
+                writeContextVariableValue(placeholder.getName(), writer);
+            } else {
+                writeServicePropertyValue(placeholder.getName(), writer);
+            }
+            position = placeholder.getEnd();
+        }
+        writer.append(bundleString, position, bundleString.length());
+    }
 
-        //Replaces service property variables
-        bundleString = replaceVariableInBundle(bundleString, serviceEnvironmentVariables,
-                "l7:StringValue>SERVICE_PROPERTY_ENV\\.(.+?)<",
-                v -> "l7:StringValue>" + v + "<").toString();
-        return bundleString;
+    /**
+     * Finds the environment placeholders of the bundle, in the order they appear in it.
+     *
+     * @param bundleString the templatized bundle
+     * @return the placeholders of the bundle
+     */
+    static List<EnvironmentPlan.Placeholder> findPlaceholders(CharSequence bundleString) {
+        final List<EnvironmentPlan.Placeholder> placeholders = new ArrayList<>();
+        final Matcher matcher = ENVIRONMENT_VARIABLE_PATTERN.matcher(bundleString);
+        while (matcher.find()) {
+            if (matcher.start(1) != -1) {
+                placeholders.add(new EnvironmentPlan.Placeholder(matcher.start(), matcher.end(), EnvironmentPlan.PlaceholderType.CONTEXT_VARIABLE, matcher.group(1)));
+            } else {
+                placeholders.add(new EnvironmentPlan.Placeholder(matcher.start(), matcher.end(), EnvironmentPlan.PlaceholderType.SERVICE_PROPERTY, matcher.group(2)));
+            }
+        }
+        return placeholders;
     }
 
-    private StringBuffer replaceVariableInBundle(CharSequence bundle, Map<String, String> mapToCheck, String variableFinderRegex, UnaryOperator<String> replacementFunction) {
-        return this.replaceVariableInBundle(bundle, mapToCheck, variableFinderRegex, (varName, value) -> replacementFunction.apply(value));
+    private void writeContextVariableValue(String varName, Writer writer) throws IOException {
+        final String value = getEnvironmentValue(bundle.getContextVariableEnvironmentProperties(), varName);
+        writer.append("L7p:Base64Expression stringValue=\"").append(Base64.getEncoder().encodeToString(value.getBytes())).append('"');
     }
 
-    private StringBuffer replaceVariableInBundle(CharSequence bundle, Map<String, String> mapToCheck, String variableFinderRegex, BinaryOperator<String> replacementFunction) {
-        Pattern setVariablePattern;
-        Matcher setVariableMatcher;
-        setVariablePattern = Pattern.compile(variableFinderRegex);
-        setVariableMatcher = setVariablePattern.matcher(bundle);
+    private void writeServicePropertyValue(String varName, Writer writer) throws IOException {
+        final String value = getEnvironmentValue(bundle.getServiceEnvironmentProperties(), varName);
+        writer.append("l7:StringValue>").append(value).append('<');
+    }
 
-        StringBuffer replacedBundle = new StringBuffer();
-        while (setVariableMatcher.find()) {
-            String varName = setVariableMatcher.group(1);
-            String value = mapToCheck.get(EnvironmentConfigurationUtils.extractEntityName(varName));
-            if (value == null) {
-                throw new BundleDetemplatizeException("Missing environment value for property: " + varName);
-            }
-            setVariableMatcher.appendReplacement(replacedBundle, replacementFunction.apply(varName, value));
+    private static String getEnvironmentValue(Map<String, ? extends EnvironmentProperty> environmentProperties, String varName) {
+        final EnvironmentProperty property = environmentProperties.get(EnvironmentConfigurationUtils.extractEntityName(varName));
+        if (property == null || property.getValue() == null) {
+            throw new BundleDetemplatizeException("Missing environment value for property: " + varName);
         }
-        setVariableMatcher.appendTail(replacedBundle);
-        return replacedBundle;
+        return property.getValue();
     }
-
 }
@@ -8,6 +8,7 @@ package com.ca.apim.gateway.cagatewayconfig.environment;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.beans.UnsupportedGatewayEntity;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.Entity;
 import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
 import com.ca.apim.gateway.cagatewayconfig.util.environment.EnvironmentConfigurationUtils;
 import com.ca.apim.gateway.cagatewayconfig.util.gateway.MappingProperties;
@@ -17,6 +18,8 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -42,6 +45,28 @@ class BundleEnvironmentValidator {
      * @param mode The generation mode, where its coming from.
      */
     void validateEnvironmentProvided(String bundleName, String deploymentBundle, EnvironmentBundleCreationMode mode) {
+        forEachRequiredEnvironment(documentTools, bundleName, deploymentBundle, (type, mapToName) -> validateRequiredEnvironment(mode, type, mapToName));
+    }
+
+    /**
+     * Validate that all environment required by the plan of a deployment bundle is available in the environment bundle
+     *
+     * @param plan The environment plan of the deployment bundle
+     * @param mode The generation mode, where its coming from.
+     */
+    void validateEnvironmentProvided(EnvironmentPlan plan, EnvironmentBundleCreationMode mode) {
+        plan.getRequiredEnvironment().forEach(required -> validateRequiredEnvironment(mode, required.getType(), required.getName()));
+    }
+
+    /**
+     * Finds the environment required by the deployment bundle, in the order of its mappings.
+     *
+     * @param documentTools       document tools to parse the bundle with
+     * @param bundleName          The name of the bundle to look for environment requirements in
+     * @param deploymentBundle    The deployment bundle to look for enviornment requirements in
+     * @param requiredEnvironment receives the type and the mapped name of each required environment entity
+     */
+    static void forEachRequiredEnvironment(DocumentTools documentTools, String bundleName, String deploymentBundle, BiConsumer<String, String> requiredEnvironment) {
         Document deploymentBundleDocument;
         try {
             deploymentBundleDocument = documentTools.parse(deploymentBundle);
@@ -49,17 +74,52 @@ class BundleEnvironmentValidator {
             throw new DeploymentBundleException("Unable to parse deployment bundle: " + bundleName);
         }
 
-        Element mappingElement = getSingleChildElement(deploymentBundleDocument.getDocumentElement(), MAPPINGS);
+        forEachRequiredEnvironment(documentTools, deploymentBundleDocument.getDocumentElement(), requiredEnvironment);
+    }
+
+    /**
+     * Finds the environment required by the deployment bundle element, in the order of its mappings.
+     *
+     * @param documentTools       document tools to print invalid mappings with
+     * @param bundleElement       The deployment bundle element to look for environment requirements in
+     * @param requiredEnvironment receives the type and the mapped name of each required environment entity
+     */
+    static void forEachRequiredEnvironment(DocumentTools documentTools, Element bundleElement, BiConsumer<String, String> requiredEnvironment) {
+        Element mappingElement = getSingleChildElement(bundleElement, MAPPINGS);
         List<Element> mappingElements = getChildElements(mappingElement, MAPPING);
         mappingElements.forEach(mapping -> {
             Element propertiesElement = getSingleChildElement(mapping, PROPERTIES, true);
             if (propertiesElement != null) {
-                validateElement(mode, mapping, propertiesElement);
+                findRequiredEnvironment(documentTools, mapping, propertiesElement, requiredEnvironment);
             }
         });
     }
 
-    private void validateElement(EnvironmentBundleCreationMode mode, Element mapping, Element propertiesElement) {
+    /**
+     * Finds the environment required by the entities of a deployment bundle, in the order of their mappings. The
+     * mapping properties of the entities are checked the same way as the properties of the mappings written from them.
+     *
+     * @param entities            The entities of the deployment bundle
+     * @param requiredEnvironment receives the type and the mapped name of each required environment entity
+     */
+    static void forEachRequiredEnvironment(List<Entity> entities, BiConsumer<String, String> requiredEnvironment) {
+        entities.forEach(entity -> {
+            Map<String, Object> mappingProperties = entity.getMappingProperties();
+            if (Boolean.TRUE.equals(mappingProperties.get(FAIL_ON_NEW))) {
+                if (!MappingProperties.NAME.equals(mappingProperties.get(MAP_BY))) {
+                    throw new DeploymentBundleException("Expected mapping to be map by name: " + entity.getType() + " " + entity.getId());
+                }
+                Object mapToName = mappingProperties.get(MAP_TO);
+                if (!(mapToName instanceof String)) {
+                    throw new DeploymentBundleException("Expected mapping to be mapped to a name: " + entity.getType() + " " + entity.getId());
+                }
+
+                requiredEnvironment.accept(entity.getType(), (String) mapToName);
+            }
+        });
+    }
+
+    private static void findRequiredEnvironment(DocumentTools documentTools, Element mapping, Element propertiesElement, BiConsumer<String, String> requiredEnvironment) {
         List<Element> propertyElements = getChildElements(propertiesElement, PROPERTY);
         if (propertyElements.stream().anyMatch(p -> FAIL_ON_NEW.equals(p.getAttribute(ATTRIBUTE_KEY)) && Boolean.valueOf(getSingleChildElementTextContent(p, BOOLEAN_VALUE)))) {
             boolean mapByName = propertyElements.stream().anyMatch(p -> MAP_BY.equals(p.getAttribute(ATTRIBUTE_KEY)) && MappingProperties.NAME.equals(getSingleChildElementTextContent(p, STRING_VALUE)));
@@ -69,11 +129,14 @@ class BundleEnvironmentValidator {
             List<Element> mapToProperties = propertyElements.stream().filter(p -> MAP_TO.equals(p.getAttribute(ATTRIBUTE_KEY))).collect(Collectors.toList());
             String mapToName = getSingleChildElementTextContent(mapToProperties.get(0), STRING_VALUE);
 
-            String type = mapping.getAttribute(ATTRIBUTE_TYPE);
-            if (mode.isRequired(type)) {
-                final String entityName = EnvironmentConfigurationUtils.extractEntityName(mapToName);
-                findInBundle(environmentBundle, type, entityName);
-            }
+            requiredEnvironment.accept(mapping.getAttribute(ATTRIBUTE_TYPE), mapToName);
+        }
+    }
+
+    private void validateRequiredEnvironment(EnvironmentBundleCreationMode mode, String type, String mapToName) {
+        if (mode.isRequired(type)) {
+            final String entityName = EnvironmentConfigurationUtils.extractEntityName(mapToName);
+            findInBundle(environmentBundle, type, entityName);
         }
     }
 
@@ -8,19 +8,14 @@ package com.ca.apim.gateway.cagatewayconfig.environment;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadException;
-import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadingOperation;
-import com.ca.apim.gateway.cagatewayconfig.bundle.loader.EntityBundleLoader;
 import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import org.w3c.dom.Element;
 
-import java.io.File;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils.INSTALL_BUNDLE_EXTENSION;
-import static com.ca.apim.gateway.cagatewayconfig.util.file.FileUtils.collectFiles;
 import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BundleElementNames.*;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElementTextContent;
 
@@ -44,16 +39,7 @@ public class EnvironmentBundleUtils {
             throw new BundleLoadException("Invalid deployment bundle path : " + templatizedBundlesFolderPath);
         }
 
-        BundleCache cache = InjectionRegistry.getInjector().getInstance(BundleCache.class);
-
-        if (cache.contains(templatizedBundlesFolderPath)) {
-            return cache.getBundle(templatizedBundlesFolderPath);
-        } else {
-            EntityBundleLoader loader = InjectionRegistry.getInjector().getInstance(EntityBundleLoader.class);
-            List<File> deploymentBundleFiles = collectFiles(templatizedBundlesFolderPath, INSTALL_BUNDLE_EXTENSION);
-            cache.putBundle(templatizedBundlesFolderPath, loader.load(deploymentBundleFiles, BundleLoadingOperation.EXPORT));
-            return loader.load(deploymentBundleFiles, BundleLoadingOperation.EXPORT);
-        }
+        return InjectionRegistry.getInjector().getInstance(BundleCache.class).getDeploymentBundle(templatizedBundlesFolderPath);
     }
 
     static void processDeploymentBundles(Bundle environmentBundle,
@@ -76,12 +62,22 @@ public class EnvironmentBundleUtils {
         logger.log(Level.FINE, () -> "Processing deployment bundle: " + templatizedBundle.getName());
         String bundleString = templatizedBundle.getContents();
 
+        // use the plan written by the build if it was made for this bundle, it saves parsing and searching the bundle
+        EnvironmentPlan plan = templatizedBundle.getEnvironmentPlan();
+        if (plan != null && plan.matches(bundleString)) {
+            logger.log(Level.FINE, () -> "Using environment plan of deployment bundle: " + templatizedBundle.getName());
+            bundleEnvironmentValidator.validateEnvironmentProvided(plan, mode);
+            templatizedBundle.writeContents(writer -> bundleDetemplatizer.detemplatizeBundleString(bundleString, plan, writer));
+            return;
+        } else if (plan != null) {
+            logger.log(Level.WARNING, "Environment plan of deployment bundle {0} does not match the bundle, ignoring it", templatizedBundle.getName());
+        }
+
         // check deployment bundles to validated that all required environment is provided.
         bundleEnvironmentValidator.validateEnvironmentProvided(templatizedBundle.getName(), bundleString, mode);
 
         // detempatize bundle
-        CharSequence detemplatizedBundle = bundleDetemplatizer.detemplatizeBundleString(bundleString);
-        templatizedBundle.writeContents(detemplatizedBundle.toString());
+        templatizedBundle.writeContents(writer -> bundleDetemplatizer.detemplatizeBundleString(bundleString, writer));
     }
 
     @VisibleForTesting
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.environment;
+
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
+/**
+ * Precompiled plan of how to apply the environment to a templatized bundle, written by the build next to each install
+ * bundle when environment plans are enabled. It contains the position of every environment placeholder of the bundle and the environment entities the
+ * bundle requires, so that the environment can be applied without parsing the bundle again.
+ * The plan is only used if the SHA-256 hash of the bundle is still the one it was created for.
+ */
+public class EnvironmentPlan {
+
+    private static final Logger LOGGER = Logger.getLogger(EnvironmentPlan.class.getName());
+    public static final String ENVIRONMENT_PLAN_FILE_SUFFIX = ".envplan.json";
+
+    private String bundleSha256;
+    private List<Placeholder> placeholders = new ArrayList<>();
+    private List<RequiredEnvironment> requiredEnvironment = new ArrayList<>();
+
+    public EnvironmentPlan() {
+    }
+
+    EnvironmentPlan(String bundleSha256, List<Placeholder> placeholders) {
+        this.bundleSha256 = bundleSha256;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Writes the plan of the given bundle file next to it, replacing the plan written for an earlier version of the
+     * bundle. Without a plan, only the earlier plan is removed and the bundle is processed without one.
+     *
+     * @param bundleFile the templatized bundle file
+     * @param plan       the plan of the bundle, recorded while it was written, or null
+     * @return true if the plan file was written
+     */
+    public static boolean writePlanFile(File bundleFile, EnvironmentPlan plan) {
+        final File planFile = getPlanFile(bundleFile);
+        deleteQuietly(planFile);
+        if (plan == null) {
+            return false;
+        }
+        try {
+            JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).writeValue(planFile, plan);
+            return true;
+        } catch (IOException e) {
+            deleteQuietly(planFile);
+            LOGGER.log(Level.WARNING, "Could not write the environment plan of {0}: {1}", new Object[]{bundleFile.getName(), e.getMessage()});
+            return false;
+        }
+    }
+
+    /**
+     * Reads the plan written next to the given bundle file.
+     *
+     * @param bundleFile the templatized bundle file
+     * @return the plan of the bundle, null if there is none or it can't be read
+     */
+    static EnvironmentPlan readPlanFile(File bundleFile) {
+        final File planFile = getPlanFile(bundleFile);
+        if (!planFile.isFile()) {
+            return null;
+        }
+        try {
+            return JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).readValue(planFile, EnvironmentPlan.class);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read the environment plan of {0}: {1}", new Object[]{bundleFile.getName(), e.getMessage()});
+            return null;
+        }
+    }
+
+    /**
+     * Creates the plan of a bundle that is already in memory. The build records the plans of the bundles it writes
+     * with an {@link EnvironmentPlanRecorder} instead.
+     *
+     * @param bundleName   the name of the bundle
+     * @param bundleString the templatized bundle
+     * @return the plan of the bundle
+     */
+    public static EnvironmentPlan create(String bundleName, String bundleString) {
+        final EnvironmentPlan plan = new EnvironmentPlan();
+        plan.bundleSha256 = sha256(bundleString);
+        plan.placeholders = BundleDetemplatizer.findPlaceholders(bundleString);
+        BundleEnvironmentValidator.forEachRequiredEnvironment(DocumentTools.INSTANCE, bundleName, bundleString,
+                (type, name) -> plan.requiredEnvironment.add(new RequiredEnvironment(type, name)));
+        return plan;
+    }
+
+    /**
+     * @param bundleFile the templatized bundle file
+     * @return the file the plan of the bundle is written to, the bundle file name followed by the plan suffix
+     */
+    public static File getPlanFile(File bundleFile) {
+        return new File(bundleFile.getParentFile(), bundleFile.getName() + ENVIRONMENT_PLAN_FILE_SUFFIX);
+    }
+
+    private static String sha256(String bundleString) {
+        return Hashing.sha256().hashString(bundleString, UTF_8).toString();
+    }
+
+    /**
+     * @param bundleString the templatized bundle
+     * @return true if the plan was created for the given bundle contents
+     */
+    boolean matches(String bundleString) {
+        return bundleSha256 != null && bundleSha256.equals(sha256(bundleString));
+    }
+
+    public String getBundleSha256() {
+        return bundleSha256;
+    }
+
+    public void setBundleSha256(String bundleSha256) {
+        this.bundleSha256 = bundleSha256;
+    }
+
+    public List<Placeholder> getPlaceholders() {
+        return placeholders;
+    }
+
+    public void setPlaceholders(List<Placeholder> placeholders) {
+        this.placeholders = placeholders;
+    }
+
+    public List<RequiredEnvironment> getRequiredEnvironment() {
+        return requiredEnvironment;
+    }
+
+    public void setRequiredEnvironment(List<RequiredEnvironment> requiredEnvironment) {
+        this.requiredEnvironment = requiredEnvironment;
+    }
+
+    public enum PlaceholderType {
+        CONTEXT_VARIABLE,
+        SERVICE_PROPERTY
+    }
+
+    /**
+     * An environment placeholder, from its start to its end position in the bundle string.
+     */
+    public static class Placeholder {
+
+        private int start;
+        private int end;
+        private PlaceholderType type;
+        private String name;
+
+        public Placeholder() {
+        }
+
+        Placeholder(int start, int end, PlaceholderType type, String name) {
+            this.start = start;
+            this.end = end;
+            this.type = type;
+            this.name = name;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public void setStart(int start) {
+            this.start = start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public void setEnd(int end) {
+            this.end = end;
+        }
+
+        public PlaceholderType getType() {
+            return type;
+        }
+
+        public void setType(PlaceholderType type) {
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * An environment entity required by the bundle, by its entity type and the name it is mapped to.
+     */
+    public static class RequiredEnvironment {
+
+        private String type;
+        private String name;
+
+        public RequiredEnvironment() {
+        }
+
+        RequiredEnvironment(String type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public void setType(String type) {
+            this.type = type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
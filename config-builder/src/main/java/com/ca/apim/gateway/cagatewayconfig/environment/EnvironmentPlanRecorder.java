@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.environment;
+
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.Entity;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.ca.apim.gateway.cagatewayconfig.environment.BundleDetemplatizer.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Records the environment plan of a templatized bundle while the bundle is written through it, so that the bundle
+ * doesn't have to be read back to create its plan. The hash of the bundle is computed from the bytes written, and
+ * the placeholders are found the way the {@link BundleDetemplatizer} finds them, at their positions in the bundle
+ * string. The environment required by the bundle is taken from the element or the entities the bundle was written from.
+ */
+public class EnvironmentPlanRecorder extends FilterOutputStream {
+
+    private static final Logger LOGGER = Logger.getLogger(EnvironmentPlanRecorder.class.getName());
+
+    private final String bundleName;
+    private final Hasher hasher = Hashing.sha256().newHasher();
+    private final PlaceholderMatcher[] placeholderMatchers = {
+            new PlaceholderMatcher(CONTEXT_VARIABLE_PLACEHOLDER_PREFIX, CONTEXT_VARIABLE_PLACEHOLDER_TERMINATOR, EnvironmentPlan.PlaceholderType.CONTEXT_VARIABLE),
+            new PlaceholderMatcher(SERVICE_PROPERTY_PLACEHOLDER_PREFIX, SERVICE_PROPERTY_PLACEHOLDER_TERMINATOR, EnvironmentPlan.PlaceholderType.SERVICE_PROPERTY)
+    };
+    private final List<EnvironmentPlan.Placeholder> placeholders = new ArrayList<>();
+    private final ByteArrayOutputStream placeholderName = new ByteArrayOutputStream();
+    // position in the bundle string of the next byte written
+    private int position;
+    // the matcher of the placeholder whose name is being written, null if no placeholder name is
+    private PlaceholderMatcher placeholderMatcher;
+    private int placeholderStart;
+    private String invalidPlaceholder;
+
+    /**
+     * @param bundleName   the name of the bundle written
+     * @param outputStream the stream to write the bundle to
+     */
+    public EnvironmentPlanRecorder(String bundleName, OutputStream outputStream) {
+        super(outputStream);
+        this.bundleName = bundleName;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        hasher.putByte((byte) b);
+        record(b & 0xFF);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        hasher.putBytes(b, off, len);
+        for (int i = off; i < off + len; i++) {
+            record(b[i] & 0xFF);
+        }
+    }
+
+    private void record(int b) {
+        if (placeholderMatcher != null) {
+            if (b == placeholderMatcher.terminator) {
+                addPlaceholder();
+            } else {
+                placeholderName.write(b);
+            }
+        } else {
+            for (PlaceholderMatcher matcher : placeholderMatchers) {
+                if (matcher.matches(b)) {
+                    // the prefixes are ascii, one character per byte
+                    placeholderMatcher = matcher;
+                    placeholderStart = position + 1 - matcher.prefix.length;
+                    for (PlaceholderMatcher other : placeholderMatchers) {
+                        other.reset();
+                    }
+                    break;
+                }
+            }
+        }
+
+        // every byte starts a character except the ones continuing it, and a four bytes character is a surrogate pair
+        if ((b & 0xC0) != 0x80) {
+            position += (b & 0xF8) == 0xF0 ? 2 : 1;
+        }
+    }
+
+    private void addPlaceholder() {
+        final String name = new String(placeholderName.toByteArray(), UTF_8);
+        placeholderName.reset();
+        // the placeholder pattern doesn't match names that are empty or span lines, leave those to the pattern
+        if (name.isEmpty() || name.chars().anyMatch(EnvironmentPlanRecorder::isLineTerminator)) {
+            invalidPlaceholder = name;
+        }
+        // the placeholder ends after its terminator
+        placeholders.add(new EnvironmentPlan.Placeholder(placeholderStart, position + 1, placeholderMatcher.type, name));
+        placeholderMatcher = null;
+    }
+
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Creates the plan of the bundle written from the bundle element. It can only be created once the whole bundle
+     * was written, and only once.
+     *
+     * @param bundleElement the element the bundle was written from
+     * @return the plan of the bundle, null if no plan can be created for it
+     */
+    public EnvironmentPlan createPlan(Element bundleElement) {
+        return createPlan(requiredEnvironment ->
+                BundleEnvironmentValidator.forEachRequiredEnvironment(DocumentTools.INSTANCE, bundleElement, requiredEnvironment));
+    }
+
+    /**
+     * Creates the plan of the bundle written from the entities. It can only be created once the whole bundle was
+     * written, and only once.
+     *
+     * @param entities the entities the bundle was written from
+     * @return the plan of the bundle, null if no plan can be created for it
+     */
+    public EnvironmentPlan createPlan(List<Entity> entities) {
+        return createPlan(requiredEnvironment -> BundleEnvironmentValidator.forEachRequiredEnvironment(entities, requiredEnvironment));
+    }
+
+    private EnvironmentPlan createPlan(Consumer<BiConsumer<String, String>> requiredEnvironmentFinder) {
+        if (placeholderMatcher != null || invalidPlaceholder != null) {
+            LOGGER.log(Level.WARNING, "Could not create the environment plan of {0}: invalid placeholder {1}",
+                    new Object[]{bundleName, placeholderMatcher != null ? new String(placeholderName.toByteArray(), UTF_8) : invalidPlaceholder});
+            return null;
+        }
+
+        final EnvironmentPlan plan = new EnvironmentPlan(hasher.hash().toString(), placeholders);
+        try {
+            requiredEnvironmentFinder.accept((type, name) -> plan.getRequiredEnvironment().add(new EnvironmentPlan.RequiredEnvironment(type, name)));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Could not create the environment plan of {0}: {1}", new Object[]{bundleName, e.getMessage()});
+            return null;
+        }
+        return plan;
+    }
+
+    /**
+     * Matches the prefix of a placeholder one byte at a time, carrying on from the longest part of the prefix the
+     * bytes matched so far end with when a byte doesn't match.
+     */
+    private static class PlaceholderMatcher {
+
+        private final byte[] prefix;
+        private final int[] fallback;
+        private final char terminator;
+        private final EnvironmentPlan.PlaceholderType type;
+        private int matched;
+
+        PlaceholderMatcher(String prefix, char terminator, EnvironmentPlan.PlaceholderType type) {
+            this.prefix = prefix.getBytes(UTF_8);
+            this.terminator = terminator;
+            this.type = type;
+            this.fallback = new int[this.prefix.length];
+            for (int i = 1, length = 0; i < this.prefix.length; i++) {
+                while (length > 0 && this.prefix[i] != this.prefix[length]) {
+                    length = fallback[length - 1];
+                }
+                if (this.prefix[i] == this.prefix[length]) {
+                    length++;
+                }
+                fallback[i] = length;
+            }
+        }
+
+        /**
+         * @return true if the byte completes the prefix
+         */
+        boolean matches(int b) {
+            while (matched > 0 && prefix[matched] != b) {
+                matched = fallback[matched - 1];
+            }
+            if (prefix[matched] == b) {
+                matched++;
+            }
+            if (matched == prefix.length) {
+                matched = 0;
+                return true;
+            }
+            return false;
+        }
+
+        void reset() {
+            matched = 0;
+        }
+    }
+}
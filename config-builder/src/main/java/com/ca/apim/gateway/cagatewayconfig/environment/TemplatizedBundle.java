@@ -6,13 +6,18 @@
 
 package com.ca.apim.gateway.cagatewayconfig.environment;
 
+import org.apache.commons.io.output.StringBuilderWriter;
+
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Collections;
 
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
 /**
  * Represents a Templatized Deployment Bundle and provide read/write to its contents.
  */
@@ -24,6 +29,25 @@ interface TemplatizedBundle {
 
     void writeContents(String content);
 
+    /**
+     * Writes the contents produced by the given writer, without holding them in a String first.
+     *
+     * @param contentsWriter writes the new contents of the bundle
+     */
+    void writeContents(ContentsWriter contentsWriter);
+
+    /**
+     * @return the environment plan written for the bundle by the build, null if there is none
+     */
+    default EnvironmentPlan getEnvironmentPlan() {
+        return null;
+    }
+
+    @FunctionalInterface
+    interface ContentsWriter {
+        void write(Writer writer) throws IOException;
+    }
+
     /**
      * Templatized bundle stored in the File System.
      */
@@ -55,6 +79,27 @@ interface TemplatizedBundle {
             }
         }
 
+        @Override
+        public void writeContents(ContentsWriter contentsWriter) {
+            try (Writer writer = Files.newBufferedWriter(newFile.toPath(), StandardCharsets.UTF_8)) {
+                contentsWriter.write(writer);
+                // same line ending written by writeContents(String)
+                writer.write(System.lineSeparator());
+            } catch (IOException e) {
+                deleteQuietly(newFile);
+                throw new BundleDetemplatizeException("Could not write detemplatized bundle to: " + newFile.getName(), e);
+            } catch (RuntimeException e) {
+                // don't leave a partially detemplatized bundle behind
+                deleteQuietly(newFile);
+                throw e;
+            }
+        }
+
+        @Override
+        public EnvironmentPlan getEnvironmentPlan() {
+            return EnvironmentPlan.readPlanFile(originalFile);
+        }
+
         @Override
         public String getName() {
             return this.originalFile.getName();
@@ -84,6 +129,17 @@ interface TemplatizedBundle {
             this.bundleContents = content;
         }
 
+        @Override
+        public void writeContents(ContentsWriter contentsWriter) {
+            final StringBuilderWriter writer = new StringBuilderWriter();
+            try {
+                contentsWriter.write(writer);
+            } catch (IOException e) {
+                throw new BundleDetemplatizeException("Could not write detemplatized bundle: " + name, e);
+            }
+            this.bundleContents = writer.toString();
+        }
+
         @Override
         public String getName() {
             return name;
@@ -6,14 +6,20 @@
 
 package com.ca.apim.gateway.cagatewayconfig.util;
 
+import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
+import com.google.common.hash.Hashing;
+
 import java.nio.ByteBuffer;
 import java.security.SecureRandom;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 /**
  * This generates ids that are used on gateway entities. It works by randomly generating an id and then incrementing it to retrieve subsequent ids.
+ * For projects built with deterministic ids, the ids of the entities are derived from the project and the entity instead.
  */
 public class IdGenerator {
 
@@ -47,6 +53,30 @@ public class IdGenerator {
         return hexDump(ByteBuffer.allocate(16).putLong(hi.get()).putLong(low.getAndIncrement()).array());
     }
 
+    /**
+     * Return an id for the given Gateway entity. If the project is built with deterministic ids, the id is derived from
+     * the project group and name and the entity type and name, so the entity gets the same id on every build.
+     * Otherwise it is generated like {@link #generate()}.
+     *
+     * @param projectInfo the project the entity is built for, can be null
+     * @param entityType  the type of the entity
+     * @param entityName  the name or path of the entity, unique among the entities of that type in the project
+     * @return An id that can be used for the gateway entity.
+     */
+    public String generate(ProjectInfo projectInfo, String entityType, String entityName) {
+        if (!isDeterministic(projectInfo)) {
+            return generate();
+        }
+        final ByteBuffer hash = ByteBuffer.wrap(Hashing.sha256()
+                .hashString(getIdName(projectInfo, entityType, entityName), UTF_8).asBytes());
+        long nameHi = hash.getLong();
+        if (nameHi >= 0 && nameHi < MAX_ID_RESERVED_PREFIX) {
+            // keep hi out of the range of default prefixes, like the random ids
+            nameHi |= Long.MIN_VALUE;
+        }
+        return hexDump(ByteBuffer.allocate(16).putLong(nameHi).putLong(hash.getLong()).array());
+    }
+
     private static String hexDump(byte[] binaryData) {
         return hexDump(binaryData, binaryData.length);
     }
@@ -70,4 +100,28 @@ public class IdGenerator {
     public String generateGuid() {
         return UUID.randomUUID().toString();
     }
+
+    /**
+     * Return a guid for the given Gateway entity, derived from the project and the entity like
+     * {@link #generate(ProjectInfo, String, String)} if the project is built with deterministic ids.
+     *
+     * @param projectInfo the project the entity is built for, can be null
+     * @param entityType  the type of the entity
+     * @param entityName  the name or path of the entity, unique among the entities of that type in the project
+     * @return A guid that can be used for the gateway entity.
+     */
+    public String generateGuid(ProjectInfo projectInfo, String entityType, String entityName) {
+        if (!isDeterministic(projectInfo)) {
+            return generateGuid();
+        }
+        return UUID.nameUUIDFromBytes(("guid:" + getIdName(projectInfo, entityType, entityName)).getBytes(UTF_8)).toString();
+    }
+
+    private static boolean isDeterministic(ProjectInfo projectInfo) {
+        return projectInfo != null && projectInfo.isDeterministicIds();
+    }
+
+    private static String getIdName(ProjectInfo projectInfo, String entityType, String entityName) {
+        return projectInfo.getGroupName() + ":" + projectInfo.getName() + ":" + entityType + ":" + entityName;
+    }
 }
@@ -0,0 +1,17 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.bundle;
+
+public class BundleImportException extends RuntimeException {
+    public BundleImportException(String message) {
+        super(message);
+    }
+
+    public BundleImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
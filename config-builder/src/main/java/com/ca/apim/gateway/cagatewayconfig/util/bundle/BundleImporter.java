@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.bundle;
+
+import com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils.BUNDLE_EXTENSION;
+import static com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils.DELETE_BUNDLE_EXTENSION;
+import static com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils.INSTALL_BUNDLE_EXTENSION;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Imports a set of bundle files in the order given by the dependencies listed in their metadata files. A bundle is
+ * only imported once all the bundles it depends on are imported, bundles that don't depend on each other can be
+ * imported at the same time. Delete bundles are imported in the reverse order, a bundle is deleted before the bundles
+ * it depends on.
+ */
+public class BundleImporter {
+
+    private static final Logger LOGGER = Logger.getLogger(BundleImporter.class.getName());
+
+    public static final BundleImporter INSTANCE = new BundleImporter(JsonFileUtils.INSTANCE);
+
+    private static final String NAME = "name";
+    private static final String GROUP_NAME = "groupName";
+    private static final String DEPENDENCIES = "dependencies";
+
+    private final JsonFileUtils jsonFileUtils;
+
+    BundleImporter(final JsonFileUtils jsonFileUtils) {
+        this.jsonFileUtils = jsonFileUtils;
+    }
+
+    /**
+     * Imports the bundle files with the given import action, running up to the given number of imports at the same
+     * time. Bundles without a metadata file next to them have no known dependencies and are imported as soon as a
+     * worker is free. When an import fails no other import is started, the running ones are waited for and the
+     * failure is rethrown.
+     *
+     * @param bundleFiles  the bundle files to import
+     * @param parallelism  the maximum number of bundles imported at the same time
+     * @param bundleImport the action importing one bundle file
+     * @return the import time of each bundle in milliseconds, in the order the imports completed
+     */
+    public Map<File, Long> importBundles(final Collection<File> bundleFiles, final int parallelism,
+                                         final Consumer<File> bundleImport) {
+        final Map<File, Set<File>> dependencies = getDependencies(bundleFiles);
+        final Map<File, Long> importTimes = new LinkedHashMap<>();
+        if (parallelism <= 1 || bundleFiles.size() <= 1) {
+            new ImportOrder(dependencies).forEachBundle(bundleFile ->
+                    importTimes.put(bundleFile, importBundle(bundleFile, bundleImport)));
+            return importTimes;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, bundleFiles.size()));
+        try {
+            final CompletionService<File> completionService = new ExecutorCompletionService<>(executor);
+            final ImportOrder importOrder = new ImportOrder(dependencies);
+            int running = 0;
+            for (File bundleFile : importOrder.getReadyBundles()) {
+                submit(completionService, bundleFile, bundleImport, importTimes);
+                running++;
+            }
+            RuntimeException failure = null;
+            while (running > 0) {
+                running--;
+                try {
+                    final File imported = waitForImport(completionService);
+                    if (failure == null) {
+                        for (File bundleFile : importOrder.imported(imported)) {
+                            submit(completionService, bundleFile, bundleImport, importTimes);
+                            running++;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return importTimes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void submit(CompletionService<File> completionService, File bundleFile,
+                               Consumer<File> bundleImport, Map<File, Long> importTimes) {
+        completionService.submit(() -> {
+            final long importTime = importBundle(bundleFile, bundleImport);
+            synchronized (importTimes) {
+                importTimes.put(bundleFile, importTime);
+            }
+            return bundleFile;
+        });
+    }
+
+    private static long importBundle(File bundleFile, Consumer<File> bundleImport) {
+        final long start = System.nanoTime();
+        bundleImport.accept(bundleFile);
+        final long importTime = NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOGGER.log(Level.INFO, "Imported bundle {0} in {1} ms", new Object[]{bundleFile.getName(), importTime});
+        return importTime;
+    }
+
+    private static File waitForImport(CompletionService<File> completionService) {
+        try {
+            return completionService.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BundleImportException("Interrupted while importing the bundles", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new BundleImportException("Error importing the bundles", e.getCause());
+        }
+    }
+
+    /**
+     * Reads the metadata files of the bundles to find the bundles each one has to be imported after. Dependencies on
+     * bundles that are not being imported are ignored.
+     *
+     * @param bundleFiles the bundle files being imported
+     * @return the bundles each bundle has to be imported after, in the order of the given bundle files
+     */
+    Map<File, Set<File>> getDependencies(final Collection<File> bundleFiles) {
+        final Map<File, Map<String, Object>> metadataByBundle = new LinkedHashMap<>();
+        final Map<String, File> installBundles = new HashMap<>();
+        final Map<String, File> deleteBundles = new HashMap<>();
+        for (File bundleFile : bundleFiles) {
+            final Map<String, Object> metadata = readMetadata(bundleFile);
+            metadataByBundle.put(bundleFile, metadata);
+            if (metadata != null) {
+                (isDeleteBundle(bundleFile) ? deleteBundles : installBundles)
+                        .put(getBundleKey(metadata.get(GROUP_NAME), metadata.get(NAME)), bundleFile);
+            }
+        }
+
+        final Map<File, Set<File>> dependencies = new LinkedHashMap<>();
+        bundleFiles.forEach(bundleFile -> dependencies.put(bundleFile, new LinkedHashSet<>()));
+        metadataByBundle.forEach((bundleFile, metadata) -> {
+            if (metadata == null || !(metadata.get(DEPENDENCIES) instanceof Collection)) {
+                return;
+            }
+            final boolean deleteBundle = isDeleteBundle(bundleFile);
+            for (Object dependency : (Collection<?>) metadata.get(DEPENDENCIES)) {
+                if (!(dependency instanceof Map)) {
+                    continue;
+                }
+                final Map<?, ?> dependencyMetadata = (Map<?, ?>) dependency;
+                final String dependencyKey = getBundleKey(dependencyMetadata.get(GROUP_NAME), dependencyMetadata.get(NAME));
+                final File dependencyFile = (deleteBundle ? deleteBundles : installBundles).get(dependencyKey);
+                if (dependencyFile == null || dependencyFile.equals(bundleFile)) {
+                    continue;
+                }
+                if (deleteBundle) {
+                    // the dependency is deleted once nothing depending on it is left
+                    dependencies.get(dependencyFile).add(bundleFile);
+                } else {
+                    dependencies.get(bundleFile).add(dependencyFile);
+                }
+            }
+        });
+        return dependencies;
+    }
+
+    private Map<String, Object> readMetadata(File bundleFile) {
+        final String fileName = bundleFile.getName();
+        final String extension = isDeleteBundle(bundleFile) ? DELETE_BUNDLE_EXTENSION :
+                fileName.endsWith(INSTALL_BUNDLE_EXTENSION) ? INSTALL_BUNDLE_EXTENSION : BUNDLE_EXTENSION;
+        if (!fileName.endsWith(extension) || bundleFile.getParentFile() == null) {
+            return null;
+        }
+        return jsonFileUtils.readBundleMetadataFile(bundleFile.getParentFile().getPath(),
+                fileName.substring(0, fileName.length() - extension.length()));
+    }
+
+    private static boolean isDeleteBundle(File bundleFile) {
+        return bundleFile.getName().endsWith(DELETE_BUNDLE_EXTENSION);
+    }
+
+    private static String getBundleKey(Object groupName, Object name) {
+        return StringUtils.defaultString(Objects.toString(groupName, null)) + ":" + Objects.toString(name, null);
+    }
+
+    /**
+     * Tracks which bundles can be imported as their dependencies are imported.
+     */
+    private static class ImportOrder {
+        private final Map<File, Integer> pendingDependencies = new LinkedHashMap<>();
+        private final Map<File, List<File>> dependents = new HashMap<>();
+
+        private ImportOrder(Map<File, Set<File>> dependencies) {
+            dependencies.forEach((bundleFile, bundleDependencies) -> {
+                pendingDependencies.put(bundleFile, bundleDependencies.size());
+                bundleDependencies.forEach(dependency ->
+                        dependents.computeIfAbsent(dependency, k -> new ArrayList<>()).add(bundleFile));
+            });
+        }
+
+        /**
+         * @return the bundles without dependencies, failing if some bundles can never be imported
+         */
+        private List<File> getReadyBundles() {
+            final List<File> readyBundles = new ArrayList<>();
+            pendingDependencies.forEach((bundleFile, pending) -> {
+                if (pending == 0) {
+                    readyBundles.add(bundleFile);
+                }
+            });
+            checkForCycles(readyBundles);
+            return readyBundles;
+        }
+
+        /**
+         * @return the bundles that can be imported now that the given bundle is imported
+         */
+        private List<File> imported(File bundleFile) {
+            final List<File> readyBundles = new ArrayList<>();
+            dependents.getOrDefault(bundleFile, Collections.emptyList()).forEach(dependent -> {
+                if (pendingDependencies.merge(dependent, -1, Integer::sum) == 0) {
+                    readyBundles.add(dependent);
+                }
+            });
+            return readyBundles;
+        }
+
+        /**
+         * Imports the bundles one at a time, each as soon as its dependencies are imported.
+         */
+        private void forEachBundle(Consumer<File> bundleImport) {
+            final Deque<File> readyBundles = new ArrayDeque<>(getReadyBundles());
+            while (!readyBundles.isEmpty()) {
+                final File bundleFile = readyBundles.poll();
+                bundleImport.accept(bundleFile);
+                readyBundles.addAll(imported(bundleFile));
+            }
+        }
+
+        private void checkForCycles(List<File> readyBundles) {
+            final Map<File, Integer> pending = new LinkedHashMap<>(pendingDependencies);
+            final Deque<File> orderedBundles = new ArrayDeque<>(readyBundles);
+            int ordered = 0;
+            while (!orderedBundles.isEmpty()) {
+                ordered++;
+                dependents.getOrDefault(orderedBundles.poll(), Collections.emptyList()).forEach(dependent -> {
+                    if (pending.merge(dependent, -1, Integer::sum) == 0) {
+                        orderedBundles.add(dependent);
+                    }
+                });
+            }
+            if (ordered < pending.size()) {
+                final StringJoiner cycle = new StringJoiner(", ");
+                pending.forEach((bundleFile, count) -> {
+                    if (count > 0) {
+                        cycle.add(bundleFile.getName());
+                    }
+                });
+                throw new BundleImportException("Bundles depend on each other and can't be imported in order: " + cycle);
+            }
+        }
+    }
+}
@@ -6,32 +6,55 @@
 
 package com.ca.apim.gateway.cagatewayconfig.util.connection;
 
-import org.apache.http.HttpResponse;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
 import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.conn.ssl.TrustStrategy;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.ssl.SSLContextBuilder;
 
 import javax.net.ssl.SSLContext;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
+import static com.ca.apim.gateway.cagatewayconfig.util.file.FileUtils.closeQuietly;
 import static com.ca.apim.gateway.cagatewayconfig.util.gateway.ConnectionUtils.initSSLContext;
 import static java.nio.charset.Charset.defaultCharset;
 import static java.util.Base64.getEncoder;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.INFO;
+import static org.apache.commons.io.FileUtils.copyInputStreamToFile;
+import static org.apache.commons.io.FileUtils.deleteQuietly;
 import static org.apache.commons.io.IOUtils.toByteArray;
 import static org.apache.commons.lang3.RandomStringUtils.random;
 import static org.apache.http.HttpStatus.SC_OK;
@@ -44,8 +67,13 @@ public class GatewayClient {
     private static final String KEY_PASSPHRASE_HEADER = "L7-key-passphrase";
     private static final Logger LOGGER = Logger.getLogger(GatewayClient.class.getName());
     private static final SecureRandom RANDOM = new SecureRandom();
+    private static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 60;
     public static final GatewayClient INSTANCE = new GatewayClient();
 
+    private final Map<ClientKey, CloseableHttpClient> clients = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong openedConnections = new AtomicLong();
+
     /**
      * Make API Calls using the given RequestBuilder to get request configuration.
      *
@@ -55,19 +83,71 @@ public class GatewayClient {
      * @return Returns the result from the api caller
      */
     public InputStream makeGatewayAPICall(final RequestBuilder requestBuilder, final String userName, final String password) {
-        try (CloseableHttpClient client = buildHTTPSClient(userName, password)) {
-            return makeAPICall(client, requestBuilder);
+        final byte[][] responseBytes = new byte[1][];
+        makeGatewayAPICall(requestBuilder, userName, password, responseStream -> responseBytes[0] = toByteArray(responseStream));
+        return new ByteArrayInputStream(responseBytes[0]);
+    }
+
+    /**
+     * Make API Calls using the given RequestBuilder to get request configuration, and stream the response body to the
+     * destination file without holding it in memory. The file is not left behind if the response can't be saved.
+     *
+     * @param requestBuilder The Request Builder where method and URI have to be previously set
+     * @param userName       The user name for the gateway user.
+     * @param password       The password for the gateway user.
+     * @param destination    The file to save the response body to
+     */
+    public void makeGatewayAPICall(final RequestBuilder requestBuilder, final String userName, final String password, final Path destination) {
+        try {
+            makeGatewayAPICall(requestBuilder, userName, password, responseStream -> copyInputStreamToFile(responseStream, destination.toFile()));
+        } catch (GatewayClientException e) {
+            deleteQuietly(destination.toFile());
+            throw e;
+        }
+    }
+
+    /**
+     * Make API Calls using the given RequestBuilder to get request configuration, and hand the response body over to
+     * the consumer as it is received. The body is only read into memory when the call fails, to report it.
+     *
+     * @param requestBuilder   The Request Builder where method and URI have to be previously set
+     * @param userName         The user name for the gateway user.
+     * @param password         The password for the gateway user.
+     * @param responseConsumer Reads the response body of a successful call
+     */
+    public void makeGatewayAPICall(final RequestBuilder requestBuilder, final String userName, final String password, final ResponseConsumer responseConsumer) {
+        makeGatewayAPICall(requestBuilder, userName, password, GatewayConnectionSettings.DEFAULT, responseConsumer);
+    }
+
+    /**
+     * Make API Calls using the given RequestBuilder to get request configuration, and hand the response body over to
+     * the consumer as it is received. The call is made with a pooled client shared by all calls to the same gateway with
+     * the same credentials and settings, so connections are kept alive and reused between calls until {@link #close()}.
+     *
+     * @param requestBuilder     The Request Builder where method and URI have to be previously set
+     * @param userName           The user name for the gateway user.
+     * @param password           The password for the gateway user.
+     * @param connectionSettings The pool size and timeouts of the connections to the gateway
+     * @param responseConsumer   Reads the response body of a successful call
+     */
+    public void makeGatewayAPICall(final RequestBuilder requestBuilder, final String userName, final String password,
+                                   final GatewayConnectionSettings connectionSettings, final ResponseConsumer responseConsumer) {
+        final ClientKey clientKey = new ClientKey(requestBuilder.getUri(), userName, password, connectionSettings);
+        final CloseableHttpClient client = clients.computeIfAbsent(clientKey, key -> buildHTTPSClient(key, openedConnections));
+        requests.incrementAndGet();
+        try {
+            makeAPICall(client, requestBuilder, responseConsumer);
         } catch (IOException e) {
             throw new GatewayClientException("Exception making API calls", e);
         }
     }
 
-    private static InputStream makeAPICall(final HttpClient client, final RequestBuilder requestBuilder) throws IOException {
+    private static void makeAPICall(final CloseableHttpClient client, final RequestBuilder requestBuilder, final ResponseConsumer responseConsumer) throws IOException {
         // Generate a random passphrase with any type of char and using a secure random generator, in order to encrypt the secrets.
         final String encodedPassphrase = random(64, 0, 0, true, true, null, RANDOM);
         requestBuilder.addHeader(KEY_PASSPHRASE_HEADER, getEncoder().encodeToString(encodedPassphrase.getBytes(defaultCharset())));
 
-        final HttpResponse response;
+        final CloseableHttpResponse response;
         final HttpUriRequest request = requestBuilder.build();
         final String uri = request.getURI().toString();
 
@@ -77,27 +157,32 @@ public class GatewayClient {
             throw new GatewayClientException("Could not make an API Call (" + request.getMethod() + ") to: " + uri, e);
         }
 
-        final int statusCode = response.getStatusLine().getStatusCode();
+        // closing the response after its body is read returns the connection to the pool
+        try (CloseableHttpResponse closeableResponse = response) {
+            final int statusCode = closeableResponse.getStatusLine().getStatusCode();
 
-        LOGGER.log(FINE, "Status code is: {0} for uri: {1}", new Object[]{ statusCode,  uri });
-        final InputStream responseStream;
-        try {
-            responseStream = response.getEntity().getContent();
-        } catch (IOException e) {
-            throw new GatewayClientException("Could not retrieve response body from API Call (" + request.getMethod() + ") to: " + uri, e);
-        }
+            LOGGER.log(FINE, "Status code is: {0} for uri: {1}", new Object[]{ statusCode,  uri });
+            final InputStream responseStream;
+            try {
+                responseStream = closeableResponse.getEntity().getContent();
+            } catch (IOException e) {
+                throw new GatewayClientException("Could not retrieve response body from API Call (" + request.getMethod() + ") to: " + uri, e);
+            }
 
-        byte[] responseBytes = toByteArray(responseStream);
-        if (SC_OK != statusCode) {
-            throw new GatewayClientException("API Call (" + request.getMethod() + ") to gateway returned status " + statusCode + " for uri: " + uri + "\nResponse:\n\n" +new String(responseBytes));
+            try (InputStream content = responseStream) {
+                if (SC_OK != statusCode) {
+                    byte[] responseBytes = toByteArray(content);
+                    throw new GatewayClientException("API Call (" + request.getMethod() + ") to gateway returned status " + statusCode + " for uri: " + uri + "\nResponse:\n\n" +new String(responseBytes));
+                }
+                responseConsumer.accept(content);
+            }
         }
-        return new ByteArrayInputStream(responseBytes);
     }
 
-    private static CloseableHttpClient buildHTTPSClient(final String userName, final String password) {
+    private static CloseableHttpClient buildHTTPSClient(final ClientKey clientKey, final AtomicLong openedConnections) {
         final CredentialsProvider provider = new BasicCredentialsProvider();
         final UsernamePasswordCredentials credentials
-                = new UsernamePasswordCredentials(userName, password);
+                = new UsernamePasswordCredentials(clientKey.userName, clientKey.password);
         provider.setCredentials(ANY, credentials);
         final SSLContext sslContext;
         try {
@@ -106,13 +191,62 @@ public class GatewayClient {
         } catch (NoSuchAlgorithmException | KeyManagementException | KeyStoreException e) {
             throw new GatewayClientException("Unexpected exception building a gateway https client", e);
         }
+
+        final Registry<ConnectionSocketFactory> socketFactoryRegistry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", new SSLConnectionSocketFactory(sslContext, NoopHostnameVerifier.INSTANCE))
+                .build();
+        // count the connections opened by the pool, every https connection opened is a full TLS handshake
+        final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> connectionFactory = (route, config) -> {
+            openedConnections.incrementAndGet();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        };
+        final GatewayConnectionSettings settings = clientKey.connectionSettings;
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(socketFactoryRegistry, connectionFactory);
+        connectionManager.setMaxTotal(settings.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxConnections());
+
         return create()
                 .setDefaultCredentialsProvider(provider)
-                .setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE)
-                .setSSLContext(sslContext)
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(settings.getConnectTimeout())
+                        .setSocketTimeout(settings.getSocketTimeout())
+                        .build())
+                .evictIdleConnections(IDLE_CONNECTION_TIMEOUT_SECONDS, SECONDS)
                 .build();
     }
 
+    /**
+     * @return the number of API calls made since the client was created
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of connections opened to gateways since the client was created, each of them a TLS handshake for https
+     */
+    public long getOpenedConnectionCount() {
+        return openedConnections.get();
+    }
+
+    /**
+     * Closes the pooled connections to all gateways and logs how many API calls reused a connection. Later calls open
+     * new connections.
+     */
+    public void close() {
+        final List<CloseableHttpClient> openClients = new ArrayList<>(clients.values());
+        clients.clear();
+        openClients.forEach(client -> closeQuietly(client));
+        if (!openClients.isEmpty()) {
+            final long requestCount = requests.get();
+            final long connectionCount = openedConnections.get();
+            LOGGER.log(INFO, "Gateway client made {0} API calls, opened {1} connections and reused connections {2} times",
+                    new Object[]{requestCount, connectionCount, Math.max(0, requestCount - connectionCount)});
+        }
+    }
+
     /**
      * Format the url with the required parts for restman endpoint.
      * @param url the url, full or partial
@@ -127,4 +261,46 @@ public class GatewayClient {
         }
         return  url + "1.0/bundle";
     }
+
+    /**
+     * Reads the response body of a successful API call.
+     */
+    @FunctionalInterface
+    public interface ResponseConsumer {
+        void accept(InputStream responseStream) throws IOException;
+    }
+
+    private static class ClientKey {
+        private final String target;
+        private final String userName;
+        private final String password;
+        private final GatewayConnectionSettings connectionSettings;
+
+        private ClientKey(URI uri, String userName, String password, GatewayConnectionSettings connectionSettings) {
+            this.target = uri.getScheme() + "://" + uri.getAuthority();
+            this.userName = userName;
+            this.password = password;
+            this.connectionSettings = connectionSettings;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClientKey that = (ClientKey) o;
+            return target.equals(that.target) &&
+                    Objects.equals(userName, that.userName) &&
+                    Objects.equals(password, that.password) &&
+                    connectionSettings.equals(that.connectionSettings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(target, userName, password, connectionSettings);
+        }
+    }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.connection;
+
+import java.util.Objects;
+
+/**
+ * Settings of the pooled connections the {@link GatewayClient} opens to a gateway.
+ */
+public class GatewayConnectionSettings {
+
+    /**
+     * Up to 4 connections per gateway and the http client default timeouts, which never time out.
+     */
+    public static final GatewayConnectionSettings DEFAULT = new GatewayConnectionSettings(4, -1, -1);
+
+    private final int maxConnections;
+    private final int connectTimeout;
+    private final int socketTimeout;
+
+    /**
+     * @param maxConnections the maximum number of connections kept open to a gateway
+     * @param connectTimeout the timeout in milliseconds to establish a connection, zero or less to never time out
+     * @param socketTimeout  the timeout in milliseconds waiting for data, zero or less to never time out
+     */
+    public GatewayConnectionSettings(int maxConnections, int connectTimeout, int socketTimeout) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("The maximum number of connections must be at least 1, was " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+        this.connectTimeout = connectTimeout;
+        this.socketTimeout = socketTimeout;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GatewayConnectionSettings that = (GatewayConnectionSettings) o;
+        return maxConnections == that.maxConnections &&
+                connectTimeout == that.connectTimeout &&
+                socketTimeout == that.socketTimeout;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(maxConnections, connectTimeout, socketTimeout);
+    }
+}
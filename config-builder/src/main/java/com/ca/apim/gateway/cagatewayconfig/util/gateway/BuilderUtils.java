@@ -68,28 +68,42 @@ public class BuilderUtils {
     public static Element createPropertyElement(Document document, String key, Object value) {
         Element propertyElement = document.createElement(PROPERTY);
         propertyElement.setAttribute(ATTRIBUTE_KEY, key);
-        String elementType;
-        String elementValue = value.toString();
 
+        Element valueElement = document.createElement(getPropertyValueElementName(key, value));
+        valueElement.setTextContent(getPropertyValueText(value));
+        propertyElement.appendChild(valueElement);
+        return propertyElement;
+    }
+
+    /**
+     * @return the name of the l7:xxxValue element holding the value of a property
+     * @throws EntityBuilderException if the type of the value is not supported
+     */
+    @NotNull
+    public static String getPropertyValueElementName(String key, Object value) {
         if (String.class.isAssignableFrom(value.getClass())) {
-            elementType = STRING_VALUE;
+            return STRING_VALUE;
         } else if (Integer.class.isAssignableFrom(value.getClass())) {
-            elementType = INTEGER_VALUE;
+            return INTEGER_VALUE;
         } else if (Long.class.isAssignableFrom(value.getClass())) {
-            elementType = LONG_VALUE;
+            return LONG_VALUE;
         } else if (Boolean.class.isAssignableFrom(value.getClass())) {
-            elementType = BOOLEAN_VALUE;
+            return BOOLEAN_VALUE;
         } else if (Date.class.isAssignableFrom(value.getClass())) {
-            elementType = DATE_VALUE;
-            elementValue = format((Date) value, DATE_VALUE_PATTERN);
-        } else {
-            throw new EntityBuilderException("Could not create property (" + key + ") for value type: " + value.getClass().getTypeName());
+            return DATE_VALUE;
         }
+        throw new EntityBuilderException("Could not create property (" + key + ") for value type: " + value.getClass().getTypeName());
+    }
 
-        Element valueElement = document.createElement(elementType);
-        valueElement.setTextContent(elementValue);
-        propertyElement.appendChild(valueElement);
-        return propertyElement;
+    /**
+     * @return the text of the l7:xxxValue element holding the value of a property
+     */
+    @NotNull
+    public static String getPropertyValueText(Object value) {
+        if (value instanceof Date) {
+            return format((Date) value, DATE_VALUE_PATTERN);
+        }
+        return value.toString();
     }
 
     /**
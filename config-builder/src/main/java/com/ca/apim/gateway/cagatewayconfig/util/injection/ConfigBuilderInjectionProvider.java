@@ -83,11 +83,11 @@ public class ConfigBuilderInjectionProvider implements InjectionProvider {
     @Override
     public @Nullable Map<Class, Set<Class>> getMultiBindings(InjectionProviderContext context) {
         return ImmutableMap.<Class, Set<Class>>builder()
-                .put(EntityBuilder.class, copyOf(context.getDefaultReflections().getSubTypesOf(EntityBuilder.class)))
-                .put(BundleEntityLoader.class, copyOf(context.getDefaultReflections().getSubTypesOf(BundleEntityLoader.class)))
-                .put(EntityLoader.class, copyOf(context.getDefaultReflections().getSubTypesOf(EntityLoader.class)))
-                .put(PolicyConverter.class, copyOf(context.getDefaultReflections().getSubTypesOf(PolicyConverter.class)))
-                .put(PolicyAssertionBuilder.class, copyOf(context.getDefaultReflections().getSubTypesOf(PolicyAssertionBuilder.class)))
+                .put(EntityBuilder.class, copyOf(context.getSubTypesOf(EntityBuilder.class)))
+                .put(BundleEntityLoader.class, copyOf(context.getSubTypesOf(BundleEntityLoader.class)))
+                .put(EntityLoader.class, copyOf(context.getSubTypesOf(EntityLoader.class)))
+                .put(PolicyConverter.class, copyOf(context.getSubTypesOf(PolicyConverter.class)))
+                .put(PolicyAssertionBuilder.class, copyOf(context.getSubTypesOf(PolicyAssertionBuilder.class)))
                 .build();
     }
 }
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.injection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.util.Collections.emptySet;
+
+/**
+ * Index of the classes of an injection base package by their super types, generated at build time by the
+ * {@link InjectionIndexGenerator}. It answers the same sub type queries as a Reflections scan of the package, without
+ * having to scan the classpath.
+ */
+public class InjectionIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(InjectionIndex.class.getName());
+    static final String INJECTION_INDEX_FILE = "gateway-developer-plugin-injection-index.properties";
+    static final String INJECTION_BASE_PACKAGE_KEY = "injection.base.package";
+    private static final String SEPARATOR = ",";
+
+    private final String basePackage;
+    private final Map<String, Set<String>> subTypes;
+    private final ClassLoader classLoader;
+
+    InjectionIndex(final String basePackage, final Map<String, Set<String>> subTypes, final ClassLoader classLoader) {
+        this.basePackage = basePackage;
+        this.subTypes = subTypes;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Loads the injection indexes found in the classpath.
+     *
+     * @param classLoader the class loader to find the indexes and load the indexed classes with
+     * @return the indexes by base package
+     */
+    static Map<String, InjectionIndex> loadIndexes(final ClassLoader classLoader) {
+        final Map<String, InjectionIndex> indexes = new HashMap<>();
+        try {
+            final Enumeration<URL> resources = classLoader.getResources(INJECTION_INDEX_FILE);
+            while (resources.hasMoreElements()) {
+                final URL resource = resources.nextElement();
+                final InjectionIndex index;
+                try (InputStream stream = resource.openStream()) {
+                    index = load(stream, classLoader);
+                }
+                // shows where each index comes from, one left over from an older build hides the classes added since
+                LOGGER.log(Level.FINE, "Loaded injection index of package {0} from {1}", new Object[]{index.basePackage, resource});
+                indexes.merge(index.basePackage, index, InjectionIndex::merge);
+            }
+        } catch (IOException e) {
+            throw new InjectionConfigurationException("Could not load injection index files: " + e.getMessage(), e);
+        }
+        return indexes;
+    }
+
+    static InjectionIndex load(final InputStream stream, final ClassLoader classLoader) throws IOException {
+        final Properties properties = new Properties();
+        properties.load(stream);
+        final String basePackage = properties.getProperty(INJECTION_BASE_PACKAGE_KEY);
+        if (basePackage == null) {
+            throw new InjectionConfigurationException("Injection index file does not define " + INJECTION_BASE_PACKAGE_KEY);
+        }
+        final Map<String, Set<String>> subTypes = new HashMap<>();
+        properties.stringPropertyNames().stream().filter(key -> !INJECTION_BASE_PACKAGE_KEY.equals(key)).forEach(superType ->
+                subTypes.put(superType, new LinkedHashSet<>(Arrays.asList(properties.getProperty(superType).split(SEPARATOR)))));
+        return new InjectionIndex(basePackage, subTypes, classLoader);
+    }
+
+    /**
+     * Writes the index in the format read by {@link #load(InputStream, ClassLoader)}, sorted so the same classes always
+     * give the same file.
+     *
+     * @param stream the stream to write to
+     */
+    void save(final OutputStream stream) throws IOException {
+        final StringBuilder content = new StringBuilder();
+        content.append(INJECTION_BASE_PACKAGE_KEY).append('=').append(basePackage).append('\n');
+        new TreeMap<>(subTypes).forEach((superType, types) ->
+                content.append(superType).append('=').append(String.join(SEPARATOR, new TreeSet<>(types))).append('\n'));
+        stream.write(content.toString().getBytes(ISO_8859_1));
+    }
+
+    private static InjectionIndex merge(InjectionIndex first, InjectionIndex second) {
+        final Map<String, Set<String>> subTypes = new HashMap<>();
+        first.subTypes.forEach((superType, types) -> subTypes.computeIfAbsent(superType, k -> new LinkedHashSet<>()).addAll(types));
+        second.subTypes.forEach((superType, types) -> subTypes.computeIfAbsent(superType, k -> new LinkedHashSet<>()).addAll(types));
+        return new InjectionIndex(first.basePackage, subTypes, first.classLoader);
+    }
+
+    String getBasePackage() {
+        return basePackage;
+    }
+
+    /**
+     * Gets the indexed classes that extend or implement the given type, like Reflections#getSubTypesOf.
+     *
+     * @param type the super type
+     * @param <T>  the super type
+     * @return the sub types of the given type in the base package
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Set<Class<? extends T>> getSubTypesOf(final Class<T> type) {
+        final Set<Class<? extends T>> types = new LinkedHashSet<>();
+        for (String className : subTypes.getOrDefault(type.getName(), emptySet())) {
+            try {
+                types.add((Class<? extends T>) Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new InjectionConfigurationException("Could not load indexed class " + className + ": " + e.getMessage(), e);
+            }
+        }
+        return types;
+    }
+}
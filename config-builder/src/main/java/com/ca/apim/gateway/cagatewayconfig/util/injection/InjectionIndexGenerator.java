@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.injection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionIndex.INJECTION_BASE_PACKAGE_KEY;
+import static com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionIndex.INJECTION_INDEX_FILE;
+
+/**
+ * Generates the {@link InjectionIndex} of a module at build time, from its compiled classes. It is run by the build
+ * after compiling, with the compiled classes and their dependencies in the classpath.
+ */
+public class InjectionIndexGenerator {
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private InjectionIndexGenerator() {
+    }
+
+    /**
+     * Arguments: the directory to write the index to, the extension configuration file defining the base package of
+     * the module and the directories of the compiled classes.
+     *
+     * @param args the generator arguments
+     * @throws IOException if the classes can't be read or the index can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: InjectionIndexGenerator <output directory> <extension configuration file> <classes directory>...");
+        }
+        final Properties extensionConfig = new Properties();
+        try (InputStream stream = Files.newInputStream(Paths.get(args[1]))) {
+            extensionConfig.load(stream);
+        }
+        final String basePackage = extensionConfig.getProperty(INJECTION_BASE_PACKAGE_KEY);
+        if (basePackage == null) {
+            throw new InjectionConfigurationException(args[1] + " does not define " + INJECTION_BASE_PACKAGE_KEY);
+        }
+
+        final List<Path> classesDirectories = Arrays.stream(args, 2, args.length).map(Paths::get).collect(Collectors.toList());
+        final InjectionIndex index = generate(basePackage, classesDirectories, InjectionIndexGenerator.class.getClassLoader());
+
+        final Path outputDirectory = Paths.get(args[0]);
+        Files.createDirectories(outputDirectory);
+        try (OutputStream stream = Files.newOutputStream(outputDirectory.resolve(INJECTION_INDEX_FILE))) {
+            index.save(stream);
+        }
+    }
+
+    /**
+     * Indexes every class of the base package found in the given directories by all its super classes and interfaces.
+     *
+     * @param basePackage        the base package
+     * @param classesDirectories the directories of the compiled classes
+     * @param classLoader        the class loader to load the classes with
+     * @return the index of the classes
+     */
+    static InjectionIndex generate(final String basePackage, final List<Path> classesDirectories, final ClassLoader classLoader) throws IOException {
+        final Map<String, Set<String>> subTypes = new HashMap<>();
+        for (String className : findClassNames(basePackage, classesDirectories)) {
+            final Class<?> type;
+            try {
+                type = Class.forName(className, false, classLoader);
+            } catch (ClassNotFoundException | LinkageError e) {
+                throw new InjectionConfigurationException("Could not load class " + className + ": " + e.getMessage(), e);
+            }
+            getSuperTypes(type).forEach(superType -> subTypes.computeIfAbsent(superType.getName(), k -> new TreeSet<>()).add(className));
+        }
+        return new InjectionIndex(basePackage, subTypes, classLoader);
+    }
+
+    private static Set<String> findClassNames(String basePackage, List<Path> classesDirectories) throws IOException {
+        final Set<String> classNames = new TreeSet<>();
+        for (Path classesDirectory : classesDirectories) {
+            final Path packageDirectory = classesDirectory.resolve(basePackage.replace('.', '/'));
+            if (!Files.isDirectory(packageDirectory)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(packageDirectory)) {
+                files.map(classesDirectory::relativize)
+                        .map(Path::toString)
+                        .filter(file -> file.endsWith(CLASS_EXTENSION) && !file.endsWith("package-info" + CLASS_EXTENSION))
+                        .map(file -> file.substring(0, file.length() - CLASS_EXTENSION.length()).replace('\\', '.').replace('/', '.'))
+                        .forEach(classNames::add);
+            }
+        }
+        return classNames;
+    }
+
+    private static Set<Class<?>> getSuperTypes(Class<?> type) {
+        final Set<Class<?>> superTypes = new HashSet<>();
+        final Deque<Class<?>> pendingTypes = new ArrayDeque<>();
+        pendingTypes.push(type);
+        while (!pendingTypes.isEmpty()) {
+            final Class<?> current = pendingTypes.pop();
+            if (current.getSuperclass() != null && current.getSuperclass() != Object.class && superTypes.add(current.getSuperclass())) {
+                pendingTypes.push(current.getSuperclass());
+            }
+            for (Class<?> superInterface : current.getInterfaces()) {
+                if (superTypes.add(superInterface)) {
+                    pendingTypes.push(superInterface);
+                }
+            }
+        }
+        return superTypes;
+    }
+}
@@ -8,18 +8,53 @@ package com.ca.apim.gateway.cagatewayconfig.util.injection;
 
 import org.reflections.Reflections;
 
+import java.util.Set;
+
 /**
  * Contains helper instances and information for other modules provide bindings.
  */
 public class InjectionProviderContext {
 
-    private final Reflections defaultReflections;
+    private final String basePackage;
+    private final InjectionIndex index;
+    private Reflections defaultReflections;
 
     public InjectionProviderContext(Reflections defaultReflections) {
+        this.basePackage = null;
+        this.index = null;
         this.defaultReflections = defaultReflections;
     }
 
-    public Reflections getDefaultReflections() {
+    /**
+     * Creates a context for the given base package, answering the sub type queries from the given index if there is
+     * one, or by scanning the package otherwise.
+     *
+     * @param basePackage the base package
+     * @param index       the index of the base package, null if the build didn't generate one
+     */
+    InjectionProviderContext(String basePackage, InjectionIndex index) {
+        this.basePackage = basePackage;
+        this.index = index;
+    }
+
+    /**
+     * Gets the classes of the base package that extend or implement the given type.
+     *
+     * @param type the super type
+     * @param <T>  the super type
+     * @return the sub types of the given type
+     */
+    public <T> Set<Class<? extends T>> getSubTypesOf(Class<T> type) {
+        return index != null ? index.getSubTypesOf(type) : getDefaultReflections().getSubTypesOf(type);
+    }
+
+    /**
+     * @return the Reflections scan of the base package, only made the first time it is needed
+     */
+    public synchronized Reflections getDefaultReflections() {
+        if (defaultReflections == null) {
+            defaultReflections = new Reflections(basePackage);
+        }
         return defaultReflections;
     }
 }
@@ -18,7 +18,10 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import static com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionIndex.INJECTION_BASE_PACKAGE_KEY;
 import static com.ca.apim.gateway.cagatewayconfig.util.properties.PropertyConstants.EXTENSION_CONFIG_FILE;
 import static com.google.inject.Guice.createInjector;
 import static com.google.inject.multibindings.Multibinder.newSetBinder;
@@ -27,6 +30,7 @@ import static java.lang.reflect.Modifier.isInterface;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Optional.ofNullable;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * Dependency injection module for the gateway developer plugins.
@@ -34,7 +38,7 @@ import static java.util.Optional.ofNullable;
 public class InjectionRegistry extends AbstractModule {
 
     private static final InjectionRegistry INSTANCE = new InjectionRegistry();
-    private static final String INJECTION_BASE_PACKAGE_KEY = "injection.base.package";
+    private static final Logger LOGGER = Logger.getLogger(InjectionRegistry.class.getName());
     private static Injector injector;
 
     private InjectionRegistry() {
@@ -47,19 +51,25 @@ public class InjectionRegistry extends AbstractModule {
         Map<Class, Object> singleInstances = new HashMap<>();
         Map<Class, Set<Class>> multibindings = new HashMap<>();
 
+        final long start = System.nanoTime();
+        // the injection indexes generated at build time, the packages without one are scanned
+        final Map<String, InjectionIndex> indexes = InjectionIndex.loadIndexes(InjectionRegistry.class.getClassLoader());
+
         // find the configuration files and load the packages to be scanned from them
         findPackagesToScan().forEach(p -> {
-            // for each package, create a reflections object to find the providers
-            // and allow the scanning
-            Reflections refl = new Reflections(p);
-            InjectionProviderContext context = new InjectionProviderContext(refl);
+            // for each package, create a context to find the providers and the classes to bind
+            InjectionProviderContext context = new InjectionProviderContext(p, indexes.get(p));
+            if (!indexes.containsKey(p)) {
+                LOGGER.log(Level.FINE, "No injection index found for package {0}, scanning it", p);
+            }
 
-            refl.getSubTypesOf(InjectionProvider.class).forEach(c -> {
+            context.getSubTypesOf(InjectionProvider.class).forEach(c -> {
                 // create the provider
                 InjectionProvider provider = instantiateProvider(c);
 
-                // set up reflections instance of this provider
-                bind(Reflections.class).annotatedWith(Names.named("Reflections_" + provider.getClass().getSimpleName())).toInstance(refl);
+                // set up the context and reflections instance of this provider, the package is only scanned if needed
+                bind(InjectionProviderContext.class).annotatedWith(Names.named("InjectionProviderContext_" + provider.getClass().getSimpleName())).toInstance(context);
+                bind(Reflections.class).annotatedWith(Names.named("Reflections_" + provider.getClass().getSimpleName())).toProvider(context::getDefaultReflections);
 
                 // bind all single bindings
                 ofNullable(provider.getSingleBindings(context))
@@ -95,6 +105,7 @@ public class InjectionRegistry extends AbstractModule {
             Multibinder multibinder = newSetBinder(binder(), baseClass);
             subClasses.forEach(c -> multibinder.addBinding().to(c));
         });
+        LOGGER.log(Level.FINE, "Configured injection bindings in {0} ms", NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
     private static Set<String> findPackagesToScan() {
@@ -9,18 +9,20 @@ package com.ca.apim.gateway.cagatewayconfig.util.xml;
 import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtilsException;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.*;
 import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.xpath.XPath;
@@ -28,6 +30,8 @@ import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.ca.apim.gateway.cagatewayconfig.util.file.FileUtils.closeQuietly;
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -37,18 +41,21 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class DocumentTools {
     public static final DocumentTools INSTANCE = new DocumentTools();
+    private static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event";
 
-    private final DocumentBuilder builder;
+    private final DocumentBuilderFactory documentBuilderFactory;
+    // document builders and transformers are not thread safe, each thread parses and prints with its own
+    private final ThreadLocal<DocumentBuilder> builders;
+    private final ThreadLocal<Transformer> transformers;
     private final XPathFactory xPathFactory;
     private final TransformerFactory transformerFactory;
+    private final XMLInputFactory xmlInputFactory;
 
     public DocumentTools() {
-        final DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        try {
-            builder = dbFactory.newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            throw new DocumentToolsException("Unexpected exception creating DocumentBuilder", e);
-        }
+        documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        final DocumentBuilder builder = newDocumentBuilder();
+        builders = ThreadLocal.withInitial(this::newDocumentBuilder);
+        builders.set(builder);
 
         xPathFactory = XPathFactory.newInstance();
 
@@ -59,11 +66,34 @@ public class DocumentTools {
         } catch (TransformerConfigurationException e) {
             throw new DocumentToolsException("Unexpected exception creating TransformerFactory", e);
         }
+        transformers = ThreadLocal.withInitial(this::getTransformer);
+
+        xmlInputFactory = XMLInputFactory.newInstance();
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        if (xmlInputFactory.isPropertySupported(REPORT_CDATA_EVENT)) {
+            // keep cdata sections as the document builder does instead of reading them as plain text
+            xmlInputFactory.setProperty(REPORT_CDATA_EVENT, true);
+        }
+    }
+
+    private DocumentBuilder newDocumentBuilder() {
+        try {
+            // like the transformer factory, the document builder factory is not thread safe
+            synchronized (documentBuilderFactory) {
+                return documentBuilderFactory.newDocumentBuilder();
+            }
+        } catch (ParserConfigurationException e) {
+            throw new DocumentToolsException("Unexpected exception creating DocumentBuilder", e);
+        }
     }
 
     public Transformer getTransformer() {
         try {
-            return configureTransformer(transformerFactory.newTransformer());
+            // the factory is not thread safe, the transformers it creates are used by a single thread only
+            synchronized (transformerFactory) {
+                return configureTransformer(transformerFactory.newTransformer());
+            }
         } catch (TransformerConfigurationException e) {
             throw new DocumentToolsException("Exception loading stylesheet.", e);
         }
@@ -71,12 +101,32 @@ public class DocumentTools {
 
     public Transformer getTransformer(final StreamSource stylesheet) {
         try {
-            return configureTransformer(transformerFactory.newTransformer(stylesheet));
+            synchronized (transformerFactory) {
+                return configureTransformer(transformerFactory.newTransformer(stylesheet));
+            }
         } catch (TransformerConfigurationException e) {
             throw new DocumentToolsException("Exception loading stylesheet.", e);
         }
     }
 
+    /**
+     * Returns a handler that serializes the SAX events it receives with the same output properties used by
+     * {@link #printXML(Element, OutputStream, boolean)}.
+     *
+     * @return a new transformer handler, a result has to be set on it before sending the first event
+     */
+    public TransformerHandler getTransformerHandler() {
+        try {
+            synchronized (transformerFactory) {
+                final TransformerHandler transformerHandler = ((SAXTransformerFactory) transformerFactory).newTransformerHandler();
+                configureTransformer(transformerHandler.getTransformer());
+                return transformerHandler;
+            }
+        } catch (TransformerConfigurationException e) {
+            throw new DocumentToolsException("Exception creating transformer handler.", e);
+        }
+    }
+
     private Transformer configureTransformer(final Transformer transformer) {
         transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
         transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
@@ -85,8 +135,13 @@ public class DocumentTools {
         return transformer;
     }
 
+    /**
+     * Returns the document builder of the calling thread. It should not be handed over to other threads for parsing.
+     *
+     * @return the document builder of the calling thread
+     */
     public DocumentBuilder getDocumentBuilder() {
-        return builder;
+        return builders.get();
     }
 
     public Document parse(final File file) throws DocumentParseException {
@@ -106,27 +161,155 @@ public class DocumentTools {
     }
 
     /**
-     * Parses an input stream into a document object
+     * Parses an input stream into a document object, using the document builder of the calling thread so that
+     * documents can be parsed concurrently
      *
      * @param inputStream The input stream to parse into a document
      * @return The parsed document
      * @throws DocumentParseException Thrown if there is an exception while parsing the document
      */
-    private synchronized Document parse(final InputStream inputStream) throws DocumentParseException {
+    private Document parse(final InputStream inputStream) throws DocumentParseException {
         try {
-            return builder.parse(inputStream);
+            return builders.get().parse(inputStream);
         } catch (SAXException | IOException e) {
             throw new DocumentParseException("Exception parsing document from input stream", e);
         }
     }
 
+    /**
+     * Creates a streaming reader over the input stream, used to read large documents one element at a time with
+     * {@link #readElement(XMLStreamReader)} instead of parsing them whole.
+     *
+     * @param inputStream The input stream to read
+     * @return a reader positioned at the start of the document
+     * @throws DocumentParseException Thrown if the document can't be read
+     */
+    public XMLStreamReader createXMLStreamReader(final InputStream inputStream) throws DocumentParseException {
+        try {
+            synchronized (xmlInputFactory) {
+                return xmlInputFactory.createXMLStreamReader(inputStream);
+            }
+        } catch (XMLStreamException e) {
+            throw new DocumentParseException("Exception reading document from input stream", e);
+        }
+    }
+
+    /**
+     * Reads the element the reader is positioned at, with all its content, into a new document of the calling
+     * thread. The reader is left at the end of the element. Whitespace only text is dropped while reading, like
+     * {@link #cleanup(Document)} does, and elements and attributes are named like the non namespace aware
+     * document builder names them.
+     *
+     * @param reader a reader positioned at the start of an element
+     * @return the element read, the document element of its document
+     * @throws DocumentParseException Thrown if the element can't be read
+     */
+    public Element readElement(final XMLStreamReader reader) throws DocumentParseException {
+        final Document document = builders.get().newDocument();
+        final Element element = createElement(reader, document);
+        document.appendChild(element);
+        Node current = element;
+        // adjacent text and cdata are a single text node to xpath, they are only dropped when all of them are whitespace
+        final List<CharacterData> textRun = new ArrayList<>();
+        try {
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamReader.START_ELEMENT:
+                        appendTextRun(current, textRun);
+                        current = current.appendChild(createElement(reader, document));
+                        break;
+                    case XMLStreamReader.END_ELEMENT:
+                        appendTextRun(current, textRun);
+                        if (current == element) {
+                            return element;
+                        }
+                        current = current.getParentNode();
+                        break;
+                    case XMLStreamReader.CHARACTERS:
+                    case XMLStreamReader.SPACE:
+                        final String text = reader.getText();
+                        final CharacterData last = textRun.isEmpty() ? null : textRun.get(textRun.size() - 1);
+                        if (last instanceof Text && !(last instanceof CDATASection)) {
+                            last.appendData(text);
+                        } else {
+                            textRun.add(document.createTextNode(text));
+                        }
+                        break;
+                    case XMLStreamReader.CDATA:
+                        textRun.add(document.createCDATASection(reader.getText()));
+                        break;
+                    case XMLStreamReader.COMMENT:
+                        appendTextRun(current, textRun);
+                        current.appendChild(document.createComment(reader.getText()));
+                        break;
+                    case XMLStreamReader.PROCESSING_INSTRUCTION:
+                        appendTextRun(current, textRun);
+                        current.appendChild(document.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new DocumentParseException("Exception reading element " + element.getTagName(), e);
+        }
+        throw new DocumentParseException("Document ended before the end of element " + element.getTagName());
+    }
+
+    /**
+     * Returns the name of the element the reader is at, with its prefix, as the non namespace aware document builder
+     * names it.
+     *
+     * @param reader a reader positioned at the start or end of an element
+     * @return the qualified name of the element
+     */
+    public static String getQualifiedName(final XMLStreamReader reader) {
+        return getQualifiedName(reader.getPrefix(), reader.getLocalName());
+    }
+
+    private static String getQualifiedName(final String prefix, final String localName) {
+        return prefix == null || prefix.isEmpty() ? localName : prefix + ":" + localName;
+    }
+
+    private static Element createElement(final XMLStreamReader reader, final Document document) {
+        final Element element = document.createElement(getQualifiedName(reader));
+        for (int i = 0; i < reader.getNamespaceCount(); i++) {
+            final String prefix = reader.getNamespacePrefix(i);
+            element.setAttribute(prefix == null || prefix.isEmpty() ? "xmlns" : "xmlns:" + prefix, reader.getNamespaceURI(i));
+        }
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    private static void appendTextRun(final Node node, final List<CharacterData> textRun) {
+        if (textRun.stream().anyMatch(text -> !isWhitespace(text.getData()))) {
+            textRun.forEach(node::appendChild);
+        }
+        textRun.clear();
+    }
+
+    // the whitespace removed by normalize-space()
+    private static boolean isWhitespace(final CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Returns a new xPath that can be used to query a document
      *
      * @return an xPath that can be used to query a document
      */
     private XPath newXPath() {
-        return xPathFactory.newXPath();
+        synchronized (xPathFactory) {
+            return xPathFactory.newXPath();
+        }
     }
 
     public void cleanup(final Document bundleDocument) {
@@ -164,7 +347,7 @@ public class DocumentTools {
             node.setAttribute("xmlns:l7", "http://ns.l7tech.com/2010/04/gateway-management");
         }
 
-        final Transformer transformer = getTransformer();
+        final Transformer transformer = transformers.get();
         try (OutputStreamWriter writer = new OutputStreamWriter(outStream, UTF_8)) {
             transformer.transform(new DOMSource(node), new StreamResult(writer));
         } catch (TransformerException | IOException e) {
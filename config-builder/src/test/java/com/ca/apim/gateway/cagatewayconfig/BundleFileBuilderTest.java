@@ -9,14 +9,22 @@ package com.ca.apim.gateway.cagatewayconfig;
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.beans.DependentBundle;
 import com.ca.apim.gateway.cagatewayconfig.beans.Policy;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleDocumentWriter;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleEntityBuilder;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BundleEntityBuilderTestHelper;
 import com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder;
 import com.ca.apim.gateway.cagatewayconfig.config.loader.EntityLoader;
 import com.ca.apim.gateway.cagatewayconfig.config.loader.EntityLoaderRegistry;
 import com.ca.apim.gateway.cagatewayconfig.environment.BundleCache;
+import com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentPlan;
 import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils;
 import com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionRegistry;
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
 import org.junit.Assert;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -27,16 +35,21 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import javax.xml.parsers.DocumentBuilder;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
+@ExtendWith({MockitoExtension.class, TemporaryFolderExtension.class})
 class BundleFileBuilderTest {
 
     @Mock
@@ -52,6 +65,8 @@ class BundleFileBuilderTest {
     @Mock
     DocumentBuilder documentBuilder;
     @Mock
+    BundleDocumentWriter bundleDocumentWriter;
+    @Mock
     BundleCache bundleCache;
 
     private static final ProjectInfo projectInfo = new ProjectInfo("my-bundle", "my-bundle-group", "1.0");
@@ -64,11 +79,11 @@ class BundleFileBuilderTest {
     @Test
     void buildBundleNoSource() {
         BundleFileBuilder bundleFileBuilder = new BundleFileBuilder(documentTools, documentFileUtils,
-                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleCache);
+                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleDocumentWriter, bundleCache);
         bundleFileBuilder.buildBundle(null, new File("output"), Collections.emptyList(), projectInfo);
 
         verify(bundleEntityBuilder).build(argThat(bundle -> bundle.getPolicies().isEmpty()),
-                eq(EntityBuilder.BundleType.DEPLOYMENT), any(), eq(projectInfo));
+                eq(EntityBuilder.BundleType.DEPLOYMENT), any(), eq(projectInfo), eq(1), eq(false), any());
     }
 
     @Test
@@ -78,11 +93,11 @@ class BundleFileBuilderTest {
         when(entityLoaderRegistry.getEntityLoaders()).thenReturn(Collections.singleton(new TestPolicyLoader(policy)));
 
         BundleFileBuilder bundleFileBuilder = new BundleFileBuilder(documentTools, documentFileUtils,
-                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleCache);
+                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleDocumentWriter, bundleCache);
         bundleFileBuilder.buildBundle(new File("input"), new File("output"),Collections.emptyList(), projectInfo);
 
         verify(bundleEntityBuilder).build(argThat(bundle -> bundle.getPolicies().containsKey(policy.getName()) && bundle.getPolicies().containsValue(policy)),
-                eq(EntityBuilder.BundleType.DEPLOYMENT), any(), eq(projectInfo));
+                eq(EntityBuilder.BundleType.DEPLOYMENT), any(), eq(projectInfo), eq(1), eq(false), any());
     }
 
     @Test
@@ -97,7 +112,7 @@ class BundleFileBuilderTest {
         when(bundleCache.getBundleFromFile(any(File.class))).thenReturn(dependencyBundle);
 
         BundleFileBuilder bundleFileBuilder = Mockito.spy(new BundleFileBuilder(documentTools, documentFileUtils,
-                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleCache));
+                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleDocumentWriter, bundleCache));
         bundleFileBuilder.buildBundle(new File("input"), new File("output"), dummyList, projectInfo);
         Assert.assertNotNull(dependencyBundle.getDependentBundleFrom());
     }
@@ -113,12 +128,88 @@ class BundleFileBuilderTest {
         when(bundleCache.getBundleFromMetadataFile(any(File.class))).thenReturn(new Bundle());
 
         BundleFileBuilder bundleFileBuilder = Mockito.spy(new BundleFileBuilder(documentTools, documentFileUtils,
-                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleCache));
+                jsonFileUtils, entityLoaderRegistry, bundleEntityBuilder, bundleDocumentWriter, bundleCache));
         bundleFileBuilder.buildBundle(new File("input"), new File("output"), dummyList, projectInfo);
 
         verify(bundleFileBuilder, Mockito.times(2)).logOverriddenEntities(any(Bundle.class), any(), any());
     }
 
+    @Test
+    void buildStreamedBundleSameAsBuiltBundle(final TemporaryFolder temporaryFolder) throws IOException {
+        when(documentBuilder.newDocument()).thenAnswer(invocation -> DocumentTools.INSTANCE.getDocumentBuilder().newDocument());
+        when(entityLoaderRegistry.getEntityLoaders()).thenReturn(Collections.singleton(new TestBundleLoader()));
+        BundleFileBuilder bundleFileBuilder = new BundleFileBuilder(documentTools, DocumentFileUtils.INSTANCE,
+                jsonFileUtils, entityLoaderRegistry, InjectionRegistry.getInstance(BundleEntityBuilder.class),
+                InjectionRegistry.getInstance(BundleDocumentWriter.class), bundleCache);
+
+        File builtDir = temporaryFolder.createDirectory("built");
+        File streamedDir = temporaryFolder.createDirectory("streamed");
+        bundleFileBuilder.buildBundle(temporaryFolder.getRoot(), builtDir, Collections.emptyList(), projectInfo, 1, false);
+        bundleFileBuilder.buildBundle(temporaryFolder.getRoot(), streamedDir, Collections.emptyList(), projectInfo, 1, true);
+
+        File[] builtBundles = builtDir.listFiles((dir, name) -> name.endsWith(".bundle"));
+        assertNotNull(builtBundles);
+        // the install and the delete bundles
+        assertEquals(2, builtBundles.length);
+        for (File builtBundle : builtBundles) {
+            File streamedBundle = new File(streamedDir, builtBundle.getName());
+            assertTrue(streamedBundle.isFile(), "Missing streamed bundle " + streamedBundle.getName());
+            assertArrayEquals(Files.readAllBytes(builtBundle.toPath()), Files.readAllBytes(streamedBundle.toPath()),
+                    "Streamed bundle " + streamedBundle.getName() + " is different");
+        }
+    }
+
+    @Test
+    void buildBundleWithEnvironmentPlans(final TemporaryFolder temporaryFolder) throws IOException {
+        when(documentBuilder.newDocument()).thenAnswer(invocation -> DocumentTools.INSTANCE.getDocumentBuilder().newDocument());
+        doAnswer(invocation -> {
+            DocumentTools.INSTANCE.printXML(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(documentTools).printXML(any(), any(), anyBoolean());
+        when(entityLoaderRegistry.getEntityLoaders()).thenReturn(Collections.singleton(new TestBundleLoader()));
+        BundleFileBuilder bundleFileBuilder = new BundleFileBuilder(documentTools, DocumentFileUtils.INSTANCE,
+                jsonFileUtils, entityLoaderRegistry, InjectionRegistry.getInstance(BundleEntityBuilder.class),
+                InjectionRegistry.getInstance(BundleDocumentWriter.class), bundleCache);
+        ProjectInfo environmentPlansProjectInfo = new ProjectInfo(projectInfo.getName(), projectInfo.getGroupName(), projectInfo.getVersion());
+        environmentPlansProjectInfo.setWriteEnvironmentPlans(true);
+
+        File builtDir = temporaryFolder.createDirectory("built");
+        File streamedDir = temporaryFolder.createDirectory("streamed");
+        bundleFileBuilder.buildBundle(temporaryFolder.getRoot(), builtDir, Collections.emptyList(), environmentPlansProjectInfo, 1, false);
+        bundleFileBuilder.buildBundle(temporaryFolder.getRoot(), streamedDir, Collections.emptyList(), environmentPlansProjectInfo, 1, true);
+
+        ObjectMapper objectMapper = JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON);
+        File[] builtPlans = builtDir.listFiles((dir, name) -> name.endsWith(EnvironmentPlan.ENVIRONMENT_PLAN_FILE_SUFFIX));
+        assertNotNull(builtPlans);
+        // only the install bundle has a plan
+        assertEquals(1, builtPlans.length);
+        String bundleName = builtPlans[0].getName().substring(0, builtPlans[0].getName().length() - EnvironmentPlan.ENVIRONMENT_PLAN_FILE_SUFFIX.length());
+        String bundleXml = new String(Files.readAllBytes(new File(builtDir, bundleName).toPath()), UTF_8);
+        // the plan recorded while writing the bundle is the plan created from the bundle written
+        String expectedPlan = objectMapper.writeValueAsString(EnvironmentPlan.create(bundleName, bundleXml));
+        assertEquals(expectedPlan, objectMapper.writeValueAsString(objectMapper.readValue(builtPlans[0], EnvironmentPlan.class)));
+        assertEquals(expectedPlan, objectMapper.writeValueAsString(objectMapper.readValue(
+                EnvironmentPlan.getPlanFile(new File(streamedDir, bundleName)), EnvironmentPlan.class)));
+    }
+
+    /**
+     * Loads the same entities on every build, with a policy fragment, a trusted cert and a jdbc connection.
+     */
+    static class TestBundleLoader extends TestPolicyLoader {
+
+        @Override
+        public void load(Bundle bundle, File rootDir) {
+            Bundle entities = BundleEntityBuilderTestHelper.createBundleWithPolicyFragment(false, projectInfo);
+            // the fragment has a random guid
+            entities.getPolicies().get("TestPolicyFragment").setGuid("c9a9e8b2-1f8d-4a0c-9d0e-0f4b1f6d2a11");
+            bundle.getFolders().putAll(entities.getFolders());
+            bundle.getPolicies().putAll(entities.getPolicies());
+            bundle.getTrustedCerts().putAll(entities.getTrustedCerts());
+            bundle.getJdbcConnections().putAll(entities.getJdbcConnections());
+            bundle.setDependencyMap(entities.getDependencyMap());
+        }
+    }
+
     static class TestPolicyLoader implements EntityLoader {
         private final Policy policy;
 
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig;
+
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.BuiltPolicy;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class IncrementalBuildCacheTest {
+
+    private static final ProjectInfo projectInfo = new ProjectInfo("my-bundle", "my-bundle-group", "1.0");
+    private static final String BUNDLE_NAME = "my-bundle-1.0";
+    private static final String INSTALL_BUNDLE = BUNDLE_NAME + ".install.bundle";
+    private static final String DELETE_BUNDLE = BUNDLE_NAME + ".delete.bundle";
+    private static final String POLICY_PATH = "my-policy.xml";
+
+    private File rootDir;
+    private File outputDir;
+    private File cacheDir;
+
+    @BeforeEach
+    void beforeEach(final TemporaryFolder temporaryFolder) throws IOException {
+        rootDir = temporaryFolder.createDirectory("src");
+        outputDir = temporaryFolder.createDirectory("output");
+        cacheDir = new File(temporaryFolder.getRoot(), "cache");
+        write(new File(rootDir, "config/cluster-properties.yml"), "a: b");
+        write(new File(rootDir, "policy/my-policy.xml"), "<policy/>");
+    }
+
+    @Test
+    void restoreStoredBundle() throws IOException {
+        buildBundle("install", "delete");
+        write(new File(outputDir, INSTALL_BUNDLE), "changed");
+        new File(outputDir, DELETE_BUNDLE).delete();
+
+        IncrementalBuildCache cache = createCache();
+        assertTrue(cache.restore(BUNDLE_NAME, "fingerprint"));
+        assertEquals("install", read(new File(outputDir, INSTALL_BUNDLE)));
+        assertEquals("delete", read(new File(outputDir, DELETE_BUNDLE)));
+        assertFalse(cache.restore(BUNDLE_NAME, "other-fingerprint"));
+        assertFalse(cache.restore("other-bundle", "fingerprint"));
+    }
+
+    @Test
+    void restoreAfterInputChanges() throws IOException {
+        buildBundle("install", "delete");
+
+        // policies are part of the fingerprint of the bundles
+        write(new File(rootDir, "policy/my-policy.xml"), "<policy><changed/></policy>");
+        assertTrue(createCache().restore(BUNDLE_NAME, "fingerprint"));
+
+        write(new File(rootDir, "policy/new-policy.xml"), "<policy/>");
+        assertFalse(createCache().restore(BUNDLE_NAME, "fingerprint"));
+    }
+
+    @Test
+    void restoreAfterConfigChanges() throws IOException {
+        buildBundle("install", "delete");
+
+        write(new File(rootDir, "config/cluster-properties.yml"), "a: changed");
+        assertFalse(createCache().restore(BUNDLE_NAME, "fingerprint"));
+    }
+
+    @Test
+    void restoreDamagedCache() throws IOException {
+        buildBundle("install", "delete");
+
+        File cachedBundle = new File(cacheDir, "bundles/" + BUNDLE_NAME + "/" + INSTALL_BUNDLE);
+        assertTrue(cachedBundle.isFile());
+        write(cachedBundle, "damaged");
+        assertFalse(createCache().restore(BUNDLE_NAME, "fingerprint"));
+    }
+
+    @Test
+    void saveDropsBundlesNotBuilt() throws IOException {
+        buildBundle("install", "delete");
+
+        IncrementalBuildCache cache = createCache();
+        cache.save();
+        assertFalse(new File(cacheDir, "bundles/" + BUNDLE_NAME).exists());
+        assertFalse(createCache().restore(BUNDLE_NAME, "fingerprint"));
+    }
+
+    @Test
+    void storeWithoutFingerprint() throws IOException {
+        buildBundle("install", "delete");
+
+        // a bundle that can't be restored replaces the cached one
+        IncrementalBuildCache cache = createCache();
+        cache.store(BUNDLE_NAME, null, Arrays.asList(INSTALL_BUNDLE, DELETE_BUNDLE));
+        cache.save();
+        assertFalse(new File(cacheDir, "bundles/" + BUNDLE_NAME).exists());
+        assertFalse(createCache().restore(BUNDLE_NAME, "fingerprint"));
+    }
+
+    @Test
+    void restoreStoredPolicy() throws IOException {
+        buildBundle("install", "delete");
+
+        IncrementalBuildCache cache = createCache();
+        BuiltPolicy builtPolicy = cache.restorePolicy(POLICY_PATH, "policy-fingerprint");
+        assertNotNull(builtPolicy);
+        assertEquals("<policy/>", builtPolicy.getPolicyXML());
+        assertEquals(Collections.singletonList("included-policy.xml"), builtPolicy.getIncludedPolicies());
+        assertNull(cache.restorePolicy(POLICY_PATH, "other-fingerprint"));
+        assertNull(cache.restorePolicy("other-policy.xml", "policy-fingerprint"));
+
+        write(new File(rootDir, "config/cluster-properties.yml"), "a: changed");
+        assertNull(createCache().restorePolicy(POLICY_PATH, "policy-fingerprint"));
+    }
+
+    @Test
+    void restoreDamagedPolicy() throws IOException {
+        buildBundle("install", "delete");
+
+        File[] policyFiles = new File(cacheDir, "policies").listFiles();
+        assertNotNull(policyFiles);
+        assertEquals(1, policyFiles.length);
+        write(policyFiles[0], "{\"policyXML\":\"<damaged/>\"}");
+        assertNull(createCache().restorePolicy(POLICY_PATH, "policy-fingerprint"));
+    }
+
+    @Test
+    void saveKeepsPoliciesOfRestoredBundles() throws IOException {
+        buildBundle("install", "delete");
+
+        // the policies are not looked up when their bundle is restored
+        IncrementalBuildCache cache = createCache();
+        assertTrue(cache.restore(BUNDLE_NAME, "fingerprint"));
+        cache.save();
+        assertNotNull(createCache().restorePolicy(POLICY_PATH, "policy-fingerprint"));
+
+        // but they are dropped when the bundle is built without them
+        cache = createCache();
+        assertFalse(cache.restore(BUNDLE_NAME, "other-fingerprint"));
+        cache.store(BUNDLE_NAME, "other-fingerprint", Arrays.asList(INSTALL_BUNDLE, DELETE_BUNDLE));
+        cache.save();
+        assertNull(createCache().restorePolicy(POLICY_PATH, "policy-fingerprint"));
+        assertArrayEquals(new File[0], new File(cacheDir, "policies").listFiles());
+    }
+
+    private void buildBundle(String installBundle, String deleteBundle) throws IOException {
+        IncrementalBuildCache cache = createCache();
+        assertFalse(cache.restore(BUNDLE_NAME, "fingerprint"));
+        assertNull(cache.restorePolicy(POLICY_PATH, "policy-fingerprint"));
+        cache.storePolicy(POLICY_PATH, "policy-fingerprint", new BuiltPolicy("<policy/>", Collections.singletonList("included-policy.xml")));
+        write(new File(outputDir, INSTALL_BUNDLE), installBundle);
+        write(new File(outputDir, DELETE_BUNDLE), deleteBundle);
+        cache.store(BUNDLE_NAME, "fingerprint", Arrays.asList(INSTALL_BUNDLE, DELETE_BUNDLE));
+        cache.save();
+    }
+
+    private IncrementalBuildCache createCache() throws IOException {
+        IncrementalBuildCache cache = new IncrementalBuildCache(cacheDir, outputDir);
+        cache.fingerprintInputs(rootDir, Collections.emptyList(), projectInfo);
+        return cache;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), content.getBytes(UTF_8));
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.beans;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedEntityMapTest {
+
+    private static final String ID_INDEX = "id";
+
+    @Test
+    void getIndexed() {
+        IndexedEntityMap<Policy> policies = new IndexedEntityMap<Policy>().withIndex(ID_INDEX, Policy::getId);
+        Policy policy = createPolicy("policy", "id");
+        policies.put("policy", policy);
+        policies.put("other-policy", createPolicy("other-policy", "other-id"));
+
+        assertEquals(Collections.singletonList(policy), policies.getIndexed(ID_INDEX, "id"));
+        assertTrue(policies.getIndexed(ID_INDEX, "missing").isEmpty());
+    }
+
+    @Test
+    void getIndexedAfterValueChange() {
+        IndexedEntityMap<Policy> policies = new IndexedEntityMap<Policy>().withIndex(ID_INDEX, Policy::getId);
+        Policy policy = createPolicy("policy", "id");
+        policies.put("policy", policy);
+
+        policy.setId("new-id");
+        // only the value the policy had when put is indexed
+        assertTrue(policies.getIndexed(ID_INDEX, "id").isEmpty());
+        assertTrue(policies.getIndexed(ID_INDEX, "new-id").isEmpty());
+
+        policies.put("policy", policy);
+        assertTrue(policies.getIndexed(ID_INDEX, "id").isEmpty());
+        assertEquals(Collections.singletonList(policy), policies.getIndexed(ID_INDEX, "new-id"));
+
+        // the old value of the policy is no longer indexed once it changes back
+        policy.setId("id");
+        assertTrue(policies.getIndexed(ID_INDEX, "id").isEmpty());
+    }
+
+    @Test
+    void removeAfterValueChange() {
+        IndexedEntityMap<Policy> policies = new IndexedEntityMap<Policy>().withIndex(ID_INDEX, Policy::getId);
+        Policy policy = createPolicy("policy", "id");
+        policies.put("policy", policy);
+
+        policy.setId("new-id");
+        policies.remove("policy");
+        Policy otherPolicy = createPolicy("other-policy", "new-id");
+        policies.put("policy", otherPolicy);
+        policy.setId("id");
+
+        assertTrue(policies.getIndexed(ID_INDEX, "id").isEmpty());
+        assertEquals(Collections.singletonList(otherPolicy), policies.getIndexed(ID_INDEX, "new-id"));
+    }
+
+    @Test
+    void getIndexedWithNullValue() {
+        Bundle bundle = new Bundle();
+        Policy unnamedPolicy = createPolicy(null, "id");
+        bundle.getPolicies().put("unnamed", unnamedPolicy);
+        bundle.getPolicies().put("named", createPolicy("named", "other-id"));
+
+        assertEquals(Collections.singletonList(unnamedPolicy), bundle.getPoliciesByName(null));
+
+        bundle.getPolicies().remove("unnamed");
+        assertTrue(bundle.getPoliciesByName(null).isEmpty());
+    }
+
+    @Test
+    void getNullKey() {
+        Bundle bundle = new Bundle();
+        bundle.getPolicies().put("policy", createPolicy("policy", "id"));
+
+        // a missing policy reference is not found, like in a HashMap
+        assertNull(bundle.getPolicies().get(null));
+        assertFalse(bundle.getPolicies().containsKey(null));
+        assertNull(bundle.getPolicies().remove(null));
+        assertEquals(1, bundle.getPolicies().size());
+    }
+
+    @Test
+    void getIndexedAfterEntrySetChange() {
+        IndexedEntityMap<Policy> policies = new IndexedEntityMap<Policy>().withIndex(ID_INDEX, Policy::getId);
+        policies.put("policy", createPolicy("policy", "id"));
+        Policy otherPolicy = createPolicy("other-policy", "other-id");
+
+        Iterator<Map.Entry<String, Policy>> iterator = policies.entrySet().iterator();
+        iterator.next().setValue(otherPolicy);
+
+        assertTrue(policies.getIndexed(ID_INDEX, "id").isEmpty());
+        assertEquals(Collections.singletonList(otherPolicy), policies.getIndexed(ID_INDEX, "other-id"));
+
+        iterator = policies.entrySet().iterator();
+        iterator.next();
+        iterator.remove();
+        assertTrue(policies.getIndexed(ID_INDEX, "other-id").isEmpty());
+    }
+
+    private static Policy createPolicy(String name, String id) {
+        Policy policy = new Policy();
+        policy.setName(name);
+        policy.setId(id);
+        return policy;
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
+import com.ca.apim.gateway.cagatewayconfig.util.gateway.MappingActions;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static com.ca.apim.gateway.cagatewayconfig.util.TestUtils.createCassandraXml;
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BundleElementNames.*;
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.MappingActions.NEW_OR_EXISTING;
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.MappingProperties.FAIL_ON_NEW;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BundleDocumentWriterTest {
+
+    private final BundleDocumentBuilder builder = new BundleDocumentBuilder();
+    private final BundleDocumentWriter writer = new BundleDocumentWriter(DocumentTools.INSTANCE);
+
+    @Test
+    void write() {
+        Document document = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
+        Entity cassandra = EntityBuilderHelper.getEntityWithNameMapping(EntityTypes.CASSANDRA_CONNECTION_TYPE, "Test", "Test", createCassandraXml(document, true, true));
+        cassandra.setMappingAction(NEW_OR_EXISTING);
+        cassandra.setMappingProperty(FAIL_ON_NEW, true);
+        Entity jdbc = EntityBuilderHelper.getEntityWithOnlyMapping(EntityTypes.JDBC_CONNECTION, "Test", "Test");
+        Entity policy = EntityBuilderHelper.getEntityWithNameMapping(EntityTypes.POLICY_TYPE, "Policy & \"more\"", "policy-id", createPolicyXml(document));
+
+        List<Entity> entities = Arrays.asList(cassandra, jdbc, policy);
+        assertEquals(print(builder.build(document, entities)), write(new StreamedBundle(entities)));
+    }
+
+    @Test
+    void writeEmptyBundle() {
+        Document document = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
+
+        assertEquals(print(builder.build(document, Collections.emptyList())),
+                write(new StreamedBundle(Collections.emptyList())));
+    }
+
+    @Test
+    void writeMappingPropertiesOfEveryType() {
+        Document document = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
+        Entity jdbc = EntityBuilderHelper.getEntityWithOnlyMapping(EntityTypes.JDBC_CONNECTION, "", "Test");
+        jdbc.setMappingProperty("string", "");
+        jdbc.setMappingProperty("integer", 1);
+        jdbc.setMappingProperty("long", 2L);
+        jdbc.setMappingProperty("boolean", false);
+        jdbc.setMappingProperty("date", new Date(0));
+        jdbc.setMappingProperty("null", null);
+        List<Entity> entities = Collections.singletonList(jdbc);
+
+        assertEquals(print(builder.build(document, entities)), write(new StreamedBundle(entities)));
+    }
+
+    @Test
+    void writeMappingActionsOfCreation() {
+        Document document = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
+        Entity cassandra = EntityBuilderHelper.getEntityWithNameMapping(EntityTypes.CASSANDRA_CONNECTION_TYPE, "Test", "Test", createCassandraXml(document, false, false));
+        cassandra.setMappingAction(NEW_OR_EXISTING);
+        List<Entity> entities = Collections.singletonList(cassandra);
+
+        String expected = print(builder.build(document, entities));
+        StreamedBundle bundle = new StreamedBundle(entities);
+        cassandra.setMappingAction(MappingActions.DELETE);
+
+        assertEquals(expected, write(bundle));
+    }
+
+    private Element createPolicyXml(Document document) {
+        Element policyXml = createElementWithAttributesAndChildren(
+                document,
+                POLICY,
+                ImmutableMap.of(ATTRIBUTE_ID, "policy-id", ATTRIBUTE_GUID, "policy-guid\twith\nbreaks"),
+                createElementWithTextContent(document, NAME, ""),
+                createElementWithChildren(document, RESOURCES, createElementWithAttributesAndChildren(
+                        document,
+                        RESOURCE,
+                        ImmutableMap.of(TYPE, "policy", "xmlns:l7", "http://ns.l7tech.com/2010/04/gateway-management")
+                ))
+        );
+        Element resource = getSingleElement(policyXml, RESOURCE);
+        resource.setTextContent("<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2002/12/policy\">\r\n" +
+                "    <L7p:SetVariable expression=\"a > b && c < d\"/>\n" +
+                "</wsp:Policy> é 😀");
+        policyXml.appendChild(document.createComment("comment"));
+        policyXml.appendChild(document.createCDATASection("cdata <section>"));
+        return policyXml;
+    }
+
+    private static Element getSingleElement(Element element, String name) {
+        return (Element) element.getElementsByTagName(name).item(0);
+    }
+
+    private static String print(Element element) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        DocumentTools.INSTANCE.printXML(element, outputStream, false);
+        return new String(outputStream.toByteArray(), UTF_8);
+    }
+
+    private String write(StreamedBundle bundle) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        writer.write(bundle, outputStream);
+        return new String(outputStream.toByteArray(), UTF_8);
+    }
+}
@@ -23,6 +23,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.ca.apim.gateway.cagatewayconfig.beans.Folder.ROOT_FOLDER;
 import static com.ca.apim.gateway.cagatewayconfig.beans.Folder.ROOT_FOLDER_NAME;
@@ -98,6 +99,302 @@ class BundleEntityBuilderTest {
         }
     }
 
+    @Test
+    void buildAnnotatedBundlesInParallel() {
+        BundleEntityBuilder builder = createBundleEntityBuilder();
+        Bundle bundle = createBundleWithPolicyFragment(true, projectInfo);
+        for (int i = 0; i < 4; i++) {
+            Set<Annotation> annotations = new HashSet<>();
+            annotations.add(new Annotation(AnnotationType.BUNDLE));
+            Annotation bundleHintsAnnotation = new Annotation(AnnotationType.BUNDLE_HINTS);
+            bundleHintsAnnotation.setName("encass-bundle-" + i);
+            annotations.add(bundleHintsAnnotation);
+            Encass encass = buildTestEncassWithAnnotation("encass-" + i, "encass-id-" + i,
+                    UUID.randomUUID().toString(), TEST_ENCASS_POLICY, annotations);
+            bundle.getEncasses().put(encass.getName(), encass);
+        }
+
+        Map<String, BundleArtifacts> sequentialBundles = builder.build(bundle, DEPLOYMENT,
+                DocumentTools.INSTANCE.getDocumentBuilder().newDocument(), projectInfo);
+        Map<String, BundleArtifacts> parallelBundles = Collections.synchronizedMap(new HashMap<>());
+        builder.build(bundle, DEPLOYMENT, DocumentTools.INSTANCE.getDocumentBuilder()::newDocument, projectInfo, 4,
+                false, parallelBundles::put);
+
+        assertEquals(4, parallelBundles.size());
+        assertEquals(sequentialBundles.keySet(), parallelBundles.keySet());
+        Set<Document> documents = new HashSet<>();
+        parallelBundles.forEach((name, artifacts) -> {
+            documents.add(artifacts.getInstallBundle().getElement().getOwnerDocument());
+            BundleArtifacts sequentialArtifacts = sequentialBundles.get(name);
+            assertEquals(getItemNames(sequentialArtifacts.getInstallBundle().getElement()),
+                    getItemNames(artifacts.getInstallBundle().getElement()));
+            assertEquals(getItemNames(sequentialArtifacts.getDeleteBundle().getElement()),
+                    getItemNames(artifacts.getDeleteBundle().getElement()));
+            assertNotNull(artifacts.getBundleMetadata());
+        });
+        // each annotated bundle is built into its own document
+        assertEquals(4, documents.size());
+    }
+
+    @Test
+    void buildAnnotatedBundlesSharingEntitiesInParallel() {
+        Set<EntityBuilder> entityBuilders = new HashSet<>(createBundleEntityBuilder().getEntityBuilders());
+        entityBuilders.add(new SsgActiveConnectorEntityBuilder(ID_GENERATOR));
+        BundleEntityBuilder builder = new BundleEntityBuilder(entityBuilders, new BundleDocumentBuilder(),
+                new BundleMetadataBuilder(ID_GENERATOR), entityTypeRegistry, new PrivateKeyImportContextBuilder());
+
+        for (EntityBuilder.BundleType bundleType : EntityBuilder.BundleType.values()) {
+            // each build gets its own bundle, so the parallel build can't reuse what the sequential one set
+            Map<String, BundleArtifacts> sequentialBundles = new HashMap<>();
+            builder.build(createBundleSharingEntities(4), bundleType,
+                    DocumentTools.INSTANCE.getDocumentBuilder()::newDocument, projectInfo, 1, false,
+                    sequentialBundles::put);
+            Map<String, BundleArtifacts> parallelBundles = Collections.synchronizedMap(new HashMap<>());
+            builder.build(createBundleSharingEntities(4), bundleType,
+                    DocumentTools.INSTANCE.getDocumentBuilder()::newDocument, projectInfo, 4, false,
+                    parallelBundles::put);
+
+            assertEquals(4, parallelBundles.size());
+            assertEquals(sequentialBundles.keySet(), parallelBundles.keySet());
+            sequentialBundles.forEach((name, artifacts) -> {
+                assertEquals(toXML(artifacts.getInstallBundle()), toXML(parallelBundles.get(name).getInstallBundle()));
+                assertEquals(toXML(artifacts.getDeleteBundle()), toXML(parallelBundles.get(name).getDeleteBundle()));
+            });
+        }
+    }
+
+    /**
+     * Creates a bundle with annotated encasses that all use the same policy, and so the same password, certificate and
+     * active connector.
+     */
+    private static Bundle createBundleSharingEntities(int annotatedBundles) {
+        Bundle bundle = createBundle(ENCASS_POLICY_WITH_ENV_DEPENDENCIES, true, true, false, projectInfo);
+        SsgActiveConnector activeConnector = new SsgActiveConnector();
+        activeConnector.setName("some-connector");
+        activeConnector.setConnectorType("MqNative");
+        activeConnector.setProperties(new HashMap<>(ImmutableMap.of("MqNativeSecurePasswordOid", "secure-pass")));
+        bundle.getSsgActiveConnectors().put(activeConnector.getName(), activeConnector);
+        Dependency activeConnectorDependency = new Dependency(activeConnector.getName(), EntityTypes.SSG_ACTIVE_CONNECTOR);
+        bundle.getPolicies().get(TEST_ENCASS_POLICY).getUsedEntities().add(activeConnectorDependency);
+        bundle.getDependencyMap().values().forEach(dependencies -> dependencies.add(activeConnectorDependency));
+        for (int i = 0; i < annotatedBundles; i++) {
+            Set<Annotation> annotations = new HashSet<>();
+            annotations.add(new Annotation(AnnotationType.BUNDLE));
+            Annotation bundleHintsAnnotation = new Annotation(AnnotationType.BUNDLE_HINTS);
+            bundleHintsAnnotation.setName("encass-bundle-" + i);
+            annotations.add(bundleHintsAnnotation);
+            Encass encass = buildTestEncassWithAnnotation("encass-" + i, "encass-id-" + i,
+                    UUID.nameUUIDFromBytes(("encass-" + i).getBytes()).toString(), TEST_ENCASS_POLICY, annotations);
+            bundle.getEncasses().put(encass.getName(), encass);
+        }
+        return bundle;
+    }
+
+    private static String toXML(BundleArtifacts.Artifact artifact) {
+        return artifact.getElement() == null ? null : DocumentTools.INSTANCE.elementToString(artifact.getElement());
+    }
+
+    @Test
+    void buildStreamedBundles() {
+        BundleEntityBuilder builder = createBundleEntityBuilder();
+        Bundle bundle = createBundleWithPolicyFragment(true, projectInfo);
+        Set<Annotation> annotations = new HashSet<>();
+        annotations.add(new Annotation(AnnotationType.BUNDLE));
+        Encass encass = buildTestEncassWithAnnotation(TEST_ENCASS, TEST_ENCASS_ID, TEST_GUID, TEST_ENCASS_POLICY,
+                annotations);
+        bundle.getEncasses().put(encass.getName(), encass);
+
+        Map<String, BundleArtifacts> bundles = builder.build(bundle, DEPLOYMENT,
+                DocumentTools.INSTANCE.getDocumentBuilder().newDocument(), projectInfo);
+        Map<String, BundleArtifacts> streamedBundles = new HashMap<>();
+        builder.build(bundle, DEPLOYMENT, DocumentTools.INSTANCE.getDocumentBuilder()::newDocument, projectInfo, 1,
+                true, streamedBundles::put);
+
+        assertEquals(bundles.keySet(), streamedBundles.keySet());
+        streamedBundles.forEach((name, artifacts) -> {
+            assertNull(artifacts.getInstallBundle().getElement());
+            assertNull(artifacts.getDeleteBundle().getElement());
+            StreamedBundle installBundle = artifacts.getInstallBundle().getStreamedBundle();
+            StreamedBundle deleteBundle = artifacts.getDeleteBundle().getStreamedBundle();
+            assertEquals(getItemNames(bundles.get(name).getInstallBundle().getElement()), getItemNames(installBundle));
+            assertEquals(getItemNames(bundles.get(name).getDeleteBundle().getElement()), getItemNames(deleteBundle));
+            for (int i = 0; i < installBundle.getEntities().size(); i++) {
+                assertNotEquals(MappingActions.DELETE, installBundle.getMappingAction(i));
+            }
+            for (int i = 0; i < deleteBundle.getEntities().size(); i++) {
+                assertEquals(MappingActions.DELETE, deleteBundle.getMappingAction(i));
+            }
+        });
+    }
+
+    @Test
+    void buildWithCacheOnlyBuildsChangedBundles() {
+        BundleEntityBuilder builder = createBundleEntityBuilder();
+        ProjectInfo deterministicProjectInfo = createDeterministicProjectInfo();
+        Bundle bundle = createCachedBundle(deterministicProjectInfo, 3, "PolicyFragment1");
+        TestArtifactsCache cache = new TestArtifactsCache();
+
+        Map<String, BundleArtifacts> builtBundles = buildWithCache(builder, bundle, cache, deterministicProjectInfo);
+        assertEquals(3, builtBundles.size());
+        assertEquals(3, new HashSet<>(cache.bundles.values()).size());
+        assertTrue(buildWithCache(builder, bundle, cache, deterministicProjectInfo).isEmpty());
+
+        // a new bundle doesn't change the others
+        bundle.getEncasses().put("encass-3", buildTestEncassBundle(3));
+        builtBundles = buildWithCache(builder, bundle, cache, deterministicProjectInfo);
+        assertEquals(singleton("encass-bundle-3-1.0"), builtBundles.keySet());
+        assertSameAsCleanBuild(builder, createCachedBundle(deterministicProjectInfo, 4, "PolicyFragment1"),
+                deterministicProjectInfo, builtBundles);
+
+        // a policy used by every bundle changes them all, and they are built like without the cache
+        Map<String, String> cachedFingerprints = new HashMap<>(cache.bundles);
+        Policy policyFragment = bundle.getPolicies().get(TEST_POLICY_FRAGMENT);
+        policyFragment.setPolicyXML(policyFragment.getPolicyXML().replace("PolicyFragment1", "PolicyFragment2"));
+        builtBundles = buildWithCache(builder, bundle, cache, deterministicProjectInfo);
+        assertEquals(4, builtBundles.size());
+        builtBundles.forEach((name, artifacts) -> assertNotEquals(cachedFingerprints.get(name), artifacts.getFingerprint()));
+        assertSameAsCleanBuild(builder, createCachedBundle(deterministicProjectInfo, 4, "PolicyFragment2"),
+                deterministicProjectInfo, builtBundles);
+        // the policies of annotated bundles are named after the bundle, only whole bundles are reused
+        assertTrue(cache.policies.isEmpty());
+    }
+
+    @Test
+    void buildWithCacheAndRandomIdsBuildsEveryAnnotatedBundle() {
+        BundleEntityBuilder builder = createBundleEntityBuilder();
+        Bundle bundle = createCachedBundle(projectInfo, 3, "PolicyFragment1");
+        TestArtifactsCache cache = new TestArtifactsCache();
+
+        // the shared entities get new ids on every build, every bundle of the build has to be built with them
+        for (int i = 0; i < 2; i++) {
+            Map<String, BundleArtifacts> builtBundles = buildWithCache(builder, bundle, cache, projectInfo);
+            assertEquals(3, builtBundles.size());
+            builtBundles.values().forEach(artifacts -> assertNull(artifacts.getFingerprint()));
+        }
+    }
+
+    @Test
+    void buildWithCacheOnlyBuildsChangedPolicies() {
+        BundleEntityBuilder builder = createBundleEntityBuilder();
+        ProjectInfo deterministicProjectInfo = createDeterministicProjectInfo();
+        TestArtifactsCache cache = new TestArtifactsCache();
+
+        Map<String, BundleArtifacts> builtBundles = buildWithCache(builder,
+                createCachedBundle(deterministicProjectInfo, 0, "PolicyFragment1"), cache, deterministicProjectInfo);
+        assertEquals(singleton("my-bundle-1.0"), builtBundles.keySet());
+        assertEquals(2, cache.policies.size());
+        assertTrue(cache.restoredPolicies.isEmpty());
+        String firstBuild = toXML(builtBundles.get("my-bundle-1.0").getInstallBundle());
+
+        // every build loads a new bundle, the unchanged policy including the changed one is reused
+        builtBundles = buildWithCache(builder, createCachedBundle(deterministicProjectInfo, 0, "PolicyFragment2"),
+                cache, deterministicProjectInfo);
+        assertEquals(singleton(TEST_ENCASS_POLICY), cache.restoredPolicies);
+        assertNotEquals(firstBuild, toXML(builtBundles.get("my-bundle-1.0").getInstallBundle()));
+        assertSameAsCleanBuild(builder, createCachedBundle(deterministicProjectInfo, 0, "PolicyFragment2"),
+                deterministicProjectInfo, builtBundles);
+
+        // the built policies hold the ids of the entities, they are not cached if the ids are random
+        TestArtifactsCache randomIdsCache = new TestArtifactsCache();
+        assertEquals(1, buildWithCache(builder, createCachedBundle(projectInfo, 0, "PolicyFragment1"), randomIdsCache,
+                projectInfo).size());
+        assertTrue(randomIdsCache.policies.isEmpty());
+    }
+
+    private static ProjectInfo createDeterministicProjectInfo() {
+        ProjectInfo deterministicProjectInfo = new ProjectInfo("my-bundle", "my-bundle-group", "1.0");
+        deterministicProjectInfo.setDeterministicIds(true);
+        return deterministicProjectInfo;
+    }
+
+    /**
+     * Creates a bundle with the policy fragment and the given number of annotated encasses, with the same ids every
+     * time so the bundles built from it can be compared with the bundles built from another one.
+     */
+    private static Bundle createCachedBundle(ProjectInfo projectInfo, int annotatedBundles, String policyFragmentComment) {
+        Bundle bundle = createBundleWithPolicyFragment(true, projectInfo);
+        Policy policyFragment = bundle.getPolicies().get(TEST_POLICY_FRAGMENT);
+        policyFragment.setGuid(UUID.nameUUIDFromBytes(TEST_POLICY_FRAGMENT.getBytes()).toString());
+        policyFragment.setPolicyXML(policyFragment.getPolicyXML().replace("PolicyFragment1", policyFragmentComment));
+        for (int i = 0; i < annotatedBundles; i++) {
+            bundle.getEncasses().put("encass-" + i, buildTestEncassBundle(i));
+        }
+        return bundle;
+    }
+
+    private static Encass buildTestEncassBundle(int index) {
+        Set<Annotation> annotations = new HashSet<>();
+        annotations.add(new Annotation(AnnotationType.BUNDLE));
+        Annotation bundleHintsAnnotation = new Annotation(AnnotationType.BUNDLE_HINTS);
+        bundleHintsAnnotation.setName("encass-bundle-" + index);
+        annotations.add(bundleHintsAnnotation);
+        return buildTestEncassWithAnnotation("encass-" + index, "encass-id-" + index,
+                UUID.nameUUIDFromBytes(("encass-" + index).getBytes()).toString(), TEST_ENCASS_POLICY, annotations);
+    }
+
+    /**
+     * Builds the bundle with the cache and caches the bundles that are built, like the bundle file builder does once
+     * they are written.
+     */
+    private static Map<String, BundleArtifacts> buildWithCache(BundleEntityBuilder builder, Bundle bundle,
+                                                               TestArtifactsCache cache, ProjectInfo projectInfo) {
+        Map<String, BundleArtifacts> builtBundles = new HashMap<>();
+        cache.restoredPolicies.clear();
+        builder.build(bundle, DEPLOYMENT, DocumentTools.INSTANCE.getDocumentBuilder()::newDocument, projectInfo, 1,
+                false, cache, builtBundles::put);
+        builtBundles.forEach((name, artifacts) -> cache.bundles.put(name, artifacts.getFingerprint()));
+        return builtBundles;
+    }
+
+    private static void assertSameAsCleanBuild(BundleEntityBuilder builder, Bundle cleanBundle, ProjectInfo projectInfo,
+                                               Map<String, BundleArtifacts> builtBundles) {
+        Map<String, BundleArtifacts> cleanBuild = builder.build(cleanBundle, DEPLOYMENT,
+                DocumentTools.INSTANCE.getDocumentBuilder().newDocument(), projectInfo);
+        builtBundles.forEach((name, artifacts) -> {
+            assertEquals(toXML(cleanBuild.get(name).getInstallBundle()), toXML(artifacts.getInstallBundle()));
+            assertEquals(toXML(cleanBuild.get(name).getDeleteBundle()), toXML(artifacts.getDeleteBundle()));
+        });
+    }
+
+    /**
+     * Keeps the fingerprints of the bundles and the built policies in memory, recording the policies it restores.
+     */
+    private static class TestArtifactsCache implements BundleArtifactsCache {
+        private final Map<String, String> bundles = new HashMap<>();
+        private final Map<String, BuiltPolicy> policies = new HashMap<>();
+        private final Set<String> restoredPolicies = new HashSet<>();
+
+        @Override
+        public boolean restore(String bundleName, String fingerprint) {
+            return fingerprint.equals(bundles.get(bundleName));
+        }
+
+        @Override
+        public BuiltPolicy restorePolicy(String policyPath, String fingerprint) {
+            BuiltPolicy builtPolicy = policies.get(policyPath + ":" + fingerprint);
+            if (builtPolicy != null) {
+                restoredPolicies.add(policyPath);
+            }
+            return builtPolicy;
+        }
+
+        @Override
+        public void storePolicy(String policyPath, String fingerprint, BuiltPolicy builtPolicy) {
+            policies.put(policyPath + ":" + fingerprint, builtPolicy);
+        }
+    }
+
+    private static List<String> getItemNames(Element bundleElement) {
+        List<String> names = new ArrayList<>();
+        getChildElements(getSingleChildElement(bundleElement, REFERENCES), ITEM)
+                .forEach(item -> names.add(getSingleChildElementTextContent(item, NAME)));
+        return names;
+    }
+
+    private static List<String> getItemNames(StreamedBundle bundle) {
+        return bundle.getEntities().stream().filter(e -> e.getXml() != null).map(Entity::getName).collect(Collectors.toList());
+    }
+
     @Test
     void testEncassAnnotatedBundle() {
         FolderEntityBuilder folderBuilder = new FolderEntityBuilder(ID_GENERATOR);
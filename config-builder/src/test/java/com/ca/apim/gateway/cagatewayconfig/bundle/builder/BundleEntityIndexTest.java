@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.*;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BundleEntityIndexTest {
+
+    @Test
+    void findPolicyByNameOrPath() {
+        Bundle bundle = new Bundle();
+        Policy policy = createPolicy("folder/sub/policy");
+        Policy rootPolicy = createPolicy("root-policy");
+        bundle.getPolicies().put(policy.getPath(), policy);
+        bundle.getPolicies().put(rootPolicy.getPath(), rootPolicy);
+
+        BundleEntityIndex index = new BundleEntityIndex(bundle);
+
+        assertSame(policy, index.findPolicyByNameOrPath("policy"));
+        assertSame(policy, index.findPolicyByNameOrPath("folder/sub/policy"));
+        assertSame(rootPolicy, index.findPolicyByNameOrPath("root-policy"));
+        assertNull(index.findPolicyByNameOrPath("sub/policy"));
+        assertNull(index.findPolicyByNameOrPath("missing"));
+        assertNull(index.findPolicyByNameOrPath(null));
+    }
+
+    @Test
+    void putPolicy() {
+        Bundle bundle = new Bundle();
+        BundleEntityIndex index = new BundleEntityIndex(bundle);
+        assertNull(index.findPolicyByNameOrPath("policy"));
+
+        Policy policy = createPolicy("folder/policy");
+        index.putPolicy(policy);
+
+        assertSame(policy, bundle.getPolicies().get("folder/policy"));
+        assertSame(policy, index.findPolicyByNameOrPath("policy"));
+        assertSame(policy, index.findPolicyByNameOrPath("folder/policy"));
+    }
+
+    @Test
+    void findEntityKey() {
+        Bundle bundle = new Bundle();
+        bundle.getClusterProperties().put("prop-key", new ClusterProperty("prop-name", "value"));
+        bundle.getClusterProperties().put("folder/unnamed", new ClusterProperty());
+
+        BundleEntityIndex index = new BundleEntityIndex(bundle);
+
+        assertEquals("prop-key", index.findEntityKey(ClusterProperty.class, "prop-name"));
+        assertEquals("folder/unnamed", index.findEntityKey(ClusterProperty.class, "unnamed"));
+        assertNull(index.findEntityKey(ClusterProperty.class, "prop-key"));
+        assertNull(index.findEntityKey(JdbcConnection.class, "prop-name"));
+    }
+
+    @Test
+    void findUnsupportedEntityKey() {
+        Bundle bundle = new Bundle();
+        UnsupportedGatewayEntity entity = new UnsupportedGatewayEntity();
+        entity.setType("SOME_TYPE");
+        bundle.getUnsupportedEntities().put("folder/entity", entity);
+
+        BundleEntityIndex index = new BundleEntityIndex(bundle);
+
+        assertEquals("folder/entity", index.findUnsupportedEntityKey("SOME_TYPE", "entity"));
+        assertNull(index.findUnsupportedEntityKey("OTHER_TYPE", "entity"));
+        assertNull(index.findUnsupportedEntityKey("SOME_TYPE", "other"));
+    }
+
+    private static Policy createPolicy(String path) {
+        Policy policy = new Policy();
+        policy.setPath(path);
+        policy.setName(path.substring(path.lastIndexOf('/') + 1));
+        return policy;
+    }
+}
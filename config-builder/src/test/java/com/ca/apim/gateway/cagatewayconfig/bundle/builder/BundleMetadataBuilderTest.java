@@ -65,7 +65,8 @@ public class BundleMetadataBuilderTest {
         dummyList.add(new DependentBundle(new File("test")));
 
         BundleFileBuilder bundleFileBuilder = new BundleFileBuilder(DocumentTools.INSTANCE, DocumentFileUtils.INSTANCE,
-                JsonFileUtils.INSTANCE, entityLoaderRegistry, builder, bundleCache);
+                JsonFileUtils.INSTANCE, entityLoaderRegistry, builder,
+                new BundleDocumentWriter(DocumentTools.INSTANCE), bundleCache);
 
         File bundleOutput = temporaryFolder.createDirectory("output");
         try {
@@ -76,7 +76,7 @@ class JdbcConnectionEntityBuilderTest {
 
     private static void buildAndCheckJdbcConnection(Map<String, Object> properties) {
         JdbcConnectionEntityBuilder builder = new JdbcConnectionEntityBuilder(ID_GENERATOR);
-        final Entity entity = builder.buildEntity(TEST_JDBC_CONNECTION, buildJdbcConnection(properties), DocumentTools.INSTANCE.getDocumentBuilder().newDocument());
+        final Entity entity = builder.buildEntity(new Bundle(), TEST_JDBC_CONNECTION, buildJdbcConnection(properties), DocumentTools.INSTANCE.getDocumentBuilder().newDocument());
 
         assertNotNull(entity);
         assertEquals(TEST_JDBC_CONNECTION, entity.getName());
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.*;
+import com.ca.apim.gateway.cagatewayconfig.util.entity.AnnotationType;
+import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
+import org.junit.jupiter.api.Test;
+import org.reflections.Reflections;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolicyDependencyGraphTest {
+
+    private static final EntityTypeRegistry entityTypeRegistry = new EntityTypeRegistry(new Reflections());
+
+    @Test
+    void loadPolicyDependencies() {
+        Bundle bundle = new Bundle();
+        Policy shared = createPolicy("shared-policy", true);
+        Policy fragment = createPolicy("fragment", false, new Dependency("shared-policy", EntityTypes.POLICY_TYPE),
+                new Dependency("prop", EntityTypes.CLUSTER_PROPERTY_TYPE));
+        Policy policy = createPolicy("policy", false, new Dependency("fragment", EntityTypes.POLICY_TYPE));
+        Arrays.asList(shared, fragment, policy).forEach(p -> bundle.getPolicies().put(p.getPath(), p));
+        ClusterProperty property = new ClusterProperty("prop", "value");
+        bundle.getClusterProperties().put("prop", property);
+
+        PolicyDependencyGraph graph = new PolicyDependencyGraph(new BundleEntityIndex(bundle), entityTypeRegistry);
+
+        Bundle annotatedBundle = new Bundle();
+        graph.loadPolicyDependencies("policy", new BundleEntityIndex(annotatedBundle), false, true);
+        assertEquals(3, annotatedBundle.getPolicies().size());
+        assertSame(property, annotatedBundle.getClusterProperties().get("prop"));
+        Policy loadedPolicy = annotatedBundle.getPolicies().get("folder/policy");
+        assertNotSame(policy, loadedPolicy);
+        assertEquals(policy.getPath(), loadedPolicy.getPath());
+        assertFalse(loadedPolicy.isParentEntityShared());
+        assertFalse(annotatedBundle.getPolicies().get("folder/fragment").isParentEntityShared());
+        assertTrue(annotatedBundle.getFolders().containsKey("folder/"));
+
+        Bundle nonSharedBundle = new Bundle();
+        graph.loadPolicyDependencies("fragment", new BundleEntityIndex(nonSharedBundle), true, false);
+        assertEquals(1, nonSharedBundle.getPolicies().size());
+        assertSame(fragment, nonSharedBundle.getPolicies().get("folder/fragment"));
+        assertSame(property, nonSharedBundle.getClusterProperties().get("prop"));
+    }
+
+    @Test
+    void loadPolicyDependenciesOfSharedPolicy() {
+        Bundle bundle = new Bundle();
+        Policy fragment = createPolicy("fragment", false);
+        Policy shared = createPolicy("shared-policy", true, new Dependency("fragment", EntityTypes.POLICY_TYPE));
+        Arrays.asList(shared, fragment).forEach(p -> bundle.getPolicies().put(p.getPath(), p));
+
+        PolicyDependencyGraph graph = new PolicyDependencyGraph(new BundleEntityIndex(bundle), entityTypeRegistry);
+
+        Bundle annotatedBundle = new Bundle();
+        graph.loadPolicyDependencies("shared-policy", new BundleEntityIndex(annotatedBundle), false, true);
+        assertTrue(annotatedBundle.getPolicies().get("folder/shared-policy").isParentEntityShared());
+        assertTrue(annotatedBundle.getPolicies().get("folder/fragment").isParentEntityShared());
+
+        Bundle nonSharedBundle = new Bundle();
+        graph.loadPolicyDependencies("shared-policy", new BundleEntityIndex(nonSharedBundle), true, false);
+        assertTrue(nonSharedBundle.getPolicies().isEmpty());
+    }
+
+    @Test
+    void loadPolicyDependenciesWithCycle() {
+        Bundle bundle = new Bundle();
+        Policy first = createPolicy("first", false, new Dependency("second", EntityTypes.POLICY_TYPE));
+        Policy second = createPolicy("second", false, new Dependency("third", EntityTypes.POLICY_TYPE));
+        Policy third = createPolicy("third", false, new Dependency("first", EntityTypes.POLICY_TYPE));
+        Arrays.asList(first, second, third).forEach(p -> bundle.getPolicies().put(p.getPath(), p));
+
+        PolicyDependencyGraph graph = new PolicyDependencyGraph(new BundleEntityIndex(bundle), entityTypeRegistry);
+
+        for (String policyName : Arrays.asList("first", "second", "third")) {
+            Bundle annotatedBundle = new Bundle();
+            graph.loadPolicyDependencies(policyName, new BundleEntityIndex(annotatedBundle), false, false);
+            assertEquals(3, annotatedBundle.getPolicies().size(), policyName);
+        }
+    }
+
+    @Test
+    void loadPolicyDependenciesOfMissingPolicy() {
+        PolicyDependencyGraph graph = new PolicyDependencyGraph(new BundleEntityIndex(new Bundle()), entityTypeRegistry);
+
+        Bundle annotatedBundle = new Bundle();
+        graph.loadPolicyDependencies("missing", new BundleEntityIndex(annotatedBundle), false, true);
+        assertTrue(annotatedBundle.getPolicies().isEmpty());
+    }
+
+    private static Policy createPolicy(String name, boolean shared, Dependency... dependencies) {
+        Folder folder = new Folder();
+        folder.setPath("folder/");
+        Policy policy = new Policy();
+        policy.setName(name);
+        policy.setPath("folder/" + name);
+        policy.setParentFolder(folder);
+        policy.setUsedEntities(new HashSet<>(Arrays.asList(dependencies)));
+        if (shared) {
+            policy.setAnnotations(Collections.singleton(new Annotation(AnnotationType.SHARED)));
+        }
+        return policy;
+    }
+}
@@ -14,12 +14,14 @@ import com.ca.apim.gateway.cagatewayconfig.util.entity.AnnotationType;
 import com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes;
 import com.ca.apim.gateway.cagatewayconfig.util.gateway.MappingProperties;
 import com.ca.apim.gateway.cagatewayconfig.util.properties.PropertyConstants;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
 import org.reflections.Reflections;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -240,6 +242,76 @@ class PolicyEntityBuilderTest {
         assertThrows(EntityBuilderException.class, () -> PolicyEntityBuilder.maybeAddPolicy(bundle, policy2, new ArrayList<>(), new HashSet<>()));
     }
 
+    @Test
+    void buildCopiesOfPolicy() throws DocumentParseException {
+        Element policyElement = createElementWithAttributesAndChildren(
+                document,
+                "wsp:Policy",
+                ImmutableMap.of("xmlns:L7p", "http://www.layer7tech.com/ws/policy", "xmlns:wsp", "http://schemas.xmlsoap.org/ws/2002/12/policy"),
+                createSetVariableAssertion(document, "var", "value")
+        );
+        document.appendChild(policyElement);
+
+        policy.setPolicyXML(DocumentTools.INSTANCE.elementToString(document.getDocumentElement()));
+        policy.setParentFolder(Folder.ROOT_FOLDER);
+        policy.setGuid("policyGuid");
+        policy.setId("policyID");
+        policy.setName(policy.getPath());
+        bundle.getPolicies().put("Policy", policy);
+        Policy policyCopy = new Policy(policy);
+        Bundle copyBundle = new Bundle();
+        copyBundle.setDependencies(new HashSet<>());
+        copyBundle.getPolicies().put("Policy", policyCopy);
+
+        PolicyEntityBuilder builder = new PolicyEntityBuilder(DocumentTools.INSTANCE, new IdGenerator(), policyXMLBuilder);
+        final List<Entity> entities = builder.build(bundle, BundleType.DEPLOYMENT, DocumentTools.INSTANCE.getDocumentBuilder().newDocument());
+        final List<Entity> copyEntities = builder.build(copyBundle, BundleType.DEPLOYMENT, DocumentTools.INSTANCE.getDocumentBuilder().newDocument());
+
+        // the copy is built from its own document, unaffected by the changes made building the first policy
+        assertNotSame(policy.getPolicyDocument(), policyCopy.getPolicyDocument());
+        assertNotSame(policy.getPolicyDocument().getOwnerDocument(), policyCopy.getPolicyDocument().getOwnerDocument());
+        assertEquals(getPolicyResource(entities.get(0)), getPolicyResource(copyEntities.get(0)));
+        assertEquals(1, policyCopy.getPolicyDocument().getElementsByTagName(BASE_64_EXPRESSION).getLength());
+    }
+
+    @Test
+    void loadRegisteredPolicyXMLDocuments() throws DocumentParseException {
+        DocumentTools documentTools = Mockito.spy(DocumentTools.INSTANCE);
+        policy.setPolicyXML("<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2002/12/policy\"/>");
+        Policy policyCopy = new Policy(policy);
+        policy.registerPolicyXMLDocumentLoad();
+        policyCopy.registerPolicyXMLDocumentLoad();
+
+        // the policy and its copy share the document parsed for the registered loads, the last one isn't a clone
+        Document document = policy.loadPolicyXMLDocument(documentTools);
+        Document lastDocument = policyCopy.loadPolicyXMLDocument(documentTools);
+        assertNotSame(document, lastDocument);
+        assertEquals(DocumentTools.INSTANCE.elementToString(document.getDocumentElement()),
+                DocumentTools.INSTANCE.elementToString(lastDocument.getDocumentElement()));
+        Mockito.verify(documentTools, Mockito.times(1)).parse(policy.getPolicyXML());
+
+        // the parsed document isn't kept once no more loads are registered
+        assertNotSame(lastDocument, policy.loadPolicyXMLDocument(documentTools));
+        Mockito.verify(documentTools, Mockito.times(2)).parse(policy.getPolicyXML());
+    }
+
+    @Test
+    void releasePolicyXMLDocument() throws DocumentParseException {
+        DocumentTools documentTools = Mockito.spy(DocumentTools.INSTANCE);
+        policy.setPolicyXML("<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2002/12/policy\"/>");
+        policy.registerPolicyXMLDocumentLoad();
+        policy.registerPolicyXMLDocumentLoad();
+        policy.loadPolicyXMLDocument(documentTools);
+        policy.releasePolicyXMLDocument();
+
+        policy.loadPolicyXMLDocument(documentTools);
+        Mockito.verify(documentTools, Mockito.times(2)).parse(policy.getPolicyXML());
+    }
+
+    private static String getPolicyResource(Entity entity) throws DocumentParseException {
+        return getSingleElement(entity.getXml(), RESOURCE).getTextContent();
+    }
+
     @Test
     void buildPolicyEntityTest() {
         PolicyEntityBuilder policyEntityBuilder = new PolicyEntityBuilder(DocumentTools.INSTANCE, new IdGenerator(), policyXMLBuilder);
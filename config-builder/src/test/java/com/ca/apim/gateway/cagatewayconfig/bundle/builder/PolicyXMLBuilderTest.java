@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.bundle.builder;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
+import com.ca.apim.gateway.cagatewayconfig.util.IdGenerator;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PolicyXMLBuilderTest {
+
+    private static final String POLICY = "<wsp:Policy xmlns:L7p=\"http://www.layer7tech.com/ws/policy\" xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2002/12/policy\">" +
+            "<wsp:All wsp:Usage=\"Required\">" +
+            "<L7p:Include><L7p:PolicyGuid stringValue=\"first\"/></L7p:Include>" +
+            "<L7p:SetVariable><L7p:VariableToSet stringValue=\"second\"/></L7p:SetVariable>" +
+            "<wsp:OneOrMore wsp:Usage=\"Required\">" +
+            "<L7p:Include><L7p:PolicyGuid stringValue=\"third\"/></L7p:Include>" +
+            "</wsp:OneOrMore>" +
+            "</wsp:All>" +
+            "</wsp:Policy>";
+
+    @Test
+    void buildPolicyXML() throws DocumentParseException {
+        List<String> builtAssertions = new ArrayList<>();
+        PolicyXMLBuilder policyXMLBuilder = new PolicyXMLBuilder(new HashSet<>(Arrays.asList(
+                mockAssertionBuilder("L7p:Include", builtAssertions),
+                mockAssertionBuilder("L7p:SetVariable", builtAssertions))));
+
+        Document policyDocument = DocumentTools.INSTANCE.parse(POLICY);
+        PolicyBuilderContext context = new PolicyBuilderContext("policy", policyDocument, new Bundle(), new IdGenerator());
+        policyXMLBuilder.buildPolicyXML(context);
+
+        assertEquals(Arrays.asList("first", "second", "third"), builtAssertions);
+        // Policy, All, Include, PolicyGuid, SetVariable, VariableToSet, Added, OneOrMore, Include, PolicyGuid
+        assertEquals(10, context.getVisitedNodeCount());
+        assertEquals(1, policyDocument.getElementsByTagName("L7p:Added").getLength());
+    }
+
+    // mocked so the entity builder tests don't pick these up when scanning for assertion builders
+    private static PolicyAssertionBuilder mockAssertionBuilder(String tagName, List<String> builtAssertions) {
+        PolicyAssertionBuilder assertionBuilder = mock(PolicyAssertionBuilder.class);
+        when(assertionBuilder.getAssertionTagName()).thenReturn(tagName);
+        doAnswer(invocation -> {
+            Element element = invocation.getArgument(0);
+            builtAssertions.add(((Element) element.getFirstChild()).getAttribute("stringValue"));
+            if ("L7p:SetVariable".equals(tagName)) {
+                element.appendChild(element.getOwnerDocument().createElement("L7p:Added"));
+            }
+            return null;
+        }).when(assertionBuilder).buildAssertionElement(any(Element.class), any(PolicyBuilderContext.class));
+        return assertionBuilder;
+    }
+}
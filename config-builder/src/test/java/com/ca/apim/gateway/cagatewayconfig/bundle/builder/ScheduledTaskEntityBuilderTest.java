@@ -52,6 +52,20 @@ class ScheduledTaskEntityBuilderTest {
         assertThrows(EntityBuilderException.class, () -> buildBundleWithScheduledTask(bundle, false));
     }
 
+    @Test
+    void buildWithMissingPolicyReference() {
+        final Bundle bundle = new Bundle();
+        putPolicy(bundle);
+        ScheduledTask scheduledTask = buildTestScheduledTask(false);
+        scheduledTask.setPolicy(null);
+        bundle.putAllScheduledTasks(ImmutableMap.of(TEST_SCHEDULED_TASK, scheduledTask));
+
+        ScheduledTaskEntityBuilder builder = new ScheduledTaskEntityBuilder(ID_GENERATOR);
+        EntityBuilderException exception = assertThrows(EntityBuilderException.class,
+                () -> builder.build(bundle, BundleType.DEPLOYMENT, DocumentTools.INSTANCE.getDocumentBuilder().newDocument()));
+        assertEquals("Could not find policy for encass. Policy Path: null", exception.getMessage());
+    }
+
     @Test
     void buildDeploymentWithOneTimeScheduledTask() {
         final Bundle bundle = new Bundle();
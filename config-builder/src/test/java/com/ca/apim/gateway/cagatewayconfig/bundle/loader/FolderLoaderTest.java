@@ -49,6 +49,28 @@ class FolderLoaderTest {
         assertThrows(BundleLoadException.class, () -> loader.load(bundle, createFolderXml(doc, TEST_FOLDER_2, TEST_FOLDER_2, TEST_FOLDER_1)));
     }
 
+    @Test
+    void getFolderAfterFoldersChanged() {
+        Bundle bundle = new Bundle();
+        Folder f1 = new Folder();
+        bundle.getFolders().put(TEST_FOLDER_1, f1);
+        f1.setId(TEST_FOLDER_1);
+        assertSame(f1, ServiceAndPolicyLoaderUtil.getFolder(bundle, TEST_FOLDER_1));
+
+        Folder f2 = new Folder();
+        f2.setId(TEST_FOLDER_1);
+        bundle.getFolders().put(TEST_FOLDER_2, f2);
+        assertThrows(BundleLoadException.class, () -> ServiceAndPolicyLoaderUtil.getFolder(bundle, TEST_FOLDER_1));
+
+        bundle.getFolders().values().remove(f1);
+        assertSame(f2, ServiceAndPolicyLoaderUtil.getFolder(bundle, TEST_FOLDER_1));
+
+        bundle.getFolders().put(TEST_FOLDER_2, f1);
+        f2.setId(TEST_FOLDER_2);
+        assertSame(f1, ServiceAndPolicyLoaderUtil.getFolder(bundle, TEST_FOLDER_1));
+        assertThrows(BundleLoadException.class, () -> ServiceAndPolicyLoaderUtil.getFolder(bundle, TEST_FOLDER_2));
+    }
+
     @Test
     void loadWithInvalidCharName() throws UnsupportedEncodingException {
         Document doc = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
@@ -113,6 +113,34 @@ class PolicyLoaderTest {
                 TEST_POLICY_NAME, PolicyType.SERVICE_OPERATION.getType(), TEST_FOLDER_1, TEST_POLICY_XML, null, false)));
     }
 
+    @Test
+    void testValidateDuplicateNames() {
+        Document doc = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
+        Bundle bundle = new Bundle();
+        bundle.setLoadingMode(BundleLoadingOperation.VALIDATE);
+        Folder f1 = new Folder();
+        f1.setId(TEST_FOLDER_1);
+        f1.setName(TEST_FOLDER_1);
+        f1.setPath(TEST_FOLDER_1);
+        bundle.getFolders().put(TEST_FOLDER_1, f1);
+        Folder f2 = new Folder();
+        f2.setId("Folder2");
+        f2.setName("Folder2");
+        f2.setPath("Folder2");
+        bundle.getFolders().put("Folder2", f2);
+
+        loader.load(bundle, createPolicyBundleXml(doc, TEST_POLICY_ID, TEST_POLICY_NAME,
+                PolicyType.SERVICE_OPERATION.getType(), TEST_FOLDER_1, TEST_POLICY_XML, null, false));
+        loader.load(bundle, createPolicyBundleXml(doc, TEST_POLICY_ID + "2", TEST_POLICY_NAME + "2",
+                PolicyType.SERVICE_OPERATION.getType(), "Folder2", TEST_POLICY_XML, null, false));
+        assertEquals(2, bundle.getPolicies().size());
+
+        BundleLoadException exception = assertThrows(BundleLoadException.class, () -> loader.load(bundle, createPolicyBundleXml(doc,
+                TEST_POLICY_ID + "3", TEST_POLICY_NAME, PolicyType.SERVICE_OPERATION.getType(), "Folder2", TEST_POLICY_XML, null, false)));
+        assertEquals("Duplicate policies found with name '" + TEST_POLICY_NAME + "': " + unixPath(TEST_FOLDER_1, TEST_POLICY_NAME)
+                + ", " + unixPath("Folder2", TEST_POLICY_NAME), exception.getMessage());
+    }
+
     @Test
     void testGlobalPolicy() {
         Document doc = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
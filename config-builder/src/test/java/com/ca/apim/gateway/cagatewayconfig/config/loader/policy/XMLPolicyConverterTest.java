@@ -15,6 +15,7 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.*;
 import org.w3c.dom.Element;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -55,4 +56,17 @@ class XMLPolicyConverterTest {
         String xmlString = IOUtils.toString(xmlStream, StandardCharsets.UTF_8);
         assertEquals("out", xmlString);
     }
-}
\ No newline at end of file
+
+    @Test
+    void writeFromPolicyElement() {
+        doAnswer(invocation -> {
+            IOUtils.write("out", invocation.getArgument(1), StandardCharsets.UTF_8);
+            ((OutputStream) invocation.getArgument(1)).close();
+            return null;
+        }).when(documentFileUtils).printXML(nullable(Element.class), any(OutputStream.class), any(Boolean.class));
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        xmlPolicyConverter.writeFromPolicyElement(null, outputStream);
+        assertEquals("out", new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
@@ -4,6 +4,8 @@ import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.beans.Policy;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadingOperation;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.EntityBundleLoader;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,10 +13,17 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
+@ExtendWith({MockitoExtension.class, TemporaryFolderExtension.class})
 class BundleCacheTest {
     @Mock
     EntityBundleLoader entityBundleLoader;
@@ -53,4 +62,26 @@ class BundleCacheTest {
 
         Assert.assertTrue(cache.contains(file.getPath()));
     }
+
+    @Test
+    void getDeploymentBundle(TemporaryFolder temporaryFolder) throws IOException {
+        File folder = temporaryFolder.getRoot();
+        File bundleFile = new File(folder, "test.install.bundle");
+        Files.write(bundleFile.toPath(), "<l7:Bundle/>".getBytes(Charset.defaultCharset()));
+        Bundle bundle = new Bundle();
+        Bundle modifiedBundle = new Bundle();
+
+        when(entityBundleLoader.load(anyList(), eq(BundleLoadingOperation.EXPORT))).thenReturn(bundle, modifiedBundle);
+
+        BundleCache cache = new BundleCache(entityBundleLoader);
+        Assert.assertSame(bundle, cache.getDeploymentBundle(folder.getPath()));
+        Assert.assertSame(bundle, cache.getDeploymentBundle(folder.getPath()));
+        verify(entityBundleLoader, times(1)).load(anyList(), eq(BundleLoadingOperation.EXPORT));
+
+        // the bundle is loaded again once the deployment bundles change
+        Files.write(bundleFile.toPath(), "<l7:Bundle></l7:Bundle>".getBytes(Charset.defaultCharset()));
+        Assert.assertSame(modifiedBundle, cache.getDeploymentBundle(folder.getPath()));
+        Assert.assertSame(modifiedBundle, cache.getDeploymentBundle(folder.getPath()));
+        verify(entityBundleLoader, times(2)).load(anyList(), eq(BundleLoadingOperation.EXPORT));
+    }
 }
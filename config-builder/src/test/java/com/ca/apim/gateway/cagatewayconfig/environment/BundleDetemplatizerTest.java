@@ -7,15 +7,19 @@
 package com.ca.apim.gateway.cagatewayconfig.environment;
 
 import com.ca.apim.gateway.cagatewayconfig.beans.*;
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.shaded.com.google.common.collect.ImmutableMap;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
 
 import static com.ca.apim.gateway.cagatewayconfig.beans.IdentityProvider.INTERNAL_IDP_ID;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 class BundleDetemplatizerTest {
 
@@ -77,6 +81,46 @@ class BundleDetemplatizerTest {
             "    </l7:Mappings>\n" +
             "</l7:Bundle>";
     
+    @Test
+    void detemplatizeBundleString() throws IOException {
+        Bundle bundle = new Bundle();
+        bundle.putAllContextVariableEnvironmentProperties(ImmutableMap.of("anotherEnvVar", new ContextVariableEnvironmentProperty("anotherEnvVar", "context $1 value")));
+        bundle.putAllServiceEnvironmentProperties(ImmutableMap.of("my-gateway-api.myEnvironmentVariable", new ServiceEnvironmentProperty("my-gateway-api.myEnvironmentVariable", "service $1 value")));
+
+        String expected = bundleXml
+                .replace("L7p:Base64Expression ENV_PARAM_NAME=\"ENV.anotherEnvVar\"", "L7p:Base64Expression stringValue=\"" + Base64.getEncoder().encodeToString("context $1 value".getBytes()) + "\"")
+                .replace("SERVICE_PROPERTY_ENV.my-gateway-api.myEnvironmentVariable", "service $1 value");
+
+        BundleDetemplatizer bundleDetemplatizer = new BundleDetemplatizer(bundle);
+        assertEquals(expected, bundleDetemplatizer.detemplatizeBundleString(bundleXml).toString());
+
+        StringWriter writer = new StringWriter();
+        bundleDetemplatizer.detemplatizeBundleString(bundleXml, writer);
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    void detemplatizeBundleStringWithPlan() throws IOException {
+        Bundle bundle = new Bundle();
+        bundle.putAllContextVariableEnvironmentProperties(ImmutableMap.of("anotherEnvVar", new ContextVariableEnvironmentProperty("anotherEnvVar", "context $1 value")));
+        bundle.putAllServiceEnvironmentProperties(ImmutableMap.of("my-gateway-api.myEnvironmentVariable", new ServiceEnvironmentProperty("my-gateway-api.myEnvironmentVariable", "service $1 value")));
+
+        ObjectMapper objectMapper = JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON);
+        EnvironmentPlan plan = objectMapper.readValue(objectMapper.writeValueAsString(EnvironmentPlan.create("test", bundleXml)), EnvironmentPlan.class);
+        assertTrue(plan.matches(bundleXml));
+        assertFalse(plan.matches(bundleXml + " "));
+        assertEquals(2, plan.getPlaceholders().size());
+        assertEquals(EnvironmentPlan.PlaceholderType.SERVICE_PROPERTY, plan.getPlaceholders().get(0).getType());
+        assertEquals("my-gateway-api.myEnvironmentVariable", plan.getPlaceholders().get(0).getName());
+        assertEquals(EnvironmentPlan.PlaceholderType.CONTEXT_VARIABLE, plan.getPlaceholders().get(1).getType());
+        assertEquals("anotherEnvVar", plan.getPlaceholders().get(1).getName());
+
+        BundleDetemplatizer bundleDetemplatizer = new BundleDetemplatizer(bundle);
+        StringWriter writer = new StringWriter();
+        bundleDetemplatizer.detemplatizeBundleString(bundleXml, plan, writer);
+        assertEquals(bundleDetemplatizer.detemplatizeBundleString(bundleXml).toString(), writer.toString());
+    }
+
     @Test
     void detemplatizeBundleStringMissingEnv() {
         Map<String,ContextVariableEnvironmentProperty> env = new HashMap<>();
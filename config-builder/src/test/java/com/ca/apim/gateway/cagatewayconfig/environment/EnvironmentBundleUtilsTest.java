@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.environment;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
+import com.ca.apim.gateway.cagatewayconfig.beans.ContextVariableEnvironmentProperty;
+import com.ca.apim.gateway.cagatewayconfig.beans.StoredPassword;
+import com.ca.apim.gateway.cagatewayconfig.environment.TemplatizedBundle.FileTemplatizedBundle;
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.testcontainers.shaded.com.google.common.collect.ImmutableMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Base64;
+
+import static com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentBundleCreationMode.APPLICATION;
+import static com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentBundleUtils.processDeploymentBundles;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class EnvironmentBundleUtilsTest {
+
+    private static final String BUNDLE_TEMPLATE = "<l7:Bundle xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">\n" +
+            "    <!--%s-->\n" +
+            "    <l7:References>\n" +
+            "        <l7:Item>\n" +
+            "            <l7:Name>my-policy</l7:Name>\n" +
+            "            <l7:Id>d6a0fc3a7d8b4a4e9e8f0b1c2d3e4f50</l7:Id>\n" +
+            "            <l7:Type>POLICY</l7:Type>\n" +
+            "            <l7:Resource>\n" +
+            "                <l7:Policy guid=\"0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0\" id=\"d6a0fc3a7d8b4a4e9e8f0b1c2d3e4f50\">\n" +
+            "                    <l7:Resources>\n" +
+            "                        <l7:ResourceSet tag=\"policy\">\n" +
+            "                            <l7:Resource type=\"policy\">&lt;wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2002/12/policy\" xmlns:L7p=\"http://www.layer7tech.com/ws/policy\"&gt;\n" +
+            "    &lt;wsp:All wsp:Usage=\"Required\"&gt;\n" +
+            "        &lt;L7p:SetVariable&gt;\n" +
+            "            &lt;L7p:Base64Expression ENV_PARAM_NAME=\"ENV.anotherEnvVar\"/&gt;\n" +
+            "            &lt;L7p:VariableToSet stringValue=\"ENV.anotherEnvVar\"/&gt;\n" +
+            "        &lt;/L7p:SetVariable&gt;\n" +
+            "    &lt;/wsp:All&gt;\n" +
+            "&lt;/wsp:Policy&gt;</l7:Resource>\n" +
+            "                        </l7:ResourceSet>\n" +
+            "                    </l7:Resources>\n" +
+            "                </l7:Policy>\n" +
+            "            </l7:Resource>\n" +
+            "        </l7:Item>\n" +
+            "    </l7:References>\n" +
+            "    <l7:Mappings>\n" +
+            "        <l7:Mapping action=\"NewOrExisting\" srcId=\"89dbda0631bd25a08c73c96aebec7f5a\" type=\"SECURE_PASSWORD\">\n" +
+            "            <l7:Properties>\n" +
+            "                <l7:Property key=\"MapBy\">\n" +
+            "                    <l7:StringValue>name</l7:StringValue>\n" +
+            "                </l7:Property>\n" +
+            "                <l7:Property key=\"MapTo\">\n" +
+            "                    <l7:StringValue>myPassword</l7:StringValue>\n" +
+            "                </l7:Property>\n" +
+            "                <l7:Property key=\"FailOnNew\">\n" +
+            "                    <l7:BooleanValue>true</l7:BooleanValue>\n" +
+            "                </l7:Property>\n" +
+            "            </l7:Properties>\n" +
+            "        </l7:Mapping>\n" +
+            "    </l7:Mappings>\n" +
+            "</l7:Bundle>";
+
+    @Test
+    void processTemplatizedBundleWithPlan(TemporaryFolder temporaryFolder) throws IOException {
+        String bundleXml = String.format(BUNDLE_TEMPLATE, "bundle");
+        File bundleFile = writeBundle(temporaryFolder, bundleXml);
+        writePlan(bundleFile);
+        assertTrue(EnvironmentPlan.getPlanFile(bundleFile).isFile());
+
+        File detemplatizedFile = new File(temporaryFolder.createDirectory("detemplatized"), bundleFile.getName());
+        processDeploymentBundles(createEnvironmentBundle(), singletonList(new FileTemplatizedBundle(bundleFile, detemplatizedFile)), APPLICATION, true);
+
+        assertEquals(detemplatize(bundleXml, "anotherEnvValue"), readFile(detemplatizedFile));
+    }
+
+    @Test
+    void processTemplatizedBundleUsesPlan(TemporaryFolder temporaryFolder) throws IOException {
+        String bundleXml = String.format(BUNDLE_TEMPLATE, "bundle");
+        File bundleFile = writeBundle(temporaryFolder, bundleXml);
+        writePlan(bundleFile);
+        // a plan pointing its placeholders to another variable shows in the output only if the plan is used
+        renamePlaceholders(bundleFile, "otherEnvVar");
+
+        File detemplatizedFile = new File(temporaryFolder.createDirectory("detemplatized"), bundleFile.getName());
+        processDeploymentBundles(createEnvironmentBundle(), singletonList(new FileTemplatizedBundle(bundleFile, detemplatizedFile)), APPLICATION, true);
+
+        assertEquals(detemplatize(bundleXml, "otherEnvValue"), readFile(detemplatizedFile));
+    }
+
+    @Test
+    void processTemplatizedBundleWithPlanNotMatching(TemporaryFolder temporaryFolder) throws IOException {
+        // both bundles have the same length and String hash code, only their contents tell them apart
+        String planBundleXml = String.format(BUNDLE_TEMPLATE, "Aa");
+        String bundleXml = String.format(BUNDLE_TEMPLATE, "BB");
+        assertEquals(planBundleXml.length(), bundleXml.length());
+        assertEquals(planBundleXml.hashCode(), bundleXml.hashCode());
+
+        File bundleFile = writeBundle(temporaryFolder, planBundleXml);
+        writePlan(bundleFile);
+        renamePlaceholders(bundleFile, "otherEnvVar");
+        Files.write(bundleFile.toPath(), bundleXml.getBytes(UTF_8));
+
+        File detemplatizedFile = new File(temporaryFolder.createDirectory("detemplatized"), bundleFile.getName());
+        processDeploymentBundles(createEnvironmentBundle(), singletonList(new FileTemplatizedBundle(bundleFile, detemplatizedFile)), APPLICATION, true);
+
+        assertEquals(detemplatize(bundleXml, "anotherEnvValue"), readFile(detemplatizedFile));
+    }
+
+    @Test
+    void processTemplatizedBundleWithPlanMissingEnvironment(TemporaryFolder temporaryFolder) throws IOException {
+        File bundleFile = writeBundle(temporaryFolder, String.format(BUNDLE_TEMPLATE, "bundle"));
+        writePlan(bundleFile);
+
+        Bundle environmentBundle = createEnvironmentBundle();
+        environmentBundle.getStoredPasswords().clear();
+        File detemplatizedFile = new File(temporaryFolder.createDirectory("detemplatized"), bundleFile.getName());
+        assertThrows(MissingEnvironmentException.class, () -> processDeploymentBundles(environmentBundle, singletonList(new FileTemplatizedBundle(bundleFile, detemplatizedFile)), APPLICATION, true));
+        assertFalse(detemplatizedFile.exists());
+    }
+
+    private static Bundle createEnvironmentBundle() {
+        Bundle environmentBundle = new Bundle();
+        environmentBundle.getStoredPasswords().put("myPassword", new StoredPassword());
+        environmentBundle.putAllContextVariableEnvironmentProperties(ImmutableMap.of(
+                "anotherEnvVar", new ContextVariableEnvironmentProperty("anotherEnvVar", "anotherEnvValue"),
+                "otherEnvVar", new ContextVariableEnvironmentProperty("otherEnvVar", "otherEnvValue")));
+        return environmentBundle;
+    }
+
+    private static File writeBundle(TemporaryFolder temporaryFolder, String bundleXml) throws IOException {
+        File bundleFile = new File(temporaryFolder.createDirectory("templatized"), "my-bundle.req.bundle");
+        Files.write(bundleFile.toPath(), bundleXml.getBytes(UTF_8));
+        return bundleFile;
+    }
+
+    private static void writePlan(File bundleFile) throws IOException {
+        String bundleXml = new String(Files.readAllBytes(bundleFile.toPath()), UTF_8);
+        assertTrue(EnvironmentPlan.writePlanFile(bundleFile, EnvironmentPlan.create(bundleFile.getName(), bundleXml)));
+    }
+
+    private static void renamePlaceholders(File bundleFile, String name) throws IOException {
+        ObjectMapper objectMapper = JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON);
+        File planFile = EnvironmentPlan.getPlanFile(bundleFile);
+        EnvironmentPlan plan = objectMapper.readValue(planFile, EnvironmentPlan.class);
+        plan.getPlaceholders().forEach(placeholder -> placeholder.setName(name));
+        objectMapper.writeValue(planFile, plan);
+    }
+
+    private static String detemplatize(String bundleXml, String value) {
+        return bundleXml.replace("L7p:Base64Expression ENV_PARAM_NAME=\"ENV.anotherEnvVar\"",
+                "L7p:Base64Expression stringValue=\"" + Base64.getEncoder().encodeToString(value.getBytes()) + "\"") + System.lineSeparator();
+    }
+
+    private static String readFile(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), UTF_8);
+    }
+}
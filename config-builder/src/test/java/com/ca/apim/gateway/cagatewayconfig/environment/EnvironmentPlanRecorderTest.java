@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.environment;
+
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class EnvironmentPlanRecorderTest {
+
+    // non ascii characters, one of them a surrogate pair, come before the placeholders and in their names, and a
+    // placeholder starts within what first looks like one
+    private static final String BUNDLE_XML = "<l7:Bundle xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">\n" +
+            "    <l7:References>\n" +
+            "        <l7:Item>\n" +
+            "            <l7:Name>café 😀</l7:Name>\n" +
+            "            <l7:Property key=\"property.ENV.serviceVar\">\n" +
+            "                <l7:StringValue>SERVICE_l7:StringValue>SERVICE_PROPERTY_ENV.api.serviceVar</l7:StringValue>\n" +
+            "            </l7:Property>\n" +
+            "            <l7:Resource>&lt;L7p:Base64Expression ENV_PARAM_NAME=\"ENV.caféVar\"/&gt;" +
+            "&lt;L7p:Base64Expression ENV_PARAM_NAME=\"ENV.anotherEnvVar\"/&gt;</l7:Resource>\n" +
+            "        </l7:Item>\n" +
+            "    </l7:References>\n" +
+            "    <l7:Mappings>\n" +
+            "        <l7:Mapping action=\"NewOrExisting\" srcId=\"89dbda0631bd25a08c73c96aebec7f5a\" type=\"SECURE_PASSWORD\">\n" +
+            "            <l7:Properties>\n" +
+            "                <l7:Property key=\"MapBy\">\n" +
+            "                    <l7:StringValue>name</l7:StringValue>\n" +
+            "                </l7:Property>\n" +
+            "                <l7:Property key=\"MapTo\">\n" +
+            "                    <l7:StringValue>myPassword</l7:StringValue>\n" +
+            "                </l7:Property>\n" +
+            "                <l7:Property key=\"FailOnNew\">\n" +
+            "                    <l7:BooleanValue>true</l7:BooleanValue>\n" +
+            "                </l7:Property>\n" +
+            "            </l7:Properties>\n" +
+            "        </l7:Mapping>\n" +
+            "    </l7:Mappings>\n" +
+            "</l7:Bundle>";
+
+    private final ObjectMapper objectMapper = JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON);
+
+    @Test
+    void createPlan() throws IOException, DocumentParseException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        EnvironmentPlanRecorder recorder = new EnvironmentPlanRecorder("test", outputStream);
+        recorder.write(BUNDLE_XML.getBytes(UTF_8));
+        recorder.close();
+
+        assertEquals(BUNDLE_XML, new String(outputStream.toByteArray(), UTF_8));
+        EnvironmentPlan plan = recorder.createPlan(DocumentTools.INSTANCE.parse(BUNDLE_XML).getDocumentElement());
+        assertNotNull(plan);
+        assertTrue(plan.matches(BUNDLE_XML));
+        assertEquals(3, plan.getPlaceholders().size());
+        assertEquals("caféVar", plan.getPlaceholders().get(1).getName());
+        assertEquals(1, plan.getRequiredEnvironment().size());
+        assertEquals(objectMapper.writeValueAsString(EnvironmentPlan.create("test", BUNDLE_XML)), objectMapper.writeValueAsString(plan));
+    }
+
+    @Test
+    void createPlanWrittenByteByByte() throws IOException, DocumentParseException {
+        EnvironmentPlanRecorder recorder = new EnvironmentPlanRecorder("test", NullOutputStream.NULL_OUTPUT_STREAM);
+        for (byte b : BUNDLE_XML.getBytes(UTF_8)) {
+            recorder.write(b);
+        }
+
+        EnvironmentPlan plan = recorder.createPlan(DocumentTools.INSTANCE.parse(BUNDLE_XML).getDocumentElement());
+        assertNotNull(plan);
+        assertEquals(objectMapper.writeValueAsString(EnvironmentPlan.create("test", BUNDLE_XML)), objectMapper.writeValueAsString(plan));
+    }
+
+    @Test
+    void createPlanWithUnterminatedPlaceholder() throws IOException, DocumentParseException {
+        String bundleXml = BUNDLE_XML + "<!-- l7:StringValue>SERVICE_PROPERTY_ENV.unterminated -->";
+        EnvironmentPlanRecorder recorder = new EnvironmentPlanRecorder("test", NullOutputStream.NULL_OUTPUT_STREAM);
+        recorder.write(bundleXml.getBytes(UTF_8));
+
+        assertNull(recorder.createPlan(DocumentTools.INSTANCE.parse(bundleXml).getDocumentElement()));
+    }
+
+    @Test
+    void createPlanWithPlaceholderSpanningLines() throws IOException, DocumentParseException {
+        String bundleXml = BUNDLE_XML.replace("ENV.anotherEnvVar", "ENV.another\nEnvVar");
+        EnvironmentPlanRecorder recorder = new EnvironmentPlanRecorder("test", NullOutputStream.NULL_OUTPUT_STREAM);
+        recorder.write(bundleXml.getBytes(UTF_8));
+
+        assertNull(recorder.createPlan(DocumentTools.INSTANCE.parse(bundleXml).getDocumentElement()));
+    }
+}
@@ -6,9 +6,13 @@
 
 package com.ca.apim.gateway.cagatewayconfig.util;
 
+import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
 import org.junit.Assert;
 import org.junit.jupiter.api.Test;
 
+import static com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes.POLICY_TYPE;
+import static com.ca.apim.gateway.cagatewayconfig.util.entity.EntityTypes.SERVICE_TYPE;
+
 class IdGeneratorTest {
 
     @Test
@@ -20,4 +24,36 @@ class IdGeneratorTest {
         Assert.assertNotEquals(id1, idGenerator.generate());
         Assert.assertNotEquals(id1, idGenerator2.generate());
     }
-}
\ No newline at end of file
+
+    @Test
+    void generateDeterministic() {
+        ProjectInfo projectInfo = new ProjectInfo("my-bundle", "my-group", "1.0");
+        projectInfo.setDeterministicIds(true);
+        ProjectInfo otherVersion = new ProjectInfo("my-bundle", "my-group", "2.0");
+        otherVersion.setDeterministicIds(true);
+
+        String id = new IdGenerator().generate(projectInfo, POLICY_TYPE, "my-folder/my-policy");
+        Assert.assertEquals(32, id.length());
+        Assert.assertEquals(id, new IdGenerator().generate(projectInfo, POLICY_TYPE, "my-folder/my-policy"));
+        Assert.assertEquals(id, new IdGenerator().generate(otherVersion, POLICY_TYPE, "my-folder/my-policy"));
+        Assert.assertNotEquals(id, new IdGenerator().generate(projectInfo, SERVICE_TYPE, "my-folder/my-policy"));
+        Assert.assertNotEquals(id, new IdGenerator().generate(projectInfo, POLICY_TYPE, "my-folder/other-policy"));
+        Assert.assertNotEquals(id, new IdGenerator().generate(new ProjectInfo("other-bundle", "my-group", "1.0") {{
+            setDeterministicIds(true);
+        }}, POLICY_TYPE, "my-folder/my-policy"));
+
+        String guid = new IdGenerator().generateGuid(projectInfo, POLICY_TYPE, "my-folder/my-policy");
+        Assert.assertEquals(guid, new IdGenerator().generateGuid(projectInfo, POLICY_TYPE, "my-folder/my-policy"));
+        Assert.assertNotEquals(guid, new IdGenerator().generateGuid(projectInfo, POLICY_TYPE, "my-folder/other-policy"));
+    }
+
+    @Test
+    void generateNotDeterministic() {
+        ProjectInfo projectInfo = new ProjectInfo("my-bundle", "my-group", "1.0");
+        IdGenerator idGenerator = new IdGenerator();
+
+        Assert.assertNotEquals(idGenerator.generate(projectInfo, POLICY_TYPE, "my-policy"), idGenerator.generate(projectInfo, POLICY_TYPE, "my-policy"));
+        Assert.assertNotEquals(idGenerator.generateGuid(projectInfo, POLICY_TYPE, "my-policy"), idGenerator.generateGuid(projectInfo, POLICY_TYPE, "my-policy"));
+        Assert.assertNotEquals(idGenerator.generate(null, POLICY_TYPE, "my-policy"), idGenerator.generate(null, POLICY_TYPE, "my-policy"));
+    }
+}
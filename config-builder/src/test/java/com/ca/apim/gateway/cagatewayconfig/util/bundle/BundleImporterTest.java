@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.bundle;
+
+import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClient;
+import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClientException;
+import com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.http.entity.FileEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils.METADATA_FILE_NAME_SUFFIX;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.http.client.methods.RequestBuilder.put;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class BundleImporterTest {
+
+    private final BundleImporter bundleImporter = new BundleImporter(JsonFileUtils.INSTANCE);
+    private final GatewayClient gatewayClient = new GatewayClient();
+    private final List<String> importedBundles = new CopyOnWriteArrayList<>();
+    private final AtomicInteger runningImports = new AtomicInteger();
+    private final AtomicInteger maxRunningImports = new AtomicInteger();
+    private HttpServer server;
+    private String url;
+    private File bundleFolder;
+
+    @BeforeEach
+    void startServer(TemporaryFolder temporaryFolder) throws IOException {
+        bundleFolder = temporaryFolder.getRoot();
+        // stub of the restman bundle endpoint, it fails importing bundles named "invalid"
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/restman/1.0/bundle", this::importBundle);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/restman/1.0/bundle";
+    }
+
+    @AfterEach
+    void stopServer() {
+        gatewayClient.close();
+        server.stop(0);
+    }
+
+    private void importBundle(HttpExchange exchange) throws IOException {
+        maxRunningImports.accumulateAndGet(runningImports.incrementAndGet(), Math::max);
+        int status = 200;
+        try {
+            final String bundle = IOUtils.toString(exchange.getRequestBody(), UTF_8);
+            Thread.sleep(100);
+            if ("invalid".equals(bundle)) {
+                status = 500;
+            } else {
+                importedBundles.add(bundle);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 500;
+        } finally {
+            // the import is over before the client gets the response
+            runningImports.decrementAndGet();
+        }
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    @Test
+    void importBundlesConcurrently() throws IOException {
+        File common = createBundle("common.install.bundle", "common");
+        File service1 = createBundle("service1.install.bundle", "service1", "common");
+        File service2 = createBundle("service2.install.bundle", "service2", "common");
+        File other = createBundle("other.install.bundle", "other");
+
+        Map<File, Long> importTimes = bundleImporter.importBundles(Arrays.asList(service1, service2, common, other), 4, this::importBundle);
+
+        assertEquals(new HashSet<>(Arrays.asList(service1, service2, common, other)), importTimes.keySet());
+        assertTrue(importTimes.values().stream().allMatch(importTime -> importTime >= 100));
+        assertEquals(4, importedBundles.size());
+        assertTrue(importedBundles.indexOf("common") < importedBundles.indexOf("service1"));
+        assertTrue(importedBundles.indexOf("common") < importedBundles.indexOf("service2"));
+        assertTrue(maxRunningImports.get() > 1);
+    }
+
+    @Test
+    void importBundlesSequentially() throws IOException {
+        File common = createBundle("common.install.bundle", "common");
+        File service = createBundle("service.install.bundle", "service", "common", "not-imported");
+        File other = createBundle("other.bundle", null);
+
+        bundleImporter.importBundles(Arrays.asList(service, common, other), 1, this::importBundle);
+
+        assertEquals(Arrays.asList("common", "other", "service"), importedBundles);
+        assertEquals(1, maxRunningImports.get());
+    }
+
+    @Test
+    void importBundlesFailed() throws IOException {
+        File invalid = createBundle("invalid.install.bundle", "invalid");
+        File service = createBundle("service.install.bundle", "service", "invalid");
+        File other = createBundle("other.install.bundle", "other");
+
+        assertThrows(GatewayClientException.class,
+                () -> bundleImporter.importBundles(Arrays.asList(invalid, service, other), 4, this::importBundle));
+        assertEquals(Collections.singletonList("other"), importedBundles);
+    }
+
+    @Test
+    void importBundlesWithCycle() throws IOException {
+        File first = createBundle("first.install.bundle", "first", "second");
+        File second = createBundle("second.install.bundle", "second", "first");
+        File other = createBundle("other.install.bundle", "other");
+
+        BundleImportException exception = assertThrows(BundleImportException.class,
+                () -> bundleImporter.importBundles(Arrays.asList(first, second, other), 4, this::importBundle));
+        assertEquals("Bundles depend on each other and can't be imported in order: first.install.bundle, second.install.bundle", exception.getMessage());
+        assertTrue(importedBundles.isEmpty());
+    }
+
+    @Test
+    void getDependenciesOfDeleteBundles() throws IOException {
+        File common = createBundle("common.delete.bundle", "common");
+        File service = createBundle("service.delete.bundle", "service", "common");
+        File commonInstall = new File(bundleFolder, "common.install.bundle");
+
+        Map<File, Set<File>> dependencies = bundleImporter.getDependencies(Arrays.asList(common, service, commonInstall));
+
+        assertEquals(Collections.singleton(service), dependencies.get(common));
+        assertEquals(Collections.emptySet(), dependencies.get(service));
+        assertEquals(Collections.emptySet(), dependencies.get(commonInstall));
+    }
+
+    private void importBundle(File bundleFile) {
+        gatewayClient.makeGatewayAPICall(put(url).setEntity(new FileEntity(bundleFile)), "user", "password",
+                responseStream -> IOUtils.copy(responseStream, NullOutputStream.NULL_OUTPUT_STREAM));
+    }
+
+    private File createBundle(String fileName, String name, String... dependencies) throws IOException {
+        String baseName = fileName.substring(0, fileName.indexOf('.'));
+        File bundleFile = new File(bundleFolder, fileName);
+        Files.write(bundleFile.toPath(), baseName.getBytes(UTF_8));
+        if (name != null) {
+            String dependencyList = Arrays.stream(dependencies)
+                    .map(dependency -> "{\"type\": \"bundle\", \"name\": \"" + dependency + "\", \"groupName\": \"my.group\"}")
+                    .collect(Collectors.joining(", "));
+            String metadata = "{\"name\": \"" + name + "\", \"groupName\": \"my.group\", \"dependencies\": [" + dependencyList + "]}";
+            Files.write(new File(bundleFolder, baseName + METADATA_FILE_NAME_SUFFIX).toPath(), metadata.getBytes(UTF_8));
+        }
+        return bundleFile;
+    }
+}
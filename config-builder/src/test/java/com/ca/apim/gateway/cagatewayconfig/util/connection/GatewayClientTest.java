@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.connection;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.io.IOUtils.toByteArray;
+import static org.apache.http.client.methods.RequestBuilder.get;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class GatewayClientTest {
+
+    private static final String BUNDLE = "<l7:Bundle xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\"/>";
+
+    private final GatewayClient gatewayClient = new GatewayClient();
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/bundle", exchange -> respond(exchange, 200, BUNDLE));
+        server.createContext("/error", exchange -> respond(exchange, 500, "Invalid bundle"));
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        gatewayClient.close();
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String response) throws IOException {
+        byte[] bytes = response.getBytes(UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    @Test
+    void makeGatewayAPICall() throws IOException {
+        assertEquals(BUNDLE, new String(toByteArray(gatewayClient.makeGatewayAPICall(get(url + "/bundle"), "user", "password")), UTF_8));
+    }
+
+    @Test
+    void makeGatewayAPICallToFile(TemporaryFolder temporaryFolder) throws IOException {
+        Path destination = temporaryFolder.getRoot().toPath().resolve("export").resolve("bundle.xml");
+        gatewayClient.makeGatewayAPICall(get(url + "/bundle"), "user", "password", destination);
+
+        assertEquals(BUNDLE, new String(Files.readAllBytes(destination), UTF_8));
+    }
+
+    @Test
+    void makeGatewayAPICallToFileFailed(TemporaryFolder temporaryFolder) {
+        Path destination = temporaryFolder.getRoot().toPath().resolve("bundle.xml");
+        GatewayClientException exception = assertThrows(GatewayClientException.class,
+                () -> gatewayClient.makeGatewayAPICall(get(url + "/error"), "user", "password", destination));
+
+        assertTrue(exception.getMessage().contains("returned status 500"));
+        assertTrue(exception.getMessage().endsWith("Invalid bundle"));
+        assertFalse(Files.exists(destination));
+    }
+
+    @Test
+    void makeGatewayAPICallReusesConnections() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(BUNDLE, new String(toByteArray(gatewayClient.makeGatewayAPICall(get(url + "/bundle"), "user", "password")), UTF_8));
+        }
+
+        assertEquals(3, gatewayClient.getRequestCount());
+        assertEquals(1, gatewayClient.getOpenedConnectionCount());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.injection;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.GatewayEntity;
+import com.ca.apim.gateway.cagatewayconfig.bundle.builder.EntityBuilder;
+import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleEntityLoader;
+import com.ca.apim.gateway.cagatewayconfig.config.loader.EntityLoader;
+import org.junit.jupiter.api.Test;
+import org.reflections.Reflections;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.*;
+
+class InjectionIndexGeneratorTest {
+
+    private static final String BASE_PACKAGE = "com.ca.apim.gateway.cagatewayconfig";
+
+    @Test
+    void generateLikeReflections() throws IOException, URISyntaxException {
+        InjectionIndex index = InjectionIndexGenerator.generate(BASE_PACKAGE, getClassesDirectories(), getClass().getClassLoader());
+        Reflections reflections = new Reflections(BASE_PACKAGE);
+
+        for (Class<?> type : Arrays.asList(InjectionProvider.class, GatewayEntity.class, EntityBuilder.class, BundleEntityLoader.class, EntityLoader.class)) {
+            assertEquals(reflections.getSubTypesOf(type), index.getSubTypesOf(type), type.getName());
+        }
+        assertTrue(index.getSubTypesOf(InjectionProvider.class).contains(ConfigBuilderInjectionProvider.class));
+    }
+
+    @Test
+    void saveAndLoad() throws IOException, URISyntaxException {
+        InjectionIndex index = InjectionIndexGenerator.generate(BASE_PACKAGE, getClassesDirectories(), getClass().getClassLoader());
+        ByteArrayOutputStream saved = new ByteArrayOutputStream();
+        index.save(saved);
+
+        InjectionIndex loaded = InjectionIndex.load(new ByteArrayInputStream(saved.toByteArray()), getClass().getClassLoader());
+        assertEquals(BASE_PACKAGE, loaded.getBasePackage());
+        assertEquals(index.getSubTypesOf(GatewayEntity.class), loaded.getSubTypesOf(GatewayEntity.class));
+        assertEquals(Collections.emptySet(), loaded.getSubTypesOf(Runnable.class));
+
+        ByteArrayOutputStream savedAgain = new ByteArrayOutputStream();
+        loaded.save(savedAgain);
+        assertEquals(saved.toString(ISO_8859_1.name()), savedAgain.toString(ISO_8859_1.name()));
+    }
+
+    @Test
+    void loadWithoutBasePackage() {
+        assertThrows(InjectionConfigurationException.class, () ->
+                InjectionIndex.load(new ByteArrayInputStream("a.B=a.C".getBytes(ISO_8859_1)), getClass().getClassLoader()));
+    }
+
+    private static List<Path> getClassesDirectories() throws URISyntaxException {
+        return Collections.singletonList(Paths.get(InjectionRegistry.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+    }
+}
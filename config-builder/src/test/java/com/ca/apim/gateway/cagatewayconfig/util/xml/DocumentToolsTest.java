@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.util.xml;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentToolsTest {
+
+    private static final int THREADS = 8;
+    private static final int DOCUMENTS = 50;
+
+    private final DocumentTools documentTools = new DocumentTools();
+
+    @Test
+    void getDocumentBuilder() throws Exception {
+        assertSame(documentTools.getDocumentBuilder(), documentTools.getDocumentBuilder());
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        try {
+            assertNotSame(documentTools.getDocumentBuilder(), executorService.submit(documentTools::getDocumentBuilder).get());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void parseAndPrintConcurrently() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS * DOCUMENTS; i++) {
+                final String name = "name-" + i;
+                futures.add(executorService.submit(() -> {
+                    Document document = documentTools.parse("<l7:Item xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\"><l7:Name>" + name + "</l7:Name></l7:Item>");
+                    assertEquals(name, document.getDocumentElement().getTextContent());
+                    assertEquals("<l7:Item xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">" + System.lineSeparator() +
+                            "    <l7:Name>" + name + "</l7:Name>" + System.lineSeparator() +
+                            "</l7:Item>" + System.lineSeparator(), documentTools.elementToString(document.getDocumentElement()));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    void parseInvalidDocument() {
+        assertThrows(DocumentParseException.class, () -> documentTools.parse("<Item>"));
+    }
+
+    @Test
+    void readElement() throws Exception {
+        String item = "<l7:Item xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">\n" +
+                "    <l7:Name>Policy &amp; more</l7:Name>\n" +
+                "    <!-- comment -->\n" +
+                "    <l7:Resource type=\"policy\" l7:version=\"1\"><![CDATA[<wsp:Policy/>]]>\t<![CDATA[ ]]></l7:Resource>\n" +
+                "    <l7:Value>  spaced\ttext  </l7:Value>\r\n" +
+                "</l7:Item>";
+        Document document = documentTools.parse("<l7:Bundle xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">\n" +
+                "    <l7:References>" + item + "</l7:References>\n</l7:Bundle>");
+        documentTools.cleanup(document);
+        Element expected = (Element) document.getElementsByTagName("l7:Item").item(0);
+        expected.setAttribute("xmlns:l7", "http://ns.l7tech.com/2010/04/gateway-management");
+
+        XMLStreamReader reader = documentTools.createXMLStreamReader(new ByteArrayInputStream(item.getBytes(UTF_8)));
+        reader.nextTag();
+        Element element = documentTools.readElement(reader);
+
+        assertEquals(XMLStreamReader.END_ELEMENT, reader.getEventType());
+        assertEquals("l7:Item", DocumentTools.getQualifiedName(reader));
+        assertSame(element, element.getOwnerDocument().getDocumentElement());
+        assertEquals(documentTools.elementToString(expected), documentTools.elementToString(element));
+    }
+
+    @Test
+    void readIncompleteElement() throws Exception {
+        XMLStreamReader reader = documentTools.createXMLStreamReader(new ByteArrayInputStream("<Item><Name>".getBytes(UTF_8)));
+        reader.nextTag();
+
+        assertThrows(DocumentParseException.class, () -> documentTools.readElement(reader));
+    }
+}
@@ -6,6 +6,7 @@
 
 package com.ca.apim.gateway.cagatewayexport;
 
+import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClient;
 import com.ca.apim.gateway.cagatewayexport.config.GatewayExportConnectionProperties;
 import com.ca.apim.gateway.cagatewayexport.config.GatewayExportPluginConfig;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.ExplodeBundleTask;
@@ -36,13 +37,18 @@ public class CAGatewayExport implements Plugin<Project> {
         final GatewayExportConnectionProperties gatewayConnectionProperties = project.getExtensions().create("GatewayConnection", GatewayExportConnectionProperties.class, project);
         // Set Defaults
         project.afterEvaluate(p -> setDefaults(gatewayConnectionProperties));
+        // The gateway connections are kept open for the whole build
+        project.getGradle().buildFinished(result -> GatewayClient.INSTANCE.close());
 
-        BuildExportQueryTask buildExportQueryTask = project.getTasks().create("build-export-query", BuildExportQueryTask.class);
+        BuildExportQueryTask buildExportQueryTask = project.getTasks().create("build-export-query", BuildExportQueryTask.class,
+                t -> t.getFolderIds().set(pluginConfig.getExportFolderIds()));
 
         ExportTask exportTask = project.getTasks().create("export-raw", ExportTask.class, t -> {
             t.setGatewayConnectionProperties(gatewayConnectionProperties);
             t.getExportFile().set(pluginConfig.getRawBundle());
             t.getExportQuery().set(buildExportQueryTask.getExportQuery());
+            t.getExportQueries().set(buildExportQueryTask.getExportQueries());
+            t.getParallelism().set(pluginConfig.getExportParallelism());
         });
         exportTask.dependsOn(buildExportQueryTask);
 
@@ -57,6 +63,7 @@ public class CAGatewayExport implements Plugin<Project> {
             t.getInputBundleFile().set(pluginConfig.getSanitizedBundle());
             t.getExportDir().set(pluginConfig.getSolutionDir());
             t.getExportEntities().set(pluginConfig.getExportEntities());
+            t.getParallelism().set(pluginConfig.getExplodeParallelism());
         });
         explodeBundleTask.dependsOn(sanitizeTask);
 
@@ -13,6 +13,7 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Optional;
 
+import java.util.List;
 import java.util.Map;
 
 public class GatewayExportPluginConfig {
@@ -21,6 +22,9 @@ public class GatewayExportPluginConfig {
     private final RegularFileProperty sanitizedBundle;
     private final Property<Map> exportEntities;
     private final Property<String> folderPath;
+    private final Property<List> exportFolderIds;
+    private final Property<Integer> exportParallelism;
+    private final Property<Integer> explodeParallelism;
 
     public GatewayExportPluginConfig(Project project) {
         solutionDir = project.getLayout().directoryProperty();
@@ -28,6 +32,9 @@ public class GatewayExportPluginConfig {
         sanitizedBundle = project.getLayout().fileProperty();
         exportEntities = project.getObjects().property(Map.class);
         folderPath = project.getObjects().property(String.class);
+        exportFolderIds = project.getObjects().property(List.class);
+        exportParallelism = project.getObjects().property(Integer.class);
+        explodeParallelism = project.getObjects().property(Integer.class);
     }
 
     public DirectoryProperty getSolutionDir() {
@@ -56,4 +63,33 @@ public class GatewayExportPluginConfig {
     public Property<String> getFolderPath() {
         return folderPath;
     }
+
+    /**
+     * The ids of the folders to export with a restman query each, instead of exporting the whole gateway with a single
+     * query. The folders are exported with their dependencies and merged into a single raw bundle. Entities that are
+     * neither in these folders nor used by them are not exported.
+     *
+     * @return the ids of the folders to export from the gateway
+     */
+    public Property<List> getExportFolderIds() {
+        return exportFolderIds;
+    }
+
+    /**
+     * Maximum number of folders exported at the same time when exporting by folder. Defaults to 1.
+     *
+     * @return the maximum number of folders exported at the same time
+     */
+    public Property<Integer> getExportParallelism() {
+        return exportParallelism;
+    }
+
+    /**
+     * Maximum number of policies linked and written at the same time when exploding the exported bundle. Defaults to 1.
+     *
+     * @return the maximum number of policies processed at the same time
+     */
+    public Property<Integer> getExplodeParallelism() {
+        return explodeParallelism;
+    }
 }
@@ -9,10 +9,8 @@ package com.ca.apim.gateway.cagatewayexport.tasks.explode;
 import com.ca.apim.gateway.cagatewayconfig.beans.Bundle;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadException;
 import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionRegistry;
-import com.ca.apim.gateway.cagatewayconfig.util.paths.PathUtils;
 import com.ca.apim.gateway.cagatewayconfig.util.string.CharacterBlacklistUtil;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
-import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.bundle.BundleBuilder;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.filter.BundleFilter;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.filter.FilterConfiguration;
@@ -20,7 +18,6 @@ import com.ca.apim.gateway.cagatewayexport.tasks.explode.linker.EntitiesLinker;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.linker.EntityLinkerRegistry;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.writer.EntityWriter;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.writer.EntityWriterRegistry;
-import org.w3c.dom.Document;
 
 import javax.inject.Inject;
 import java.io.File;
@@ -28,15 +25,12 @@ import java.util.Collection;
 import java.util.logging.Logger;
 
 public class ExplodeBundle {
-    private final DocumentTools documentTools;
     private final EntityWriterRegistry entityWriterRegistry;
     private final EntityLinkerRegistry entityLinkerRegistry;
 
     @Inject
-    ExplodeBundle(final DocumentTools documentTools,
-                  final EntityWriterRegistry entityWriterRegistry,
+    ExplodeBundle(final EntityWriterRegistry entityWriterRegistry,
                   final EntityLinkerRegistry entityLinkerRegistry) {
-        this.documentTools = documentTools;
         this.entityWriterRegistry = entityWriterRegistry;
         this.entityLinkerRegistry = entityLinkerRegistry;
     }
@@ -46,16 +40,13 @@ public class ExplodeBundle {
         if (folderPath.equals("/")) {
             return true;
         }
-        return bundle.getFolders().values().stream().anyMatch( folder -> ("/" + PathUtils.unixPath(folder.getPath())).equals(folderPath));
+        return folderPath.startsWith("/") && !bundle.getFoldersByPath(folderPath.substring(1)).isEmpty();
     }
 
-    void explodeBundle(String folderPath, FilterConfiguration filterConfiguration, File bundleFile, File explodeDirectory) throws DocumentParseException {
-        final Document bundleDocument = documentTools.parse(bundleFile);
-        documentTools.cleanup(bundleDocument);
-
-        //loads the bundle
+    void explodeBundle(String folderPath, FilterConfiguration filterConfiguration, File bundleFile, File explodeDirectory, int parallelism) throws DocumentParseException {
+        //loads the bundle, streaming it item by item
         final BundleBuilder bundleBuilder = InjectionRegistry.getInstance(BundleBuilder.class);
-        Bundle bundle = bundleBuilder.buildBundle(bundleDocument.getDocumentElement());
+        Bundle bundle = bundleBuilder.buildBundle(bundleFile);
 
         String encodedFolderPath = folderPath;
         encodedFolderPath = CharacterBlacklistUtil.encodePath(folderPath);
@@ -69,11 +60,11 @@ public class ExplodeBundle {
         Bundle filteredBundle = bundleFilter.filter(encodedFolderPath, filterConfiguration, bundle);
         //Link, simplify and process entities
         final Collection<EntitiesLinker> entityLinkers = entityLinkerRegistry.getEntityLinkers();
-        entityLinkers.forEach(e -> e.link(filteredBundle, bundle, explodeDirectory));
+        entityLinkers.forEach(e -> e.link(filteredBundle, bundle, explodeDirectory, parallelism));
 
         //write the bundle in the exploded format
         final Collection<EntityWriter> entityBuilders = entityWriterRegistry.getEntityWriters();
-        entityBuilders.parallelStream().forEach(e -> e.write(filteredBundle, explodeDirectory, bundle));
+        entityBuilders.parallelStream().forEach(e -> e.write(filteredBundle, explodeDirectory, bundle, parallelism));
     }
 
 }
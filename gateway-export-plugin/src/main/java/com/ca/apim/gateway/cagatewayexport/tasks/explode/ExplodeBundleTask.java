@@ -28,6 +28,7 @@ public class ExplodeBundleTask extends DefaultTask {
     private RegularFileProperty inputBundleFile;
     private DirectoryProperty exportDir;
     private final Property<Map> exportEntities;
+    private final Property<Integer> parallelism;
 
     @Inject
     public ExplodeBundleTask() {
@@ -35,6 +36,7 @@ public class ExplodeBundleTask extends DefaultTask {
         inputBundleFile = newInputFile();
         exportDir = newOutputDirectory();
         exportEntities = getProject().getObjects().property(Map.class);
+        parallelism = getProject().getObjects().property(Integer.class);
         JsonTools.INSTANCE.setOutputType(JsonTools.YAML);
         getOutputs().upToDateWhen(t -> false);
     }
@@ -71,11 +73,21 @@ public class ExplodeBundleTask extends DefaultTask {
         return exportEntities;
     }
 
+    /**
+     * Maximum number of policies linked and written at the same time. It doesn't change the exploded files.
+     *
+     * @return the maximum number of policies processed at the same time
+     */
+    @Internal
+    public Property<Integer> getParallelism() {
+        return parallelism;
+    }
+
     @TaskAction
     public void perform() throws DocumentParseException {
         ExplodeBundle explodeBundle = InjectionRegistry.getInstance(ExplodeBundle.class);
         checkExportEntities();
-        explodeBundle.explodeBundle(folderPath.getOrElse("/"), toFilterConfiguration(exportEntities.getOrElse(Collections.emptyMap())), inputBundleFile.getAsFile().get(), exportDir.getAsFile().get());
+        explodeBundle.explodeBundle(folderPath.getOrElse("/"), toFilterConfiguration(exportEntities.getOrElse(Collections.emptyMap())), inputBundleFile.getAsFile().get(), exportDir.getAsFile().get(), parallelism.getOrElse(1));
     }
 
     /**
@@ -13,11 +13,21 @@ import com.ca.apim.gateway.cagatewayconfig.beans.GatewayEntity;
 import com.ca.apim.gateway.cagatewayconfig.beans.UnsupportedGatewayEntity;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleEntityLoader;
 import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleEntityLoaderRegistry;
+import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadException;
 import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionRegistry;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -26,6 +36,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BundleElementNames.*;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools.getQualifiedName;
 import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElement;
 import static org.w3c.dom.Node.ELEMENT_NODE;
 
@@ -33,10 +44,12 @@ public class BundleBuilder {
     private static final Logger LOGGER = Logger.getLogger(BundleBuilder.class.getName());
     private final BundleEntityLoaderRegistry entityLoaderRegistry;
     private final EntityTypeRegistry entityTypeRegistry;
+    private final DocumentTools documentTools;
 
     public BundleBuilder() {
         this.entityLoaderRegistry = InjectionRegistry.getInstance(BundleEntityLoaderRegistry.class);
         this.entityTypeRegistry = InjectionRegistry.getInstance(EntityTypeRegistry.class);
+        this.documentTools = InjectionRegistry.getInstance(DocumentTools.class);
     }
 
     public Bundle buildBundle(final Element bundleElement) {
@@ -57,22 +70,113 @@ public class BundleBuilder {
         return bundle;
     }
 
+    /**
+     * Builds the bundle reading the bundle file one item at a time, instead of parsing the whole file first. Only the
+     * item being loaded and the dependency being built are kept as elements, and whitespace is dropped while reading
+     * them. The bundle built is the same as {@link #buildBundle(Element)} builds from the cleaned up document.
+     *
+     * @param bundleFile the bundle file to read
+     * @return the bundle loaded
+     * @throws DocumentParseException if the bundle file can't be read
+     */
+    public Bundle buildBundle(final File bundleFile) throws DocumentParseException {
+        final Bundle bundle = new Bundle();
+        final Map<Dependency, List<Dependency>> dependencyMap = new HashMap<>();
+        try (InputStream inputStream = new BufferedInputStream(Files.newInputStream(bundleFile.toPath()))) {
+            final XMLStreamReader reader = documentTools.createXMLStreamReader(inputStream);
+            try {
+                readBundle(reader, bundle, dependencyMap);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException e) {
+            throw new DocumentParseException("Exception reading file: " + bundleFile, e);
+        }
+
+        bundle.buildFolderTree();
+        bundle.setDependencyMap(dependencyMap);
+
+        return bundle;
+    }
+
+    private void readBundle(XMLStreamReader reader, Bundle bundle, Map<Dependency, List<Dependency>> dependencyMap)
+            throws XMLStreamException, DocumentParseException {
+        // depth of the current element, the bundle element is at depth 1
+        int depth = 0;
+        int dependencyGraphs = 0;
+        int dependencies = 0;
+        boolean inDependencyGraph = false;
+        boolean inDependencies = false;
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamReader.END_ELEMENT) {
+                if (depth == 3) {
+                    inDependencies = false;
+                } else if (depth == 2) {
+                    inDependencyGraph = false;
+                }
+                depth--;
+            } else if (event == XMLStreamReader.START_ELEMENT) {
+                depth++;
+                final String name = getQualifiedName(reader);
+                if (inDependencies && depth == 4) {
+                    addDependency(documentTools.readElement(reader), dependencyMap);
+                    depth--;
+                } else if (depth > 1 && ITEM.equals(name)) {
+                    handleItems(documentTools.readElement(reader), bundle);
+                    depth--;
+                } else if (depth == 2 && DEPENDENCY_GRAPH.equals(name)) {
+                    inDependencyGraph = true;
+                    dependencyGraphs++;
+                } else if (inDependencyGraph && depth == 3 && DEPENDENCIES.equals(name)) {
+                    inDependencies = true;
+                    dependencies++;
+                }
+            }
+        }
+        checkSingleElement(DEPENDENCY_GRAPH, dependencyGraphs);
+        checkSingleElement(DEPENDENCIES, dependencies);
+    }
+
+    private static void checkSingleElement(String elementName, int count) {
+        if (count == 0) {
+            throw new BundleLoadException(elementName + " element not found");
+        } else if (count > 1) {
+            throw new BundleLoadException("Multiple " + elementName + " elements found");
+        }
+    }
+
+    /**
+     * Loads the item and, like {@link #buildBundle(Element)} does, the items nested in it.
+     */
+    private void handleItems(final Element item, final Bundle bundle) {
+        handleItem(item, bundle);
+        final NodeList nestedItems = item.getElementsByTagName(ITEM);
+        for (int i = 0; i < nestedItems.getLength(); i++) {
+            handleItem((Element) nestedItems.item(i), bundle);
+        }
+    }
+
     private Map<Dependency, List<Dependency>> buildDependencies(Element dependenciesElement) {
         Map<Dependency, List<Dependency>> dependencyMap = new HashMap<>();
         NodeList bundleDependencies = dependenciesElement.getChildNodes();
         for (int i = 0; i < bundleDependencies.getLength(); i++) {
             Node dependencyNode = bundleDependencies.item(i);
             if (dependencyNode.getNodeType() == ELEMENT_NODE) {
-                Dependency dependency = buildDependency((Element) dependencyNode);
-                if (dependency != null) {
-                    List<Dependency> dependencyList = getDependenciesFromNode((Element) dependencyNode);
-                    dependencyMap.put(dependency, dependencyList);
-                }
+                addDependency((Element) dependencyNode, dependencyMap);
             }
         }
         return dependencyMap;
     }
 
+    private void addDependency(Element dependencyElement, Map<Dependency, List<Dependency>> dependencyMap) {
+        Dependency dependency = buildDependency(dependencyElement);
+        if (dependency != null) {
+            List<Dependency> dependencyList = getDependenciesFromNode(dependencyElement);
+            dependencyMap.put(dependency, dependencyList);
+        }
+    }
+
     private List<Dependency> getDependenciesFromNode(Element dependencyNode) {
         List<Dependency> dependencyList = new ArrayList<>();
         final NodeList dependencyDependenciesNodeList = dependencyNode.getElementsByTagName(DEPENDENCIES);
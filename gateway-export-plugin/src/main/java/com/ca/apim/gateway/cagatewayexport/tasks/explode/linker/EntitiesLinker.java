@@ -20,6 +20,18 @@ public interface EntitiesLinker {
         link(filteredBundle, bundle);
     }
 
+    /**
+     * Links the entities, linkers of many entities can link up to the given number of them at the same time.
+     *
+     * @param filteredBundle the bundle being exploded
+     * @param bundle         the exported bundle
+     * @param rootFolder     the folder the bundle is exploded to
+     * @param parallelism    the maximum number of entities linked at the same time
+     */
+    default void link(Bundle filteredBundle, Bundle bundle, File rootFolder, int parallelism) {
+        link(filteredBundle, bundle, rootFolder);
+    }
+
     /**
      *  It has to be overridden in entity specific likers to change the dependency name or type
      * @param dependencies
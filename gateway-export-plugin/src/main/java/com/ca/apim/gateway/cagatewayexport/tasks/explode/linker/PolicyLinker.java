@@ -18,7 +18,13 @@ import org.w3c.dom.Element;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.File;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.toList;
@@ -41,12 +47,53 @@ public class PolicyLinker implements EntityLinker<Policy> {
 
     @Override
     public void link(Bundle filteredBundle, Bundle bundle) {
-        Stream.of(
+        link(filteredBundle, bundle, null, 1);
+    }
+
+    /**
+     * Parses and simplifies the policies, up to the given number of them at the same time. When a policy fails to
+     * link, the failure of the first policy in order is rethrown once the running ones are done.
+     */
+    @Override
+    public void link(Bundle filteredBundle, Bundle bundle, File rootFolder, int parallelism) {
+        final List<Policy> policies = Stream.of(
                 filteredBundle.getEntities(Policy.class).values().stream(),
                 bundle.getEntities(GlobalPolicy.class).values().stream().map(Policy.class::cast).collect(toList()).stream(),
                 bundle.getEntities(AuditPolicy.class).values().stream().map(Policy.class::cast).collect(toList()).stream()
-        ).flatMap(s -> s)
-                .forEach(p -> link(p, bundle, filteredBundle));
+        ).flatMap(s -> s).collect(toList());
+        if (parallelism <= 1 || policies.size() <= 1) {
+            policies.forEach(p -> link(p, bundle, filteredBundle));
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, policies.size()));
+        try {
+            final List<Future<?>> links = policies.stream()
+                    .map(p -> executor.submit(() -> link(p, bundle, filteredBundle)))
+                    .collect(toList());
+            for (Future<?> link : links) {
+                waitForLink(link);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void waitForLink(Future<?> link) {
+        try {
+            link.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LinkerException("Interrupted while linking policies", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new LinkerException("Error linking policies", e);
+        }
     }
 
     @Override
@@ -15,4 +15,16 @@ public interface EntityWriter {
 
     void write(Bundle bundle, File rootFolder, Bundle rawBundle);
 
+    /**
+     * Writes the entities, writers of many entities can write up to the given number of them at the same time.
+     *
+     * @param bundle      the bundle being exploded
+     * @param rootFolder  the folder the bundle is exploded to
+     * @param rawBundle   the exported bundle
+     * @param parallelism the maximum number of entities written at the same time
+     */
+    default void write(Bundle bundle, File rootFolder, Bundle rawBundle, int parallelism) {
+        write(bundle, rootFolder, rawBundle);
+    }
+
 }
@@ -24,6 +24,13 @@ import javax.inject.Singleton;
 import java.io.*;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -36,6 +43,10 @@ public class PolicyWriter implements EntityWriter {
     private PolicyConverterRegistry policyConverterRegistry;
     private final EntityLinkerRegistry entityLinkerRegistry;
     static final String ENCASS_NAME = "encassName";
+    private static final Comparator<Dependency> USED_ENTITY_ORDER = Comparator
+            .comparing(Dependency::getType, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Dependency::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Dependency::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
 
     @Inject
     PolicyWriter(PolicyConverterRegistry policyConverterRegistry, DocumentFileUtils documentFileUtils,
@@ -48,6 +59,15 @@ public class PolicyWriter implements EntityWriter {
 
     @Override
     public void write(Bundle bundle, File rootFolder, Bundle rawBundle) {
+        write(bundle, rootFolder, rawBundle, 1);
+    }
+
+    /**
+     * Writes the services and policies, up to the given number of them at the same time, and their metadata ordered
+     * by policy path so the policy config file is the same whatever order they are written in.
+     */
+    @Override
+    public void write(Bundle bundle, File rootFolder, Bundle rawBundle, int parallelism) {
         File policyFolder = new File(rootFolder, "policy");
         documentFileUtils.createFolder(policyFolder.toPath());
 
@@ -60,28 +80,71 @@ public class PolicyWriter implements EntityWriter {
         });
 
         //create policies
-        Map<String, PolicyMetadata> policyMetadataMap = new HashMap<>();
-        Map<String, Service> services = bundle.getEntities(Service.class);
-        services.values().parallelStream().forEach(serviceEntity -> {
+        final DependencyIndex dependencyIndex = new DependencyIndex(rawBundle.getDependencyMap());
+        final List<Supplier<PolicyMetadata>> policyWrites = new ArrayList<>();
+        bundle.getEntities(Service.class).values().forEach(serviceEntity -> policyWrites.add(() -> {
             writePolicy(bundle, policyFolder, serviceEntity, serviceEntity.getPolicyXML());
-            final PolicyMetadata policyMetadata = createPolicyMetadata(bundle, rawBundle, null, serviceEntity);
-            policyMetadataMap.put(policyMetadata.getFullPath(), policyMetadata);
-        });
-
+            return createPolicyMetadata(bundle, rawBundle, dependencyIndex, null, serviceEntity);
+        }));
         Stream.of(
                 bundle.getEntities(Policy.class).values().stream(),
                 bundle.getEntities(GlobalPolicy.class).values().stream().map(Policy.class::cast).collect(toList()).stream(),
                 bundle.getEntities(AuditPolicy.class).values().stream().map(Policy.class::cast).collect(toList()).stream()
         ).flatMap(s -> s)
-                .forEach(policyEntity -> {
+                .forEach(policyEntity -> policyWrites.add(() -> {
                     writePolicy(bundle, policyFolder, policyEntity, policyEntity.getPolicyDocument());
-                    final PolicyMetadata policyMetadata = createPolicyMetadata(bundle, rawBundle, policyEntity, policyEntity);
-                    policyMetadataMap.put(policyMetadata.getFullPath(), policyMetadata);
-                });
+                    return createPolicyMetadata(bundle, rawBundle, dependencyIndex, policyEntity, policyEntity);
+                }));
+
+        final Map<String, PolicyMetadata> policyMetadataMap = new TreeMap<>();
+        writePolicies(policyWrites, parallelism)
+                .forEach(policyMetadata -> policyMetadataMap.put(policyMetadata.getFullPath(), policyMetadata));
         writePolicyMetadata(policyMetadataMap, rootFolder);
     }
 
-    private PolicyMetadata createPolicyMetadata(final Bundle bundle, final Bundle rawBundle, final Policy policyEntity, final Folderable folderableEntity) {
+    /**
+     * Runs the policy writes, returning their metadata in the order of the writes. When a write fails, the failure of
+     * the first write in order is rethrown once the running ones are done.
+     */
+    private static List<PolicyMetadata> writePolicies(List<Supplier<PolicyMetadata>> policyWrites, int parallelism) {
+        if (parallelism <= 1 || policyWrites.size() <= 1) {
+            return policyWrites.stream().map(Supplier::get).collect(toList());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, policyWrites.size()));
+        try {
+            final List<Future<PolicyMetadata>> writes = policyWrites.stream()
+                    .map(policyWrite -> executor.submit(policyWrite::get))
+                    .collect(toList());
+            final List<PolicyMetadata> policyMetadata = new ArrayList<>(writes.size());
+            for (Future<PolicyMetadata> write : writes) {
+                policyMetadata.add(waitForWrite(write));
+            }
+            return policyMetadata;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static PolicyMetadata waitForWrite(Future<PolicyMetadata> write) {
+        try {
+            return write.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteException("Interrupted while writing policies", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new WriteException("Error writing policies", e.getCause());
+        }
+    }
+
+    private PolicyMetadata createPolicyMetadata(final Bundle bundle, final Bundle rawBundle, final DependencyIndex dependencyIndex,
+                                                final Policy policyEntity, final Folderable folderableEntity) {
         final PolicyMetadata policyMetadata = new PolicyMetadata();
         final Folder folder = bundle.getFolderTree().getFolderById(folderableEntity.getParentFolderId());
         final Path policyPath = bundle.getFolderTree().getPath(folder);
@@ -100,7 +163,11 @@ public class PolicyWriter implements EntityWriter {
         } else if (folderableEntity instanceof Service) {
             policyMetadata.setHasRouting(((Service) folderableEntity).isHasRouting());
         }
-        Set<Dependency> filteredDependencies = getFilteredPolicyDependencies(policyMetadata.getFullPath(), getPolicyDependencies(folderableEntity.getId(), rawBundle), rawBundle.getEncasses());
+        // the linkers rename the dependencies, they are copied as the dependency graph is shared by all policies
+        Set<Dependency> filteredDependencies = getFilteredPolicyDependencies(policyMetadata.getFullPath(), dependencyIndex.getPolicyDependencies(folderableEntity.getId()), rawBundle.getEncasses())
+                .stream()
+                .map(d -> new Dependency(d.getId(), d.getTypeClass(), d.getName(), d.getType()))
+                .collect(Collectors.toSet());
 
         final Collection<EntitiesLinker> entityLinkers = entityLinkerRegistry.getEntityLinkers();
         entityLinkers.forEach(e -> {
@@ -108,7 +175,9 @@ public class PolicyWriter implements EntityWriter {
                 e.link(filteredDependencies);
             }
         });
-        policyMetadata.setUsedEntities(filteredDependencies);
+        policyMetadata.setUsedEntities(filteredDependencies.stream()
+                .sorted(USED_ENTITY_ORDER)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
         return policyMetadata;
     }
 
@@ -143,40 +212,67 @@ public class PolicyWriter implements EntityWriter {
     }
 
     /**
-     * This method finds the policy dependencies from the bundle dependency graph for a given policy id.
-     * @param id String
-     * @param rawBundle Bundle
-     * @return Set
+     * The dependency graph of the exported bundle indexed by the id of the entities, to find the dependencies of each
+     * policy without going through the whole graph. The transitive dependencies of environmental entities are found
+     * once and shared by all the policies using them.
      */
-    private Set<Dependency> getPolicyDependencies(final String id, final Bundle rawBundle){
-        final Set<Dependency> dependencyList = new HashSet<>();
-        Map<Dependency, List<Dependency>> dependencyListMap = rawBundle.getDependencyMap();
-        if (dependencyListMap != null) {
-            populateDependencies(dependencyListMap, id, dependencyList);
+    static class DependencyIndex {
+        private final Map<String, List<List<Dependency>>> dependenciesById = new HashMap<>();
+        private final Map<String, Set<Dependency>> transitiveDependencies = new ConcurrentHashMap<>();
+
+        DependencyIndex(final Map<Dependency, List<Dependency>> dependencyListMap) {
+            if (dependencyListMap != null) {
+                dependencyListMap.forEach((parent, dependencyList) ->
+                        dependenciesById.computeIfAbsent(parent.getId(), id -> new ArrayList<>()).add(dependencyList));
+            }
         }
-        return dependencyList;
-    }
 
-    /**
-     * This method adds the direct dependencies of a given policy and recursively adds the transitive dependencies of environmental entities.
-     *
-     * @param dependencyListMap List
-     * @param id String
-     * @param dependencies Set
-     */
-    private void populateDependencies(Map<Dependency, List<Dependency>> dependencyListMap, String id, Set<Dependency> dependencies) {
-        Set<Map.Entry<Dependency, List<Dependency>>> entrySet = dependencyListMap.entrySet();
-        for (Map.Entry<Dependency, List<Dependency>> entry : entrySet) {
-            Dependency parent = entry.getKey();
-            if (parent.getId().equals(id)) {
-                List<Dependency> dependencyList = entry.getValue();
-                for (Dependency dependency : dependencyList) {
-                    // add the dependency and populate the transitive dependencies for environmental entities
-                    if (dependencies.add(dependency) && !EntityTypeRegistry.NON_ENV_ENTITY_TYPES.contains(dependency.getType())) {
-                        populateDependencies(dependencyListMap, dependency.getId(), dependencies);
-                    }
+        /**
+         * Finds the direct dependencies of the entity with the given id, and the transitive dependencies of the
+         * environmental entities among them.
+         *
+         * @param id the id of the policy or service
+         * @return the dependencies of the entity
+         */
+        Set<Dependency> getPolicyDependencies(final String id) {
+            final Set<Dependency> dependencies = new HashSet<>();
+            forEachDirectDependency(id, dependency -> {
+                // add the dependency and the transitive dependencies for environmental entities
+                if (dependencies.add(dependency) && isEnvironmentEntity(dependency)) {
+                    dependencies.addAll(getTransitiveDependencies(dependency.getId()));
                 }
+            });
+            return dependencies;
+        }
+
+        private Set<Dependency> getTransitiveDependencies(final String id) {
+            // dependencies without an id, like stored passwords, are not parents of other dependencies
+            if (id == null) {
+                return Collections.emptySet();
+            }
+            return transitiveDependencies.computeIfAbsent(id, this::findTransitiveDependencies);
+        }
+
+        private Set<Dependency> findTransitiveDependencies(final String id) {
+            final Set<Dependency> dependencies = new HashSet<>();
+            final Deque<String> pendingIds = new ArrayDeque<>();
+            pendingIds.push(id);
+            while (!pendingIds.isEmpty()) {
+                forEachDirectDependency(pendingIds.pop(), dependency -> {
+                    if (dependencies.add(dependency) && isEnvironmentEntity(dependency) && dependency.getId() != null) {
+                        pendingIds.push(dependency.getId());
+                    }
+                });
             }
+            return Collections.unmodifiableSet(dependencies);
+        }
+
+        private void forEachDirectDependency(final String id, final Consumer<Dependency> action) {
+            dependenciesById.getOrDefault(id, Collections.emptyList()).forEach(dependencyList -> dependencyList.forEach(action));
+        }
+
+        private static boolean isEnvironmentEntity(final Dependency dependency) {
+            return !EntityTypeRegistry.NON_ENV_ENTITY_TYPES.contains(dependency.getType());
         }
     }
 
@@ -186,8 +282,8 @@ public class PolicyWriter implements EntityWriter {
         documentFileUtils.createFolders(folderPath);
         PolicyConverter policyConverter = policyConverterRegistry.getFromPolicyElement(folderableEntity.getName(), policy);
         Path policyPath = folderPath.resolve(folderableEntity.getName() + policyConverter.getPolicyTypeExtension());
-        try (InputStream policyStream = policyConverter.convertFromPolicyElement(policy)) {
-            FileUtils.copyInputStreamToFile(policyStream, policyPath.toFile());
+        try (OutputStream policyStream = new BufferedOutputStream(FileUtils.openOutputStream(policyPath.toFile()))) {
+            policyConverter.writeFromPolicyElement(policy, policyStream);
         } catch (IOException e) {
             throw new WriteException("Unable to write assertion js policy", e);
         }
@@ -11,12 +11,32 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class BuildExportQueryTask extends DefaultTask {
+    //Inputs
+    private Property<List> folderIds;
+
     //Outputs
     private Property<String> exportQuery;
+    private Property<List> exportQueries;
 
     public BuildExportQueryTask() {
+        folderIds = getProject().getObjects().property(List.class);
         exportQuery = getProject().getObjects().property(String.class);
+        exportQueries = getProject().getObjects().property(List.class);
+    }
+
+    /**
+     * The ids of the folders to export with a query each. When not set, the whole gateway is exported with a single
+     * query.
+     *
+     * @return The ids of the folders to export
+     */
+    @Internal
+    public Property<List> getFolderIds() {
+        return folderIds;
     }
 
     /**
@@ -29,11 +49,33 @@ public class BuildExportQueryTask extends DefaultTask {
         return exportQuery;
     }
 
+    /**
+     * The queries exporting each of the folders, with their dependencies. Empty when no folder ids are set.
+     *
+     * @return The generated export queries
+     */
+    @Internal
+    public Property<List> getExportQueries() {
+        return exportQueries;
+    }
+
     @TaskAction
     public void perform() {
-        exportQuery.set("?encassAsPolicyDependency=true" +
+        exportQuery.set(buildExportQuery("&all=true"));
+
+        final List<String> folderQueries = new ArrayList<>();
+        if (folderIds.isPresent()) {
+            for (Object folderId : folderIds.get()) {
+                folderQueries.add(buildExportQuery("&folder=" + folderId));
+            }
+        }
+        exportQueries.set(folderQueries);
+    }
+
+    private static String buildExportQuery(String scope) {
+        return "?encassAsPolicyDependency=true" +
                 "&includeDependencies=true" +
-                "&all=true" +
-                "&encryptSecrets=true");
+                scope +
+                "&encryptSecrets=true";
     }
 }
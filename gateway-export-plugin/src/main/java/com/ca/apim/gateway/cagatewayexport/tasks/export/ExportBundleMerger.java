@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayexport.tasks.export;
+
+import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentBundleUtils.buildBundleItemKey;
+import static com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentBundleUtils.buildBundleMappingKey;
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BundleElementNames.*;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.copyNodes;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.createElementWithChildren;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getChildElements;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElement;
+
+/**
+ * Merges the bundles exported by several scoped restman queries into a single exported bundle. Entities exported by
+ * more than one query, like shared folders and dependencies, are kept only once, where they were first exported. The
+ * dependency graphs of the exports are merged the same way, so the entities of every query keep their dependencies.
+ */
+class ExportBundleMerger {
+
+    private final DocumentTools documentTools;
+    private final DocumentFileUtils documentFileUtils;
+
+    ExportBundleMerger(final DocumentTools documentTools, final DocumentFileUtils documentFileUtils) {
+        this.documentTools = documentTools;
+        this.documentFileUtils = documentFileUtils;
+    }
+
+    /**
+     * Merges the exported bundles into the destination file, in the order given. The first export is used as the base
+     * of the merged one, so the merged file has the same layout as a single export.
+     *
+     * @param exportFiles the files of the exported bundles
+     * @param destination the file to write the merged bundle to
+     */
+    void merge(final List<File> exportFiles, final File destination) {
+        final Document document = parse(exportFiles.get(0));
+        final Element bundleElement = getBundleElement(document, exportFiles.get(0));
+        final Element referencesElement = getSingleChildElement(bundleElement, REFERENCES);
+        final Element mappingsElement = getSingleChildElement(bundleElement, MAPPINGS);
+        final Element dependenciesElement = getDependenciesElement(document, bundleElement);
+
+        // store Set of elements previously added so avoiding repetition in the resulting bundle
+        final Set<String> addedItems = new HashSet<>();
+        final Set<String> addedMappings = new HashSet<>();
+        final Set<String> addedDependencies = new HashSet<>();
+        getChildElements(referencesElement, ITEM).forEach(item -> addedItems.add(buildBundleItemKey(item)));
+        getChildElements(mappingsElement, MAPPING).forEach(mapping -> addedMappings.add(buildBundleMappingKey(mapping)));
+        getChildElements(dependenciesElement, DEPENDENCY).forEach(dependency -> addedDependencies.add(buildBundleItemKey(dependency)));
+
+        exportFiles.subList(1, exportFiles.size()).forEach(exportFile -> {
+            final Element exportedBundle = getBundleElement(parse(exportFile), exportFile);
+            copyNodes(getSingleChildElement(exportedBundle, REFERENCES), ITEM, document, referencesElement,
+                    item -> addedItems.add(buildBundleItemKey(item)));
+            copyNodes(getSingleChildElement(exportedBundle, MAPPINGS), MAPPING, document, mappingsElement,
+                    mapping -> addedMappings.add(buildBundleMappingKey(mapping)));
+            final Element exportedDependencyGraph = getSingleChildElement(exportedBundle, DEPENDENCY_GRAPH, true);
+            if (exportedDependencyGraph != null) {
+                copyNodes(getSingleChildElement(exportedDependencyGraph, DEPENDENCIES), DEPENDENCY, document, dependenciesElement,
+                        dependency -> addedDependencies.add(buildBundleItemKey(dependency)));
+            }
+        });
+
+        documentFileUtils.createFile(document.getDocumentElement(), destination.toPath());
+    }
+
+    private Document parse(File exportFile) {
+        try {
+            return documentTools.parse(exportFile);
+        } catch (DocumentParseException e) {
+            throw new ExportException("Could not parse exported bundle " + exportFile.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the dependencies of the dependency graph of the bundle, adding the graph to the bundle if it was exported
+     * without one.
+     */
+    private static Element getDependenciesElement(Document document, Element bundleElement) {
+        Element dependencyGraphElement = getSingleChildElement(bundleElement, DEPENDENCY_GRAPH, true);
+        if (dependencyGraphElement == null) {
+            dependencyGraphElement = createElementWithChildren(document, DEPENDENCY_GRAPH);
+            bundleElement.appendChild(dependencyGraphElement);
+        }
+        Element dependenciesElement = getSingleChildElement(dependencyGraphElement, DEPENDENCIES, true);
+        if (dependenciesElement == null) {
+            dependenciesElement = createElementWithChildren(document, DEPENDENCIES);
+            dependencyGraphElement.appendChild(dependenciesElement);
+        }
+        return dependenciesElement;
+    }
+
+    private static Element getBundleElement(Document document, File exportFile) {
+        final Element bundleElement = (Element) document.getElementsByTagName(BUNDLE).item(0);
+        if (bundleElement == null) {
+            throw new ExportException("Exported file " + exportFile.getName() + " does not contain a bundle");
+        }
+        return bundleElement;
+    }
+}
@@ -7,24 +7,26 @@
 package com.ca.apim.gateway.cagatewayexport.tasks.export;
 
 import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClient;
-import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClientException;
-import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionRegistry;
+import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
 import com.ca.apim.gateway.cagatewayexport.config.GatewayExportConnectionProperties;
+import org.apache.commons.io.FileUtils;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
-import org.gradle.api.tasks.Input;
-import org.gradle.api.tasks.Nested;
-import org.gradle.api.tasks.OutputFile;
-import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.*;
 
 import java.io.File;
-import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClient.getRestmanBundleEndpoint;
-import static org.apache.commons.io.FileUtils.copyInputStreamToFile;
 import static org.apache.http.client.methods.HttpGet.METHOD_NAME;
 import static org.apache.http.client.methods.RequestBuilder.create;
 
@@ -35,18 +37,24 @@ public class ExportTask extends DefaultTask {
     private static final Logger LOGGER = Logger.getLogger(ExportTask.class.getName());
 
     private GatewayClient gatewayClient;
+    private final ExportBundleMerger exportBundleMerger;
 
     //Inputs
     private GatewayExportConnectionProperties gatewayConnectionProperties;
     private Property<String> exportQuery;
+    private Property<List> exportQueries;
+    private Property<Integer> parallelism;
 
     //Outputs
     private RegularFileProperty exportFile;
 
     public ExportTask() {
-        this.gatewayClient = InjectionRegistry.getInstance(GatewayClient.class);
+        this.gatewayClient = GatewayClient.INSTANCE;
+        this.exportBundleMerger = new ExportBundleMerger(DocumentTools.INSTANCE, DocumentFileUtils.INSTANCE);
         gatewayConnectionProperties = new GatewayExportConnectionProperties(getProject());
         exportQuery = getProject().getObjects().property(String.class);
+        exportQueries = getProject().getObjects().property(List.class);
+        parallelism = getProject().getObjects().property(Integer.class);
         exportFile = newOutputFile();
 
         // makes it so that the export is always run
@@ -72,6 +80,28 @@ public class ExportTask extends DefaultTask {
         return exportQuery;
     }
 
+    /**
+     * Scoped export queries, each exporting a part of the gateway. When set, they are used instead of the export query
+     * and the bundles they export are merged into the export file.
+     *
+     * @return The scoped export queries
+     */
+    @Input
+    @Optional
+    public Property<List> getExportQueries() {
+        return exportQueries;
+    }
+
+    /**
+     * Maximum number of scoped export queries made at the same time. Defaults to 1.
+     *
+     * @return The maximum number of export queries made at the same time
+     */
+    @Internal
+    public Property<Integer> getParallelism() {
+        return parallelism;
+    }
+
     /**
      * The file to save the exported bundle to.
      *
@@ -91,20 +121,68 @@ public class ExportTask extends DefaultTask {
 
     @TaskAction
     public void perform() {
-        LOGGER.log(Level.INFO, "Exporting with query: {0}", exportQuery.get());
         File destFile = exportFile.getAsFile().get();
+        if (exportQueries.isPresent() && !exportQueries.get().isEmpty()) {
+            exportChunks(exportQueries.get(), destFile);
+            return;
+        }
+        LOGGER.log(Level.INFO, "Exporting with query: {0}", exportQuery.get());
+        export(exportQuery.get(), destFile);
+    }
+
+    private void export(String query, File destFile) {
+        gatewayClient.makeGatewayAPICall(
+                create(METHOD_NAME).setUri(getRestmanBundleEndpoint(gatewayConnectionProperties.getUrl().get()) + query),
+                gatewayConnectionProperties.getUserName().get(),
+                gatewayConnectionProperties.getUserPass().get(),
+                destFile.toPath()
+        );
+    }
+
+    /**
+     * Runs each export query into its own file, up to the configured parallelism at the same time, then merges them
+     * in the order of the queries so the export file doesn't depend on which query finished first.
+     */
+    private void exportChunks(List<?> queries, File destFile) {
+        final List<File> chunkFiles = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            chunkFiles.add(new File(destFile.getParentFile(), destFile.getName() + "." + i));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism.getOrElse(1), queries.size())));
         try {
-            copyInputStreamToFile(
-                    gatewayClient.makeGatewayAPICall(
-                            create(METHOD_NAME).setUri(getRestmanBundleEndpoint(gatewayConnectionProperties.getUrl().get()) + exportQuery.get()),
-                            gatewayConnectionProperties.getUserName().get(),
-                            gatewayConnectionProperties.getUserPass().get()
-                    ),
-                    destFile
-            );
-        } catch (IOException e) {
-            throw new GatewayClientException("Could not save response bundle from gateway into file " + destFile.getName(), e);
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < queries.size(); i++) {
+                final String query = String.valueOf(queries.get(i));
+                final File chunkFile = chunkFiles.get(i);
+                futures.add(executor.submit(() -> {
+                    LOGGER.log(Level.INFO, "Exporting with query: {0}", query);
+                    export(query, chunkFile);
+                }));
+            }
+            for (Future<?> future : futures) {
+                waitForExport(future);
+            }
+            exportBundleMerger.merge(chunkFiles, destFile);
+        } finally {
+            executor.shutdownNow();
+            chunkFiles.forEach(FileUtils::deleteQuietly);
         }
     }
 
+    private static void waitForExport(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExportException("Interrupted while exporting from the gateway", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new ExportException("Error exporting from the gateway", e.getCause());
+        }
+    }
 }
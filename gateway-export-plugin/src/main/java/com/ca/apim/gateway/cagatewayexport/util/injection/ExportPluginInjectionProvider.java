@@ -54,10 +54,10 @@ public class ExportPluginInjectionProvider implements InjectionProvider {
     @Override
     public @Nullable Map<Class, Set<Class>> getMultiBindings(InjectionProviderContext context) {
         return ImmutableMap.<Class, Set<Class>>builder()
-                .put(EntitiesLinker.class, copyOf(context.getDefaultReflections().getSubTypesOf(EntitiesLinker.class)))
-                .put(EntityFilter.class, copyOf(context.getDefaultReflections().getSubTypesOf(EntityFilter.class)))
-                .put(EntityWriter.class, copyOf(context.getDefaultReflections().getSubTypesOf(EntityWriter.class)))
-                .put(PolicyAssertionSimplifier.class, copyOf(context.getDefaultReflections().getSubTypesOf(PolicyAssertionSimplifier.class)))
+                .put(EntitiesLinker.class, copyOf(context.getSubTypesOf(EntitiesLinker.class)))
+                .put(EntityFilter.class, copyOf(context.getSubTypesOf(EntityFilter.class)))
+                .put(EntityWriter.class, copyOf(context.getSubTypesOf(EntityWriter.class)))
+                .put(PolicyAssertionSimplifier.class, copyOf(context.getSubTypesOf(PolicyAssertionSimplifier.class)))
                 .build();
     }
 }
@@ -81,7 +81,10 @@ public class EncapsulatedAssertionSimplifier implements PolicyAssertionSimplifie
         missingEntity.setName(encassNameElement != null ? encassNameElement.getAttribute(STRING_VALUE) : "Encass#" + missingEntity.getGuid());
         missingEntity.setId(missingEntity.getGuid().replace("-", ""));
         missingEntity.setExcluded(excluded);
-        context.getResultantBundle().addEntity(missingEntity);
+        // policies are simplified concurrently, all adding to the same resultant bundle
+        synchronized (context.getResultantBundle()) {
+            context.getResultantBundle().addEntity(missingEntity);
+        }
 
         encassAssertionElement.setAttribute("encassName", missingEntity.getName());
         encassAssertionElement.removeChild(encassGuidElement);
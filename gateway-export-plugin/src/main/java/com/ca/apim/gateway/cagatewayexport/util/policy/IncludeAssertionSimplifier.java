@@ -59,7 +59,10 @@ public class IncludeAssertionSimplifier implements PolicyAssertionSimplifier {
             missingEntity.setExcluded(excluded);
             missingEntity.setId(policyEntity.isPresent() ? policyEntity.get().getId() : missingEntity.getGuid().replace("-", ""));
 
-            context.getResultantBundle().addEntity(missingEntity);
+            // policies are simplified concurrently, all adding to the same resultant bundle
+            synchronized (resultantBundle) {
+                resultantBundle.addEntity(missingEntity);
+            }
 
             LOGGER.log(Level.WARNING, "Recording the referenced policy include with guid: {0} as {1} entity",
                     new Object[] {includedPolicyGuid, excluded ? "excluded" : "missing"});
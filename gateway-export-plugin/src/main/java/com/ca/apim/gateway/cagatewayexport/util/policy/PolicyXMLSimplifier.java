@@ -11,22 +11,26 @@ import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadException;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.w3c.dom.Node.ELEMENT_NODE;
 
 /**
  * This class is responsible for invoking all policy simplifier implementations and executing them for each policy xml.
+ * Each policy is walked once, dispatching every assertion found to the simplifier registered for its tag.
  */
 @Singleton
 public class PolicyXMLSimplifier {
 
+    private static final Logger LOGGER = Logger.getLogger(PolicyXMLSimplifier.class.getName());
+
     private Map<String, PolicyAssertionSimplifier> simplifiersByTag = new HashMap<>();
 
     @Inject
@@ -35,27 +39,49 @@ public class PolicyXMLSimplifier {
         simplifiersByTag = unmodifiableMap(simplifiersByTag);
     }
 
+    /**
+     * Simplifies the assertions of the policy, walking the policy once and running the simplifier registered for the
+     * tag of each assertion found. The time taken for each policy is logged at the FINE level.
+     *
+     * @param policyElement   the policy element to simplify
+     * @param policyName      the name of the policy or service
+     * @param bundle          the bundle exported
+     * @param resultantBundle the filtered bundle being written
+     */
     public void simplifyPolicyXML(Element policyElement, String policyName, Bundle bundle, Bundle resultantBundle) {
+        final long start = System.nanoTime();
         PolicySimplifierContext context = new PolicySimplifierContext(policyName, bundle, resultantBundle);
-        simplifiersByTag.forEach((tag, simplifier) -> findAndSimplifyAssertion(policyElement, tag, simplifier, context));
-    }
-
-    private static void findAndSimplifyAssertion(Element policyElement,
-                                                 String assertionTagName,
-                                                 PolicyAssertionSimplifier simplifier,
-                                                 PolicySimplifierContext context) {
-        NodeList includeReferences = policyElement.getElementsByTagName(assertionTagName);
-        for (int i = 0; i < includeReferences.getLength(); i++) {
-            Node includeElement = includeReferences.item(i);
-            if (!(includeElement instanceof Element)) {
-                throw new BundleLoadException("Unexpected Assertion node type: " + includeElement.getNodeType());
-            }
+        // simplifiers only change the content of their own assertion, so all assertions are found before simplifying
+        for (Element assertionElement : findAssertions(policyElement)) {
             try {
-                simplifier.simplifyAssertionElement(context.withAssertionElement((Element) includeElement));
+                simplifiersByTag.get(assertionElement.getTagName()).simplifyAssertionElement(context.withAssertionElement(assertionElement));
             } catch (DocumentParseException e) {
                 throw new BundleLoadException(e.getMessage(), e);
             }
         }
+        LOGGER.log(Level.FINE, "Simplified policy {0} in {1} ms", new Object[]{policyName, NANOSECONDS.toMillis(System.nanoTime() - start)});
+    }
+
+    /**
+     * @return the elements under the policy element having a simplifier, in document order
+     */
+    private List<Element> findAssertions(Element policyElement) {
+        final List<Element> assertions = new ArrayList<>();
+        Node node = policyElement.getFirstChild();
+        while (node != null && node != policyElement) {
+            if (node.getNodeType() == ELEMENT_NODE && simplifiersByTag.containsKey(((Element) node).getTagName())) {
+                assertions.add((Element) node);
+            }
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+            } else {
+                while (node != policyElement && node.getNextSibling() == null) {
+                    node = node.getParentNode();
+                }
+                node = node == policyElement ? null : node.getNextSibling();
+            }
+        }
+        return assertions;
     }
 
     public Map<String, PolicyAssertionSimplifier> getSimplifiersByTag() {
@@ -44,11 +44,14 @@ public class SetVariableAssertionSimplifier implements PolicyAssertionSimplifier
                 throw new LinkerException("Cannot have local environment property start with the prefix `ENV.gateway.`. Property: " + variableName);
             }
             ContextVariableEnvironmentProperty contextVarEnvironmentProperty = new ContextVariableEnvironmentProperty(insertPrefixToEnvironmentVariable(variableName, context.getPolicyName()).substring(4), new String(decodedValue));
-            ContextVariableEnvironmentProperty existingContextVarEnvironmentProperty = resultantBundle.getEntities(ContextVariableEnvironmentProperty.class).get(contextVarEnvironmentProperty.getName());
-            if (existingContextVarEnvironmentProperty != null) {
-                throw new LinkerException("Found duplicate environment property: `" + variableName.substring(4) + "`. Cannot have multiple environment properties with the same name.");
+            // policies are simplified concurrently, all adding to the same resultant bundle
+            synchronized (resultantBundle) {
+                ContextVariableEnvironmentProperty existingContextVarEnvironmentProperty = resultantBundle.getEntities(ContextVariableEnvironmentProperty.class).get(contextVarEnvironmentProperty.getName());
+                if (existingContextVarEnvironmentProperty != null) {
+                    throw new LinkerException("Found duplicate environment property: `" + variableName.substring(4) + "`. Cannot have multiple environment properties with the same name.");
+                }
+                resultantBundle.getEntities(ContextVariableEnvironmentProperty.class).put(contextVarEnvironmentProperty.getName(), contextVarEnvironmentProperty);
             }
-            resultantBundle.getEntities(ContextVariableEnvironmentProperty.class).put(contextVarEnvironmentProperty.getName(), contextVarEnvironmentProperty);
         } else {
             Element expressionElement = element.getOwnerDocument().createElement(EXPRESSION);
             String value = new String(decodedValue);
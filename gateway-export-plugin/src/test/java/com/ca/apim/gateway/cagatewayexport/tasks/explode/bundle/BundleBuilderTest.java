@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayexport.tasks.explode.bundle;
+
+import com.ca.apim.gateway.cagatewayconfig.beans.*;
+import com.ca.apim.gateway.cagatewayconfig.bundle.loader.BundleLoadException;
+import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionRegistry;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.w3c.dom.Document;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class BundleBuilderTest {
+
+    private final DocumentTools documentTools = DocumentTools.INSTANCE;
+
+    @Test
+    void buildExportBundleFromFile() throws URISyntaxException, DocumentParseException {
+        assertBuiltFromFileLikeFromDocument("export-test.bundle");
+    }
+
+    @Test
+    void buildEnvironmentBundleFromFile() throws URISyntaxException, DocumentParseException {
+        assertBuiltFromFileLikeFromDocument("environment-properties-test.bundle");
+    }
+
+    @Test
+    void buildBundleWithMissingEntitiesFromFile() throws URISyntaxException, DocumentParseException {
+        assertBuiltFromFileLikeFromDocument("missing-entities-test.bundle");
+    }
+
+    @Test
+    void buildBundleFromFileWithoutDependencies(TemporaryFolder temporaryFolder) throws IOException {
+        File bundleFile = temporaryFolder.createFile("bundle.xml");
+        Files.write(bundleFile.toPath(), ("<l7:Bundle xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">" +
+                "<l7:References/><l7:Mappings/><l7:DependencyGraph/></l7:Bundle>").getBytes(UTF_8));
+
+        BundleLoadException exception = assertThrows(BundleLoadException.class,
+                () -> InjectionRegistry.getInstance(BundleBuilder.class).buildBundle(bundleFile));
+        assertEquals("Dependencies element not found", exception.getMessage());
+    }
+
+    private void assertBuiltFromFileLikeFromDocument(String bundleName) throws URISyntaxException, DocumentParseException {
+        File bundleFile = new File(getClass().getClassLoader().getResource("bundles/" + bundleName).toURI());
+        BundleBuilder bundleBuilder = InjectionRegistry.getInstance(BundleBuilder.class);
+        Document document = documentTools.parse(bundleFile);
+        documentTools.cleanup(document);
+
+        Bundle expected = bundleBuilder.buildBundle(document.getDocumentElement());
+        Bundle bundle = bundleBuilder.buildBundle(bundleFile);
+
+        InjectionRegistry.getInstance(EntityTypeRegistry.class).getEntityTypeMap().values().forEach(entityInfo ->
+                assertEquals(expected.getEntities(entityInfo.getEntityClass()).keySet(), bundle.getEntities(entityInfo.getEntityClass()).keySet(), entityInfo.getType()));
+        expected.getPolicies().forEach((key, policy) -> assertEquals(policy.getPolicyXML(), bundle.getPolicies().get(key).getPolicyXML(), key));
+        assertEquals(toStrings(expected.getUnsupportedEntities()), toStrings(bundle.getUnsupportedEntities()));
+        assertEquals(expected.getFolderTree().stream().map(expected.getFolderTree()::getFormattedPath).collect(Collectors.toList()),
+                bundle.getFolderTree().stream().map(bundle.getFolderTree()::getFormattedPath).collect(Collectors.toList()));
+        assertEquals(expected.getDependencyMap(), bundle.getDependencyMap());
+    }
+
+    private Map<String, String> toStrings(Map<String, UnsupportedGatewayEntity> entities) {
+        return entities.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> documentTools.elementToString(e.getValue().getElement())));
+    }
+}
@@ -15,12 +15,14 @@ import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils;
 import com.ca.apim.gateway.cagatewayconfig.util.file.JsonFileUtils;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
 import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import com.ca.apim.gateway.cagatewayexport.tasks.explode.linker.ClusterPropertyLinker;
 import com.ca.apim.gateway.cagatewayexport.tasks.explode.linker.EntityLinkerRegistry;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.MapType;
 import com.google.common.collect.ImmutableSet;
 import io.github.glytching.junit.extension.folder.TemporaryFolder;
 import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
@@ -349,6 +351,77 @@ class PolicyWriterTest {
         assertFalse(usedEntities.contains(encassThree));
     }
 
+    @Test
+    void testWritePoliciesConcurrently(final TemporaryFolder temporaryFolder) throws DocumentParseException, IOException {
+        PolicyWriter writer = new PolicyWriter(policyConverterRegistry, DocumentFileUtils.INSTANCE, JsonFileUtils.INSTANCE, new EntityLinkerRegistry(ImmutableSet.of(new ClusterPropertyLinker())));
+
+        Bundle bundle = new Bundle();
+        bundle.addEntity(ROOT_FOLDER);
+        Map<Dependency, List<Dependency>> dependencyListMap = new HashMap<>();
+        Dependency clusterProperty = new Dependency("cpid", ClusterProperty.class, "my.property", EntityTypes.CLUSTER_PROPERTY_TYPE);
+        for (int i = 0; i < 30; i++) {
+            Folder folder = new Folder("folder" + i % 3, "Folder" + i % 3);
+            folder.setParentFolder(ROOT_FOLDER);
+            bundle.addEntity(folder);
+            Policy policy = new Policy();
+            policy.setParentFolder(folder);
+            policy.setName("policy" + i);
+            policy.setId("policy" + i);
+            policy.setPolicyXML("<wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2002/12/policy\" xmlns:L7p=\"http://www.layer7tech.com/ws/policy\">" +
+                    "<wsp:All wsp:Usage=\"Required\"><L7p:AuditDetailAssertion><L7p:Detail stringValue=\"" + i + "\"/></L7p:AuditDetailAssertion></wsp:All>" +
+                    "</wsp:Policy>");
+            policy.setPolicyDocument(DocumentTools.INSTANCE.parse(policy.getPolicyXML()).getDocumentElement());
+            bundle.getPolicies().put(policy.getId(), policy);
+            dependencyListMap.put(new Dependency(policy.getId(), Policy.class, policy.getName(), EntityTypes.POLICY_TYPE),
+                    Arrays.asList(clusterProperty, new Dependency("jdbc" + i, JdbcConnection.class, "jdbc" + i, EntityTypes.JDBC_CONNECTION)));
+        }
+        bundle.setFolderTree(new FolderTree(bundle.getEntities(Folder.class).values()));
+        bundle.setDependencyMap(dependencyListMap);
+        File sequentialFolder = temporaryFolder.createDirectory("sequential");
+        File concurrentFolder = temporaryFolder.createDirectory("concurrent");
+
+        writer.write(bundle, sequentialFolder, bundle, 1);
+        writer.write(bundle, concurrentFolder, bundle, 4);
+
+        Collection<File> writtenFiles = FileUtils.listFiles(sequentialFolder, null, true);
+        assertEquals(31, writtenFiles.size());
+        for (File writtenFile : writtenFiles) {
+            File concurrentFile = concurrentFolder.toPath().resolve(sequentialFolder.toPath().relativize(writtenFile.toPath())).toFile();
+            assertTrue(FileUtils.contentEquals(writtenFile, concurrentFile), writtenFile.getName());
+        }
+        // the dependency graph is left as exported, only the policy metadata has the linked dependencies
+        assertEquals(EntityTypes.CLUSTER_PROPERTY_TYPE, clusterProperty.getType());
+        Map<String, PolicyMetadata> policyMetadataMap = JsonFileUtils.INSTANCE.readPoliciesConfigFile(concurrentFolder, PolicyMetadata.class);
+        assertEquals(30, policyMetadataMap.size());
+        assertTrue(policyMetadataMap.get("Folder1/policy1").getUsedEntities().contains(new Dependency(null, null, "my.property", "ENVIRONMENT_PROPERTY")));
+    }
+
+    @Test
+    void testDependencyIndex() {
+        Dependency jdbc = new Dependency("jdbcid", JdbcConnection.class, "jdbc", EntityTypes.JDBC_CONNECTION);
+        Dependency password = new Dependency("passwordid", StoredPassword.class, "password", EntityTypes.STORED_PASSWORD_TYPE);
+        Dependency clusterProperty = new Dependency("cpid", ClusterProperty.class, "property", EntityTypes.CLUSTER_PROPERTY_TYPE);
+        Dependency includedPolicy = new Dependency("includedid", Policy.class, "included", EntityTypes.POLICY_TYPE);
+        Dependency encass = new Dependency("encassid", Encass.class, "encass", EntityTypes.ENCAPSULATED_ASSERTION_TYPE);
+        Map<Dependency, List<Dependency>> dependencyListMap = new HashMap<>();
+        dependencyListMap.put(new Dependency("first", Policy.class, "first", EntityTypes.POLICY_TYPE), Arrays.asList(jdbc, includedPolicy));
+        dependencyListMap.put(new Dependency("second", Policy.class, "second", EntityTypes.POLICY_TYPE), Arrays.asList(password, encass));
+        // the password and the cluster property depend on each other
+        dependencyListMap.put(jdbc, Collections.singletonList(password));
+        dependencyListMap.put(password, Collections.singletonList(clusterProperty));
+        dependencyListMap.put(clusterProperty, Collections.singletonList(password));
+        // dependencies of policies and encasses are not transitive dependencies
+        dependencyListMap.put(includedPolicy, Collections.singletonList(new Dependency("other", JdbcConnection.class, "other", EntityTypes.JDBC_CONNECTION)));
+        dependencyListMap.put(encass, Collections.singletonList(new Dependency("other", JdbcConnection.class, "other", EntityTypes.JDBC_CONNECTION)));
+
+        PolicyWriter.DependencyIndex dependencyIndex = new PolicyWriter.DependencyIndex(dependencyListMap);
+
+        assertEquals(ImmutableSet.of(jdbc, includedPolicy, password, clusterProperty), dependencyIndex.getPolicyDependencies("first"));
+        assertEquals(ImmutableSet.of(password, encass, clusterProperty), dependencyIndex.getPolicyDependencies("second"));
+        assertEquals(Collections.emptySet(), dependencyIndex.getPolicyDependencies("unknown"));
+        assertEquals(Collections.emptySet(), new PolicyWriter.DependencyIndex(null).getPolicyDependencies("first"));
+    }
+
     private Map<String, PolicyMetadata> getPolicyMetadata(File policyMetadataFile) {
         Map<String, PolicyMetadata> policyMetadataMap = null;
         JsonTools jsonTools = JsonTools.INSTANCE;
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayexport.tasks.export;
+
+import com.ca.apim.gateway.cagatewayconfig.util.file.DocumentFileUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentParseException;
+import com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentTools;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.w3c.dom.Element;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.ca.apim.gateway.cagatewayconfig.util.gateway.BundleElementNames.*;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getChildElements;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElement;
+import static com.ca.apim.gateway.cagatewayconfig.util.xml.DocumentUtils.getSingleChildElementTextContent;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(TemporaryFolderExtension.class)
+class ExportBundleMergerTest {
+
+    private final ExportBundleMerger merger = new ExportBundleMerger(DocumentTools.INSTANCE, DocumentFileUtils.INSTANCE);
+
+    @Test
+    void merge(TemporaryFolder temporaryFolder) throws IOException, DocumentParseException {
+        File first = createExport(temporaryFolder, "first", "root:FOLDER", "a:FOLDER", "policy-a:POLICY", "shared:CLUSTER_PROPERTY");
+        File second = createExport(temporaryFolder, "second", "root:FOLDER", "b:FOLDER", "shared:CLUSTER_PROPERTY", "policy-b:POLICY");
+        File destination = new File(temporaryFolder.getRoot(), "merged.bundle");
+
+        merger.merge(Arrays.asList(first, second), destination);
+
+        Element item = DocumentTools.INSTANCE.parse(destination).getDocumentElement();
+        assertEquals(ITEM, item.getTagName());
+        Element bundle = getSingleChildElement(getSingleChildElement(item, RESOURCE), BUNDLE);
+        List<String> items = getChildElements(getSingleChildElement(bundle, REFERENCES), ITEM).stream()
+                .map(reference -> getSingleChildElementTextContent(reference, ID) + ":" + getSingleChildElementTextContent(reference, TYPE))
+                .collect(Collectors.toList());
+        List<String> mappings = getChildElements(getSingleChildElement(bundle, MAPPINGS), MAPPING).stream()
+                .map(mapping -> mapping.getAttribute(ATTRIBUTE_SRCID) + ":" + mapping.getAttribute(ATTRIBUTE_TYPE))
+                .collect(Collectors.toList());
+        List<String> expected = Arrays.asList("root:FOLDER", "a:FOLDER", "policy-a:POLICY", "shared:CLUSTER_PROPERTY", "b:FOLDER", "policy-b:POLICY");
+        assertEquals(expected, items);
+        assertEquals(expected, mappings);
+    }
+
+    @Test
+    void mergeDependencies(TemporaryFolder temporaryFolder) throws IOException, DocumentParseException {
+        File first = createExportWithDependencies(temporaryFolder, "first", dependencyGraph("policy-a:POLICY>shared:CLUSTER_PROPERTY"),
+                "root:FOLDER", "policy-a:POLICY", "shared:CLUSTER_PROPERTY");
+        File second = createExportWithDependencies(temporaryFolder, "second", dependencyGraph("policy-a:POLICY>shared:CLUSTER_PROPERTY", "policy-b:POLICY>b:CLUSTER_PROPERTY"),
+                "root:FOLDER", "policy-a:POLICY", "shared:CLUSTER_PROPERTY", "policy-b:POLICY", "b:CLUSTER_PROPERTY");
+        File destination = new File(temporaryFolder.getRoot(), "merged.bundle");
+
+        merger.merge(Arrays.asList(first, second), destination);
+
+        Element item = DocumentTools.INSTANCE.parse(destination).getDocumentElement();
+        Element bundle = getSingleChildElement(getSingleChildElement(item, RESOURCE), BUNDLE);
+        List<Element> dependencies = getChildElements(getSingleChildElement(getSingleChildElement(bundle, DEPENDENCY_GRAPH), DEPENDENCIES), DEPENDENCY);
+        assertEquals(Arrays.asList("policy-a:POLICY", "policy-b:POLICY"), dependencies.stream()
+                .map(dependency -> getSingleChildElementTextContent(dependency, ID) + ":" + getSingleChildElementTextContent(dependency, TYPE))
+                .collect(Collectors.toList()));
+        Element usedDependency = getSingleChildElement(getSingleChildElement(dependencies.get(1), DEPENDENCIES), DEPENDENCY);
+        assertEquals("b", getSingleChildElementTextContent(usedDependency, ID));
+        assertEquals("CLUSTER_PROPERTY", getSingleChildElementTextContent(usedDependency, TYPE));
+    }
+
+    @Test
+    void mergeInvalidExport(TemporaryFolder temporaryFolder) throws IOException {
+        File first = createExport(temporaryFolder, "first", "root:FOLDER");
+        File second = temporaryFolder.createFile("second");
+        Files.write(second.toPath(), "<l7:Error xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\"/>".getBytes(UTF_8));
+        File destination = new File(temporaryFolder.getRoot(), "merged.bundle");
+
+        ExportException exception = assertThrows(ExportException.class, () -> merger.merge(Arrays.asList(first, second), destination));
+        assertEquals("Exported file second does not contain a bundle", exception.getMessage());
+        assertFalse(destination.exists());
+    }
+
+    private static File createExport(TemporaryFolder temporaryFolder, String name, String... entities) throws IOException {
+        return createExportWithDependencies(temporaryFolder, name, "", entities);
+    }
+
+    private static File createExportWithDependencies(TemporaryFolder temporaryFolder, String name, String dependencyGraph, String... entities) throws IOException {
+        StringBuilder references = new StringBuilder();
+        StringBuilder mappings = new StringBuilder();
+        for (String entity : entities) {
+            String[] idAndType = entity.split(":");
+            references.append("<l7:Item><l7:Name>").append(idAndType[0]).append("</l7:Name><l7:Id>").append(idAndType[0])
+                    .append("</l7:Id><l7:Type>").append(idAndType[1]).append("</l7:Type></l7:Item>");
+            mappings.append("<l7:Mapping action=\"NewOrExisting\" srcId=\"").append(idAndType[0]).append("\" type=\"")
+                    .append(idAndType[1]).append("\"/>");
+        }
+        File export = temporaryFolder.createFile(name);
+        Files.write(export.toPath(), ("<l7:Item xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">" +
+                "<l7:Name>Bundle</l7:Name><l7:Type>BUNDLE</l7:Type><l7:Resource><l7:Bundle>" +
+                "<l7:References>" + references + "</l7:References>" +
+                "<l7:Mappings>" + mappings + "</l7:Mappings>" +
+                dependencyGraph +
+                "</l7:Bundle></l7:Resource></l7:Item>").getBytes(UTF_8));
+        return export;
+    }
+
+    /**
+     * Builds a dependency graph from dependencies given as "id:type>usedId:usedType".
+     */
+    private static String dependencyGraph(String... dependencies) {
+        StringBuilder graph = new StringBuilder("<l7:DependencyGraph><l7:Dependencies>");
+        for (String dependency : dependencies) {
+            String[] dependencyAndUsed = dependency.split(">");
+            graph.append("<l7:Dependency>").append(dependencyElements(dependencyAndUsed[0]))
+                    .append("<l7:Dependencies><l7:Dependency>").append(dependencyElements(dependencyAndUsed[1]))
+                    .append("</l7:Dependency></l7:Dependencies></l7:Dependency>");
+        }
+        return graph.append("</l7:Dependencies></l7:DependencyGraph>").toString();
+    }
+
+    private static String dependencyElements(String entity) {
+        String[] idAndType = entity.split(":");
+        return "<l7:Name>" + idAndType[0] + "</l7:Name><l7:Id>" + idAndType[0] + "</l7:Id><l7:Type>" + idAndType[1] + "</l7:Type>";
+    }
+}
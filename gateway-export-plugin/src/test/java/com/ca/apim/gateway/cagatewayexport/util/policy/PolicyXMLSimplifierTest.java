@@ -15,6 +15,9 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import static com.ca.apim.gateway.cagatewayconfig.beans.Folder.ROOT_FOLDER;
 import static com.ca.apim.gateway.cagatewayconfig.beans.Folder.ROOT_FOLDER_ID;
 import static com.ca.apim.gateway.cagatewayconfig.beans.IdentityProvider.INTERNAL_IDP_ID;
@@ -408,6 +411,56 @@ class PolicyXMLSimplifierTest {
         InjectionRegistry.getInstance(PolicyXMLSimplifier.class).simplifyPolicyXML(policyXML, policy.getName(), bundle, bundle);
     }
 
+    @Test
+    void simplifyPolicyWithNestedAssertions() {
+        String policyID = new IdGenerator().generate();
+        Policy policy = new Policy.Builder()
+                .setGuid(policyID)
+                .setName("included")
+                .setParentFolderId(ROOT_FOLDER_ID)
+                .build();
+        Bundle bundle = new Bundle();
+        bundle.addEntity(policy);
+        bundle.addEntity(ROOT_FOLDER);
+        bundle.setFolderTree(new FolderTree(bundle.getEntities(Folder.class).values()));
+
+        Document document = DocumentTools.INSTANCE.getDocumentBuilder().newDocument();
+        Element hardcodedResponse = createElementWithChildren(
+                document,
+                HARDCODED_RESPONSE,
+                createElementWithAttribute(document, BASE_64_RESPONSE_BODY, STRING_VALUE, encodeBase64String("Test".getBytes()))
+        );
+        Element http2Routing = createElementWithChildren(
+                document,
+                HTTP2_ROUTING_ASSERTION,
+                createElementWithAttribute(document, HTTP2_CLIENT_CONFIG_GOID, STRING_VALUE, policyID)
+        );
+        Element policyXML = createElementWithChildren(
+                document,
+                "wsp:Policy",
+                createElementWithChildren(
+                        document,
+                        "wsp:All",
+                        createIncludeAssertionElement(document, policyID),
+                        createElementWithChildren(document, "wsp:OneOrMore", hardcodedResponse, http2Routing),
+                        createIncludeAssertionElement(document, policyID)
+                )
+        );
+
+        new PolicyXMLSimplifier(new HashSet<>(Arrays.asList(new IncludeAssertionSimplifier(), new HardcodedResponseAssertionSimplifier(), new Http2AssertionSimplifier())))
+                .simplifyPolicyXML(policyXML, "policy", bundle, bundle);
+
+        NodeList policyGuids = policyXML.getElementsByTagName(POLICY_GUID);
+        assertEquals(2, policyGuids.getLength());
+        for (int i = 0; i < policyGuids.getLength(); i++) {
+            assertEquals("included", ((Element) policyGuids.item(i)).getAttribute("policyPath"));
+            assertFalse(((Element) policyGuids.item(i)).hasAttribute(STRING_VALUE));
+        }
+        assertEquals("Test", getSingleChildElementTextContent(hardcodedResponse, RESPONSE_BODY));
+        assertNull(getSingleChildElement(hardcodedResponse, BASE_64_RESPONSE_BODY, true));
+        assertNull(getSingleChildElement(http2Routing, HTTP2_CLIENT_CONFIG_GOID, true));
+    }
+
     @Test
     void simplifyHardcodedResponse() {
         Element hardcodedResponse = createHardcodedResponse(true);
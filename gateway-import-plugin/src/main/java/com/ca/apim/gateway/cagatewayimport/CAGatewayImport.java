@@ -6,6 +6,8 @@
 
 package com.ca.apim.gateway.cagatewayimport;
 
+import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClient;
+import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayConnectionSettings;
 import com.ca.apim.gateway.cagatewayimport.config.GatewayImportConfig;
 import com.ca.apim.gateway.cagatewayimport.config.GatewayImportConnectionProperties;
 import com.ca.apim.gateway.cagatewayimport.tasks.ImportBundleTask;
@@ -28,6 +30,8 @@ public class CAGatewayImport implements Plugin<Project> {
         final GatewayImportConfig gatewayImportConfig = project.getExtensions().create("GatewayImportConfig", GatewayImportConfig.class, project);
         // Set Defaults
         project.afterEvaluate(p -> setDefaults(gatewayConnectionProperties));
+        // The gateway connections are kept open for the whole build
+        project.getGradle().buildFinished(result -> GatewayClient.INSTANCE.close());
 
         project.getTasks().create("import-bundle", ImportBundleTask.class, t -> {
             t.setGatewayConnectionProperties(gatewayConnectionProperties);
@@ -40,6 +44,9 @@ public class CAGatewayImport implements Plugin<Project> {
         setDefault(gatewayConnectionProperties.getUrl(), () -> "https://localhost:8443/restman");
         setDefault(gatewayConnectionProperties.getUserName(), () -> "admin");
         setDefault(gatewayConnectionProperties.getUserPass(), () -> "password");
+        setDefault(gatewayConnectionProperties.getMaxConnections(), GatewayConnectionSettings.DEFAULT::getMaxConnections);
+        setDefault(gatewayConnectionProperties.getConnectTimeout(), GatewayConnectionSettings.DEFAULT::getConnectTimeout);
+        setDefault(gatewayConnectionProperties.getSocketTimeout(), GatewayConnectionSettings.DEFAULT::getSocketTimeout);
     }
 
     private static <T> void setDefault(Property<T> property, Supplier<T> supplier) {
@@ -2,11 +2,15 @@ package com.ca.apim.gateway.cagatewayimport.config;
 
 import org.gradle.api.Project;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
 
 public class GatewayImportConfig {
     private ConfigurableFileCollection bundles;
+    private Property<Integer> parallelism;
     public GatewayImportConfig(Project project) {
         bundles = project.files();
+        parallelism = project.getObjects().property(Integer.class);
     }
 
     public ConfigurableFileCollection getBundles() {
@@ -16,4 +20,15 @@ public class GatewayImportConfig {
     public void setBundles(ConfigurableFileCollection bundles) {
         this.bundles = bundles;
     }
+
+    /**
+     * Maximum number of bundles imported at the same time. Bundles are imported after the bundles they depend on,
+     * according to the dependencies in their metadata files. Defaults to 1, importing the bundles sequentially.
+     *
+     * @return the maximum number of bundles imported at the same time
+     */
+    @Internal
+    public Property<Integer> getParallelism() {
+        return parallelism;
+    }
 }
@@ -14,11 +14,17 @@ public class GatewayImportConnectionProperties {
     private Property<String> url;
     private Property<String> user;
     private Property<String> password;
+    private Property<Integer> maxConnections;
+    private Property<Integer> connectTimeout;
+    private Property<Integer> socketTimeout;
 
     public GatewayImportConnectionProperties(Project project) {
         url = project.getObjects().property(String.class);
         user = project.getObjects().property(String.class);
         password = project.getObjects().property(String.class);
+        maxConnections = project.getObjects().property(Integer.class);
+        connectTimeout = project.getObjects().property(Integer.class);
+        socketTimeout = project.getObjects().property(Integer.class);
     }
 
     /**
@@ -51,4 +57,34 @@ public class GatewayImportConnectionProperties {
         return password;
     }
 
+    /**
+     * The maximum number of connections kept open to the gateway. Connections are reused by all the bundles imported
+     * during the build. Defaults to 4.
+     *
+     * @return the maximum number of connections to the gateway
+     */
+    @Input
+    public Property<Integer> getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * The timeout in milliseconds to connect to the gateway, zero or less to never time out. Defaults to never.
+     *
+     * @return the timeout to connect to the gateway
+     */
+    @Input
+    public Property<Integer> getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * The timeout in milliseconds waiting for data from the gateway, zero or less to never time out. Defaults to never.
+     *
+     * @return the timeout waiting for data from the gateway
+     */
+    @Input
+    public Property<Integer> getSocketTimeout() {
+        return socketTimeout;
+    }
 }
@@ -6,9 +6,13 @@
 
 package com.ca.apim.gateway.cagatewayimport.tasks;
 
+import com.ca.apim.gateway.cagatewayconfig.util.bundle.BundleImporter;
 import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayClient;
+import com.ca.apim.gateway.cagatewayconfig.util.connection.GatewayConnectionSettings;
 import com.ca.apim.gateway.cagatewayimport.config.GatewayImportConfig;
 import com.ca.apim.gateway.cagatewayimport.config.GatewayImportConnectionProperties;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.http.entity.FileEntity;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
@@ -29,6 +33,7 @@ import static org.apache.http.client.methods.RequestBuilder.create;
 public class ImportBundleTask extends DefaultTask {
 
     private GatewayClient gatewayClient;
+    private BundleImporter bundleImporter;
 
     //Inputs
     private GatewayImportConnectionProperties gatewayConnectionProperties;
@@ -36,6 +41,7 @@ public class ImportBundleTask extends DefaultTask {
 
     public ImportBundleTask() {
         this.gatewayClient = GatewayClient.INSTANCE;
+        this.bundleImporter = BundleImporter.INSTANCE;
         gatewayConnectionProperties = new GatewayImportConnectionProperties(getProject());
         gatewayImportConfig = new GatewayImportConfig(getProject());
 
@@ -66,15 +72,22 @@ public class ImportBundleTask extends DefaultTask {
     public void perform() {
         ConfigurableFileCollection bundleFileCollection = gatewayImportConfig.getBundles();
         Set<File> bundleFiles = bundleFileCollection.getFiles();
-        bundleFiles.forEach(bundleFile -> {
-            gatewayClient.makeGatewayAPICall(
-                    create(METHOD_NAME)
-                            .setUri(getRestmanBundleEndpoint(gatewayConnectionProperties.getUrl().get()))
-                            .setEntity(new FileEntity(bundleFile))
-                            .setHeader(CONTENT_TYPE, "application/xml"),
-                    gatewayConnectionProperties.getUserName().get(),
-                    gatewayConnectionProperties.getUserPass().get()
-            );
-        });
+        GatewayConnectionSettings connectionSettings = new GatewayConnectionSettings(
+                gatewayConnectionProperties.getMaxConnections().get(),
+                gatewayConnectionProperties.getConnectTimeout().get(),
+                gatewayConnectionProperties.getSocketTimeout().get()
+        );
+        bundleImporter.importBundles(bundleFiles, gatewayImportConfig.getParallelism().getOrElse(1), bundleFile ->
+                gatewayClient.makeGatewayAPICall(
+                        create(METHOD_NAME)
+                                .setUri(getRestmanBundleEndpoint(gatewayConnectionProperties.getUrl().get()))
+                                .setEntity(new FileEntity(bundleFile))
+                                .setHeader(CONTENT_TYPE, "application/xml"),
+                        gatewayConnectionProperties.getUserName().get(),
+                        gatewayConnectionProperties.getUserPass().get(),
+                        connectionSettings,
+                        // the import result is not used, reading it releases the connection for the next bundle
+                        responseStream -> IOUtils.copy(responseStream, NullOutputStream.NULL_OUTPUT_STREAM)
+                ));
     }
 }
@@ -36,6 +36,11 @@ public class BuildDeploymentBundleTask extends DefaultTask {
     private DirectoryProperty into;
     private ConfigurableFileCollection dependencies;
     private Property<String> targetFolderPath;
+    private Property<Integer> parallelism;
+    private Property<Boolean> streamBundles;
+    private Property<Boolean> incremental;
+    private Property<Boolean> deterministicIds;
+    private Property<Boolean> writeEnvironmentPlans;
 
     /**
      * Creates a new BuildBundle task to build a bundle from local source files
@@ -45,6 +50,11 @@ public class BuildDeploymentBundleTask extends DefaultTask {
         into = newOutputDirectory();
         from = newInputDirectory();
         targetFolderPath = getProject().getObjects().property(String.class);
+        parallelism = getProject().getObjects().property(Integer.class);
+        streamBundles = getProject().getObjects().property(Boolean.class);
+        incremental = getProject().getObjects().property(Boolean.class);
+        deterministicIds = getProject().getObjects().property(Boolean.class);
+        writeEnvironmentPlans = getProject().getObjects().property(Boolean.class);
         dependencies = getProject().files();
     }
 
@@ -65,6 +75,33 @@ public class BuildDeploymentBundleTask extends DefaultTask {
         return targetFolderPath;
     }
 
+    @Internal
+    public Property<Integer> getParallelism() {
+        return parallelism;
+    }
+
+    @Internal
+    public Property<Boolean> getStreamBundles() {
+        return streamBundles;
+    }
+
+    @Internal
+    public Property<Boolean> getIncremental() {
+        return incremental;
+    }
+
+    @Input
+    @Optional
+    public Property<Boolean> getDeterministicIds() {
+        return deterministicIds;
+    }
+
+    @Input
+    @Optional
+    public Property<Boolean> getWriteEnvironmentPlans() {
+        return writeEnvironmentPlans;
+    }
+
     @InputFiles
     public ConfigurableFileCollection getDependencies() {
         return dependencies;
@@ -78,9 +115,12 @@ public class BuildDeploymentBundleTask extends DefaultTask {
         if(targetFolderPath.isPresent()){
             projectInfo.setTargetFolderPath(targetFolderPath.get());
         }
+        projectInfo.setDeterministicIds(deterministicIds.getOrElse(false));
+        projectInfo.setWriteEnvironmentPlans(writeEnvironmentPlans.getOrElse(false));
         final List<DependentBundle> dependentBundles = getDependentBundles(dependencies.getFiles());
         bundleFileBuilder.buildBundle(from.isPresent() ? from.getAsFile().get() : null, into.getAsFile().get(),
-                dependentBundles, projectInfo);
+                dependentBundles, projectInfo, parallelism.getOrElse(1), streamBundles.getOrElse(false),
+                incremental.getOrElse(false) ? getTemporaryDir() : null);
     }
 
     private List<DependentBundle> getDependentBundles(Set<File> files) {
@@ -39,6 +39,7 @@ public class BuildEnvironmentBundleTask extends DefaultTask {
     private final EnvironmentConfigurationUtils environmentConfigurationUtils;
     private final DirectoryProperty configFolder;
     private final Property<String> configName;
+    private final Property<Boolean> deterministicIds;
     private final Property<Map> environmentConfig;
     private final Property<Map> envConfig;
 
@@ -50,6 +51,7 @@ public class BuildEnvironmentBundleTask extends DefaultTask {
         environmentConfigurationUtils = getInstance(EnvironmentConfigurationUtils.class);
         configFolder = newInputDirectory();
         configName = getProject().getObjects().property(String.class);
+        deterministicIds = getProject().getObjects().property(Boolean.class);
     }
 
     @OutputDirectory
@@ -81,6 +83,12 @@ public class BuildEnvironmentBundleTask extends DefaultTask {
         return configName;
     }
 
+    @Input
+    @Optional
+    Property<Boolean> getDeterministicIds() {
+        return deterministicIds;
+    }
+
     @TaskAction
     public void perform() {
         final EnvironmentBundleCreator environmentBundleCreator = getInstance(EnvironmentBundleCreator.class);
@@ -95,6 +103,7 @@ public class BuildEnvironmentBundleTask extends DefaultTask {
         }
         final String configurationName = configName != null ? removeAllSpecialChars(configName.get()) : EMPTY;
         ProjectInfo projectInfo = new ProjectInfo(getProject().getName(), getProject().getGroup().toString(), getProject().getVersion().toString(), configurationName);
+        projectInfo.setDeterministicIds(deterministicIds.getOrElse(false));
         final String envBundleFileName = getEnvBundleFilename(projectInfo);
 
         //read environment properties from environmentConfig and merge it with config folder entities
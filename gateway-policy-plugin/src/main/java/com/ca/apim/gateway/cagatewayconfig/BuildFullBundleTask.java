@@ -44,6 +44,7 @@ public class BuildFullBundleTask extends DefaultTask {
     private final Property<Boolean> detemplatizeDeploymentBundles;
     private final DirectoryProperty configFolder;
     private final Property<String> configName;
+    private final Property<Boolean> deterministicIds;
     private final Property<Map> envConfig;
 
     @Inject
@@ -56,6 +57,7 @@ public class BuildFullBundleTask extends DefaultTask {
         detemplatizeDeploymentBundles = getProject().getObjects().property(Boolean.class);
         configFolder = newInputDirectory();
         configName = getProject().getObjects().property(String.class);
+        deterministicIds = getProject().getObjects().property(Boolean.class);
     }
 
     @InputFiles
@@ -97,6 +99,12 @@ public class BuildFullBundleTask extends DefaultTask {
         return configName;
     }
 
+    @Input
+    @Optional
+    Property<Boolean> getDeterministicIds() {
+        return deterministicIds;
+    }
+
     @TaskAction
     public void perform() {
         final FullBundleCreator fullBundleCreator = getInstance(FullBundleCreator.class);
@@ -104,6 +112,7 @@ public class BuildFullBundleTask extends DefaultTask {
         final String configurationName = configName != null ? removeAllSpecialChars(configName.get()) : EMPTY;
         final ProjectInfo projectInfo = new ProjectInfo(getProject().getName(), getProject().getGroup().toString(),
                 getProject().getVersion().toString(), configurationName);
+        projectInfo.setDeterministicIds(deterministicIds.getOrElse(false));
         final List<File> metaDataFiles = collectFiles(bundleDirectory, METADATA_FILE_NAME_SUFFIX);
         if (metaDataFiles.isEmpty()) {
             throw new MissingEnvironmentException("Metadata file does not exist.");
@@ -95,6 +95,11 @@ public class CAGatewayDeveloper implements Plugin<Project> {
             }));
             t.getInto().set(pluginConfig.getBuiltBundleDir());
             t.getTargetFolderPath().set(pluginConfig.getTargetFolderPath());
+            t.getParallelism().set(pluginConfig.getBundleBuildParallelism());
+            t.getStreamBundles().set(pluginConfig.getStreamDeploymentBundles());
+            t.getIncremental().set(pluginConfig.getIncrementalBundleBuild());
+            t.getDeterministicIds().set(pluginConfig.getDeterministicIds());
+            t.getWriteEnvironmentPlans().set(pluginConfig.getWriteEnvironmentPlans());
             t.getDependencies().setFrom(project.getConfigurations().getByName(BUNDLE_CONFIGURATION));
         });
     }
@@ -113,6 +118,7 @@ public class CAGatewayDeveloper implements Plugin<Project> {
                 return dir != null ? (dir.getAsFile().exists() ? dir : null) : null;
             }));
             t.getConfigName().set(pluginConfig.getEnvConfig().getName());
+            t.getDeterministicIds().set(pluginConfig.getDeterministicIds());
         });
         return buildEnvironmentBundleTask;
     }
@@ -131,6 +137,7 @@ public class CAGatewayDeveloper implements Plugin<Project> {
                 return dir != null ? (dir.getAsFile().exists() ? dir : null) : null;
             }));
             t.getConfigName().set(pluginConfig.getEnvConfig().getName());
+            t.getDeterministicIds().set(pluginConfig.getDeterministicIds());
         });
         buildFullBundleTask.dependsOn(buildDeploymentBundleTask);
         return buildFullBundleTask;
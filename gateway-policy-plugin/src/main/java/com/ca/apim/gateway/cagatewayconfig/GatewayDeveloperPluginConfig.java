@@ -19,6 +19,11 @@ public class GatewayDeveloperPluginConfig {
     private DirectoryProperty builtBundleDir;
     private DirectoryProperty builtEnvironmentBundleDir;
     private final Property<Boolean> detemplatizeDeploymentBundles;
+    private final Property<Integer> bundleBuildParallelism;
+    private final Property<Boolean> streamDeploymentBundles;
+    private final Property<Boolean> incrementalBundleBuild;
+    private final Property<Boolean> deterministicIds;
+    private final Property<Boolean> writeEnvironmentPlans;
     private final EnvironmentConfig envConfig;
     //for backward compatibility
     private final Property<Map> environmentConfig;
@@ -29,6 +34,11 @@ public class GatewayDeveloperPluginConfig {
         builtBundleDir = project.getLayout().directoryProperty();
         builtEnvironmentBundleDir = project.getLayout().directoryProperty();
         detemplatizeDeploymentBundles = project.getObjects().property(Boolean.class);
+        bundleBuildParallelism = project.getObjects().property(Integer.class);
+        streamDeploymentBundles = project.getObjects().property(Boolean.class);
+        incrementalBundleBuild = project.getObjects().property(Boolean.class);
+        deterministicIds = project.getObjects().property(Boolean.class);
+        writeEnvironmentPlans = project.getObjects().property(Boolean.class);
         this.environmentConfig = project.getObjects().property(Map.class);
         this.envConfig = environmentConfig;
     }
@@ -49,6 +59,47 @@ public class GatewayDeveloperPluginConfig {
         return detemplatizeDeploymentBundles;
     }
 
+    /**
+     * Maximum number of annotated bundles built at the same time. Defaults to 1, building the bundles sequentially.
+     */
+    public Property<Integer> getBundleBuildParallelism() {
+        return bundleBuildParallelism;
+    }
+
+    /**
+     * Write the deployment bundles entity by entity instead of building each bundle document in memory first. The
+     * bundle files are the same either way. Defaults to false.
+     */
+    public Property<Boolean> getStreamDeploymentBundles() {
+        return streamDeploymentBundles;
+    }
+
+    /**
+     * Only build again the deployment bundles whose inputs changed since the previous build, copying the others from
+     * a cache kept in the build directory. A policy change only rebuilds the bundles containing the policy, any other
+     * change rebuilds every bundle. Defaults to false.
+     */
+    public Property<Boolean> getIncrementalBundleBuild() {
+        return incrementalBundleBuild;
+    }
+
+    /**
+     * Derive the ids of the entities in the bundles from the project group and name and the type and name of each
+     * entity, instead of generating random ids. Building an unchanged project then produces the same bundles every
+     * time. Ids given in the entity annotations are still used as is. Defaults to false.
+     */
+    public Property<Boolean> getDeterministicIds() {
+        return deterministicIds;
+    }
+
+    /**
+     * Write an environment plan next to each install bundle, recorded while the bundle is written. The environment
+     * creator then applies the environment to the bundle without parsing it. Defaults to false.
+     */
+    public Property<Boolean> getWriteEnvironmentPlans() {
+        return writeEnvironmentPlans;
+    }
+
     public EnvironmentConfig getEnvConfig() {
         return envConfig;
     }
@@ -8,15 +8,28 @@ package com.ca.apim.gateway.cagatewayconfig.tasks.gw7;
 
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
 
+import static org.apache.commons.io.FileUtils.deleteQuietly;
+
 /**
  * The packager build a Gateway Deployment Package. A GW7 file is to be able to package bundles, aars, bootstrap
  * scripts, solution kits, etc... all into a single file. This helps make distributing and deploying solutions simpler,
@@ -50,35 +63,127 @@ import java.util.function.Supplier;
 public class GW7Builder {
     public static final GW7Builder INSTANCE = new GW7Builder();
 
+    // fixed entry timestamp (1980-01-01T00:00:00Z) so the same files always give the same package
+    private static final long ENTRY_MODIFICATION_TIME = 315532800000L;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final int compressionThreads;
+
+    public GW7Builder() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    GW7Builder(int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
+    /**
+     * Writes the package files, in the order they are iterated, as a gzipped tar.
+     *
+     * @param gw7FileOutputStream the stream to write the package to
+     * @param packageFiles        the files in the package
+     */
     public void buildPackage(OutputStream gw7FileOutputStream, Set<PackageFile> packageFiles) {
-        try (TarArchiveOutputStream taos = getTarOutputStream(gw7FileOutputStream)) {
-            writeFiles(taos, packageFiles);
+        try {
+            writePackage(gw7FileOutputStream, packageFiles, null, null);
         } catch (IOException e) {
             throw new PackageBuildException("Error building GW7 Package: " + e.getMessage(), e);
         }
     }
 
-    private TarArchiveOutputStream getTarOutputStream(OutputStream gw7FileOutputStream) throws IOException {
-        TarArchiveOutputStream tarArchiveOutputStream = new TarArchiveOutputStream(new GzipCompressorOutputStream(gw7FileOutputStream));
+    /**
+     * Writes the package files to the package file. If the package was built before, the entries that didn't change are
+     * copied already compressed from the previous package. The result is the same as building the package from
+     * scratch.
+     *
+     * @param gw7File      the package file
+     * @param packageFiles the files in the package
+     */
+    public void buildPackage(File gw7File, Set<PackageFile> packageFiles) {
+        final PackageIndex previousIndex = PackageIndex.read(gw7File);
+        final File newGw7File = new File(gw7File.getParentFile(), gw7File.getName() + ".tmp");
+        try {
+            final PackageIndex index;
+            try (OutputStream outputStream = Files.newOutputStream(newGw7File.toPath());
+                 FileChannel previousPackage = previousIndex != null ? FileChannel.open(gw7File.toPath(), StandardOpenOption.READ) : null) {
+                index = writePackage(outputStream, packageFiles, previousIndex, previousPackage);
+            }
+            Files.deleteIfExists(PackageIndex.getIndexFile(gw7File).toPath());
+            Files.move(newGw7File.toPath(), gw7File.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            index.write(gw7File);
+        } catch (IOException e) {
+            deleteQuietly(newGw7File);
+            throw new PackageBuildException("Error building GW7 Package: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            deleteQuietly(newGw7File);
+            throw e;
+        }
+    }
+
+    private PackageIndex writePackage(OutputStream gw7FileOutputStream, Set<PackageFile> packageFiles, PackageIndex previousIndex, FileChannel previousPackage) throws IOException {
+        final PackageIndex index = new PackageIndex();
+        final Map<String, PackageIndex.Entry> previousEntries = previousIndex != null ? previousIndex.getEntriesByPath() : Collections.emptyMap();
+        final ParallelGzipOutputStream gzipOutputStream = new ParallelGzipOutputStream(gw7FileOutputStream, compressionThreads);
+        try (TarArchiveOutputStream taos = getTarOutputStream(gzipOutputStream)) {
+            for (PackageFile file : packageFiles) {
+                index.getEntries().add(writeFile(taos, gzipOutputStream, file, previousEntries.get(file.filePath), previousPackage));
+            }
+        }
+        return index;
+    }
+
+    private TarArchiveOutputStream getTarOutputStream(OutputStream gzipOutputStream) {
+        TarArchiveOutputStream tarArchiveOutputStream = new TarArchiveOutputStream(gzipOutputStream);
         //This enables longer file paths within the tar
         tarArchiveOutputStream.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
         return tarArchiveOutputStream;
     }
 
-    private void writeFiles(TarArchiveOutputStream taos, Set<PackageFile> packageFiles) {
-        for (PackageFile file : packageFiles) {
-            try (InputStream inputStream = file.fileStreamSupplier.get()) {
+    private PackageIndex.Entry writeFile(TarArchiveOutputStream taos, ParallelGzipOutputStream gzipOutputStream, PackageFile file,
+                                         PackageIndex.Entry previousEntry, FileChannel previousPackage) {
+        try {
+            if (previousEntry != null && previousEntry.getSize() == file.fileSize && previousEntry.isExecutable() == file.executable) {
+                final String hash = hash(file);
+                if (hash.equals(previousEntry.getHash())) {
+                    return new PackageIndex.Entry(file.filePath, file.fileSize, file.executable, hash,
+                            gzipOutputStream.writeSegment(previousPackage, previousEntry.getSegment()));
+                }
+            }
+
+            final MessageDigest digest = newDigest();
+            try (InputStream inputStream = new DigestInputStream(file.fileStreamSupplier.get(), digest)) {
                 TarArchiveEntry tarEntry = new TarArchiveEntry(file.filePath);
                 tarEntry.setSize(file.fileSize);
+                tarEntry.setModTime(ENTRY_MODIFICATION_TIME);
+                tarEntry.setUserName("");
+                tarEntry.setGroupName("");
                 if (file.executable) {
                     tarEntry.setMode(365);
                 }
                 taos.putArchiveEntry(tarEntry);
                 IOUtils.copy(inputStream, taos);
                 taos.closeArchiveEntry();
-            } catch (IOException e) {
-                throw new PackageBuildException("Error building GW7 Package. Error adding file: " + file.filePath + " Message: " + e.getMessage(), e);
             }
+            return new PackageIndex.Entry(file.filePath, file.fileSize, file.executable, Base64.getEncoder().encodeToString(digest.digest()),
+                    gzipOutputStream.finishSegment());
+        } catch (IOException e) {
+            throw new PackageBuildException("Error building GW7 Package. Error adding file: " + file.filePath + " Message: " + e.getMessage(), e);
+        }
+    }
+
+    private static String hash(PackageFile file) throws IOException {
+        final MessageDigest digest = newDigest();
+        try (InputStream inputStream = new DigestInputStream(file.fileStreamSupplier.get(), digest)) {
+            IOUtils.copy(inputStream, NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
         }
     }
 
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.tasks.gw7;
+
+import com.ca.apim.gateway.cagatewayconfig.tasks.gw7.ParallelGzipOutputStream.Segment;
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * Index of the entries of a GW7 package, written next to the package. It records the content hash of every entry and
+ * where its compressed data is in the package, so the next build of the package can copy the entries that didn't
+ * change instead of compressing them again.
+ */
+public class PackageIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(PackageIndex.class.getName());
+    private static final String INDEX_FILE_SUFFIX = ".index";
+
+    private long packageLength;
+    private long packageLastModified;
+    private List<Entry> entries = new ArrayList<>();
+
+    static File getIndexFile(File packageFile) {
+        return new File(packageFile.getParentFile(), packageFile.getName() + INDEX_FILE_SUFFIX);
+    }
+
+    /**
+     * Reads the index of the given package.
+     *
+     * @param packageFile the package file
+     * @return the index, null if there is none or it was not written for the current package file
+     */
+    static PackageIndex read(File packageFile) {
+        final File indexFile = getIndexFile(packageFile);
+        if (!indexFile.isFile() || !packageFile.isFile()) {
+            return null;
+        }
+        final PackageIndex index;
+        try {
+            index = JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).readValue(indexFile, PackageIndex.class);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not read package index {0}: {1}", new Object[]{indexFile.getName(), e.getMessage()});
+            return null;
+        }
+        if (index.packageLength != packageFile.length() || index.packageLastModified != packageFile.lastModified()) {
+            LOGGER.log(Level.INFO, "Package index {0} is out of date, ignoring it", indexFile.getName());
+            return null;
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index of the given package next to it.
+     *
+     * @param packageFile the package file
+     */
+    void write(File packageFile) {
+        final File indexFile = getIndexFile(packageFile);
+        packageLength = packageFile.length();
+        packageLastModified = packageFile.lastModified();
+        try {
+            JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON).writeValue(indexFile, this);
+        } catch (IOException e) {
+            // the next build will compress every entry again
+            LOGGER.log(Level.WARNING, "Could not write package index {0}: {1}", new Object[]{indexFile.getName(), e.getMessage()});
+        }
+    }
+
+    @JsonIgnore
+    Map<String, Entry> getEntriesByPath() {
+        return entries.stream().collect(toMap(Entry::getPath, Function.identity(), (first, second) -> second));
+    }
+
+    public long getPackageLength() {
+        return packageLength;
+    }
+
+    public void setPackageLength(long packageLength) {
+        this.packageLength = packageLength;
+    }
+
+    public long getPackageLastModified() {
+        return packageLastModified;
+    }
+
+    public void setPackageLastModified(long packageLastModified) {
+        this.packageLastModified = packageLastModified;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * An entry of the package: its tar header values, the hash of its content and its compressed segment.
+     */
+    public static class Entry {
+        private String path;
+        private long size;
+        private boolean executable;
+        private String hash;
+        private long offset;
+        private long compressedLength;
+        private long crc;
+        private long length;
+
+        public Entry() {
+        }
+
+        Entry(String path, long size, boolean executable, String hash, Segment segment) {
+            this.path = path;
+            this.size = size;
+            this.executable = executable;
+            this.hash = hash;
+            this.offset = segment.getOffset();
+            this.compressedLength = segment.getCompressedLength();
+            this.crc = segment.getCrc();
+            this.length = segment.getLength();
+        }
+
+        @JsonIgnore
+        Segment getSegment() {
+            return new Segment(offset, compressedLength, crc, length);
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public boolean isExecutable() {
+            return executable;
+        }
+
+        public void setExecutable(boolean executable) {
+            this.executable = executable;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public void setOffset(long offset) {
+            this.offset = offset;
+        }
+
+        public long getCompressedLength() {
+            return compressedLength;
+        }
+
+        public void setCompressedLength(long compressedLength) {
+            this.compressedLength = compressedLength;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public void setCrc(long crc) {
+            this.crc = crc;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public void setLength(long length) {
+            this.length = length;
+        }
+    }
+}
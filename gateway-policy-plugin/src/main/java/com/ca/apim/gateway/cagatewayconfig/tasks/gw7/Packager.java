@@ -6,6 +6,7 @@
 
 package com.ca.apim.gateway.cagatewayconfig.tasks.gw7;
 
+import com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentPlan;
 import com.ca.apim.gateway.cagatewayconfig.tasks.gw7.GW7Builder.PackageFile;
 import com.ca.apim.gateway.cagatewayconfig.util.bundle.DependencyBundlesProcessor;
 import com.ca.apim.gateway.cagatewayconfig.util.file.FileUtils;
@@ -16,6 +17,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -23,8 +25,9 @@ import java.util.stream.Stream;
 
 import static java.util.Spliterator.ORDERED;
 import static java.util.Spliterators.spliteratorUnknownSize;
+import static java.util.Comparator.comparing;
 import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toSet;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.StreamSupport.stream;
 
 /**
@@ -73,9 +76,9 @@ class Packager {
                 fileDependencies(containerApplicationDependencies, DIRECTORY_OPT_DOCKER_RC_D + "apply-environment/"), // adds the apply environment jars
                 fileDependencies(modularAssertionDependencies, DIRECTORY_GATEWAY_MODULES + "assertions/"), // adds the dependent modular assertions
                 fileDependencies(customAssertionDependencies, DIRECTORY_GATEWAY_MODULES + "lib/") // adds the dependent custom assertions
-        ).flatMap(identity()).collect(toSet());
+        ).flatMap(identity()).collect(toCollection(LinkedHashSet::new)); // keeps the package entries in a stable order
 
-        gw7Builder.buildPackage(fileUtils.getOutputStream(gw7File), packageFiles);
+        gw7Builder.buildPackage(gw7File, packageFiles);
     }
 
     private String convertToReqBundle(String bundleFile) {
@@ -109,10 +112,16 @@ class Packager {
 
     @NotNull
     private Stream<PackageFile> deploymentBundle(File deploymentBundleFile, int numDependencyBundles, int numBundles) {
-        return Stream.of(new PackageFile(
-                DIRECTORY_OPT_DOCKER_RC_D + "bundle/templatized/_" + getFileCounter(numBundles, numDependencyBundles + 1) + "_" + convertToReqBundle(deploymentBundleFile.getName()), deploymentBundleFile.length(),
-                () -> fileUtils.getInputStream(deploymentBundleFile))
-        );
+        final String deploymentBundlePath = DIRECTORY_OPT_DOCKER_RC_D + "bundle/templatized/_" + getFileCounter(numBundles, numDependencyBundles + 1) + "_" + convertToReqBundle(deploymentBundleFile.getName());
+        final Stream.Builder<PackageFile> packageFiles = Stream.<PackageFile>builder()
+                .add(new PackageFile(deploymentBundlePath, deploymentBundleFile.length(), () -> fileUtils.getInputStream(deploymentBundleFile)));
+
+        // the environment plan is looked up by the name of the bundle, so it must follow the bundle's packaged name
+        final File planFile = EnvironmentPlan.getPlanFile(deploymentBundleFile);
+        if (planFile.isFile()) {
+            packageFiles.add(new PackageFile(deploymentBundlePath + EnvironmentPlan.ENVIRONMENT_PLAN_FILE_SUFFIX, planFile.length(), () -> fileUtils.getInputStream(planFile)));
+        }
+        return packageFiles.build();
     }
 
     private Stream<PackageFile> applyEnvironmentScript() {
@@ -136,7 +145,7 @@ class Packager {
 
     @NotNull
     private Stream<PackageFile> fileDependencies(Set<File> files, String path) {
-        return files.stream().map(f -> new PackageFile(
+        return files.stream().sorted(comparing(File::getName).thenComparing(File::getPath)).map(f -> new PackageFile(
                 path + f.getName(), f.length(), () -> fileUtils.getInputStream(f))
         );
     }
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.tasks.gw7;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream that compresses blocks of the data on several threads, the way pigz does. Every block is deflated
+ * on its own, primed with the last 32K of the block before it, and flushed to a byte boundary, so the compressed blocks
+ * written one after the other still form a single valid gzip stream.
+ * <p>
+ * The data can be divided in segments that don't refer to each other. The compressed bytes of a segment only depend on
+ * its own data, so a segment compressed before can be copied from a previous output with {@link #writeSegment} instead
+ * of being compressed again.
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+    static final int BLOCK_SIZE = 128 * 1024;
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    // magic number, deflate, no flags, no modification time, no extra flags, unknown OS
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int HEADER_SIZE = HEADER.length;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final Deque<Future<CompressedBlock>> pendingBlocks = new ArrayDeque<>();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength;
+    private byte[] previousBlock;
+    private int previousBlockLength;
+
+    private long compressedLength = HEADER_SIZE;
+    private long crc;
+    private long length;
+    private long segmentOffset = HEADER_SIZE;
+    private long segmentCrc;
+    private long segmentLength;
+    private boolean closed;
+
+    /**
+     * @param out     the stream to write the gzip stream to
+     * @param threads the number of threads compressing blocks
+     */
+    ParallelGzipOutputStream(OutputStream out, int threads) throws IOException {
+        this.out = out;
+        this.maxPendingBlocks = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "gw7-gzip");
+            thread.setDaemon(true);
+            return thread;
+        });
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int count) throws IOException {
+        while (count > 0) {
+            final int copied = Math.min(count, BLOCK_SIZE - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, copied);
+            blockLength += copied;
+            offset += copied;
+            count -= copied;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Ends the current segment, the data written next starts a new one.
+     *
+     * @return the position of the segment in the output
+     * @throws IOException if the compressed data can't be written
+     */
+    Segment finishSegment() throws IOException {
+        if (blockLength > 0) {
+            submitBlock(false);
+        }
+        writePendingBlocks(0);
+        final Segment segment = new Segment(segmentOffset, compressedLength - segmentOffset, segmentCrc, segmentLength);
+        startSegment();
+        return segment;
+    }
+
+    /**
+     * Copies a segment compressed before from a previous output of this stream, as the next segment of this output.
+     *
+     * @param source  the previous output
+     * @param segment the position of the segment in the previous output
+     * @return the position of the segment in this output
+     * @throws IOException if the segment can't be copied
+     */
+    Segment writeSegment(FileChannel source, Segment segment) throws IOException {
+        finishSegment();
+        final WritableByteChannel target = Channels.newChannel(out);
+        long copied = 0;
+        while (copied < segment.getCompressedLength()) {
+            final long transferred = source.transferTo(segment.getOffset() + copied, segment.getCompressedLength() - copied, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of the previous package at " + (segment.getOffset() + copied));
+            }
+            copied += transferred;
+        }
+        compressedLength += copied;
+        crc = combineCrc(crc, segment.getCrc(), segment.getLength());
+        length += segment.getLength();
+        final Segment written = new Segment(segmentOffset, copied, segment.getCrc(), segment.getLength());
+        startSegment();
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            submitBlock(true);
+            writePendingBlocks(0);
+            writeTrailer();
+            out.flush();
+        } finally {
+            executor.shutdownNow();
+            out.close();
+        }
+    }
+
+    private void startSegment() {
+        segmentOffset = compressedLength;
+        segmentCrc = 0;
+        segmentLength = 0;
+        previousBlock = null;
+        previousBlockLength = 0;
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        final byte[] data = block;
+        final int dataLength = blockLength;
+        final byte[] dictionary = previousBlock;
+        final int dictionaryLength = previousBlockLength;
+        pendingBlocks.add(executor.submit(() -> compress(data, dataLength, dictionary, dictionaryLength, last)));
+
+        previousBlock = data;
+        previousBlockLength = dataLength;
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+        writePendingBlocks(maxPendingBlocks);
+    }
+
+    private void writePendingBlocks(int maxPending) throws IOException {
+        while (pendingBlocks.size() > maxPending) {
+            final CompressedBlock compressedBlock;
+            try {
+                compressedBlock = pendingBlocks.remove().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing");
+            } catch (ExecutionException e) {
+                throw new IOException("Could not compress block: " + e.getCause().getMessage(), e.getCause());
+            }
+            compressedBlock.data.writeTo(out);
+            compressedLength += compressedBlock.data.size();
+            crc = combineCrc(crc, compressedBlock.crc, compressedBlock.length);
+            length += compressedBlock.length;
+            segmentCrc = combineCrc(segmentCrc, compressedBlock.crc, compressedBlock.length);
+            segmentLength += compressedBlock.length;
+        }
+    }
+
+    private void writeTrailer() throws IOException {
+        final byte[] trailer = new byte[8];
+        for (int i = 0; i < 4; i++) {
+            trailer[i] = (byte) (crc >>> (i * 8));
+            trailer[i + 4] = (byte) (length >>> (i * 8));
+        }
+        out.write(trailer);
+    }
+
+    private static CompressedBlock compress(byte[] data, int dataLength, byte[] dictionary, int dictionaryLength, boolean last) {
+        final CRC32 blockCrc = new CRC32();
+        blockCrc.update(data, 0, dataLength);
+
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream(dataLength / 2 + 64);
+        final byte[] buffer = new byte[16 * 1024];
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dictionary != null) {
+                // copied because setDictionary(byte[], int, int) ignores the offset before Java 16 (JDK-8252739)
+                deflater.setDictionary(Arrays.copyOfRange(dictionary, Math.max(0, dictionaryLength - DICTIONARY_SIZE), dictionaryLength));
+            }
+            deflater.setInput(data, 0, dataLength);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // a sync flush ends the block at a byte boundary so the next one can be appended to it
+                int count;
+                do {
+                    count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(buffer, 0, count);
+                } while (count == buffer.length);
+            }
+        } finally {
+            deflater.end();
+        }
+        return new CompressedBlock(compressed, blockCrc.getValue(), dataLength);
+    }
+
+    /**
+     * Gets the CRC-32 of two pieces of data one after the other from the CRC-32 of each, as zlib's crc32_combine.
+     */
+    static long combineCrc(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        final long[] even = new long[32];
+        final long[] odd = new long[32];
+        // operator for one zero bit
+        odd[0] = 0xedb88320L;
+        long row = 1;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // operators for two and four zero bits
+        square(even, odd);
+        square(odd, even);
+
+        // apply length2 zero bytes to crc1
+        long remaining = length2;
+        long combined = crc1;
+        do {
+            square(even, odd);
+            if ((remaining & 1) != 0) {
+                combined = times(even, combined);
+            }
+            remaining >>= 1;
+            if (remaining == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((remaining & 1) != 0) {
+                combined = times(odd, combined);
+            }
+            remaining >>= 1;
+        } while (remaining != 0);
+        return combined ^ crc2;
+    }
+
+    private static long times(long[] matrix, long vector) {
+        long sum = 0;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void square(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    private static class CompressedBlock {
+        private final ByteArrayOutputStream data;
+        private final long crc;
+        private final int length;
+
+        private CompressedBlock(ByteArrayOutputStream data, long crc, int length) {
+            this.data = data;
+            this.crc = crc;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Position of a segment in the compressed output, with the CRC-32 and length of its uncompressed data.
+     */
+    static class Segment {
+        private final long offset;
+        private final long compressedLength;
+        private final long crc;
+        private final long length;
+
+        Segment(long offset, long compressedLength, long crc, long length) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.crc = crc;
+            this.length = length;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        long getCompressedLength() {
+            return compressedLength;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        long getLength() {
+            return length;
+        }
+    }
+}
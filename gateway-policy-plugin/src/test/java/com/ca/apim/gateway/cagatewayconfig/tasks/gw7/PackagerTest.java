@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2018 CA. All rights reserved.
+ * This software may be modified and distributed under the terms
+ * of the MIT license.  See the LICENSE file for details.
+ */
+
+package com.ca.apim.gateway.cagatewayconfig.tasks.gw7;
+
+import com.ca.apim.gateway.cagatewayconfig.ProjectInfo;
+import com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentBundleCreator;
+import com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentPlan;
+import com.ca.apim.gateway.cagatewayconfig.util.bundle.DependencyBundlesProcessor;
+import com.ca.apim.gateway.cagatewayconfig.util.file.FileUtils;
+import com.ca.apim.gateway.cagatewayconfig.util.injection.InjectionRegistry;
+import com.ca.apim.gateway.cagatewayconfig.util.json.JsonTools;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+
+import static com.ca.apim.gateway.cagatewayconfig.environment.EnvironmentBundleCreationMode.APPLICATION;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptySet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith({MockitoExtension.class, TemporaryFolderExtension.class})
+class PackagerTest {
+
+    private static final String TEMPLATIZED_BUNDLES_ENTRY = "opt/docker/rc.d/bundle/templatized/";
+    private static final String BUNDLE_XML = "<l7:Bundle xmlns:l7=\"http://ns.l7tech.com/2010/04/gateway-management\">\n" +
+            "    <l7:References>\n" +
+            "        <l7:Item>\n" +
+            "            <l7:Name>my-policy</l7:Name>\n" +
+            "            <l7:Id>d6a0fc3a7d8b4a4e9e8f0b1c2d3e4f50</l7:Id>\n" +
+            "            <l7:Type>POLICY</l7:Type>\n" +
+            "            <l7:Resource>\n" +
+            "                <l7:Policy guid=\"0f1e2d3c-4b5a-6978-8796-a5b4c3d2e1f0\" id=\"d6a0fc3a7d8b4a4e9e8f0b1c2d3e4f50\">\n" +
+            "                    <l7:Resources>\n" +
+            "                        <l7:ResourceSet tag=\"policy\">\n" +
+            "                            <l7:Resource type=\"policy\">&lt;wsp:Policy xmlns:wsp=\"http://schemas.xmlsoap.org/ws/2002/12/policy\" xmlns:L7p=\"http://www.layer7tech.com/ws/policy\"&gt;\n" +
+            "    &lt;wsp:All wsp:Usage=\"Required\"&gt;\n" +
+            "        &lt;L7p:SetVariable&gt;\n" +
+            "            &lt;L7p:Base64Expression ENV_PARAM_NAME=\"ENV.anotherEnvVar\"/&gt;\n" +
+            "            &lt;L7p:VariableToSet stringValue=\"ENV.anotherEnvVar\"/&gt;\n" +
+            "        &lt;/L7p:SetVariable&gt;\n" +
+            "    &lt;/wsp:All&gt;\n" +
+            "&lt;/wsp:Policy&gt;</l7:Resource>\n" +
+            "                        </l7:ResourceSet>\n" +
+            "                    </l7:Resources>\n" +
+            "                </l7:Policy>\n" +
+            "            </l7:Resource>\n" +
+            "        </l7:Item>\n" +
+            "    </l7:References>\n" +
+            "    <l7:Mappings>\n" +
+            "    </l7:Mappings>\n" +
+            "</l7:Bundle>";
+
+    @Mock
+    private DependencyBundlesProcessor dependencyBundlesProcessor;
+
+    @Test
+    void buildPackageWithEnvironmentPlan(TemporaryFolder temporaryFolder) throws IOException {
+        File bundleFile = new File(temporaryFolder.createDirectory("bundle"), "my-bundle.bundle");
+        Files.write(bundleFile.toPath(), BUNDLE_XML.getBytes(UTF_8));
+        EnvironmentPlan.writePlanFile(bundleFile, EnvironmentPlan.create(bundleFile.getName(), BUNDLE_XML));
+        when(dependencyBundlesProcessor.process(any(), any())).thenReturn(new LinkedList<>());
+
+        File gw7File = new File(temporaryFolder.getRoot(), "package.gw7");
+        new Packager(FileUtils.INSTANCE, new GW7Builder(), dependencyBundlesProcessor)
+                .buildPackage(gw7File, bundleFile, new LinkedList<>(), emptySet(), emptySet(), emptySet());
+
+        File templatizedFolder = temporaryFolder.createDirectory("templatized");
+        Set<String> templatizedFiles = extractTemplatizedBundles(gw7File, templatizedFolder);
+        assertEquals(new TreeSet<>(Arrays.asList("_1_my-bundle.req.bundle", "_1_my-bundle.req.bundle" + EnvironmentPlan.ENVIRONMENT_PLAN_FILE_SUFFIX)), templatizedFiles);
+
+        // a plan pointing its placeholders to another variable shows in the output only if the packaged plan is used
+        File planFile = new File(templatizedFolder, "_1_my-bundle.req.bundle" + EnvironmentPlan.ENVIRONMENT_PLAN_FILE_SUFFIX);
+        ObjectMapper objectMapper = JsonTools.INSTANCE.getObjectMapper(JsonTools.JSON);
+        EnvironmentPlan plan = objectMapper.readValue(planFile, EnvironmentPlan.class);
+        assertEquals(1, plan.getPlaceholders().size());
+        plan.getPlaceholders().forEach(placeholder -> placeholder.setName("otherEnvVar"));
+        objectMapper.writeValue(planFile, plan);
+
+        File detemplatizedFolder = temporaryFolder.createDirectory("detemplatized");
+        InjectionRegistry.getInstance(EnvironmentBundleCreator.class).createEnvironmentBundle(
+                ImmutableMap.of(
+                        "ENV.CONTEXT_VARIABLE_PROPERTY.anotherEnvVar", "anotherEnvValue",
+                        "ENV.CONTEXT_VARIABLE_PROPERTY.otherEnvVar", "otherEnvValue"),
+                detemplatizedFolder.getPath(),
+                templatizedFolder.getPath(),
+                new File(temporaryFolder.getRoot(), "config").getPath(),
+                APPLICATION,
+                "_0_env.req.install.bundle",
+                new ProjectInfo("environment", "", "")
+        );
+
+        String expected = BUNDLE_XML.replace("L7p:Base64Expression ENV_PARAM_NAME=\"ENV.anotherEnvVar\"",
+                "L7p:Base64Expression stringValue=\"" + Base64.getEncoder().encodeToString("otherEnvValue".getBytes()) + "\"") + System.lineSeparator();
+        assertEquals(expected, new String(Files.readAllBytes(new File(detemplatizedFolder, "_1_my-bundle.req.bundle").toPath()), UTF_8));
+    }
+
+    private static Set<String> extractTemplatizedBundles(File gw7File, File folder) throws IOException {
+        Set<String> names = new TreeSet<>();
+        try (InputStream inputStream = Files.newInputStream(gw7File.toPath());
+             TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(new GZIPInputStream(inputStream))) {
+            TarArchiveEntry entry;
+            while ((entry = tarArchiveInputStream.getNextTarEntry()) != null) {
+                if (entry.getName().startsWith(TEMPLATIZED_BUNDLES_ENTRY)) {
+                    String name = entry.getName().substring(TEMPLATIZED_BUNDLES_ENTRY.length());
+                    Files.copy(tarArchiveInputStream, new File(folder, name).toPath());
+                    names.add(name);
+                }
+            }
+        }
+        return names;
+    }
+}
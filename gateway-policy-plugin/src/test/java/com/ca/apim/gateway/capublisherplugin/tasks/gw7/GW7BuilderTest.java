@@ -9,14 +9,19 @@ package com.ca.apim.gateway.capublisherplugin.tasks.gw7;
 import com.ca.apim.gateway.cagatewayconfig.tasks.gw7.GW7Builder;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import io.github.glytching.junit.extension.folder.TemporaryFolder;
+import io.github.glytching.junit.extension.folder.TemporaryFolderExtension;
 import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.GZIPInputStream;
@@ -43,4 +48,71 @@ class GW7BuilderTest {
         Assertions.assertArrayEquals(new byte[]{1, 2, 3}, IOUtils.toByteArray(tarArchiveInputStream));
         Assertions.assertNull(tarArchiveInputStream.getNextTarEntry());
     }
+
+    @Test
+    void buildPackageLargeFilesIsReproducible() throws IOException {
+        byte[] large = largeContent(1);
+        byte[] other = largeContent(2);
+        Set<GW7Builder.PackageFile> packageFiles = packageFiles(large, other);
+
+        GW7Builder builder = new GW7Builder();
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        builder.buildPackage(first, packageFiles);
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        builder.buildPackage(second, packageFiles);
+        Assertions.assertArrayEquals(first.toByteArray(), second.toByteArray());
+
+        TarArchiveInputStream tarArchiveInputStream = new TarArchiveInputStream(new GZIPInputStream(new ByteArrayInputStream(first.toByteArray())));
+        TarArchiveEntry entry = tarArchiveInputStream.getNextTarEntry();
+        Assertions.assertEquals("opt/large", entry.getName());
+        Assertions.assertArrayEquals(large, IOUtils.toByteArray(tarArchiveInputStream));
+        entry = tarArchiveInputStream.getNextTarEntry();
+        Assertions.assertEquals("opt/other.sh", entry.getName());
+        Assertions.assertEquals(365, entry.getMode());
+        Assertions.assertArrayEquals(other, IOUtils.toByteArray(tarArchiveInputStream));
+        Assertions.assertNull(tarArchiveInputStream.getNextTarEntry());
+    }
+
+    @Test
+    @ExtendWith(TemporaryFolderExtension.class)
+    void buildPackageReusesUnchangedFiles(TemporaryFolder temporaryFolder) throws IOException {
+        File gw7File = new File(temporaryFolder.getRoot(), "package.gw7");
+        byte[] large = largeContent(1);
+
+        GW7Builder builder = new GW7Builder();
+        builder.buildPackage(gw7File, packageFiles(large, largeContent(2)));
+        Assertions.assertTrue(new File(temporaryFolder.getRoot(), "package.gw7.index").isFile());
+
+        // the large file is copied from the previous package and the other file compressed again
+        byte[] changed = largeContent(3);
+        builder.buildPackage(gw7File, packageFiles(large, changed));
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        builder.buildPackage(expected, packageFiles(large, changed));
+        Assertions.assertArrayEquals(expected.toByteArray(), Files.readAllBytes(gw7File.toPath()));
+        Assertions.assertFalse(new File(temporaryFolder.getRoot(), "package.gw7.tmp").exists());
+    }
+
+    private static Set<GW7Builder.PackageFile> packageFiles(byte[] large, byte[] other) {
+        return Stream.of(
+                new GW7Builder.PackageFile("/opt/large", large.length, () -> new ByteArrayInputStream(large)),
+                new GW7Builder.PackageFile("/opt/other.sh", other.length, () -> new ByteArrayInputStream(other), true)
+        ).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static byte[] largeContent(long seed) {
+        // a mix of repeated and random data spanning several compression blocks
+        byte[] content = new byte[700_000];
+        Random random = new Random(seed);
+        for (int i = 0; i < content.length; i += 1000) {
+            if (random.nextBoolean()) {
+                Arrays.fill(content, i, Math.min(i + 1000, content.length), (byte) random.nextInt());
+            } else {
+                byte[] randomBytes = new byte[Math.min(1000, content.length - i)];
+                random.nextBytes(randomBytes);
+                System.arraycopy(randomBytes, 0, content, i, randomBytes.length);
+            }
+        }
+        return content;
+    }
 }
\ No newline at end of file